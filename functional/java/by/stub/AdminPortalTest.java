@@ -4,6 +4,7 @@ import by.stub.builder.yaml.YamlBuilder;
 import by.stub.cli.ANSITerminal;
 import by.stub.client.StubbyClient;
 import by.stub.client.StubbyResponse;
+import by.stub.utils.HandlerUtils;
 import by.stub.utils.StringUtils;
 import by.stub.yaml.stubs.StubResponse;
 import com.google.api.client.http.HttpHeaders;
@@ -118,6 +119,133 @@ public class AdminPortalTest {
       assertThat(responseContentAsString).contains("/uri/with/single/sequenced/response");
    }
 
+   @Test
+   public void shouldMakeSuccessfulGetRequestToStatusPage_WhenPageRequested() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/status?offset=1&limit=1");
+      final HttpRequest httpGetRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+
+      final HttpResponse httpResponse = httpGetRequest.execute();
+      final String responseContentAsString = httpResponse.parseAsString().trim();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(responseContentAsString).contains("Showing requests 2 to 2");
+      assertThat(responseContentAsString).contains("<a href='/status?offset=0&amp;limit=1'>&laquo; previous</a>");
+      assertThat(responseContentAsString).contains("<a href='/status?offset=2&amp;limit=1'>next &raquo;</a>");
+      assertThat(responseContentAsString).contains("/this/stub/should/always/be/second/in/this/file");
+      assertThat(responseContentAsString).doesNotContain("/pdf/hello-world");
+   }
+
+   @Test
+   public void shouldShowAppendedStubOnStatusPage_WhenPageWasViewedBeforeAppending() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/status?offset=1000");
+      final String beforeAppendContent = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute().parseAsString();
+      assertThat(beforeAppendContent).contains("No requests to show on this page");
+
+      final String yamlToAppend = new YamlBuilder()
+         .newStubbedRequest()
+         .withUrl("/appended/then/shown/on/status")
+         .withMethodGet()
+         .newStubbedResponse()
+         .withStatus("200")
+         .build();
+      HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/?mode=append", ADMIN_URL), yamlToAppend).execute();
+
+      final String afterAppendUrl = String.format("%s%s", ADMIN_URL, "/status?limit=1000");
+      final String afterAppendContent = HttpUtils.constructHttpRequest(HttpMethods.GET, afterAppendUrl).execute().parseAsString();
+      assertThat(afterAppendContent).contains("/appended/then/shown/on/status");
+   }
+
+   @Test
+   public void shouldReturnExpectedError_WhenStatusPageRequestedWithNegativeOffset() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/status?offset=-1");
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST_400);
+      assertThat(httpResponse.parseAsString().trim()).contains("Parameter 'offset' must not be negative, was: -1");
+   }
+
+   @Test
+   public void shouldMakeSuccessfulGetRequestToStats() throws Exception {
+
+      final String stubsRequestUrl = String.format("%s%s", STUBS_URL, "/this/stub/should/always/be/second/in/this/file");
+      HttpUtils.constructHttpRequest(HttpMethods.GET, stubsRequestUrl).execute();
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/stats");
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+      final String responseContentAsString = httpResponse.parseAsString().trim();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(httpResponse.getContentType()).contains(HandlerUtils.APPLICATION_JSON);
+      assertThat(responseContentAsString).startsWith("{\"host\":");
+      assertThat(responseContentAsString).contains(String.format("\"adminPort\":%s,", ADMIN_PORT));
+      assertThat(responseContentAsString).contains("\"url\":\"/this/stub/should/always/be/second/in/this/file\",\"hits\":1,\"lastHitMillis\":1");
+   }
+
+   @Test
+   public void shouldResetStubHitCounts_WhenDeleteRequestMadeToStats() throws Exception {
+
+      final String stubsRequestUrl = String.format("%s%s", STUBS_URL, "/this/stub/should/always/be/second/in/this/file");
+      HttpUtils.constructHttpRequest(HttpMethods.GET, stubsRequestUrl).execute();
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/stats");
+      final HttpResponse deleteResponse = HttpUtils.constructHttpRequest(HttpMethods.DELETE, requestUrl).execute();
+      assertThat(deleteResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+      assertThat(httpResponse.parseAsString().trim()).contains("\"url\":\"/this/stub/should/always/be/second/in/this/file\",\"hits\":0,\"lastHitMillis\":null");
+   }
+
+   @Test
+   public void shouldReturnNotFound_WhenRequestsQueriedButNotRecorded() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/requests/count?method=GET");
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND_404);
+      assertThat(httpResponse.parseAsString().trim()).contains("start stubby with --requests");
+   }
+
+   @Test
+   public void shouldReturnNotFound_WhenUnknownRequestsPathQueried() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/requests/unknown");
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND_404);
+      assertThat(httpResponse.parseAsString().trim()).contains("URI /requests/unknown does not exist");
+   }
+
+   @Test
+   public void shouldReturnMethodNotAllowed_WhenRequestsPostedTo() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/requests");
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.POST, requestUrl).execute();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.METHOD_NOT_ALLOWED_405);
+      assertThat(httpResponse.getHeaders().getFirstHeaderStringValue("Allow")).isEqualTo("GET");
+      assertThat(httpResponse.parseAsString().trim()).isEqualTo("Method POST is not allowed on URI /requests");
+   }
+
+   @Test
+   public void shouldMakeSuccessfulGetRequestToStartupReport() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/startup");
+      final HttpRequest httpGetRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+
+      final HttpResponse httpResponse = httpGetRequest.execute();
+      final String responseContentAsString = httpResponse.parseAsString().trim();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(responseContentAsString).contains("Startup report");
+      assertThat(responseContentAsString).contains("YAML parse");
+      assertThat(responseContentAsString).contains("jetty start");
+      assertThat(responseContentAsString).contains("stubs parsed:");
+      assertThat(responseContentAsString).contains("stubs.yaml");
+   }
+
    @Test
    public void should_ReturnAllStubbedRequestsAsYAML_WhenSuccessfulGetMade_ToAdminPortalRoot() throws Exception {
 
@@ -135,6 +263,34 @@ public class AdminPortalTest {
       assertThat(responseContentAsString).contains("url: /uri/with/single/sequenced/response");
    }
 
+   @Test
+   public void should_ReturnPageOfFilteredStubbedRequestsAsYAML_WhenSuccessfulGetMade_ToAdminPortalRootWithPagingParameters() throws Exception {
+
+      final String allFilteredUrl = String.format("%s%s", ADMIN_URL, "/?url=/uri/with/");
+      final String allFilteredContent = HttpUtils.constructHttpRequest(HttpMethods.GET, allFilteredUrl).execute().parseAsString().trim();
+      assertThat(allFilteredContent).contains("url: /uri/with/single/sequenced/response");
+      assertThat(allFilteredContent).doesNotContain("url: ^/resources/asn/");
+
+      final String[] allFilteredStubs = allFilteredContent.split("\n\n");
+      assertThat(allFilteredStubs.length).isGreaterThan(1);
+
+      final String pageUrl = String.format("%s%s", ADMIN_URL, "/?url=/uri/with/&offset=1&limit=1");
+      final HttpResponse pageResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, pageUrl).execute();
+
+      assertThat(pageResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(pageResponse.parseAsString().trim()).isEqualTo(allFilteredStubs[1].trim());
+   }
+
+   @Test
+   public void should_ReturnExpectedError_WhenSuccessfulGetMade_ToAdminPortalRootWithInvalidPagingParameter() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/?limit=-1");
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST_400);
+      assertThat(httpResponse.getStatusMessage().trim()).isEqualTo("Parameter 'limit' must not be negative, was: -1");
+   }
+
    @Test
    public void should_ReturnSingleStubbedRequestAsYAML_WhenSuccessfulGetMade_ToAdminPortalRootWithValidIndexURI() throws Exception {
 
@@ -321,7 +477,8 @@ public class AdminPortalTest {
       httpGetResponse = httpGetRequest.execute();
       getResponseContent = httpGetResponse.parseAsString().trim();
 
-      assertThat(HttpStatus.OK_200).isEqualTo(httpGetResponse.getStatusCode());
+      // Resource IDs are stable, the deleted ID is not taken over by the next stub
+      assertThat(HttpStatus.NO_CONTENT_204).isEqualTo(httpGetResponse.getStatusCode());
       assertThat(getResponseContent).doesNotContain("url: ^/[a-z]{3}-[a-z]{3}/[0-9]{2}/[A-Z]{2}/[a-z0-9]+\\?paramOne=[a-zA-Z]{3,8}&paramTwo=[a-zA-Z]{3,8}");
    }
 
@@ -438,7 +595,174 @@ public class AdminPortalTest {
    }
 
    @Test
-   public void should_AdjustResourceIdHeaderAccordingly_WhenSuccessfulDeleteMade() throws Exception {
+   public void should_AppendStubsData_WhenSuccessfulValidPostMade_ToAdminPortalRootInAppendMode() throws Exception {
+
+      final String yamlToAppend = new YamlBuilder()
+         .newStubbedRequest()
+         .withUrl("/appended/resource")
+         .withMethodGet()
+         .newStubbedResponse()
+         .withLiteralBody("APPENDED")
+         .withStatus("200")
+         .build();
+
+      final String adminRequestUrl = String.format("%s/?mode=append", ADMIN_URL);
+      final HttpRequest httpPostRequest = HttpUtils.constructHttpRequest(HttpMethods.POST, adminRequestUrl, yamlToAppend);
+
+      final HttpResponse httpResponse = httpPostRequest.execute();
+      final String responseMessage = httpResponse.parseAsString().trim();
+      final String appendedResourceId = responseMessage.substring(responseMessage.lastIndexOf(' ') + 1);
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED_201);
+      assertThat(responseMessage).startsWith("Configuration appended successfully, resource IDs: ");
+      assertThat(Integer.parseInt(appendedResourceId)).isGreaterThan(1);
+
+      final HttpResponse appendedStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/appended/resource")).execute();
+      assertThat(appendedStubResponse.parseAsString().trim()).isEqualTo("APPENDED");
+      assertThat(appendedStubResponse.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo(appendedResourceId);
+
+      final HttpResponse existingStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/this/stub/should/always/be/second/in/this/file")).execute();
+      assertThat(existingStubResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(existingStubResponse.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo("1");
+   }
+
+   @Test
+   public void should_UpdateStubsDataAndListItAsJson_WhenSuccessfulValidJsonPostMade_ToAdminPortalRoot() throws Exception {
+
+      final String jsonToUpdate = "[{\"request\": {\"method\": \"GET\", \"url\": \"/json/resource\"}, " +
+         "\"response\": {\"status\": 200, \"body\": \"JSON\"}}]";
+
+      final String adminRequestUrl = String.format("%s/", ADMIN_URL);
+      final HttpResponse httpResponse = HttpUtils.constructHttpRequest(HttpMethods.POST, adminRequestUrl, jsonToUpdate, "application/json").execute();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED_201);
+      assertThat(httpResponse.parseAsString().trim()).isEqualTo("Configuration created successfully");
+
+      final HttpResponse stubsGetResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/json/resource")).execute();
+      assertThat(stubsGetResponse.parseAsString().trim()).isEqualTo("JSON");
+
+      final HttpRequest adminGetRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, adminRequestUrl);
+      adminGetRequest.getHeaders().setAccept("application/json");
+      final HttpResponse adminGetResponse = adminGetRequest.execute();
+
+      assertThat(adminGetResponse.getContentType()).contains("application/json");
+      assertThat(adminGetResponse.parseAsString().trim()).isEqualTo("[{\"request\":{\"method\":\"GET\",\"url\":\"/json/resource\"}," +
+         "\"response\":{\"status\":\"200\",\"body\":\"JSON\"}}]");
+   }
+
+   @Test
+   public void should_ApplyBatchOperations_WhenSuccessfulValidPostMade_ToAdminPortalBatch() throws Exception {
+
+      final String addedStubYaml = new YamlBuilder()
+         .newStubbedRequest()
+         .withUrl("/batched/resource")
+         .withMethodGet()
+         .newStubbedResponse()
+         .withLiteralBody("BATCHED")
+         .withStatus("200")
+         .build();
+
+      final String batchYaml = String.format("-  delete: 0\n-  add:\n%s", addedStubYaml.replaceFirst("-", " "));
+      final HttpRequest httpPostRequest = HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/batch", ADMIN_URL), batchYaml);
+
+      final HttpResponse httpResponse = httpPostRequest.execute();
+      final String responseMessage = httpResponse.parseAsString().trim();
+      final String addedResourceId = responseMessage.substring(responseMessage.lastIndexOf(' ') + 1);
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(responseMessage).startsWith("Batch of 2 operations applied successfully, added resource IDs: ");
+
+      final HttpResponse batchedStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/batched/resource")).execute();
+      assertThat(batchedStubResponse.parseAsString().trim()).isEqualTo("BATCHED");
+      assertThat(batchedStubResponse.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo(addedResourceId);
+
+      final HttpResponse secondStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/this/stub/should/always/be/second/in/this/file")).execute();
+      assertThat(secondStubResponse.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo("1");
+   }
+
+   @Test
+   public void should_ReturnExpectedError_WhenBatchAddressesMissingStub_ToAdminPortalBatch() throws Exception {
+
+      final HttpRequest httpPostRequest = HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/batch", ADMIN_URL), "-  delete: 9999");
+
+      final HttpResponse httpResponse = httpPostRequest.execute();
+      final String responseMessage = httpResponse.parseAsString().trim();
+
+      assertThat(httpResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST_400);
+      assertThat(responseMessage).contains("Batch was not applied: Stub request index#9999 does not exist, cannot delete");
+   }
+
+   @Test
+   public void should_RestoreStubsFromDataFile_WhenSuccessfulPostMade_ToAdminPortalReset() throws Exception {
+
+      final String yamlToAppend = new YamlBuilder()
+         .newStubbedRequest()
+         .withUrl("/appended/then/reset")
+         .withMethodGet()
+         .newStubbedResponse()
+         .withLiteralBody("APPENDED")
+         .withStatus("200")
+         .build();
+
+      HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/?mode=append", ADMIN_URL), yamlToAppend).execute();
+      HttpUtils.constructHttpRequest(HttpMethods.DELETE, String.format("%s/1", ADMIN_URL)).execute();
+
+      final HttpResponse resetResponse = HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/reset", ADMIN_URL)).execute();
+
+      assertThat(resetResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(resetResponse.parseAsString().trim()).isEqualTo("Stubs reset to the data file successfully");
+
+      final HttpResponse appendedStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/appended/then/reset")).execute();
+      assertThat(appendedStubResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND_404);
+
+      final HttpResponse deletedStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/this/stub/should/always/be/second/in/this/file")).execute();
+      assertThat(deletedStubResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(deletedStubResponse.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo("1");
+   }
+
+   @Test
+   public void should_RollBackToListedGeneration_WhenSuccessfulPostMade_ToAdminPortalGenerations() throws Exception {
+
+      final String yamlToAppend = new YamlBuilder()
+         .newStubbedRequest()
+         .withUrl("/appended/then/rolled/back")
+         .withMethodGet()
+         .newStubbedResponse()
+         .withLiteralBody("APPENDED")
+         .withStatus("200")
+         .build();
+
+      final String generationsUrl = String.format("%s/generations", ADMIN_URL);
+      final String beforeAppendGenerations = HttpUtils.constructHttpRequest(HttpMethods.GET, generationsUrl).execute().parseAsString();
+      final String beforeAppendGeneration = beforeAppendGenerations.replaceFirst("(?s)^generation (\\d+) \\(current\\).*$", "$1");
+
+      HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/?mode=append", ADMIN_URL), yamlToAppend).execute();
+      final HttpResponse appendedStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/appended/then/rolled/back")).execute();
+      assertThat(appendedStubResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+
+      final HttpResponse generationsResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, generationsUrl).execute();
+      assertThat(generationsResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(generationsResponse.parseAsString()).contains(String.format("generation %s:", beforeAppendGeneration));
+
+      final HttpResponse rollbackResponse = HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/%s", generationsUrl, beforeAppendGeneration)).execute();
+      assertThat(rollbackResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(rollbackResponse.parseAsString().trim()).startsWith(String.format("Rolled back to generation %s, published as generation", beforeAppendGeneration));
+
+      final HttpResponse rolledBackStubResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", STUBS_URL, "/appended/then/rolled/back")).execute();
+      assertThat(rolledBackStubResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND_404);
+   }
+
+   @Test
+   public void should_ReturnExpectedError_WhenRollingBackToUnknownGeneration_ToAdminPortalGenerations() throws Exception {
+
+      final HttpResponse rollbackResponse = HttpUtils.constructHttpRequest(HttpMethods.POST, String.format("%s/generations/999999", ADMIN_URL)).execute();
+
+      assertThat(rollbackResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND_404);
+      assertThat(rollbackResponse.parseAsString().trim()).contains("Generation 999999 is not kept, cannot roll back to it");
+   }
+
+   @Test
+   public void should_KeepResourceIdHeader_WhenSuccessfulDeleteMade() throws Exception {
 
       final String stubsRequestUrl = String.format("%s%s", STUBS_URL, "/this/stub/should/always/be/second/in/this/file");
       final HttpRequest stubsGetRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, stubsRequestUrl);
@@ -457,7 +781,11 @@ public class AdminPortalTest {
       final HttpResponse postDeletionStubGetResponse = postDeletionStubGetRequest.execute();
       final HttpHeaders postDeletionResponseHeaders = postDeletionStubGetResponse.getHeaders();
       assertThat(postDeletionResponseHeaders.containsKey(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isTrue();
-      assertThat(postDeletionResponseHeaders.getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo("0");
+      assertThat(postDeletionResponseHeaders.getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo("1");
+
+      final HttpResponse adminGetResponse = HttpUtils.constructHttpRequest(HttpMethods.GET, String.format("%s%s", ADMIN_URL, "/1")).execute();
+      assertThat(adminGetResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(adminGetResponse.parseAsString()).contains("/this/stub/should/always/be/second/in/this/file");
    }
 
    @Test
@@ -526,4 +854,77 @@ public class AdminPortalTest {
       assertThat(ajaxResponse.getStatusCode()).isEqualTo(HttpStatus.OK_200);
       assertThat(ajaxResponse.parseAsString().trim()).isEqualTo("Still going strong!");
    }
-}
\ No newline at end of file
+
+   @Test
+   public void should_ReturnRangeOfAjaxFileContent_WhenRangeRequested() throws Exception {
+
+      final String requestUrl = String.format("%s%s", STUBS_URL, "/uri/with/sequenced/responses/infile");
+      final HttpResponse response = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+      final String resourceID = response.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER);
+
+      final String ajaxRequestUrl = String.format("%s%s%s%s", ADMIN_URL, "/ajax/resource/", resourceID, "/response/1/file");
+      final HttpRequest ajaxRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, ajaxRequestUrl);
+      final HttpHeaders httpHeaders = new HttpHeaders();
+      httpHeaders.setRange("bytes=6-10");
+      ajaxRequest.setHeaders(httpHeaders);
+
+      final HttpResponse ajaxResponse = ajaxRequest.execute();
+      assertThat(ajaxResponse.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT_206);
+      assertThat(ajaxResponse.getContentType()).contains("application/json");
+      assertThat(ajaxResponse.getHeaders().getContentRange()).startsWith("bytes 6-10/");
+      assertThat(ajaxResponse.parseAsString()).isEqualTo("going");
+   }
+
+   @Test
+   public void should_ReturnRangeNotSatisfiable_WhenAjaxFileRangeStartsPastItsEnd() throws Exception {
+
+      final String requestUrl = String.format("%s%s", STUBS_URL, "/uri/with/sequenced/responses/infile");
+      final HttpResponse response = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+      final String resourceID = response.getHeaders().getFirstHeaderStringValue(StubResponse.STUBBY_RESOURCE_ID_HEADER);
+
+      final String ajaxRequestUrl = String.format("%s%s%s%s", ADMIN_URL, "/ajax/resource/", resourceID, "/response/1/file");
+      final HttpRequest ajaxRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, ajaxRequestUrl);
+      final HttpHeaders httpHeaders = new HttpHeaders();
+      httpHeaders.setRange("bytes=100000-");
+      ajaxRequest.setHeaders(httpHeaders);
+
+      final HttpResponse ajaxResponse = ajaxRequest.execute();
+      assertThat(ajaxResponse.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE_416);
+      assertThat(ajaxResponse.getHeaders().getContentRange()).startsWith("bytes */");
+   }
+
+   @Test
+   public void should_ServeCompressedStaticResourceWithLongLivedCacheHeaders_WhenGzipAccepted() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/highlight/highlight.pack.js");
+      final HttpRequest request = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+      final HttpHeaders httpHeaders = new HttpHeaders();
+      httpHeaders.setAcceptEncoding("gzip");
+      request.setHeaders(httpHeaders);
+
+      final HttpResponse response = request.execute();
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      assertThat(response.getContentEncoding()).isEqualTo("gzip");
+      assertThat(response.getHeaders().getCacheControl()).contains("max-age=");
+      assertThat(response.getHeaders().getETag()).isNotNull();
+      assertThat(response.parseAsString()).contains("hljs");
+   }
+
+   @Test
+   public void should_ReturnNotModified_WhenStaticResourceETagMatches() throws Exception {
+
+      final String requestUrl = String.format("%s%s", ADMIN_URL, "/images/loading.gif");
+      final HttpResponse response = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl).execute();
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+      final String etag = response.getHeaders().getETag();
+
+      final HttpRequest revalidationRequest = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+      final HttpHeaders httpHeaders = new HttpHeaders();
+      httpHeaders.setIfNoneMatch(etag);
+      revalidationRequest.setHeaders(httpHeaders);
+
+      final HttpResponse revalidationResponse = revalidationRequest.execute();
+      assertThat(revalidationResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED_304);
+      assertThat(revalidationResponse.getHeaders().getETag()).isEqualTo(etag);
+   }
+}
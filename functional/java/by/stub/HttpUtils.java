@@ -46,4 +46,11 @@ public final class HttpUtils {
          new GenericUrl(targetUrl),
          new ByteArrayContent(null, StringUtils.getBytesUtf8(content)));
    }
+
+   public static HttpRequest constructHttpRequest(final String method, final String targetUrl, final String content, final String contentType) throws IOException {
+
+      return WEB_CLIENT.buildRequest(method,
+         new GenericUrl(targetUrl),
+         new ByteArrayContent(contentType, StringUtils.getBytesUtf8(content)));
+   }
 }
@@ -29,21 +29,40 @@ public class CommandLineIntepreterTest {
       System.setOut(System.out);
 
       final String expectedConsoleOutput = "usage:\n" +
-         "       java -jar stubby4j-x.x.xx.jar [-a <arg>] [-d <arg>] [-h] [-k <arg>]\n" +
-         "       [-l <arg>] [-m] [-p <arg>] [-s <arg>] [-t <arg>] [-w]\n" +
-         " -a,--admin <arg>      Port for admin portal. Defaults to 8889.\n" +
-         " -d,--data <arg>       Data file to pre-load endpoints. Valid YAML 1.1\n" +
-         "                       expected.\n" +
-         " -h,--help             This help text.\n" +
-         " -k,--keystore <arg>   Keystore file for custom SSL. By default SSL is\n" +
-         "                       enabled using internal keystore.\n" +
-         " -l,--location <arg>   Hostname at which to bind stubby.\n" +
-         " -m,--mute             Prevent stubby from printing to the console.\n" +
-         " -p,--password <arg>   Password for the provided keystore file.\n" +
-         " -s,--stubs <arg>      Port for stub portal. Defaults to 8882.\n" +
-         " -t,--ssl <arg>        Port for SSL connection. Defaults to 7443.\n" +
-         " -w,--watch            Reloads stub data upon changes to the main YAML or\n" +
-         "                       referenced external files.";
+         "       java -jar stubby4j-x.x.xx.jar [-a <arg>] [-b <arg>] [-d <arg>] [-e]\n" +
+         "       [-f] [-g <arg>] [-h] [-j <arg>] [-k <arg>] [-l <arg>] [-m] [-p\n" +
+         "       <arg>] [-q <arg>] [-r] [-s <arg>] [-t <arg>] [-w]\n" +
+         " -a,--admin <arg>         Port for admin portal. Defaults to 8889.\n" +
+         " -b,--debounce <arg>      Milliseconds to wait for further changes before\n" +
+         "                          reloading, when watching. Defaults to 250.\n" +
+         " -d,--data <arg>          Data file to pre-load endpoints. Valid YAML 1.1\n" +
+         "                          expected.\n" +
+         " -e,--latencies           Records per stub histograms of the time taken to\n" +
+         "                          match and to serve requests, shown by the admin\n" +
+         "                          portal at /stats.\n" +
+         " -f,--fsync               Forces journal writes to disk before changes\n" +
+         "                          made through the admin portal are acknowledged.\n" +
+         " -g,--generations <arg>   Number of previous sets of stubs kept in memory\n" +
+         "                          for rollback. Defaults to 10.\n" +
+         " -h,--help                This help text.\n" +
+         " -j,--journal <arg>       Journal file recording changes made through the\n" +
+         "                          admin portal, which are recovered from it on\n" +
+         "                          startup.\n" +
+         " -k,--keystore <arg>      Keystore file for custom SSL. By default SSL is\n" +
+         "                          enabled using internal keystore.\n" +
+         " -l,--location <arg>      Hostname at which to bind stubby.\n" +
+         " -m,--mute                Prevent stubby from printing to the console.\n" +
+         " -p,--password <arg>      Password for the provided keystore file.\n" +
+         " -q,--requests <arg>      Number of most recent requests to the stub\n" +
+         "                          portal kept off the heap, queried by the admin\n" +
+         "                          portal at /requests.\n" +
+         " -r,--report              Prints a startup report: phase timings and\n" +
+         "                          allocations, stubs parsed per second, bytes\n" +
+         "                          loaded and slowest files.\n" +
+         " -s,--stubs <arg>         Port for stub portal. Defaults to 8882.\n" +
+         " -t,--ssl <arg>           Port for SSL connection. Defaults to 7443.\n" +
+         " -w,--watch               Reloads stub data upon changes to the main YAML\n" +
+         "                          or referenced external files.";
 
       final String actualConsoleOutput = consoleCaptor.toString(StringUtils.UTF_8).trim();
 
@@ -0,0 +1,114 @@
+package by.stub.database;
+
+import by.stub.builder.stubs.StubRequestBuilder;
+import by.stub.yaml.stubs.StubRequest;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RequestJournalTest {
+
+   private static final StubRequestBuilder REQUEST_BUILDER = new StubRequestBuilder();
+
+   @Test
+   public void shouldReadBackRecordedRequest_WhenRequestRecorded() throws Exception {
+
+      final RequestJournal requestJournal = new RequestJournal(4);
+      final StubRequest stubRequest = REQUEST_BUILDER.withUrl("/invoice/1").withMethodPost()
+         .withHeaderContentType("application/json").withHeaders("authorization", "secret").withPost("{\"id\":1}").build();
+      final long beforeRecordMillis = System.currentTimeMillis();
+      requestJournal.record(stubRequest, "/invoice/1", "a=b", 7, HttpStatus.CREATED_201, 2500000);
+
+      final List<JournaledRequest> found = requestJournal.find(null, null, null, 0, 10);
+      assertThat(found).hasSize(1);
+
+      final JournaledRequest journaledRequest = found.get(0);
+      final CRC32 crc32 = new CRC32();
+      crc32.update("{\"id\":1}".getBytes("UTF-8"));
+      assertThat(journaledRequest.getSequence()).isZero();
+      assertThat(journaledRequest.getTimeMillis()).isGreaterThanOrEqualTo(beforeRecordMillis);
+      assertThat(journaledRequest.getMethod()).isEqualTo("POST");
+      assertThat(journaledRequest.getUrl()).isEqualTo("/invoice/1");
+      assertThat(journaledRequest.getQuery()).isEqualTo("a=b");
+      assertThat(journaledRequest.getHeaders()).hasSize(1);
+      assertThat(journaledRequest.getHeaders().get("content-type")).isEqualTo("application/json");
+      assertThat(journaledRequest.getBodyCrc32()).isEqualTo(crc32.getValue());
+      assertThat(journaledRequest.getStubId()).isEqualTo(7);
+      assertThat(journaledRequest.getStatus()).isEqualTo(HttpStatus.CREATED_201);
+      assertThat(journaledRequest.getElapsedMicros()).isEqualTo(2500);
+   }
+
+   @Test
+   public void shouldRecordNoBodyNorStub_WhenRequestHadNoBodyAndMatchedNoStub() throws Exception {
+
+      final RequestJournal requestJournal = new RequestJournal(4);
+      requestJournal.record(REQUEST_BUILDER.withUrl("/missing").withMethodGet().build(), "/missing", null, RequestJournal.NO_STUB_ID, HttpStatus.NOT_FOUND_404, 0);
+
+      final JournaledRequest journaledRequest = requestJournal.find(null, null, null, 0, 10).get(0);
+      assertThat(journaledRequest.getQuery()).isNull();
+      assertThat(journaledRequest.getBodyCrc32()).isNull();
+      assertThat(journaledRequest.getStubId()).isEqualTo(RequestJournal.NO_STUB_ID);
+      assertThat(requestJournal.count(null, null, RequestJournal.NO_STUB_ID)).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldKeepOnlyMostRecentRequests_WhenMoreRecordedThanCapacity() throws Exception {
+
+      final RequestJournal requestJournal = new RequestJournal(3);
+      for (int index = 0; index < 5; index++) {
+         requestJournal.record(REQUEST_BUILDER.withUrl("/item/" + index).withMethodGet().build(), "/item/" + index, null, RequestJournal.NO_STUB_ID, HttpStatus.OK_200, 0);
+      }
+
+      final List<JournaledRequest> found = requestJournal.find(null, null, null, 0, 10);
+      assertThat(found).hasSize(3);
+      assertThat(found.get(0).getUrl()).isEqualTo("/item/4");
+      assertThat(found.get(2).getUrl()).isEqualTo("/item/2");
+      assertThat(requestJournal.getRecordedCount()).isEqualTo(5);
+   }
+
+   @Test
+   public void shouldFindAndCountOnlyMatchingRequests_WhenCriteriaGiven() throws Exception {
+
+      final RequestJournal requestJournal = new RequestJournal(10);
+      requestJournal.record(REQUEST_BUILDER.withUrl("/item/1").withMethodGet().build(), "/item/1", null, 1, HttpStatus.OK_200, 0);
+      requestJournal.record(REQUEST_BUILDER.withUrl("/item/2").withMethodPost().build(), "/item/2", null, 2, HttpStatus.OK_200, 0);
+      requestJournal.record(REQUEST_BUILDER.withUrl("/item/3").withMethodGet().build(), "/item/3", null, 1, HttpStatus.OK_200, 0);
+      requestJournal.record(REQUEST_BUILDER.withUrl("/other").withMethodGet().build(), "/other", null, RequestJournal.NO_STUB_ID, HttpStatus.NOT_FOUND_404, 0);
+
+      final Pattern itemUrl = Pattern.compile("^/item/.*");
+      assertThat(requestJournal.count(null, itemUrl, null)).isEqualTo(3);
+      assertThat(requestJournal.count("get", itemUrl, null)).isEqualTo(2);
+      assertThat(requestJournal.count(null, null, 1)).isEqualTo(2);
+      assertThat(requestJournal.count("GET", Pattern.compile("/item"), null)).isZero();
+
+      final List<JournaledRequest> found = requestJournal.find("GET", itemUrl, 1, 1, 10);
+      assertThat(found).hasSize(1);
+      assertThat(found.get(0).getUrl()).isEqualTo("/item/1");
+   }
+
+   @Test
+   public void shouldTruncateUrlWithoutSplittingCharacters_WhenUrlLongerThanField() throws Exception {
+
+      final StringBuilder longUrl = new StringBuilder("/");
+      for (int index = 0; index < 200; index++) {
+         longUrl.append('é');
+      }
+
+      final RequestJournal requestJournal = new RequestJournal(1);
+      requestJournal.record(REQUEST_BUILDER.withMethodGet().build(), longUrl.toString(), null, RequestJournal.NO_STUB_ID, HttpStatus.OK_200, 0);
+
+      final String journaledUrl = requestJournal.find(null, null, null, 0, 1).get(0).getUrl();
+      assertThat(longUrl.toString()).startsWith(journaledUrl);
+      assertThat(journaledUrl.length()).isGreaterThan(90);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void shouldNotConstructJournal_WhenCapacityIsZero() throws Exception {
+      new RequestJournal(0);
+   }
+}
@@ -2,11 +2,15 @@ package by.stub.database;
 
 import by.stub.builder.stubs.StubRequestBuilder;
 import by.stub.builder.yaml.YamlBuilder;
+import by.stub.exception.Stubby4JException;
+import by.stub.json.JsonWriter;
+import by.stub.utils.BlobStore;
 import by.stub.utils.FileUtils;
 import by.stub.utils.StringUtils;
 import by.stub.yaml.YamlParser;
 import by.stub.yaml.stubs.NotFoundStubResponse;
 import by.stub.yaml.stubs.RedirectStubResponse;
+import by.stub.yaml.stubs.StubBatchOperation;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
@@ -20,8 +24,11 @@ import org.junit.Test;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -744,6 +751,32 @@ public class StubbedDataManagerTest {
       assertThat(filenames.contains(expectedResponseFile.getName())).isFalse();
    }
 
+   @Test
+   public void shouldShareFixtureBytes_WhenSameExternalFileReferencedMoreThanOnce() throws Exception {
+
+      final File expectedFile = FileUtils.uriToFile(StubbedDataManagerTest.class.getResource("/json/request.external.file.json").getFile());
+
+      final URL yamlUrl = StubbedDataManagerTest.class.getResource("/yaml/same.external.files.yaml");
+      final InputStream stubsDatanputStream = yamlUrl.openStream();
+      final String yaml = StringUtils.inputStreamToString(stubsDatanputStream);
+      final String parentDirectory = new File(yamlUrl.getPath()).getParent();
+
+      final List<StubHttpLifecycle> stubHttpLifecycles = new YamlParser().parse(parentDirectory, FileUtils.constructReader(yaml));
+      final List<StubHttpLifecycle> otherStubHttpLifecycles = new YamlParser().parse(parentDirectory, FileUtils.constructReader(yaml));
+      stubHttpLifecycles.addAll(otherStubHttpLifecycles);
+      stubbedDataManager.resetStubHttpLifecycles(stubHttpLifecycles);
+
+      final BlobStore.Blob requestFileContent = stubHttpLifecycles.get(0).getRequest().getFileContent();
+      assertThat(stubHttpLifecycles.get(0).getResponse().getFileContent()).isSameAs(requestFileContent);
+      assertThat(stubHttpLifecycles.get(1).getRequest().getFileContent()).isSameAs(requestFileContent);
+
+      final long expectedLength = FileUtils.fileToBytes(expectedFile).length;
+      final FixtureBytesReport fixtureBytes = stubbedDataManager.getFixtureBytes();
+
+      assertThat(fixtureBytes.getUniqueBytes()).isEqualTo(expectedLength);
+      assertThat(fixtureBytes.getLogicalBytes()).isEqualTo(expectedLength * 4);
+   }
+
    @Test
    public void shouldReturnOnlyResponseExternalFileWhenRequestFileFailedToLoad() throws Exception {
 
@@ -803,7 +836,7 @@ public class StubbedDataManagerTest {
    }
 
    @Test
-   public void shouldAdjustResourceIDHeadersAccordingly_WhenSomeHttpCycleWasDeleted() throws Exception {
+   public void shouldKeepResourceIDHeaders_WhenSomeHttpCycleWasDeleted() throws Exception {
       final String cycleOne = YAML_BUILDER
          .newStubbedRequest()
          .withMethodGet()
@@ -850,21 +883,22 @@ public class StubbedDataManagerTest {
          }
       }
 
-      stubbedDataManager.deleteStubHttpLifecycleByIndex(1);
+      stubbedDataManager.deleteStubHttpLifecycleByResourceId(1);
 
       List<StubHttpLifecycle> afterDeletionLoadedHttpCycles = stubbedDataManager.getStubHttpLifecycles();
       assertThat(afterDeletionLoadedHttpCycles.size()).isEqualTo(2);
 
-      for (int resourceId = 0; resourceId < afterDeletionLoadedHttpCycles.size(); resourceId++) {
-         final StubHttpLifecycle cycle = afterDeletionLoadedHttpCycles.get(resourceId);
-         final List<StubResponse> allResponses = cycle.getAllResponses();
+      final int[] expectedResourceIds = {0, 2};
+      for (int index = 0; index < afterDeletionLoadedHttpCycles.size(); index++) {
+         final StubHttpLifecycle cycle = afterDeletionLoadedHttpCycles.get(index);
+         assertThat(cycle).isSameAs(beforeDeletionLoadedHttpCycles.get(expectedResourceIds[index]));
+         assertThat(stubbedDataManager.getMatchedStubHttpLifecycle(expectedResourceIds[index])).isSameAs(cycle);
 
-         for (int sequence = 0; sequence < allResponses.size(); sequence++) {
-            final StubResponse sequenceStubResponse = allResponses.get(sequence);
-            assertThat(sequenceStubResponse.getHeaders()).containsKey(StubResponse.STUBBY_RESOURCE_ID_HEADER);
-            assertThat(sequenceStubResponse.getHeaders().get(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo(String.valueOf(resourceId));
+         for (final StubResponse sequenceStubResponse : cycle.getAllResponses()) {
+            assertThat(sequenceStubResponse.getHeaders().get(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo(String.valueOf(expectedResourceIds[index]));
          }
       }
+      assertThat(stubbedDataManager.isStubHttpLifecycleExistsByResourceId(1)).isFalse();
    }
 
    @Test
@@ -986,7 +1020,7 @@ public class StubbedDataManagerTest {
       final List<StubHttpLifecycle> stubHttpLifecycles = new YamlParser().parse(".", FileUtils.constructReader(cycleOne));
       final StubHttpLifecycle updatingStubHttpLifecycle = stubHttpLifecycles.get(0);
 
-      stubbedDataManager.updateStubHttpLifecycleByIndex(0, updatingStubHttpLifecycle);
+      stubbedDataManager.updateStubHttpLifecycleByResourceId(0, updatingStubHttpLifecycle);
       List<StubHttpLifecycle> afterUpdateHttpCycles = stubbedDataManager.getStubHttpLifecycles();
 
       assertThat(afterUpdateHttpCycles.size()).isEqualTo(2);
@@ -1005,9 +1039,723 @@ public class StubbedDataManagerTest {
       }
    }
 
+   @Test
+   public void shouldReuseUnchangedHttpCycles_WhenRefreshingWithModifiedYaml() throws Exception {
+
+      final String unchangedCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/unchanged/uri")
+         .newStubbedResponse()
+         .withStatus("200").build();
+
+      final String originalCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/changed/uri")
+         .newStubbedResponse()
+         .withStatus("200").build();
+
+      loadYamlToDataStore(String.format("%s\n%s", unchangedCycle, originalCycle));
+      final List<StubHttpLifecycle> beforeRefreshHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+
+      final String changedCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/changed/uri")
+         .newStubbedResponse()
+         .withStatus("201").build();
+
+      final String newCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodPost()
+         .withUrl("/new/uri")
+         .newStubbedResponse()
+         .withStatus("200").build();
+
+      final String refreshedYaml = String.format("%s\n%s\n%s", unchangedCycle, changedCycle, newCycle);
+      final List<StubHttpLifecycle> refreshedHttpCycles =
+         new YamlParser().parse(".", FileUtils.constructReader(refreshedYaml), beforeRefreshHttpCycles);
+      final StubReloadReport reloadReport = stubbedDataManager.refreshStubHttpLifecycles(refreshedHttpCycles);
+
+      assertThat(reloadReport.getKept()).isEqualTo(1);
+      assertThat(reloadReport.getAdded()).isEqualTo(2);
+      assertThat(reloadReport.getRemoved()).isEqualTo(1);
+
+      final List<StubHttpLifecycle> afterRefreshHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      assertThat(afterRefreshHttpCycles).hasSize(3);
+      assertThat(afterRefreshHttpCycles.get(0)).isSameAs(beforeRefreshHttpCycles.get(0));
+      assertThat(afterRefreshHttpCycles.get(1)).isNotSameAs(beforeRefreshHttpCycles.get(1));
+      assertThat(afterRefreshHttpCycles.get(1).getResponse().getStatus()).isEqualTo("201");
+   }
+
+   @Test
+   public void shouldReloadExternalFileInPlace_OnlyForHttpCyclesReferencingIt() throws Exception {
+      final File fixture = File.createTempFile("fixture", ".json");
+      fixture.deleteOnExit();
+      writeToFile(fixture, "original");
+
+      final String referencingCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/referencing/uri")
+         .newStubbedResponse()
+         .withFile(fixture.getName()).build();
+
+      final String otherCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/other/uri")
+         .newStubbedResponse()
+         .withLiteralBody("other").build();
+
+      final String yaml = String.format("%s\n%s", referencingCycle, otherCycle);
+      stubbedDataManager.resetStubHttpLifecycles(new YamlParser().parse(fixture.getParent(), FileUtils.constructReader(yaml)));
+      final List<StubHttpLifecycle> beforeReloadHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      final long beforeReloadGeneration = stubbedDataManager.getGeneration();
+
+      writeToFile(fixture, "reloaded");
+      assertThat(fixture.setLastModified(fixture.lastModified() + 2000)).isTrue();
+
+      assertThat(stubbedDataManager.reloadExternalFile(fixture)).isEqualTo(1);
+
+      final List<StubHttpLifecycle> afterReloadHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      assertThat(afterReloadHttpCycles.get(0)).isSameAs(beforeReloadHttpCycles.get(0));
+      assertThat(afterReloadHttpCycles.get(1)).isSameAs(beforeReloadHttpCycles.get(1));
+      assertThat(stubbedDataManager.getGeneration()).isEqualTo(beforeReloadGeneration);
+
+      final StubResponse reloadedResponse = stubbedDataManager.findStubResponseFor(REQUEST_BUILDER.withUrl("/referencing/uri").withMethodGet().build());
+      assertThat(StringUtils.newStringUtf8(reloadedResponse.getResponseBody())).isEqualTo("reloaded");
+   }
+
+   @Test
+   public void shouldServeReloadedExternalFile_WhenResetToBaselineHoldingCopyOfHttpCycle() throws Exception {
+      final File fixture = File.createTempFile("fixture", ".json");
+      fixture.deleteOnExit();
+      writeToFile(fixture, "original");
+
+      final String referencingCycle = YAML_BUILDER.newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/referencing/uri")
+         .newStubbedResponse()
+         .withFile(fixture.getName()).build();
+
+      final String dataDir = fixture.getParent();
+      final String yaml = String.format("%s\n%s", buildCyclesYaml("/zero"), referencingCycle);
+      final StubbedDataManager baselineDataManager = new StubbedDataManager(new File(dataDir),
+         new YamlParser().parse(dataDir, FileUtils.constructReader(yaml)));
+      final long loadedGeneration = baselineDataManager.getGeneration();
+
+      // Dropping the first stub moves the referencing one to resource ID 0, which copies it
+      baselineDataManager.refreshStubHttpLifecycles(
+         new YamlParser().parse(dataDir, FileUtils.constructReader(referencingCycle), baselineDataManager.getStubHttpLifecycles()));
+      assertThat(baselineDataManager.getStubHttpLifecyclesCount()).isEqualTo(1);
+
+      writeToFile(fixture, "reloaded");
+      assertThat(fixture.setLastModified(fixture.lastModified() + 2000)).isTrue();
+      assertThat(baselineDataManager.reloadExternalFile(fixture)).isEqualTo(1);
+
+      final StubRequest referencingRequest = REQUEST_BUILDER.withUrl("/referencing/uri").withMethodGet().build();
+      baselineDataManager.rollbackToGeneration(loadedGeneration);
+      assertThat(StringUtils.newStringUtf8(baselineDataManager.findStubResponseFor(referencingRequest).getResponseBody())).isEqualTo("reloaded");
+
+      baselineDataManager.deleteStubHttpLifecycleByResourceId(0);
+      baselineDataManager.resetToBaseline();
+      assertThat(StringUtils.newStringUtf8(baselineDataManager.findStubResponseFor(referencingRequest).getResponseBody())).isEqualTo("reloaded");
+   }
+
+   @Test
+   public void shouldNotReuseResourceIdOfDeletedHttpCycle_WhenHttpCyclesAreAppended() throws Exception {
+
+      loadYamlToDataStore(buildCyclesYaml("/zero", "/one"));
+      stubbedDataManager.deleteStubHttpLifecycleByResourceId(1);
+
+      final List<Integer> appendedResourceIds = stubbedDataManager.appendStubHttpLifecycles(
+         new YamlParser().parse(".", FileUtils.constructReader(buildCyclesYaml("/two", "/three"))));
+
+      assertThat(appendedResourceIds).containsExactly(2, 3);
+      assertThat(stubbedDataManager.isStubHttpLifecycleExistsByResourceId(1)).isFalse();
+      assertThat(stubbedDataManager.getMatchedStubHttpLifecycle(3).getRequest().getUrl()).isEqualTo("/three");
+      assertThat(stubbedDataManager.getStubHttpLifecycles()).hasSize(3);
+   }
+
+   @Test
+   public void shouldApplyBatchOperationsAtOnce_WhenAllOperationsAreValid() throws Exception {
+
+      loadYamlToDataStore(buildCyclesYaml("/zero", "/one", "/two"));
+      final List<StubHttpLifecycle> beforeBatchHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      final long beforeBatchGeneration = stubbedDataManager.getGeneration();
+
+      final String batchYaml = String.format("-  add:\n%s\n-  update: 0\n%s\n-  delete: 1",
+         buildBatchedCycleYaml("/three"), buildBatchedCycleYaml("/updated/zero"));
+      final List<Integer> addedResourceIds = stubbedDataManager.applyStubBatch(new YamlParser().parseBatch(".", FileUtils.constructReader(batchYaml)));
+
+      assertThat(addedResourceIds).containsExactly(3);
+      assertThat(stubbedDataManager.getGeneration()).isEqualTo(beforeBatchGeneration + 1);
+
+      final List<StubHttpLifecycle> afterBatchHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      assertThat(afterBatchHttpCycles).hasSize(3);
+      assertThat(afterBatchHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/updated/zero");
+      assertThat(afterBatchHttpCycles.get(1)).isSameAs(beforeBatchHttpCycles.get(2));
+      assertThat(afterBatchHttpCycles.get(2).getRequest().getUrl()).isEqualTo("/three");
+      assertThat(afterBatchHttpCycles.get(0).getResourceId()).isEqualTo("0");
+      assertThat(afterBatchHttpCycles.get(1).getResourceId()).isEqualTo("2");
+      assertThat(afterBatchHttpCycles.get(2).getResourceId()).isEqualTo("3");
+   }
+
+   @Test
+   public void shouldNotApplyAnyBatchOperation_WhenOneOperationAddressesDeletedStub() throws Exception {
+
+      loadYamlToDataStore(buildCyclesYaml("/zero", "/one"));
+      final List<StubHttpLifecycle> beforeBatchHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      final long beforeBatchGeneration = stubbedDataManager.getGeneration();
+
+      final String batchYaml = String.format("-  delete: 0\n-  add:\n%s\n-  update: 0\n%s",
+         buildBatchedCycleYaml("/two"), buildBatchedCycleYaml("/updated/zero"));
+      IllegalArgumentException batchException = null;
+      try {
+         stubbedDataManager.applyStubBatch(new YamlParser().parseBatch(".", FileUtils.constructReader(batchYaml)));
+      } catch (final IllegalArgumentException ex) {
+         batchException = ex;
+      }
+
+      assertThat(batchException).isNotNull();
+      assertThat(batchException.getMessage()).isEqualTo("Stub request index#0 does not exist, cannot update");
+
+      assertThat(stubbedDataManager.getGeneration()).isEqualTo(beforeBatchGeneration);
+      assertThat(stubbedDataManager.getStubHttpLifecycles()).isEqualTo(beforeBatchHttpCycles);
+   }
+
+   @Test
+   public void shouldRecoverChangedHttpCycles_WhenJournalIsReplayedOnRestart() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero", "/one")));
+      journaledDataManager.journalTo(journalFile, true);
+
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/two", "/three")));
+      journaledDataManager.updateStubHttpLifecycleByResourceId(0, parseYaml(buildCyclesYaml("/updated/zero")).get(0));
+      journaledDataManager.deleteStubHttpLifecycleByResourceId(1);
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero", "/one")));
+      restartedDataManager.journalTo(journalFile, true);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(3);
+      assertThat(recoveredHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/updated/zero");
+      assertThat(recoveredHttpCycles.get(0).getResourceId()).isEqualTo("0");
+      assertThat(recoveredHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/two");
+      assertThat(recoveredHttpCycles.get(1).getResourceId()).isEqualTo("2");
+      assertThat(recoveredHttpCycles.get(2).getRequest().getUrl()).isEqualTo("/three");
+      assertThat(recoveredHttpCycles.get(2).getResourceId()).isEqualTo("3");
+      assertThat(restartedDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/four")))).containsExactly(4);
+   }
+
+   @Test
+   public void shouldCompactJournalIntoSnapshot_WhenHttpCyclesAreReset() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      journaledDataManager.journalTo(journalFile, false);
+
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")));
+      assertThat(journalFile.length()).isGreaterThan(0);
+
+      journaledDataManager.resetStubHttpLifecycles(parseYaml(buildCyclesYaml("/reset")));
+      assertThat(journalFile.length()).isEqualTo(0);
+      assertThat(new File(journalFile.getPath() + ".snapshot").isFile()).isTrue();
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(1);
+      assertThat(recoveredHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/reset");
+      assertThat(recoveredHttpCycles.get(0).getResourceId()).isEqualTo("0");
+   }
+
+   @Test
+   public void shouldRecoverIncludedHttpCyclesWithTheirFiles_WhenSnapshotIsLoadedOnRestart() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final File includedDirectory = new File(journalFile.getParentFile(), journalFile.getName() + ".included");
+      assertThat(includedDirectory.mkdir()).isTrue();
+      includedDirectory.deleteOnExit();
+      final File includedYaml = new File(includedDirectory, "included.yaml");
+      final File responseFile = new File(includedDirectory, "response.json");
+      writeFile(responseFile, "{\"included\": true}");
+      writeFile(includedYaml, "-  request:\n      method: GET\n      url: /included\n   response:\n      status: 200\n      file: response.json\n");
+      final String mainYaml = String.format("%s\n-  include: %s/included.yaml\n", buildCyclesYaml("/zero"), includedDirectory.getName());
+
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile),
+         new YamlParser().parse(journalFile.getParent(), FileUtils.constructReader(mainYaml)));
+      journaledDataManager.journalTo(journalFile, false);
+
+      // Enough operations to compact the journal, after which they are all deleted again
+      final List<StubHttpLifecycle> compactingHttpCycles = Collections.nCopies(StubJournal.COMPACTION_MIN_OPERATIONS, parseYaml(buildCyclesYaml("/compacting")).get(0));
+      final List<Integer> compactingResourceIds = journaledDataManager.appendStubHttpLifecycles(compactingHttpCycles);
+      final List<StubBatchOperation> deleteOperations = new LinkedList<StubBatchOperation>();
+      for (final Integer resourceId : compactingResourceIds) {
+         deleteOperations.add(StubBatchOperation.newDeleteOperation(resourceId));
+      }
+      journaledDataManager.applyStubBatch(deleteOperations);
+      assertThat(new File(journalFile.getPath() + ".snapshot").isFile()).isTrue();
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile),
+         new YamlParser().parse(journalFile.getParent(), FileUtils.constructReader(mainYaml)));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(2);
+      final StubHttpLifecycle includedHttpCycle = recoveredHttpCycles.get(1);
+      assertThat(includedHttpCycle.getRequest().getUrl()).isEqualTo("/included");
+      assertThat(StringUtils.newStringUtf8(includedHttpCycle.getResponse().getFile())).isEqualTo("{\"included\": true}");
+      assertThat(includedHttpCycle.getSourceYaml()).isEqualTo(includedYaml.getAbsoluteFile());
+      assertThat(includedHttpCycle.getSourceYamlLastModified()).isEqualTo(includedYaml.lastModified());
+      assertThat(restartedDataManager.getIncludedYamls()).containsKey(includedYaml.getAbsoluteFile());
+   }
+
+   @Test
+   public void shouldStartOverFromDataYaml_WhenDataYamlChangedWhileJournaled() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final File dataYaml = dataYamlOf(journalFile);
+      writeFile(dataYaml, buildCyclesYaml("/zero"));
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYaml, parseYaml(buildCyclesYaml("/zero")));
+      journaledDataManager.journalTo(journalFile, false);
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")));
+
+      writeFile(dataYaml, buildCyclesYaml("/edited/zero", "/edited/one"));
+      assertThat(dataYaml.setLastModified(dataYaml.lastModified() + 10000)).isTrue();
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYaml, parseYaml(buildCyclesYaml("/edited/zero", "/edited/one")));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(2);
+      assertThat(recoveredHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/edited/zero");
+      assertThat(recoveredHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/edited/one");
+      assertThat(new File(journalFile.getPath() + ".snapshot").exists()).isFalse();
+
+      assertThat(restartedDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/two")))).containsExactly(2);
+
+      final StubbedDataManager restartedAgainDataManager = new StubbedDataManager(dataYaml, parseYaml(buildCyclesYaml("/edited/zero", "/edited/one")));
+      restartedAgainDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredAgainHttpCycles = restartedAgainDataManager.getStubHttpLifecycles();
+      assertThat(recoveredAgainHttpCycles).hasSize(3);
+      assertThat(recoveredAgainHttpCycles.get(2).getRequest().getUrl()).isEqualTo("/two");
+   }
+
+   @Test
+   public void shouldRecoverWithoutCompactingJournal_WhenResetAndRolledBack() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero", "/one")));
+      journaledDataManager.journalTo(journalFile, false);
+
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/two")));
+      journaledDataManager.updateStubHttpLifecycleByResourceId(0, parseYaml(buildCyclesYaml("/updated/zero")).get(0));
+      final long changedGeneration = journaledDataManager.getGeneration();
+      final long journalLengthBeforeReset = journalFile.length();
+
+      journaledDataManager.resetToBaseline();
+      // Only the stub that was updated is put back, the stubs kept by the reset are not written again
+      final long resetJournalLength = journalFile.length() - journalLengthBeforeReset;
+      assertThat(resetJournalLength).isLessThan(journalLengthBeforeReset);
+
+      journaledDataManager.deleteStubHttpLifecycleByResourceId(1);
+      journaledDataManager.rollbackToGeneration(changedGeneration);
+      assertThat(new File(journalFile.getPath() + ".snapshot").exists()).isFalse();
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero", "/one")));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(3);
+      assertThat(recoveredHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/updated/zero");
+      assertThat(recoveredHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/one");
+      assertThat(recoveredHttpCycles.get(1).getResourceId()).isEqualTo("1");
+      assertThat(recoveredHttpCycles.get(2).getRequest().getUrl()).isEqualTo("/two");
+      assertThat(recoveredHttpCycles.get(2).getResourceId()).isEqualTo("2");
+      assertThat(restartedDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/three")))).containsExactly(3);
+   }
+
+   @Test
+   public void shouldRecoverChangesMadeAfterReload_WhenDataYamlReloadIsJournaled() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      journaledDataManager.journalTo(journalFile, false);
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/discarded")));
+
+      journaledDataManager.refreshStubHttpLifecycles(parseYaml(buildCyclesYaml("/zero")));
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")));
+      assertThat(new File(journalFile.getPath() + ".snapshot").exists()).isFalse();
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(2);
+      assertThat(recoveredHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/zero");
+      assertThat(recoveredHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/one");
+      assertThat(recoveredHttpCycles.get(1).getResourceId()).isEqualTo("1");
+   }
+
+   @Test
+   public void shouldDiscardChangeAndKeepJournaling_WhenChangeCouldNotBeJournaled() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      journaledDataManager.journalTo(journalFile, false);
+      final long beforeFailureGeneration = journaledDataManager.getGeneration();
+      final long beforeFailureJournalLength = journalFile.length();
+
+      final StubHttpLifecycle parsedHttpCycle = parseYaml(buildCyclesYaml("/unwritable")).get(0);
+      final StubHttpLifecycle unwritableHttpCycle = new StubHttpLifecycle() {
+         @Override
+         public Map<String, Object> toYamlNode() {
+            throw new IllegalStateException("Unwritable stub");
+         }
+      };
+      unwritableHttpCycle.setRequest(parsedHttpCycle.getRequest());
+      unwritableHttpCycle.setResponse(parsedHttpCycle.getResponse());
+
+      Stubby4JException journalException = null;
+      try {
+         journaledDataManager.appendStubHttpLifecycles(Collections.singletonList(unwritableHttpCycle));
+      } catch (final Stubby4JException ex) {
+         journalException = ex;
+      }
+
+      assertThat(journalException).isNotNull();
+      assertThat(journaledDataManager.getGeneration()).isEqualTo(beforeFailureGeneration);
+      assertThat(journaledDataManager.getStubHttpLifecycles()).hasSize(1);
+      assertThat(journalFile.length()).isEqualTo(beforeFailureJournalLength);
+
+      assertThat(journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")))).containsExactly(1);
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(2);
+      assertThat(recoveredHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/one");
+      assertThat(recoveredHttpCycles.get(1).getResourceId()).isEqualTo("1");
+   }
+
+   @Test
+   public void shouldIgnoreIncompleteLastChange_WhenJournalIsReplayedOnRestart() throws Exception {
+
+      final File journalFile = newJournalFile();
+      final StubbedDataManager journaledDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      journaledDataManager.journalTo(journalFile, false);
+      journaledDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")));
+      final long completeJournalLength = journalFile.length();
+
+      final FileWriter journalWriter = new FileWriter(journalFile, true);
+      journalWriter.write("[\"9\",{\"op\":\"add\",\"stub\":{\"request\":{\"url\":");
+      journalWriter.close();
+
+      final StubbedDataManager restartedDataManager = new StubbedDataManager(dataYamlOf(journalFile), parseYaml(buildCyclesYaml("/zero")));
+      restartedDataManager.journalTo(journalFile, false);
+
+      final List<StubHttpLifecycle> recoveredHttpCycles = restartedDataManager.getStubHttpLifecycles();
+      assertThat(recoveredHttpCycles).hasSize(2);
+      assertThat(recoveredHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/one");
+      assertThat(journalFile.length()).isEqualTo(completeJournalLength);
+   }
+
+   @Test
+   public void shouldRestoreBaselineHttpCyclesAndRestartSequencedResponses_WhenResetToBaseline() throws Exception {
+
+      final String sequencedCycle = YAML_BUILDER
+         .newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/sequenced/uri")
+         .newStubbedResponse()
+         .withSequenceResponseStatus("200")
+         .withSequenceResponseLiteralBody("first")
+         .withLineBreak()
+         .withSequenceResponseStatus("200")
+         .withSequenceResponseLiteralBody("second")
+         .build();
+
+      final StubbedDataManager baselineDataManager = new StubbedDataManager(new File("."), parseYaml(sequencedCycle));
+      final List<StubHttpLifecycle> baselineHttpCycles = baselineDataManager.getStubHttpLifecycles();
+      final StubRequest sequencedRequest = REQUEST_BUILDER.withUrl("/sequenced/uri").withMethodGet().build();
+      assertThat(baselineDataManager.findStubResponseFor(sequencedRequest).getBody()).isEqualTo("first");
+
+      baselineDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/appended")));
+      baselineDataManager.deleteStubHttpLifecycleByResourceId(0);
+      final long beforeResetGeneration = baselineDataManager.getGeneration();
+
+      baselineDataManager.resetToBaseline();
+
+      assertThat(baselineDataManager.getGeneration()).isEqualTo(beforeResetGeneration + 1);
+      assertThat(baselineDataManager.getStubHttpLifecycles()).hasSize(1);
+      assertThat(baselineDataManager.getStubHttpLifecycles().get(0)).isSameAs(baselineHttpCycles.get(0));
+      assertThat(baselineDataManager.isStubHttpLifecycleExistsByResourceId(1)).isFalse();
+      assertThat(baselineDataManager.findStubResponseFor(sequencedRequest).getBody()).isEqualTo("first");
+      assertThat(baselineDataManager.findStubResponseFor(sequencedRequest).getBody()).isEqualTo("second");
+      assertThat(baselineDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/appended")))).containsExactly(2);
+   }
+
+   @Test
+   public void shouldCarryOnWithSequencedResponses_WhenRefreshedAfterResetToBaseline() throws Exception {
+
+      final String sequencedCycle = YAML_BUILDER
+         .newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/sequenced/uri")
+         .newStubbedResponse()
+         .withSequenceResponseStatus("200")
+         .withSequenceResponseLiteralBody("first")
+         .withLineBreak()
+         .withSequenceResponseStatus("200")
+         .withSequenceResponseLiteralBody("second")
+         .build();
+
+      final StubbedDataManager baselineDataManager = new StubbedDataManager(new File("."), parseYaml(sequencedCycle));
+      final StubRequest sequencedRequest = REQUEST_BUILDER.withUrl("/sequenced/uri").withMethodGet().build();
+      baselineDataManager.resetToBaseline();
+      assertThat(baselineDataManager.findStubResponseFor(sequencedRequest).getBody()).isEqualTo("first");
+
+      baselineDataManager.refreshStubHttpLifecycles(
+         new YamlParser().parse(".", FileUtils.constructReader(sequencedCycle), baselineDataManager.getStubHttpLifecycles()));
+
+      assertThat(baselineDataManager.findStubResponseFor(sequencedRequest).getBody()).isEqualTo("second");
+   }
+
+   @Test
+   public void shouldPublishKeptHttpCyclesAgain_WhenRolledBackToGeneration() throws Exception {
+
+      final StubbedDataManager rollbackDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero")));
+      rollbackDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")));
+      final List<StubHttpLifecycle> appendedHttpCycles = rollbackDataManager.getStubHttpLifecycles();
+      final long appendedGeneration = rollbackDataManager.getGeneration();
+      rollbackDataManager.deleteStubHttpLifecycleByResourceId(0);
+
+      final long rolledBackGeneration = rollbackDataManager.rollbackToGeneration(appendedGeneration);
+
+      assertThat(rolledBackGeneration).isEqualTo(appendedGeneration + 2);
+      assertThat(rollbackDataManager.getGeneration()).isEqualTo(rolledBackGeneration);
+      final List<StubHttpLifecycle> rolledBackHttpCycles = rollbackDataManager.getStubHttpLifecycles();
+      assertThat(rolledBackHttpCycles).hasSize(2);
+      assertThat(rolledBackHttpCycles.get(0)).isSameAs(appendedHttpCycles.get(0));
+      assertThat(rolledBackHttpCycles.get(1)).isSameAs(appendedHttpCycles.get(1));
+
+      final List<StubGeneration> stubGenerations = rollbackDataManager.getStubGenerations();
+      assertThat(stubGenerations).hasSize(4);
+      assertThat(stubGenerations.get(0).getGeneration()).isEqualTo(rolledBackGeneration);
+      assertThat(stubGenerations.get(0).isCurrent()).isTrue();
+      assertThat(stubGenerations.get(0).getStubCount()).isEqualTo(2);
+      assertThat(stubGenerations.get(1).getStubCount()).isEqualTo(1);
+      assertThat(stubGenerations.get(3).getGeneration()).isEqualTo(0);
+      assertThat(stubGenerations.get(3).isCurrent()).isFalse();
+   }
+
+   @Test
+   public void shouldGiveFreshResourceIds_WhenStubsAreAppendedAfterRollBack() throws Exception {
+
+      final StubbedDataManager rollbackDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero")));
+      final long loadedGeneration = rollbackDataManager.getGeneration();
+      assertThat(rollbackDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one", "/two")))).containsExactly(1, 2);
+
+      rollbackDataManager.rollbackToGeneration(loadedGeneration);
+      assertThat(rollbackDataManager.isStubHttpLifecycleExistsByResourceId(1)).isFalse();
+
+      assertThat(rollbackDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/three")))).containsExactly(3);
+      assertThat(rollbackDataManager.isStubHttpLifecycleExistsByResourceId(1)).isFalse();
+      assertThat(rollbackDataManager.getMatchedStubHttpLifecycle(3).getRequest().getUrl()).isEqualTo("/three");
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void shouldNotRollBack_WhenGenerationIsNoLongerKept() throws Exception {
+
+      final StubbedDataManager rollbackDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero")));
+      rollbackDataManager.setKeptGenerations(2);
+      rollbackDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/one")));
+      rollbackDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/two")));
+      rollbackDataManager.appendStubHttpLifecycles(parseYaml(buildCyclesYaml("/three")));
+
+      assertThat(rollbackDataManager.getStubGenerations()).hasSize(3);
+
+      rollbackDataManager.rollbackToGeneration(0);
+   }
+
+   @Test
+   public void shouldCopyRatherThanChangePublishedStubs_WhenRefreshMovesThemToOtherResourceIds() throws Exception {
+
+      final StubbedDataManager rollbackDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero", "/one")));
+      final List<StubHttpLifecycle> loadedHttpCycles = rollbackDataManager.getStubHttpLifecycles();
+      final StubHttpLifecycle movedHttpCycle = loadedHttpCycles.get(1);
+
+      final StubReloadReport reloadReport = rollbackDataManager.refreshStubHttpLifecycles(
+         new YamlParser().parse(".", FileUtils.constructReader(buildCyclesYaml("/one")), loadedHttpCycles));
+      final StubHttpLifecycle movedHttpCycleCopy = rollbackDataManager.getMatchedStubHttpLifecycle(0);
+      assertThat(reloadReport.getKept()).isEqualTo(1);
+      assertThat(movedHttpCycleCopy).isNotSameAs(movedHttpCycle);
+      assertThat(movedHttpCycleCopy.getYamlNodeDigest()).isSameAs(movedHttpCycle.getYamlNodeDigest());
+      assertThat(movedHttpCycleCopy.getResourceId()).isEqualTo("0");
+      assertThat(movedHttpCycle.getResourceId()).isEqualTo("1");
+
+      rollbackDataManager.rollbackToGeneration(0);
+      assertThat(rollbackDataManager.getMatchedStubHttpLifecycle(1)).isSameAs(movedHttpCycle);
+      assertThat(movedHttpCycle.getResourceId()).isEqualTo("1");
+
+      rollbackDataManager.resetToBaseline();
+      assertThat(rollbackDataManager.getMatchedStubHttpLifecycle(0)).isSameAs(movedHttpCycleCopy);
+      assertThat(movedHttpCycleCopy.getResourceId()).isEqualTo("0");
+      assertThat(movedHttpCycle.getResourceId()).isEqualTo("1");
+   }
+
+   @Test
+   public void shouldWriteHitCountsOfMatchedStubs_WhenStubStatsWritten() throws Exception {
+
+      final StubbedDataManager statsDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero", "/one")));
+      statsDataManager.getStubLoadTimings().recordLoad(42);
+      final StubRequest oneRequest = REQUEST_BUILDER.withUrl("/one").withMethodGet().build();
+      final long beforeHitMillis = System.currentTimeMillis();
+      statsDataManager.findStubResponseFor(oneRequest);
+      statsDataManager.findStubResponseFor(oneRequest);
+
+      final StubHttpLifecycle hitCycle = statsDataManager.getMatchedStubHttpLifecycle(1);
+      assertThat(hitCycle.getHitCount()).isEqualTo(2);
+      assertThat(hitCycle.getLastHitMillis()).isGreaterThanOrEqualTo(beforeHitMillis);
+      assertThat(statsDataManager.getMatchedStubHttpLifecycle(0).getHitCount()).isZero();
+
+      final StringWriter written = new StringWriter();
+      final JsonWriter jsonWriter = new JsonWriter(written);
+      jsonWriter.beginObject();
+      statsDataManager.writeStubStatsJson(jsonWriter);
+      jsonWriter.endObject();
+
+      assertThat(written.toString()).isEqualTo(String.format("{\"generation\":0,\"stubCount\":2,\"loadMillis\":42,\"reloadCount\":0," +
+         "\"lastReloadMillis\":0,\"lastReloadedAtMillis\":null,\"stubs\":[" +
+         "{\"id\":0,\"method\":[\"GET\"],\"url\":\"/zero\",\"hits\":0,\"lastHitMillis\":null,\"matchLatency\":null,\"serveLatency\":null}," +
+         "{\"id\":1,\"method\":[\"GET\"],\"url\":\"/one\",\"hits\":2,\"lastHitMillis\":%s,\"matchLatency\":null,\"serveLatency\":null}]}", hitCycle.getLastHitMillis()));
+   }
+
+   @Test
+   public void shouldWriteLatencyHistograms_WhenStubLatenciesRecorded() throws Exception {
+
+      final StubbedDataManager statsDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero")));
+      final StubRequest zeroRequest = REQUEST_BUILDER.withUrl("/zero").withMethodGet().build();
+      final StubMatch stubMatch = statsDataManager.findStubMatchFor(zeroRequest);
+      assertThat(stubMatch.isMatched()).isTrue();
+      assertThat(stubMatch.getMatchedLifecycle()).isSameAs(statsDataManager.getMatchedStubHttpLifecycle(0));
+
+      stubMatch.getMatchedLifecycle().recordLatencies(1500, 5000000);
+
+      final StringWriter written = new StringWriter();
+      final JsonWriter jsonWriter = new JsonWriter(written);
+      jsonWriter.beginObject();
+      statsDataManager.writeStubStatsJson(jsonWriter);
+      jsonWriter.endObject();
+
+      assertThat(written.toString()).contains("\"matchLatency\":{\"count\":1,\"totalMicros\":1,\"maxMicros\":1,\"p50Micros\":1,\"p99Micros\":1,\"buckets\":[0,1]}");
+      assertThat(written.toString()).contains("\"serveLatency\":{\"count\":1,\"totalMicros\":5000,\"maxMicros\":5000,\"p50Micros\":5000,\"p99Micros\":5000,");
+   }
+
+   @Test
+   public void shouldCarryResourceIdOfMatchedStub_WhenEarlierStubWasDeleted() throws Exception {
+
+      final StubbedDataManager statsDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero", "/one", "/two")));
+      statsDataManager.deleteStubHttpLifecycleByResourceId(0);
+
+      final StubMatch stubMatch = statsDataManager.findStubMatchFor(REQUEST_BUILDER.withUrl("/two").withMethodGet().build());
+      assertThat(stubMatch.getResourceId()).isEqualTo(2);
+      assertThat(stubMatch.getMatchedLifecycle()).isSameAs(statsDataManager.getMatchedStubHttpLifecycle(2));
+
+      final StubMatch missedMatch = statsDataManager.findStubMatchFor(REQUEST_BUILDER.withUrl("/zero").withMethodGet().build());
+      assertThat(missedMatch.isMatched()).isFalse();
+      assertThat(missedMatch.getResourceId()).isEqualTo(RequestJournal.NO_STUB_ID);
+   }
+
+   @Test
+   public void shouldClearHitCountsAndLatencies_WhenStubHitStatsReset() throws Exception {
+
+      final StubbedDataManager statsDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero")));
+      final StubRequest zeroRequest = REQUEST_BUILDER.withUrl("/zero").withMethodGet().build();
+      statsDataManager.findStubMatchFor(zeroRequest).getMatchedLifecycle().recordLatencies(1000, 2000);
+
+      statsDataManager.resetStubHitStats();
+
+      final StubHttpLifecycle resetCycle = statsDataManager.getMatchedStubHttpLifecycle(0);
+      assertThat(resetCycle.getHitCount()).isZero();
+      assertThat(resetCycle.getLastHitMillis()).isZero();
+      assertThat(resetCycle.getMatchLatency().getCount()).isZero();
+      assertThat(resetCycle.getServeLatency().getCount()).isZero();
+   }
+
+   @Test
+   public void shouldNotMatchAnyStub_WhenNoStubMatchesRequest() throws Exception {
+
+      final StubbedDataManager statsDataManager = new StubbedDataManager(new File("."), parseYaml(buildCyclesYaml("/zero")));
+      final StubMatch stubMatch = statsDataManager.findStubMatchFor(REQUEST_BUILDER.withUrl("/none").withMethodGet().build());
+
+      assertThat(stubMatch.isMatched()).isFalse();
+      assertThat(stubMatch.getStubResponse()).isInstanceOf(NotFoundStubResponse.class);
+   }
+
    private void loadYamlToDataStore(final String yaml) throws Exception {
       final List<StubHttpLifecycle> stubHttpLifecycles = new YamlParser().parse(".", FileUtils.constructReader(yaml));
 
       stubbedDataManager.resetStubHttpLifecycles(stubHttpLifecycles);
    }
-}
\ No newline at end of file
+
+   private static List<StubHttpLifecycle> parseYaml(final String yaml) throws Exception {
+      return new YamlParser().parse(".", FileUtils.constructReader(yaml));
+   }
+
+   private static void writeFile(final File file, final String content) throws Exception {
+      final FileWriter writer = new FileWriter(file);
+      try {
+         writer.write(content);
+      } finally {
+         writer.close();
+      }
+      file.deleteOnExit();
+   }
+
+   private static File newJournalFile() throws Exception {
+      final File journalFile = File.createTempFile("stubs", ".journal");
+      assertThat(journalFile.delete()).isTrue();
+      journalFile.deleteOnExit();
+      new File(journalFile.getPath() + ".snapshot").deleteOnExit();
+
+      return journalFile;
+   }
+
+   // Data YAML next to the journal, which does not exist unless a test writes it
+   private static File dataYamlOf(final File journalFile) {
+      final File dataYaml = new File(journalFile.getPath() + ".yaml");
+      dataYaml.deleteOnExit();
+
+      return dataYaml;
+   }
+
+   // Each stub is a YAML list item, that starts with a dash on its first line
+   private static String buildCyclesYaml(final String... urls) {
+      final StringBuilder yaml = new StringBuilder();
+      for (final String url : urls) {
+         yaml.append(YAML_BUILDER.newStubbedRequest()
+            .withMethodGet()
+            .withUrl(url)
+            .newStubbedResponse()
+            .withStatus("200").build()).append("\n");
+      }
+
+      return yaml.toString().trim();
+   }
+
+   // Stub properties of a batch operation are siblings of the operation key, so the list item dash is dropped
+   private static String buildBatchedCycleYaml(final String url) {
+      return buildCyclesYaml(url).replaceFirst("-", " ");
+   }
+
+   private static void writeToFile(final File file, final String content) throws Exception {
+      final FileWriter writer = new FileWriter(file);
+      try {
+         writer.write(content);
+      } finally {
+         writer.close();
+      }
+   }
+}
@@ -0,0 +1,68 @@
+package by.stub.database.thread;
+
+import by.stub.database.StubbedDataManager;
+import by.stub.utils.FileUtils;
+import by.stub.yaml.YamlParser;
+import by.stub.yaml.stubs.StubHttpLifecycle;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class DataStoreWatcherTest {
+
+   @Test
+   public void shouldLeaveLoadedStubsUntouched_WhenSupersededRefreshIsDiscarded() throws Exception {
+      final File dataYaml = File.createTempFile("watched", ".yaml");
+      dataYaml.deleteOnExit();
+      write(dataYaml, buildCyclesYaml("/zero", "/one"));
+
+      final StubbedDataManager stubbedDataManager = new StubbedDataManager(dataYaml, parse(dataYaml));
+      final List<StubHttpLifecycle> loadedHttpCycles = stubbedDataManager.getStubHttpLifecycles();
+      final long loadedGeneration = stubbedDataManager.getGeneration();
+
+      // Moves both loaded stubs to other resource IDs
+      write(dataYaml, buildCyclesYaml("/new", "/zero", "/one"));
+
+      // No reload is running, so the watcher's reload executor reports the refresh as superseded
+      final DataStoreWatcher dataStoreWatcher = new DataStoreWatcher(stubbedDataManager);
+      assertThat(dataStoreWatcher.refresh(Collections.singleton(dataYaml.getCanonicalFile()))).isFalse();
+
+      assertThat(stubbedDataManager.getGeneration()).isEqualTo(loadedGeneration);
+      assertThat(stubbedDataManager.getStubHttpLifecycles()).isEqualTo(loadedHttpCycles);
+      assertThat(loadedHttpCycles.get(0).getResourceId()).isEqualTo("0");
+      assertThat(loadedHttpCycles.get(1).getResourceId()).isEqualTo("1");
+   }
+
+   private static List<StubHttpLifecycle> parse(final File dataYaml) throws Exception {
+      final Reader dataYamlReader = FileUtils.constructReader(dataYaml);
+      try {
+         return new YamlParser().parse(dataYaml.getParent(), dataYamlReader);
+      } finally {
+         dataYamlReader.close();
+      }
+   }
+
+   private static String buildCyclesYaml(final String... urls) {
+      final StringBuilder builder = new StringBuilder();
+      for (final String url : urls) {
+         builder.append(String.format("-  request:\n      method: GET\n      url: %s\n   response:\n      status: 200\n", url));
+      }
+
+      return builder.toString();
+   }
+
+   private static void write(final File file, final String content) throws Exception {
+      final FileWriter writer = new FileWriter(file);
+      try {
+         writer.write(content);
+      } finally {
+         writer.close();
+      }
+   }
+}
@@ -0,0 +1,108 @@
+package by.stub.database.thread;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class FileChangeWatcherTest {
+
+   @Test
+   public void shouldReportOnlyChangedWatchedFile_WhenWatchingWithWatchService() throws Exception {
+      assertOnlyChangedWatchedFileReported(DataStoreWatcher.newFileChangeWatcher());
+   }
+
+   @Test
+   public void shouldReportOnlyChangedWatchedFile_WhenPolling() throws Exception {
+      assertOnlyChangedWatchedFileReported(new PollingFileChangeWatcher(50));
+   }
+
+   private void assertOnlyChangedWatchedFileReported(final FileChangeWatcher fileChangeWatcher) throws Exception {
+      final File directory = createTempDirectory();
+      final File changedFile = new File(directory, "changed.json");
+      final File untouchedFile = new File(directory, "untouched.json");
+      write(changedFile, "{}");
+      write(untouchedFile, "{}");
+
+      try {
+         fileChangeWatcher.watch(Arrays.asList(changedFile, untouchedFile));
+
+         write(changedFile, "{\"changed\": true}");
+         assertThat(changedFile.setLastModified(changedFile.lastModified() + 5000)).isTrue();
+         write(new File(directory, "unwatched.json"), "{}");
+
+         final Set<File> changedFiles = awaitChanges(fileChangeWatcher);
+
+         assertThat(changedFiles).containsOnly(changedFile.getCanonicalFile());
+      } finally {
+         fileChangeWatcher.close();
+      }
+   }
+
+   @Test
+   public void shouldReportIncludedYamlCreatedAfterWatchStarted_WhenWatchingWithWatchService() throws Exception {
+      assertCreatedIncludedYamlReported(DataStoreWatcher.newFileChangeWatcher());
+   }
+
+   @Test
+   public void shouldReportIncludedYamlCreatedAfterWatchStarted_WhenPolling() throws Exception {
+      assertCreatedIncludedYamlReported(new PollingFileChangeWatcher(50));
+   }
+
+   private void assertCreatedIncludedYamlReported(final FileChangeWatcher fileChangeWatcher) throws Exception {
+      final File directory = createTempDirectory();
+      final File includedDirectory = new File(directory, "included");
+      assertThat(includedDirectory.mkdir()).isTrue();
+      includedDirectory.deleteOnExit();
+      final File mainYaml = new File(directory, "main.yaml");
+      write(mainYaml, "-  include: included/*.yaml");
+
+      try {
+         fileChangeWatcher.watch(Arrays.asList(mainYaml), Arrays.asList(new File(includedDirectory, "*.yaml")));
+
+         final File createdYaml = new File(includedDirectory, "created.yaml");
+         write(new File(includedDirectory, "created.json"), "{}");
+         write(createdYaml, "[]");
+
+         final Set<File> changedFiles = awaitChanges(fileChangeWatcher);
+
+         assertThat(changedFiles).containsOnly(createdYaml.getCanonicalFile());
+         assertThat(fileChangeWatcher.getWatchedFiles()).contains(createdYaml.getCanonicalFile());
+      } finally {
+         fileChangeWatcher.close();
+      }
+   }
+
+   private static Set<File> awaitChanges(final FileChangeWatcher fileChangeWatcher) throws Exception {
+      final long deadlineMillis = System.currentTimeMillis() + 10000;
+      Set<File> changedFiles = fileChangeWatcher.awaitChanges(100);
+      while (changedFiles.isEmpty() && System.currentTimeMillis() < deadlineMillis) {
+         changedFiles = fileChangeWatcher.awaitChanges(100);
+      }
+
+      return changedFiles;
+   }
+
+   private static File createTempDirectory() throws Exception {
+      final File directory = File.createTempFile("watched", "");
+      assertThat(directory.delete()).isTrue();
+      assertThat(directory.mkdir()).isTrue();
+      directory.deleteOnExit();
+
+      return directory;
+   }
+
+   private static void write(final File file, final String content) throws Exception {
+      final FileWriter writer = new FileWriter(file);
+      try {
+         writer.write(content);
+      } finally {
+         writer.close();
+      }
+      file.deleteOnExit();
+   }
+}
@@ -0,0 +1,83 @@
+package by.stub.database.thread;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ReloadExecutorTest {
+
+   @Test
+   public void shouldReloadOnce_WhenBurstOfChangesSubmittedWithinQuietWindow() throws Exception {
+
+      final List<Set<File>> reloads = Collections.synchronizedList(new LinkedList<Set<File>>());
+      final CountDownLatch reloaded = new CountDownLatch(1);
+      final ReloadExecutor reloadExecutor = new ReloadExecutor(200) {
+         @Override
+         boolean reload(final Set<File> changedFiles) throws Exception {
+            reloads.add(changedFiles);
+            reloaded.countDown();
+            return true;
+         }
+      };
+
+      try {
+         for (int change = 0; change < 5; change++) {
+            reloadExecutor.submit(Collections.singleton(new File(String.format("file%s.json", change))));
+            Thread.sleep(20);
+         }
+
+         assertThat(reloaded.await(5, TimeUnit.SECONDS)).isTrue();
+         Thread.sleep(400);
+
+         assertThat(reloads).hasSize(1);
+         assertThat(reloads.get(0)).hasSize(5);
+      } finally {
+         reloadExecutor.shutdown();
+      }
+   }
+
+   @Test
+   public void shouldHandOverChangesToNextReload_WhenRunningReloadIsSuperseded() throws Exception {
+
+      final List<Set<File>> publishedReloads = Collections.synchronizedList(new LinkedList<Set<File>>());
+      final CountDownLatch reloadStarted = new CountDownLatch(1);
+      final CountDownLatch changeSubmitted = new CountDownLatch(1);
+      final CountDownLatch published = new CountDownLatch(1);
+      final ReloadExecutor reloadExecutor = new ReloadExecutor(50) {
+         @Override
+         boolean reload(final Set<File> changedFiles) throws Exception {
+            reloadStarted.countDown();
+            changeSubmitted.await(5, TimeUnit.SECONDS);
+            if (isSuperseded()) {
+               return false;
+            }
+            publishedReloads.add(new HashSet<File>(changedFiles));
+            published.countDown();
+            return true;
+         }
+      };
+
+      try {
+         reloadExecutor.submit(Collections.singleton(new File("main.yaml")));
+         assertThat(reloadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+         reloadExecutor.submit(Collections.singleton(new File("response.json")));
+         changeSubmitted.countDown();
+
+         assertThat(published.await(5, TimeUnit.SECONDS)).isTrue();
+         assertThat(publishedReloads).hasSize(1);
+         assertThat(publishedReloads.get(0)).containsOnly(new File("main.yaml"), new File("response.json"));
+      } finally {
+         reloadExecutor.shutdown();
+      }
+   }
+}
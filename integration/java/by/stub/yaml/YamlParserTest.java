@@ -13,9 +13,11 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Map;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -704,6 +706,187 @@ public class YamlParserTest {
    }
 
 
+   @Test
+   public void shouldMarshallYamlSnippetOnDemand_AsOriginallyAuthored() throws Exception {
+
+      final String yaml = YAML_BUILDER
+         .newStubbedRequest()
+         .withMethodGet()
+         .withUrl("/some/uri")
+         .withHeaderAuthorization("bob:secret")
+         .newStubbedResponse()
+         .withStatus("201")
+         .withHeaders("content-type", "application/json")
+         .build();
+
+      final List<StubHttpLifecycle> loadedHttpCycles = unmarshall(yaml);
+      final StubHttpLifecycle actualHttpLifecycle = loadedHttpCycles.get(0);
+      final String marshalledYaml = actualHttpLifecycle.getMarshalledYaml();
+
+      assertThat(marshalledYaml).contains("url: /some/uri");
+      assertThat(marshalledYaml).contains("authorization: bob:secret");
+      assertThat(marshalledYaml).contains("content-type: application/json");
+      assertThat(marshalledYaml).doesNotContain(StubResponse.STUBBY_RESOURCE_ID_HEADER);
+      assertThat(actualHttpLifecycle.getMarshalledYaml()).isEqualTo(marshalledYaml);
+   }
+
+   @Test
+   public void shouldRenderYamlNodeThatParsesBackToSameStub_WhenStubHasFileAndAuthorization() throws Exception {
+
+      final File responseFile = File.createTempFile("response", ".json");
+      responseFile.deleteOnExit();
+      final String dataConfigHomeDirectory = responseFile.getParent();
+
+      final String yaml = YAML_BUILDER
+         .newStubbedRequest()
+         .withMethodPost()
+         .withUrl("/some/uri")
+         .withQuery("type", "json")
+         .withHeaderAuthorization("bob:secret")
+         .withLiteralPost("posted")
+         .newStubbedResponse()
+         .withStatus("201")
+         .withHeaders("content-type", "application/json")
+         .withFile(responseFile.getName())
+         .build();
+
+      final StubHttpLifecycle actualHttpLifecycle = new YamlParser().parse(dataConfigHomeDirectory, FileUtils.constructReader(yaml)).get(0);
+      final Map<String, Object> renderedYamlNode = actualHttpLifecycle.toYamlNode();
+      final StubHttpLifecycle reparsedHttpLifecycle = new YamlParser().parseStubNode(dataConfigHomeDirectory, renderedYamlNode);
+
+      assertThat(actualHttpLifecycle.getMarshalledYaml()).contains("authorization: bob:secret");
+      assertThat(actualHttpLifecycle.getMarshalledYaml()).contains(String.format("file: %s", responseFile.getName()));
+
+      final StubRequest reparsedRequest = reparsedHttpLifecycle.getRequest();
+      assertThat(reparsedRequest.getMethod()).containsExactly(HttpMethods.POST);
+      assertThat(reparsedRequest.getUrl()).isEqualTo(actualHttpLifecycle.getRequest().getUrl());
+      assertThat(reparsedRequest.getHeaders()).isEqualTo(actualHttpLifecycle.getRequest().getHeaders());
+      assertThat(reparsedRequest.getPostBody()).isEqualTo(actualHttpLifecycle.getRequest().getPostBody());
+
+      final StubResponse reparsedResponse = reparsedHttpLifecycle.getResponse();
+      assertThat(reparsedHttpLifecycle.hasSequencedResponses()).isFalse();
+      assertThat(reparsedResponse.getStatus()).isEqualTo("201");
+      assertThat(reparsedResponse.getHeaders()).hasSize(1).contains(MapEntry.entry("content-type", "application/json"));
+      assertThat(reparsedResponse.getRawFile()).isEqualTo(actualHttpLifecycle.getResponse().getRawFile());
+      assertThat(reparsedHttpLifecycle.toYamlNode()).isEqualTo(renderedYamlNode);
+   }
+
+   @Test
+   public void shouldGiveEqualYamlNodeDigests_OnlyWhenStubsAreParsedFromEqualNodes() throws Exception {
+
+      final String yaml = String.format("%s\n%s\n%s",
+         YAML_BUILDER.newStubbedRequest().withMethodGet().withUrl("/some/uri").newStubbedResponse().withStatus("200").build(),
+         YAML_BUILDER.newStubbedRequest().withMethodGet().withUrl("/some/uri").newStubbedResponse().withStatus("200").build(),
+         YAML_BUILDER.newStubbedRequest().withMethodGet().withUrl("/some/uri").newStubbedResponse().withStatus("201").build());
+
+      final List<StubHttpLifecycle> loadedHttpCycles = unmarshall(yaml);
+
+      assertThat(loadedHttpCycles.get(0).getYamlNodeDigest()).isNotNull();
+      assertThat(loadedHttpCycles.get(1).getYamlNodeDigest()).isEqualTo(loadedHttpCycles.get(0).getYamlNodeDigest());
+      assertThat(loadedHttpCycles.get(2).getYamlNodeDigest()).isNotEqualTo(loadedHttpCycles.get(0).getYamlNodeDigest());
+   }
+
+   @Test
+   public void shouldUnmarshallIncludedYamls_InTheOrderTheyAreIncluded() throws Exception {
+
+      final File includingYaml = new File(YamlParserTest.class.getResource("/yaml/includes/main.yaml").getPath());
+      final List<StubHttpLifecycle> loadedHttpCycles =
+         new YamlParser().parse(includingYaml.getParent(), FileUtils.constructReader(includingYaml));
+
+      assertThat(loadedHttpCycles).hasSize(4);
+      assertThat(loadedHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/inline");
+      assertThat(loadedHttpCycles.get(0).getSourceYaml()).isNull();
+      assertThat(loadedHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/invoice");
+      assertThat(loadedHttpCycles.get(1).getSourceYaml().getName()).isEqualTo("invoice.yaml");
+      assertThat(loadedHttpCycles.get(2).getRequest().getUrl()).isEqualTo("/item/1");
+      assertThat(loadedHttpCycles.get(3).getRequest().getUrl()).isEqualTo("/item/2");
+      assertThat(loadedHttpCycles.get(3).getSourceYaml().getName()).isEqualTo("item.yaml");
+
+      final String expectedContent = FileUtils.asciiFileToString(new File(YamlParserTest.class.getResource("/json/response.external.file.json").getPath()));
+      assertThat(StringUtils.newStringUtf8(loadedHttpCycles.get(1).getResponse().getResponseBody())).isEqualTo(expectedContent);
+      assertThat(loadedHttpCycles.get(3).getResponse().getHeaders()).contains(MapEntry.entry(StubResponse.STUBBY_RESOURCE_ID_HEADER, "3"));
+   }
+
+   @Test
+   public void shouldReuseUnchangedIncludedYamls_WhenReparsingIncludingYaml() throws Exception {
+
+      final File includingYaml = new File(YamlParserTest.class.getResource("/yaml/includes/main.yaml").getPath());
+      final List<StubHttpLifecycle> loadedHttpCycles =
+         new YamlParser().parse(includingYaml.getParent(), FileUtils.constructReader(includingYaml));
+
+      final List<StubHttpLifecycle> reloadedHttpCycles =
+         new YamlParser().parse(includingYaml.getParent(), FileUtils.constructReader(includingYaml), loadedHttpCycles);
+
+      assertThat(reloadedHttpCycles).hasSize(loadedHttpCycles.size());
+      for (int index = 0; index < loadedHttpCycles.size(); index++) {
+         assertThat(reloadedHttpCycles.get(index)).isSameAs(loadedHttpCycles.get(index));
+      }
+   }
+
+   @Test
+   public void shouldIncludeYamlOnce_WhenMatchedByOverlappingIncludes() throws Exception {
+
+      final File includingYaml = new File(YamlParserTest.class.getResource("/yaml/includes/main.yaml").getPath());
+      final String overlappingYaml = "-  include: stubs/item.yaml\n\n-  include: stubs/*.yaml";
+      final List<StubHttpLifecycle> loadedHttpCycles =
+         new YamlParser().parse(includingYaml.getParent(), FileUtils.constructReader(overlappingYaml));
+
+      assertThat(loadedHttpCycles).hasSize(3);
+      assertThat(loadedHttpCycles.get(0).getRequest().getUrl()).isEqualTo("/item/1");
+      assertThat(loadedHttpCycles.get(1).getRequest().getUrl()).isEqualTo("/item/2");
+      assertThat(loadedHttpCycles.get(2).getRequest().getUrl()).isEqualTo("/invoice");
+
+      final List<StubHttpLifecycle> reloadedHttpCycles =
+         new YamlParser().parse(includingYaml.getParent(), FileUtils.constructReader(overlappingYaml), loadedHttpCycles);
+
+      assertThat(reloadedHttpCycles).hasSize(3);
+      for (int index = 0; index < loadedHttpCycles.size(); index++) {
+         assertThat(reloadedHttpCycles.get(index)).isSameAs(loadedHttpCycles.get(index));
+      }
+   }
+
+   @Test
+   public void shouldThrowWhenIncludedYamlDoesNotExist() throws Exception {
+
+      expectedException.expect(IOException.class);
+      expectedException.expectMessage("Could not load included YAML from path: non-existent.yaml");
+
+      unmarshall("-  include: non-existent.yaml");
+   }
+
+   @Test
+   public void shouldUnmarshallJsonIntoSameObjectTreeAsYaml() throws Exception {
+
+      final String json = "[{\"request\": {\"method\": [\"GET\", \"HEAD\"], \"url\": \"/some/uri\", " +
+         "\"query\": {\"type\": \"json\"}, \"headers\": {\"authorization\": \"bob:secret\"}}, " +
+         "\"response\": [{\"status\": 201, \"body\": \"first\\n\\u00e9\"}, {\"status\": \"500\", \"latency\": 100}]}]";
+
+      final List<StubHttpLifecycle> loadedHttpCycles = new YamlParser().parseJson(".", FileUtils.constructReader(json));
+      final StubHttpLifecycle actualHttpLifecycle = loadedHttpCycles.get(0);
+      final StubRequest actualRequest = actualHttpLifecycle.getRequest();
+      final List<StubResponse> actualResponses = actualHttpLifecycle.getAllResponses();
+
+      assertThat(loadedHttpCycles).hasSize(1);
+      assertThat(actualRequest.getMethod()).containsExactly(HttpMethods.GET, HttpMethods.HEAD);
+      assertThat(actualRequest.getUrl()).startsWith("/some/uri");
+      assertThat(actualRequest.getQuery()).contains(MapEntry.entry("type", "json"));
+      assertThat(actualRequest.getHeaders()).contains(MapEntry.entry("authorization", "Basic " + StringUtils.encodeBase64("bob:secret")));
+      assertThat(actualResponses).hasSize(2);
+      assertThat(actualResponses.get(0).getStatus()).isEqualTo("201");
+      assertThat(actualResponses.get(0).getBody()).isEqualTo("first\n\u00e9");
+      assertThat(actualResponses.get(1).getLatency()).isEqualTo("100");
+      assertThat(actualHttpLifecycle.getMarshalledYaml()).contains("url: /some/uri");
+   }
+
+   @Test
+   public void shouldFailUnmarshallJson_WhenJsonIsMalformed() throws Exception {
+
+      expectedException.expect(IOException.class);
+      expectedException.expectMessage("Malformed JSON at character 26: Expected ',' or '}' in object");
+
+      new YamlParser().parseJson(".", FileUtils.constructReader("[{\"request\": {\"url\": \"/a\" \"method\": \"GET\"}}]"));
+   }
+
    private List<StubHttpLifecycle> unmarshall(final String yaml) throws Exception {
       return new YamlParser().parse(".", FileUtils.constructReader(yaml));
    }
@@ -24,6 +24,7 @@ import by.stub.cli.CommandLineInterpreter;
 import by.stub.exception.Stubby4JException;
 import by.stub.server.StubbyManager;
 import by.stub.server.StubbyManagerFactory;
+import by.stub.utils.StartupProfiler;
 import org.apache.commons.cli.ParseException;
 
 import java.util.Map;
@@ -47,6 +48,8 @@ public final class Main {
 
       verifyYamlDataProvided();
       startStubby4jUsingCommandLineArgs();
+
+      printStartupReportIfRequested();
    }
 
    private static void parseCommandLineArgs(final String[] args) {
@@ -71,6 +74,12 @@ public final class Main {
       return true;
    }
 
+   private static void printStartupReportIfRequested() {
+      if (commandLineInterpreter.isStartupReport()) {
+         ANSITerminal.info(String.format("%s%s", "\n", StartupProfiler.report()));
+      }
+   }
+
    private static void verifyYamlDataProvided() {
       if (commandLineInterpreter.isYamlProvided()) {
          return;
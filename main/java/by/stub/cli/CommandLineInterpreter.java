@@ -41,7 +41,14 @@ public final class CommandLineInterpreter {
    public static final String OPTION_KEYPASS = "password";
    public static final String OPTION_MUTE = "mute";
    public static final String OPTION_WATCH = "watch";
+   public static final String OPTION_DEBOUNCE = "debounce";
    public static final String OPTION_HELP = "help";
+   public static final String OPTION_STARTUP_REPORT = "report";
+   public static final String OPTION_JOURNAL = "journal";
+   public static final String OPTION_FSYNC = "fsync";
+   public static final String OPTION_GENERATIONS = "generations";
+   public static final String OPTION_LATENCIES = "latencies";
+   public static final String OPTION_REQUESTS = "requests";
 
    private static final CommandLineParser POSIX_PARSER = new PosixParser();
    private static final Options OPTIONS = new Options();
@@ -58,6 +65,13 @@ public final class CommandLineInterpreter {
       OPTIONS.addOption("h", OPTION_HELP, false, "This help text.");
       OPTIONS.addOption("m", OPTION_MUTE, false, "Prevent stubby from printing to the console.");
       OPTIONS.addOption("w", OPTION_WATCH, false, "Reloads stub data upon changes to the main YAML or referenced external files.");
+      OPTIONS.addOption("b", OPTION_DEBOUNCE, true, "Milliseconds to wait for further changes before reloading, when watching. Defaults to 250.");
+      OPTIONS.addOption("r", OPTION_STARTUP_REPORT, false, "Prints a startup report: phase timings and allocations, stubs parsed per second, bytes loaded and slowest files.");
+      OPTIONS.addOption("j", OPTION_JOURNAL, true, "Journal file recording changes made through the admin portal, which are recovered from it on startup.");
+      OPTIONS.addOption("f", OPTION_FSYNC, false, "Forces journal writes to disk before changes made through the admin portal are acknowledged.");
+      OPTIONS.addOption("g", OPTION_GENERATIONS, true, "Number of previous sets of stubs kept in memory for rollback. Defaults to 10.");
+      OPTIONS.addOption("e", OPTION_LATENCIES, false, "Records per stub histograms of the time taken to match and to serve requests, shown by the admin portal at /stats.");
+      OPTIONS.addOption("q", OPTION_REQUESTS, true, "Number of most recent requests to the stub portal kept off the heap, queried by the admin portal at /requests.");
    }
 
 
@@ -92,6 +106,15 @@ public final class CommandLineInterpreter {
       return line.hasOption(OPTION_HELP);
    }
 
+   /**
+    * Checks if startup report was requested
+    *
+    * @return true if the user has provided 'report' command line arg
+    */
+   public boolean isStartupReport() {
+      return line.hasOption(OPTION_STARTUP_REPORT);
+   }
+
    /**
     * Prints 'help' message which describes avilable command line arguments
     */
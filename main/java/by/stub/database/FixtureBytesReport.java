@@ -0,0 +1,48 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+/**
+ * Describes how much memory loaded 'file' content takes: logical bytes count the content once per
+ * stub that references it, unique bytes count every distinct content (as shared by the blob store) once
+ */
+public final class FixtureBytesReport {
+
+   private final long uniqueBytes;
+   private final long logicalBytes;
+
+   public FixtureBytesReport(final long uniqueBytes, final long logicalBytes) {
+      this.uniqueBytes = uniqueBytes;
+      this.logicalBytes = logicalBytes;
+   }
+
+   public long getUniqueBytes() {
+      return uniqueBytes;
+   }
+
+   public long getLogicalBytes() {
+      return logicalBytes;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("unique %s, logical %s", uniqueBytes, logicalBytes);
+   }
+}
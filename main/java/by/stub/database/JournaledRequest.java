@@ -0,0 +1,129 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+import by.stub.utils.ObjectUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Request to the stubs portal as read back from the {@link RequestJournal}
+ */
+public final class JournaledRequest {
+
+   private final long sequence;
+   private final long timeMillis;
+   private final String method;
+   private final String url;
+   private final String query;
+   private final Map<String, String> headers;
+   private final Long bodyCrc32;
+   private final int stubId;
+   private final int status;
+   private final long elapsedMicros;
+
+   JournaledRequest(final long sequence, final long timeMillis, final String method, final String url, final String query,
+                    final Map<String, String> headers, final Long bodyCrc32, final int stubId, final int status, final long elapsedMicros) {
+      this.sequence = sequence;
+      this.timeMillis = timeMillis;
+      this.method = method;
+      this.url = url;
+      this.query = query;
+      this.headers = Collections.unmodifiableMap(headers);
+      this.bodyCrc32 = bodyCrc32;
+      this.stubId = stubId;
+      this.status = status;
+      this.elapsedMicros = elapsedMicros;
+   }
+
+   boolean matches(final String method, final Pattern url, final Integer stubId) {
+      if (ObjectUtils.isNotNull(method) && !method.equalsIgnoreCase(this.method)) {
+         return false;
+      }
+      if (ObjectUtils.isNotNull(stubId) && stubId != this.stubId) {
+         return false;
+      }
+
+      return ObjectUtils.isNull(url) || url.matcher(this.url).matches();
+   }
+
+   /**
+    * @return position of this request among all requests recorded since startup, starting from zero
+    */
+   public long getSequence() {
+      return sequence;
+   }
+
+   /**
+    * @return time the request was served, in milliseconds since the epoch
+    */
+   public long getTimeMillis() {
+      return timeMillis;
+   }
+
+   public String getMethod() {
+      return method;
+   }
+
+   public String getUrl() {
+      return url;
+   }
+
+   /**
+    * @return query string as received, or null when there was none
+    */
+   public String getQuery() {
+      return query;
+   }
+
+   /**
+    * @return those of the {@link RequestJournal#JOURNALED_HEADERS} the request had, by lower case name
+    */
+   public Map<String, String> getHeaders() {
+      return headers;
+   }
+
+   /**
+    * @return CRC-32 of the UTF-8 bytes of the request body, or null when the request had none
+    */
+   public Long getBodyCrc32() {
+      return bodyCrc32;
+   }
+
+   /**
+    * @return resource ID of the stub the request was matched to, or {@link RequestJournal#NO_STUB_ID}
+    */
+   public int getStubId() {
+      return stubId;
+   }
+
+   public int getStatus() {
+      return status;
+   }
+
+   /**
+    * @return time taken to match and to serve the request, in microseconds
+    */
+   public long getElapsedMicros() {
+      return elapsedMicros;
+   }
+}
@@ -0,0 +1,281 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
+import by.stub.yaml.stubs.StubRequest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the most recent requests made to the stubs portal in a ring of fixed-size records, allocated once outside of
+ * the Java heap, so that recording them neither allocates much nor adds to garbage collection.
+ * <p/>
+ * Recording takes no lock: each request claims the next record with an atomic increment and writes it in place. Text
+ * longer than its field is truncated. Readers skip a record that is being written or was overwritten while they read
+ * it, by checking the sequence committed for it, kept on the heap, before and after reading. A record can only come
+ * out mixed when more requests than the journal holds are recorded while a single one is still being written
+ */
+public final class RequestJournal {
+
+   // Headers recorded with each request, other headers are not kept
+   public static final List<String> JOURNALED_HEADERS = Collections.unmodifiableList(Arrays.asList("content-type", "accept", "user-agent"));
+   // A record per request, so that requests can be kept in a single direct buffer
+   static final int RECORD_SIZE = 512;
+   public static final int MAX_CAPACITY = Integer.MAX_VALUE / RECORD_SIZE;
+   // Stub ID recorded for requests that matched no stub
+   public static final int NO_STUB_ID = -1;
+
+   private static final int TIME_MILLIS_OFFSET = 0;
+   private static final int ELAPSED_MICROS_OFFSET = 8;
+   private static final int BODY_CRC32_OFFSET = 16;
+   private static final int STUB_ID_OFFSET = 24;
+   private static final int STATUS_OFFSET = 28;
+   private static final int HAS_BODY_OFFSET = 32;
+   // Text fields start with their length in bytes, as a short, followed by that many bytes of UTF-8
+   private static final int METHOD_OFFSET = 34;
+   private static final int METHOD_SIZE = 14;
+   private static final int URL_OFFSET = 48;
+   private static final int URL_SIZE = 192;
+   private static final int QUERY_OFFSET = 240;
+   private static final int QUERY_SIZE = 112;
+   private static final int HEADERS_OFFSET = 352;
+   private static final int HEADERS_SIZE = RECORD_SIZE - HEADERS_OFFSET;
+   private static final char HEADER_SEPARATOR = '\n';
+   private static final String HEADER_VALUE_SEPARATOR = ": ";
+   private static final long WRITING = -1;
+
+   private final int capacity;
+   private final ByteBuffer records;
+   private final AtomicLongArray committedSequences;
+   private final AtomicLong nextSequence = new AtomicLong();
+
+   /**
+    * @param capacity number of most recent requests kept
+    */
+   public RequestJournal(final int capacity) {
+      if (capacity <= 0 || capacity > MAX_CAPACITY) {
+         throw new IllegalArgumentException(String.format("Number of journaled requests must be from 1 to %s, got %s", MAX_CAPACITY, capacity));
+      }
+      this.capacity = capacity;
+      this.records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+      this.committedSequences = new AtomicLongArray(capacity);
+      for (int slot = 0; slot < capacity; slot++) {
+         committedSequences.set(slot, WRITING);
+      }
+   }
+
+   /**
+    * @param assertionStubRequest request as received by the stubs portal
+    * @param path                 URL path as received, without the query string
+    * @param queryString          query string as received, null when there was none
+    * @param stubId               resource ID of the stub the request was matched to, {@link #NO_STUB_ID} when it matched none
+    * @param status               status of the response served
+    * @param elapsedNanos         time taken to match and to serve the request
+    */
+   public void record(final StubRequest assertionStubRequest, final String path, final String queryString, final int stubId, final int status, final long elapsedNanos) {
+      final long sequence = nextSequence.getAndIncrement();
+      final int slot = (int) (sequence % capacity);
+      final int recordOffset = slot * RECORD_SIZE;
+
+      committedSequences.set(slot, WRITING);
+
+      // Positions are per buffer, each writer positions its own view of the shared records
+      final ByteBuffer record = records.duplicate();
+      record.putLong(recordOffset + TIME_MILLIS_OFFSET, System.currentTimeMillis());
+      record.putLong(recordOffset + ELAPSED_MICROS_OFFSET, elapsedNanos / 1000);
+      record.putInt(recordOffset + STUB_ID_OFFSET, stubId);
+      record.putInt(recordOffset + STATUS_OFFSET, status);
+
+      final String body = assertionStubRequest.getPost();
+      final boolean hasBody = StringUtils.isSet(body);
+      record.put(recordOffset + HAS_BODY_OFFSET, (byte) (hasBody ? 1 : 0));
+      record.putLong(recordOffset + BODY_CRC32_OFFSET, hasBody ? crc32(body) : 0);
+
+      final List<String> method = assertionStubRequest.getMethod();
+      putText(record, recordOffset + METHOD_OFFSET, METHOD_SIZE, method.isEmpty() ? "" : method.get(0));
+      putText(record, recordOffset + URL_OFFSET, URL_SIZE, ObjectUtils.isNull(path) ? "" : path);
+      putText(record, recordOffset + QUERY_OFFSET, QUERY_SIZE, ObjectUtils.isNull(queryString) ? "" : queryString);
+      putText(record, recordOffset + HEADERS_OFFSET, HEADERS_SIZE, joinHeaders(assertionStubRequest.getHeaders()));
+
+      committedSequences.set(slot, sequence);
+   }
+
+   /**
+    * @param method   method the requests must have, ignoring case, or null for any
+    * @param url      regular expression the whole URL path of the requests must match, or null for any
+    * @param stubId   resource ID of the stub the requests must have matched, {@link #NO_STUB_ID} for none, or null for
+    *                 any
+    * @param offset   number of matching requests to skip, most recent first
+    * @param limit    maximum number of requests returned
+    * @return matching requests still in the journal, most recent first
+    */
+   public List<JournaledRequest> find(final String method, final Pattern url, final Integer stubId, final int offset, final int limit) {
+      final List<JournaledRequest> found = new LinkedList<JournaledRequest>();
+      int skipped = 0;
+      final long next = nextSequence.get();
+      for (long sequence = next - 1; sequence >= Math.max(0, next - capacity) && found.size() < limit; sequence--) {
+         final JournaledRequest journaledRequest = read(sequence);
+         if (ObjectUtils.isNull(journaledRequest) || !journaledRequest.matches(method, url, stubId)) {
+            continue;
+         }
+         if (skipped < offset) {
+            skipped++;
+            continue;
+         }
+         found.add(journaledRequest);
+      }
+
+      return found;
+   }
+
+   /**
+    * @return number of requests still in the journal matching the given criteria, as described in
+    * {@link #find(String, Pattern, Integer, int, int)}
+    */
+   public long count(final String method, final Pattern url, final Integer stubId) {
+      long count = 0;
+      final long next = nextSequence.get();
+      for (long sequence = next - 1; sequence >= Math.max(0, next - capacity); sequence--) {
+         final JournaledRequest journaledRequest = read(sequence);
+         if (ObjectUtils.isNotNull(journaledRequest) && journaledRequest.matches(method, url, stubId)) {
+            count++;
+         }
+      }
+
+      return count;
+   }
+
+   public int getCapacity() {
+      return capacity;
+   }
+
+   /**
+    * @return number of requests recorded since startup, including those no longer in the journal
+    */
+   public long getRecordedCount() {
+      return nextSequence.get();
+   }
+
+   // Null when the record is being written, or no longer holds the request with the given sequence
+   private JournaledRequest read(final long sequence) {
+      final int slot = (int) (sequence % capacity);
+      if (committedSequences.get(slot) != sequence) {
+         return null;
+      }
+
+      final int recordOffset = slot * RECORD_SIZE;
+      final ByteBuffer record = records.duplicate();
+      final boolean hasBody = record.get(recordOffset + HAS_BODY_OFFSET) != 0;
+      final String query = getText(record, recordOffset + QUERY_OFFSET, QUERY_SIZE);
+      final JournaledRequest journaledRequest = new JournaledRequest(sequence,
+         record.getLong(recordOffset + TIME_MILLIS_OFFSET),
+         getText(record, recordOffset + METHOD_OFFSET, METHOD_SIZE),
+         getText(record, recordOffset + URL_OFFSET, URL_SIZE),
+         query.isEmpty() ? null : query,
+         splitHeaders(getText(record, recordOffset + HEADERS_OFFSET, HEADERS_SIZE)),
+         hasBody ? Long.valueOf(record.getLong(recordOffset + BODY_CRC32_OFFSET)) : null,
+         record.getInt(recordOffset + STUB_ID_OFFSET),
+         record.getInt(recordOffset + STATUS_OFFSET),
+         record.getLong(recordOffset + ELAPSED_MICROS_OFFSET));
+
+      if (committedSequences.get(slot) != sequence) {
+         return null;
+      }
+
+      return journaledRequest;
+   }
+
+   private static long crc32(final String body) {
+      final CRC32 crc32 = new CRC32();
+      crc32.update(StringUtils.getBytesUtf8(body));
+
+      return crc32.getValue();
+   }
+
+   private static String joinHeaders(final Map<String, String> headers) {
+      final StringBuilder joined = new StringBuilder();
+      for (final String headerName : JOURNALED_HEADERS) {
+         final String headerValue = headers.get(headerName);
+         if (ObjectUtils.isNull(headerValue)) {
+            continue;
+         }
+         if (joined.length() > 0) {
+            joined.append(HEADER_SEPARATOR);
+         }
+         joined.append(headerName).append(HEADER_VALUE_SEPARATOR).append(headerValue);
+      }
+
+      return joined.toString();
+   }
+
+   // A header cut short by truncation is kept with what is left of its value
+   private static Map<String, String> splitHeaders(final String joined) {
+      final Map<String, String> headers = new LinkedHashMap<String, String>();
+      if (joined.isEmpty()) {
+         return headers;
+      }
+
+      for (final String header : joined.split(String.valueOf(HEADER_SEPARATOR))) {
+         final int separatorIndex = header.indexOf(HEADER_VALUE_SEPARATOR);
+         if (separatorIndex > 0) {
+            headers.put(header.substring(0, separatorIndex), header.substring(separatorIndex + HEADER_VALUE_SEPARATOR.length()));
+         }
+      }
+
+      return headers;
+   }
+
+   // Truncates to the field, without splitting a multi-byte character
+   private static void putText(final ByteBuffer record, final int fieldOffset, final int fieldSize, final String text) {
+      final byte[] bytes = StringUtils.getBytesUtf8(text);
+      int length = Math.min(bytes.length, fieldSize - 2);
+      if (length < bytes.length) {
+         while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+         }
+      }
+
+      record.putShort(fieldOffset, (short) length);
+      record.position(fieldOffset + 2);
+      record.put(bytes, 0, length);
+   }
+
+   // The length is bounded, a record overwritten while it is read is discarded after reading it
+   private static String getText(final ByteBuffer record, final int fieldOffset, final int fieldSize) {
+      final int length = Math.max(0, Math.min(record.getShort(fieldOffset), fieldSize - 2));
+      final byte[] bytes = new byte[length];
+      record.position(fieldOffset + 2);
+      record.get(bytes);
+
+      return StringUtils.newStringUtf8(bytes);
+   }
+}
@@ -0,0 +1,61 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+import java.util.Date;
+
+/**
+ * Describes a set of stubs published at some point, which is kept in memory so that it can be rolled back to
+ */
+public final class StubGeneration {
+
+   private final long generation;
+   private final int stubCount;
+   private final long publishedMillis;
+   private final boolean current;
+
+   public StubGeneration(final long generation, final int stubCount, final long publishedMillis, final boolean current) {
+      this.generation = generation;
+      this.stubCount = stubCount;
+      this.publishedMillis = publishedMillis;
+      this.current = current;
+   }
+
+   public long getGeneration() {
+      return generation;
+   }
+
+   public int getStubCount() {
+      return stubCount;
+   }
+
+   public long getPublishedMillis() {
+      return publishedMillis;
+   }
+
+   public boolean isCurrent() {
+      return current;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("generation %s%s: %s stubs, published %tF %<tT", generation, current ? " (current)" : "", stubCount, new Date(publishedMillis));
+   }
+}
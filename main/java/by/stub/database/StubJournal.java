@@ -0,0 +1,725 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+import by.stub.cli.ANSITerminal;
+import by.stub.json.JsonReader;
+import by.stub.json.JsonWriter;
+import by.stub.utils.FileUtils;
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
+import by.stub.yaml.YamlParser;
+import by.stub.yaml.stubs.StubBatchOperation;
+import by.stub.yaml.stubs.StubHttpLifecycle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write-ahead journal of changes made to stubs through the admin portal, so that they survive a restart.
+ * <p/>
+ * Each change is appended to the journal file as a line holding a JSON array: the sequence number of the change,
+ * followed by its add, update and delete operations. Changes are group committed: a single writer thread appends every
+ * change queued since its previous write at once, optionally forcing them to disk, and only then publishes them.
+ * When a write fails, whatever it wrote is truncated off the journal, and the changes are discarded together with
+ * those queued after them, since they were made on top of them. The writer then carries on with later changes.
+ * <p/>
+ * Changes are journaled on top of the data YAML. A reload of the data YAML is journaled as a marker holding the
+ * fingerprint of the reloaded YAML, and a reset or rollback as the stubs it deleted and put back, so neither writes
+ * stubs that did not change. Changes that replace all stubs through the admin portal, and every so many operations,
+ * compact the journal: current stubs are written to a snapshot file next to the journal, which then starts over empty.
+ * <p/>
+ * On startup the snapshot is loaded and the journal replayed on top of it, skipping changes the snapshot already
+ * includes. When the data YAML the journaled changes were made on top of is not the one loaded, it changed while
+ * stubby was down: the journal then starts over from the loaded data YAML, as a reload would have
+ */
+@SuppressWarnings("unchecked")
+final class StubJournal {
+
+   // The journal is compacted once it holds more operations than this, or than there are stubs, whichever is larger
+   static final int COMPACTION_MIN_OPERATIONS = 1000;
+
+   private static final String SNAPSHOT_FILE_SUFFIX = ".snapshot";
+   private static final String JSON_NODE_SEQUENCE = "sequence";
+   private static final String JSON_NODE_NEXT_RESOURCE_ID = "nextResourceId";
+   private static final String JSON_NODE_DATA_FINGERPRINT = "dataFingerprint";
+   private static final String JSON_NODE_OPERATION = "op";
+   private static final String OPERATION_RELOAD = "reload";
+   private static final String OPERATION_RESTORE = "restore";
+   private static final String OPERATION_PUT = "put";
+   private static final String JSON_NODE_RESOURCE_ID = "id";
+   private static final String JSON_NODE_STUB = "stub";
+   private static final String JSON_NODE_YAML_NODE_DIGEST = "yamlNodeDigest";
+   private static final String JSON_NODE_SOURCE_YAML = "sourceYaml";
+   private static final String JSON_NODE_SOURCE_YAML_LAST_MODIFIED = "sourceYamlLastModified";
+
+   private final File journalFile;
+   private final File snapshotFile;
+   private final boolean forceToDisk;
+   private final ChangePublisher changePublisher;
+   private final LinkedList<PendingChange> pendingChanges = new LinkedList<PendingChange>();
+   private FileOutputStream journalStream;
+   private Writer journalWriter;
+   private long appendedSequence;
+   private long writtenSequence;
+   // Set when a failed write could not be truncated off the journal, after which no change can be journaled
+   private IOException failure;
+   // Only touched by the writer thread, once recovery is over
+   private int operationsSinceCompaction;
+   // Fingerprint of the data YAML journaled changes are made on top of. Only touched by the writer thread, once recovery is over
+   private String dataFingerprint;
+   // Changes replayed on top of the data YAML, only touched during recovery
+   private int replayedChanges;
+
+   StubJournal(final File journalFile, final boolean forceToDisk, final ChangePublisher changePublisher) {
+      this.journalFile = journalFile;
+      this.snapshotFile = new File(journalFile.getPath() + SNAPSHOT_FILE_SUFFIX);
+      this.forceToDisk = forceToDisk;
+      this.changePublisher = changePublisher;
+   }
+
+   /**
+    * Loads the snapshot and replays the journal on top of it, then starts recording changes. When the loaded data YAML
+    * is not the one the journaled changes were made on top of, they are discarded and the loaded stubs are kept
+    *
+    * @param loadedStubSnapshot      stubs loaded from the data YAML
+    * @param loadedDataFingerprint   fingerprint of the loaded data YAML
+    * @param dataConfigHomeDirectory directory that relative 'file' paths of journaled stubs are resolved against
+    * @return recovered stubs
+    */
+   StubSnapshot recover(final StubSnapshot loadedStubSnapshot, final String loadedDataFingerprint, final String dataConfigHomeDirectory) throws Exception {
+      final YamlParser yamlParser = new YamlParser();
+      StubSnapshot recoveredStubSnapshot = loadedStubSnapshot;
+      if (snapshotFile.isFile()) {
+         recoveredStubSnapshot = readSnapshot(yamlParser, dataConfigHomeDirectory, loadedStubSnapshot.getGeneration() + 1);
+      }
+
+      journalStream = new FileOutputStream(journalFile, true);
+      journalWriter = new BufferedWriter(new OutputStreamWriter(journalStream, StringUtils.charsetUTF8()));
+      recoveredStubSnapshot = replayJournal(yamlParser, dataConfigHomeDirectory, loadedStubSnapshot, recoveredStubSnapshot);
+
+      if (!loadedDataFingerprint.equals(dataFingerprint)) {
+         if (replayedChanges > 0) {
+            ANSITerminal.warn(String.format("Data YAML changed since journal %s was written, discarding the %s change(s) journaled on top of it",
+               journalFile.getPath(), replayedChanges));
+         }
+         rebase(loadedDataFingerprint);
+         recoveredStubSnapshot = loadedStubSnapshot;
+      }
+
+      writtenSequence = appendedSequence;
+
+      final Thread writerThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            writePendingChanges();
+         }
+      }, StubJournal.class.getCanonicalName());
+      writerThread.setDaemon(true);
+      writerThread.start();
+
+      return recoveredStubSnapshot;
+   }
+
+   /**
+    * Queues a change to be written, it is published once it has been. Callers must hold the lock of the data manager,
+    * so that changes are journaled in the order they are made
+    *
+    * @param change       what the change did, which decides how it is written
+    * @param stubSnapshot stubs once the change is made, to be published once it has been written
+    * @return queued change, to wait for with {@link #awaitWritten(PendingChange)}
+    * @throws IOException when an earlier failure left the journal unable to record any further change
+    */
+   synchronized PendingChange append(final Change change, final StubSnapshot stubSnapshot) throws IOException {
+      if (ObjectUtils.isNotNull(failure)) {
+         throw new IOException(String.format("Journal %s can no longer be written, changes are rejected: %s", journalFile.getPath(), failure.getMessage()), failure);
+      }
+
+      final PendingChange pendingChange = new PendingChange(appendedSequence + 1, change, stubSnapshot);
+      pendingChanges.add(pendingChange);
+      appendedSequence = pendingChange.sequence;
+      notifyAll();
+
+      return pendingChange;
+   }
+
+   /**
+    * Blocks until the given change has been written and published
+    *
+    * @throws IOException when the change could not be written, and was discarded
+    */
+   synchronized void awaitWritten(final PendingChange change) throws IOException, InterruptedException {
+      while (!change.written) {
+         if (ObjectUtils.isNotNull(change.failure)) {
+            throw new IOException(String.format("Could not write journal %s: %s", journalFile.getPath(), change.failure.getMessage()), change.failure);
+         }
+         wait();
+      }
+   }
+
+   private void writePendingChanges() {
+      while (true) {
+         final List<PendingChange> changes;
+         synchronized (this) {
+            try {
+               while (pendingChanges.isEmpty()) {
+                  wait();
+               }
+            } catch (final InterruptedException ex) {
+               return;
+            }
+
+            changes = new ArrayList<PendingChange>(pendingChanges);
+            pendingChanges.clear();
+         }
+
+         try {
+            writeChanges(changes);
+         } catch (final IOException ex) {
+            discard(changes, ex);
+            continue;
+         } catch (final RuntimeException ex) {
+            discard(changes, new IOException(ex.toString(), ex));
+            continue;
+         }
+
+         // Published in order, before being acknowledged, so that callers see their change served once they return
+         for (final PendingChange change : changes) {
+            changePublisher.publishWritten(change.stubSnapshot, change.change.isBaseline());
+         }
+         synchronized (this) {
+            for (final PendingChange change : changes) {
+               change.written = true;
+            }
+            writtenSequence = changes.get(changes.size() - 1).sequence;
+            notifyAll();
+         }
+      }
+   }
+
+   // Changes queued in the meantime were made on top of the failed ones, so they are discarded as well. The publisher
+   // runs this while it holds its lock, so that no change is queued until it has gone back to the published stubs
+   private void discard(final List<PendingChange> failedChanges, final IOException ex) {
+      ANSITerminal.error(String.format("Could not write journal %s, discarding %s change(s): %s", journalFile.getPath(), failedChanges.size(), ex.getMessage()));
+      changePublisher.discardUnwritten(new Runnable() {
+         @Override
+         public void run() {
+            synchronized (StubJournal.this) {
+               failedChanges.addAll(pendingChanges);
+               pendingChanges.clear();
+               for (final PendingChange change : failedChanges) {
+                  change.failure = ex;
+               }
+               appendedSequence = writtenSequence;
+               StubJournal.this.notifyAll();
+            }
+         }
+      });
+   }
+
+   private void writeChanges(final List<PendingChange> changes) throws IOException {
+      // The last change includes every change before it, so a compaction covers all of them
+      final PendingChange lastChange = changes.get(changes.size() - 1);
+      String writtenDataFingerprint = dataFingerprint;
+      boolean replacement = false;
+      for (final PendingChange change : changes) {
+         if (change.change.type == Change.Type.RELOAD) {
+            writtenDataFingerprint = change.change.dataFingerprint;
+         }
+         replacement |= change.change.type == Change.Type.REPLACEMENT;
+      }
+      if (replacement) {
+         compact(lastChange.stubSnapshot, lastChange.sequence, writtenDataFingerprint);
+         dataFingerprint = writtenDataFingerprint;
+         return;
+      }
+
+      final long journalLength = journalStream.getChannel().size();
+      int operations = 0;
+      boolean written = false;
+      try {
+         for (final PendingChange change : changes) {
+            operations += writeChange(change);
+         }
+         journalWriter.flush();
+         if (forceToDisk) {
+            journalStream.getChannel().force(false);
+         }
+         written = true;
+      } finally {
+         if (!written) {
+            truncateFailedWrite(journalLength);
+         }
+      }
+      operationsSinceCompaction += operations;
+      dataFingerprint = writtenDataFingerprint;
+
+      final int compactionThreshold = Math.max(COMPACTION_MIN_OPERATIONS, lastChange.stubSnapshot.getStubHttpLifecycles().size());
+      if (operationsSinceCompaction > compactionThreshold) {
+         try {
+            compact(lastChange.stubSnapshot, lastChange.sequence, dataFingerprint);
+         } catch (final IOException ex) {
+            // The changes were written to the journal already, the compaction is retried after the next change
+            ANSITerminal.warn(String.format("Could not compact journal %s: %s", journalFile.getPath(), ex.getMessage()));
+         }
+      }
+   }
+
+   // Restores the journal to its length before the failed write, so that it still ends with a complete change
+   private void truncateFailedWrite(final long journalLength) {
+      // Characters of the failed changes may still be buffered
+      journalWriter = new BufferedWriter(new OutputStreamWriter(journalStream, StringUtils.charsetUTF8()));
+      try {
+         journalStream.getChannel().truncate(journalLength);
+      } catch (final IOException ex) {
+         ANSITerminal.error(String.format("Could not truncate journal %s after a failed write, rejecting further changes: %s", journalFile.getPath(), ex.getMessage()));
+         synchronized (this) {
+            failure = ex;
+         }
+      }
+   }
+
+   // Returns the number of operations written, which count towards the next compaction
+   private int writeChange(final PendingChange change) throws IOException {
+      final JsonWriter jsonWriter = new JsonWriter(journalWriter);
+      jsonWriter.beginArray();
+      jsonWriter.writeElement(String.valueOf(change.sequence));
+      final int operations;
+      if (change.change.type == Change.Type.RELOAD) {
+         jsonWriter.writeElement(toReloadNode(change.change.dataFingerprint));
+         operations = 1;
+      } else if (change.change.type == Change.Type.RESTORE) {
+         operations = writeRestoreNodes(jsonWriter, change.change.replacedStubSnapshot, change.stubSnapshot);
+      } else {
+         for (final StubBatchOperation operation : change.change.operations) {
+            final Map<String, Object> operationNode = new LinkedHashMap<String, Object>();
+            operationNode.put(JSON_NODE_OPERATION, StringUtils.toLower(operation.getType().name()));
+            if (operation.getType() != StubBatchOperation.Type.ADD) {
+               operationNode.put(JSON_NODE_RESOURCE_ID, String.valueOf(operation.getResourceId()));
+            }
+            if (operation.getType() != StubBatchOperation.Type.DELETE) {
+               putStub(operationNode, operation.getStubHttpLifecycle());
+            }
+            jsonWriter.writeElement(operationNode);
+         }
+         operations = change.change.operations.size();
+      }
+      jsonWriter.endArray();
+      journalWriter.write(FileUtils.LINE_SEPARATOR_UNIX);
+
+      return operations;
+   }
+
+   private static Map<String, Object> toReloadNode(final String reloadedDataFingerprint) {
+      final Map<String, Object> reloadNode = new LinkedHashMap<String, Object>();
+      reloadNode.put(JSON_NODE_OPERATION, OPERATION_RELOAD);
+      reloadNode.put(JSON_NODE_DATA_FINGERPRINT, reloadedDataFingerprint);
+
+      return reloadNode;
+   }
+
+   // Restored snapshots share the stubs they have in common with the replaced one, so only the others are written
+   private static int writeRestoreNodes(final JsonWriter jsonWriter, final StubSnapshot replacedStubSnapshot, final StubSnapshot restoredStubSnapshot) throws IOException {
+      final Map<String, Object> restoreNode = new LinkedHashMap<String, Object>();
+      restoreNode.put(JSON_NODE_OPERATION, OPERATION_RESTORE);
+      restoreNode.put(JSON_NODE_NEXT_RESOURCE_ID, String.valueOf(restoredStubSnapshot.getNextResourceId()));
+      jsonWriter.writeElement(restoreNode);
+
+      int operations = 0;
+      for (final Integer resourceId : replacedStubSnapshot.getStubHttpLifecyclesByResourceId().keySet()) {
+         if (ObjectUtils.isNull(restoredStubSnapshot.getStubHttpLifecycle(resourceId))) {
+            final Map<String, Object> deleteNode = new LinkedHashMap<String, Object>();
+            deleteNode.put(JSON_NODE_OPERATION, StringUtils.toLower(StubBatchOperation.Type.DELETE.name()));
+            deleteNode.put(JSON_NODE_RESOURCE_ID, String.valueOf(resourceId));
+            jsonWriter.writeElement(deleteNode);
+            operations++;
+         }
+      }
+      for (final Map.Entry<Integer, StubHttpLifecycle> entry : restoredStubSnapshot.getStubHttpLifecyclesByResourceId().entrySet()) {
+         if (replacedStubSnapshot.getStubHttpLifecycle(entry.getKey()) != entry.getValue()) {
+            final Map<String, Object> putNode = toStubNode(entry.getKey(), entry.getValue());
+            putNode.put(JSON_NODE_OPERATION, OPERATION_PUT);
+            jsonWriter.writeElement(putNode);
+            operations++;
+         }
+      }
+
+      return operations;
+   }
+
+   /**
+    * Starts the journal over on top of the loaded data YAML: the journal is emptied and then records the fingerprint of
+    * the data YAML, after which the snapshot is deleted. Until the fingerprint is written, the snapshot and journal left
+    * behind do not match the data YAML either, so recovery starts over again
+    */
+   private void rebase(final String loadedDataFingerprint) throws IOException {
+      journalStream.getChannel().truncate(0);
+      final JsonWriter jsonWriter = new JsonWriter(journalWriter);
+      jsonWriter.beginArray();
+      jsonWriter.writeElement(String.valueOf(++appendedSequence));
+      jsonWriter.writeElement(toReloadNode(loadedDataFingerprint));
+      jsonWriter.endArray();
+      journalWriter.write(FileUtils.LINE_SEPARATOR_UNIX);
+      journalWriter.flush();
+      if (forceToDisk) {
+         journalStream.getChannel().force(false);
+      }
+      dataFingerprint = loadedDataFingerprint;
+      operationsSinceCompaction = 0;
+
+      if (snapshotFile.isFile() && !snapshotFile.delete()) {
+         ANSITerminal.warn(String.format("Could not delete journal snapshot %s, the journal no longer builds on it", snapshotFile.getPath()));
+      }
+   }
+
+   /**
+    * Writes the given stubs to a new snapshot, which atomically replaces the previous one, then empties the journal
+    */
+   private void compact(final StubSnapshot stubSnapshot, final long sequence, final String snapshotDataFingerprint) throws IOException {
+      final File temporaryFile = new File(snapshotFile.getPath() + ".tmp");
+      final FileOutputStream snapshotStream = new FileOutputStream(temporaryFile);
+      try {
+         final Writer snapshotWriter = new BufferedWriter(new OutputStreamWriter(snapshotStream, StringUtils.charsetUTF8()));
+         final JsonWriter jsonWriter = new JsonWriter(snapshotWriter);
+         jsonWriter.beginArray();
+
+         final Map<String, Object> headerNode = new LinkedHashMap<String, Object>();
+         headerNode.put(JSON_NODE_SEQUENCE, String.valueOf(sequence));
+         headerNode.put(JSON_NODE_NEXT_RESOURCE_ID, String.valueOf(stubSnapshot.getNextResourceId()));
+         headerNode.put(JSON_NODE_DATA_FINGERPRINT, snapshotDataFingerprint);
+         jsonWriter.writeElement(headerNode);
+
+         for (final Map.Entry<Integer, StubHttpLifecycle> entry : stubSnapshot.getStubHttpLifecyclesByResourceId().entrySet()) {
+            jsonWriter.writeElement(toStubNode(entry.getKey(), entry.getValue()));
+         }
+
+         jsonWriter.endArray();
+         snapshotWriter.flush();
+         if (forceToDisk) {
+            snapshotStream.getChannel().force(true);
+         }
+      } finally {
+         snapshotStream.close();
+      }
+
+      // Renaming over an existing file fails on some platforms
+      if (!temporaryFile.renameTo(snapshotFile) && !(snapshotFile.delete() && temporaryFile.renameTo(snapshotFile))) {
+         throw new IOException(String.format("Could not replace journal snapshot %s", snapshotFile.getPath()));
+      }
+
+      // The journal stream appends, so writes following the truncation start from the beginning of the file. The
+      // snapshot includes every journaled change already, so one that could not be truncated is skipped on replay
+      operationsSinceCompaction = 0;
+      try {
+         journalStream.getChannel().truncate(0);
+      } catch (final IOException ex) {
+         ANSITerminal.warn(String.format("Could not empty journal %s after compacting it: %s", journalFile.getPath(), ex.getMessage()));
+      }
+   }
+
+   private static Map<String, Object> toStubNode(final int resourceId, final StubHttpLifecycle cycle) {
+      final Map<String, Object> stubNode = new LinkedHashMap<String, Object>();
+      stubNode.put(JSON_NODE_RESOURCE_ID, String.valueOf(resourceId));
+      putStub(stubNode, cycle);
+      // Relative 'file' paths of included stubs are resolved against the included YAML, not the main one
+      final File sourceYaml = cycle.getSourceYaml();
+      if (ObjectUtils.isNotNull(sourceYaml)) {
+         stubNode.put(JSON_NODE_SOURCE_YAML, sourceYaml.getAbsolutePath());
+         stubNode.put(JSON_NODE_SOURCE_YAML_LAST_MODIFIED, String.valueOf(cycle.getSourceYamlLastModified()));
+      }
+
+      return stubNode;
+   }
+
+   // Stubs are written as rendered, along with the digest of the node they were parsed from, so that a refresh can reuse them after recovery
+   private static void putStub(final Map<String, Object> node, final StubHttpLifecycle cycle) {
+      node.put(JSON_NODE_STUB, cycle.toYamlNode());
+      if (ObjectUtils.isNotNull(cycle.getYamlNodeDigest())) {
+         node.put(JSON_NODE_YAML_NODE_DIGEST, cycle.getYamlNodeDigest());
+      }
+   }
+
+   private static StubHttpLifecycle readStub(final YamlParser yamlParser, final String dataConfigHomeDirectory, final Map<String, Object> node) throws Exception {
+      final StubHttpLifecycle cycle = yamlParser.parseStubNode(dataConfigHomeDirectory, (Map<String, Object>) node.get(JSON_NODE_STUB));
+      if (node.containsKey(JSON_NODE_YAML_NODE_DIGEST)) {
+         cycle.setYamlNodeDigest((String) node.get(JSON_NODE_YAML_NODE_DIGEST));
+      }
+
+      return cycle;
+   }
+
+   private StubSnapshot readSnapshot(final YamlParser yamlParser, final String dataConfigHomeDirectory, final long generation) throws Exception {
+      final Reader snapshotReader = FileUtils.constructReader(snapshotFile);
+      try {
+         final JsonReader jsonReader = new JsonReader(snapshotReader);
+         jsonReader.beginArray();
+         if (!jsonReader.hasNext()) {
+            throw new IOException(String.format("Journal snapshot %s has no header", snapshotFile.getPath()));
+         }
+
+         final Map<String, Object> headerNode = (Map<String, Object>) jsonReader.nextValue();
+         appendedSequence = Long.parseLong((String) headerNode.get(JSON_NODE_SEQUENCE));
+         final int nextResourceId = Integer.parseInt((String) headerNode.get(JSON_NODE_NEXT_RESOURCE_ID));
+         dataFingerprint = (String) headerNode.get(JSON_NODE_DATA_FINGERPRINT);
+         replayedChanges = 1;
+
+         final Map<Integer, StubHttpLifecycle> lifecyclesByResourceId = new LinkedHashMap<Integer, StubHttpLifecycle>();
+         while (jsonReader.hasNext()) {
+            final Map<String, Object> stubNode = (Map<String, Object>) jsonReader.nextValue();
+            final int resourceId = Integer.parseInt((String) stubNode.get(JSON_NODE_RESOURCE_ID));
+            final StubHttpLifecycle cycle = readSnapshotStub(yamlParser, dataConfigHomeDirectory, stubNode);
+            cycle.setResourceId(resourceId);
+            lifecyclesByResourceId.put(resourceId, cycle);
+         }
+         jsonReader.endArray();
+
+         return new StubSnapshot(lifecyclesByResourceId, nextResourceId, generation);
+      } finally {
+         snapshotReader.close();
+      }
+   }
+
+   private static StubHttpLifecycle readSnapshotStub(final YamlParser yamlParser, final String dataConfigHomeDirectory, final Map<String, Object> stubNode) throws Exception {
+      if (!stubNode.containsKey(JSON_NODE_SOURCE_YAML)) {
+         return readStub(yamlParser, dataConfigHomeDirectory, stubNode);
+      }
+
+      // Keeps the included YAML as the source of the stub, so that it is watched and reused on refresh as before
+      final File sourceYaml = new File((String) stubNode.get(JSON_NODE_SOURCE_YAML));
+      final StubHttpLifecycle cycle = readStub(yamlParser, sourceYaml.getParent(), stubNode);
+      cycle.setSourceYaml(sourceYaml, Long.parseLong((String) stubNode.get(JSON_NODE_SOURCE_YAML_LAST_MODIFIED)));
+
+      return cycle;
+   }
+
+   private StubSnapshot replayJournal(final YamlParser yamlParser, final String dataConfigHomeDirectory, final StubSnapshot loadedStubSnapshot,
+                                      final StubSnapshot stubSnapshot) throws Exception {
+      StubSnapshot replayedStubSnapshot = stubSnapshot;
+      final BufferedReader journalReader = FileUtils.constructReader(journalFile);
+      try {
+         int lineNumber = 1;
+         long completeLength = 0;
+         String line = journalReader.readLine();
+         while (ObjectUtils.isNotNull(line)) {
+            final String nextLine = journalReader.readLine();
+
+            final List<Object> changeNodes;
+            try {
+               changeNodes = readChangeNodes(line);
+            } catch (final IOException ex) {
+               if (ObjectUtils.isNotNull(nextLine)) {
+                  throw new IOException(String.format("Journal %s is corrupt at line %s: %s", journalFile.getPath(), lineNumber, ex.getMessage()), ex);
+               }
+               // Writing the last change was interrupted, so it was never acknowledged either. It is truncated off,
+               // so that changes appended later start on a line of their own
+               ANSITerminal.warn(String.format("Ignoring incomplete last change in journal %s: %s", journalFile.getPath(), ex.getMessage()));
+               journalStream.getChannel().truncate(completeLength);
+               break;
+            }
+
+            final long sequence = Long.parseLong((String) changeNodes.get(0));
+            if (sequence > appendedSequence) {
+               replayedStubSnapshot = replayChange(yamlParser, dataConfigHomeDirectory, loadedStubSnapshot, replayedStubSnapshot, changeNodes.subList(1, changeNodes.size()));
+               appendedSequence = sequence;
+            }
+
+            completeLength += StringUtils.getBytesUtf8(line).length + FileUtils.LINE_SEPARATOR_UNIX.length();
+            line = nextLine;
+            lineNumber++;
+         }
+      } finally {
+         journalReader.close();
+      }
+
+      return replayedStubSnapshot;
+   }
+
+   private StubSnapshot replayChange(final YamlParser yamlParser, final String dataConfigHomeDirectory, final StubSnapshot loadedStubSnapshot,
+                                     final StubSnapshot stubSnapshot, final List<Object> operationNodes) throws Exception {
+      final Map<String, Object> firstNode = operationNodes.isEmpty() ? null : (Map<String, Object>) operationNodes.get(0);
+      final String firstOperation = ObjectUtils.isNull(firstNode) ? null : (String) firstNode.get(JSON_NODE_OPERATION);
+
+      if (OPERATION_RELOAD.equals(firstOperation)) {
+         // Stubs are assigned resource IDs afresh, as they were when the data YAML was reloaded
+         dataFingerprint = (String) firstNode.get(JSON_NODE_DATA_FINGERPRINT);
+         replayedChanges = 0;
+         return stubSnapshot.next(loadedStubSnapshot.getStubHttpLifecycles());
+      }
+
+      replayedChanges++;
+      if (OPERATION_RESTORE.equals(firstOperation)) {
+         final Set<Integer> deletedResourceIds = new HashSet<Integer>();
+         final Map<Integer, StubHttpLifecycle> putLifecycles = new LinkedHashMap<Integer, StubHttpLifecycle>();
+         for (final Object operationNode : operationNodes.subList(1, operationNodes.size())) {
+            final Map<String, Object> stubNode = (Map<String, Object>) operationNode;
+            final int resourceId = Integer.parseInt((String) stubNode.get(JSON_NODE_RESOURCE_ID));
+            if (OPERATION_PUT.equals(stubNode.get(JSON_NODE_OPERATION))) {
+               putLifecycles.put(resourceId, readSnapshotStub(yamlParser, dataConfigHomeDirectory, stubNode));
+            } else {
+               deletedResourceIds.add(resourceId);
+            }
+         }
+
+         return stubSnapshot.patch(deletedResourceIds, putLifecycles, Integer.parseInt((String) firstNode.get(JSON_NODE_NEXT_RESOURCE_ID)));
+      }
+
+      final List<StubBatchOperation> operations = new ArrayList<StubBatchOperation>();
+      for (final Object operationNode : operationNodes) {
+         operations.add(toOperation(yamlParser, dataConfigHomeDirectory, (Map<String, Object>) operationNode));
+      }
+
+      return stubSnapshot.apply(operations);
+   }
+
+   private static List<Object> readChangeNodes(final String line) throws IOException {
+      final List<Object> changeNodes = new ArrayList<Object>();
+      final JsonReader jsonReader = new JsonReader(new StringReader(line));
+      jsonReader.beginArray();
+      while (jsonReader.hasNext()) {
+         changeNodes.add(jsonReader.nextValue());
+      }
+      jsonReader.endArray();
+
+      if (changeNodes.isEmpty()) {
+         throw new IOException("Change has no sequence number");
+      }
+
+      return changeNodes;
+   }
+
+   private static StubBatchOperation toOperation(final YamlParser yamlParser, final String dataConfigHomeDirectory, final Map<String, Object> operationNode) throws Exception {
+      final StubBatchOperation.Type type = StubBatchOperation.Type.valueOf(StringUtils.toUpper((String) operationNode.get(JSON_NODE_OPERATION)));
+      if (type == StubBatchOperation.Type.DELETE) {
+         return StubBatchOperation.newDeleteOperation(Integer.parseInt((String) operationNode.get(JSON_NODE_RESOURCE_ID)));
+      }
+
+      final StubHttpLifecycle cycle = readStub(yamlParser, dataConfigHomeDirectory, operationNode);
+      if (type == StubBatchOperation.Type.ADD) {
+         return StubBatchOperation.newAddOperation(cycle);
+      }
+
+      return StubBatchOperation.newUpdateOperation(Integer.parseInt((String) operationNode.get(JSON_NODE_RESOURCE_ID)), cycle);
+   }
+
+   /**
+    * Publishes changes once they have been written
+    */
+   interface ChangePublisher {
+
+      /**
+       * Called for every written change, in the order the changes were queued
+       */
+      void publishWritten(final StubSnapshot stubSnapshot, final boolean baseline);
+
+      /**
+       * Called when changes could not be written. The given task fails them, and every change still queued, so it must
+       * run while no further change can be queued
+       */
+      void discardUnwritten(final Runnable failUnwrittenChanges);
+   }
+
+   /**
+    * What a change did, which decides how it is written
+    */
+   static final class Change {
+
+      private enum Type {
+         BATCH, REPLACEMENT, RELOAD, RESTORE
+      }
+
+      private final Type type;
+      private final List<StubBatchOperation> operations;
+      private final String dataFingerprint;
+      private final StubSnapshot replacedStubSnapshot;
+
+      private Change(final Type type, final List<StubBatchOperation> operations, final String dataFingerprint, final StubSnapshot replacedStubSnapshot) {
+         this.type = type;
+         this.operations = operations;
+         this.dataFingerprint = dataFingerprint;
+         this.replacedStubSnapshot = replacedStubSnapshot;
+      }
+
+      /**
+       * Change made through the admin portal by applying the given operations, which are written as they are
+       */
+      static Change batch(final List<StubBatchOperation> operations) {
+         return new Change(Type.BATCH, operations, null, null);
+      }
+
+      /**
+       * Change made through the admin portal by replacing all stubs, which is written as a compaction of the journal
+       */
+      static Change replacement() {
+         return new Change(Type.REPLACEMENT, null, null, null);
+      }
+
+      /**
+       * Reload of the data YAML, whose stubs also become the baseline restored by a reset. Only the fingerprint of
+       * the data YAML is written, its stubs are loaded from it again on recovery
+       */
+      static Change reload(final String reloadedDataFingerprint) {
+         return new Change(Type.RELOAD, null, reloadedDataFingerprint, null);
+      }
+
+      /**
+       * Reset or rollback to stubs published earlier, which is written as the stubs it deleted from, and put back into,
+       * the given replaced stubs
+       */
+      static Change restore(final StubSnapshot replacedStubSnapshot) {
+         return new Change(Type.RESTORE, null, null, replacedStubSnapshot);
+      }
+
+      boolean isBaseline() {
+         return type == Type.RELOAD;
+      }
+   }
+
+   /**
+    * Change queued to be written. Its outcome is guarded by the journal
+    */
+   static final class PendingChange {
+
+      private final long sequence;
+      private final Change change;
+      private final StubSnapshot stubSnapshot;
+      private boolean written;
+      private IOException failure;
+
+      private PendingChange(final long sequence, final Change change, final StubSnapshot stubSnapshot) {
+         this.sequence = sequence;
+         this.change = change;
+         this.stubSnapshot = stubSnapshot;
+      }
+   }
+}
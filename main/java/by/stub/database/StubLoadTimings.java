@@ -0,0 +1,60 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+/**
+ * Records how long loading stubs on startup took, and how long each reload of changed files took since
+ */
+public final class StubLoadTimings {
+
+   private volatile long loadMillis;
+   private long reloadCount;
+   private long lastReloadMillis;
+   private long lastReloadedAtMillis;
+
+   public void recordLoad(final long elapsedMillis) {
+      this.loadMillis = elapsedMillis;
+   }
+
+   public synchronized void recordReload(final long elapsedMillis) {
+      reloadCount++;
+      lastReloadMillis = elapsedMillis;
+      lastReloadedAtMillis = System.currentTimeMillis();
+   }
+
+   public long getLoadMillis() {
+      return loadMillis;
+   }
+
+   public synchronized long getReloadCount() {
+      return reloadCount;
+   }
+
+   public synchronized long getLastReloadMillis() {
+      return lastReloadMillis;
+   }
+
+   /**
+    * @return time the last reload finished, in milliseconds since the epoch, or zero when there was none
+    */
+   public synchronized long getLastReloadedAtMillis() {
+      return lastReloadedAtMillis;
+   }
+}
@@ -0,0 +1,77 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+import by.stub.utils.ObjectUtils;
+import by.stub.yaml.stubs.StubHttpLifecycle;
+import by.stub.yaml.stubs.StubResponse;
+
+/**
+ * Outcome of matching an incoming request: the response to serve, and the stub it was matched to
+ *
+ * @see StubbedDataManager#findStubMatchFor(by.stub.yaml.stubs.StubRequest)
+ */
+public final class StubMatch {
+
+   private final StubHttpLifecycle matchedLifecycle;
+   private final int resourceId;
+   private final StubResponse stubResponse;
+
+   /**
+    * @param matchedLifecycle stub the request was matched to, null when it matched none
+    * @param stubResponse     response to serve
+    */
+   public StubMatch(final StubHttpLifecycle matchedLifecycle, final StubResponse stubResponse) {
+      this(matchedLifecycle, RequestJournal.NO_STUB_ID, stubResponse);
+   }
+
+   /**
+    * @param matchedLifecycle stub the request was matched to
+    * @param resourceId       resource ID of the matched stub in the snapshot it was matched in
+    * @param stubResponse     response to serve
+    */
+   public StubMatch(final StubHttpLifecycle matchedLifecycle, final int resourceId, final StubResponse stubResponse) {
+      this.matchedLifecycle = matchedLifecycle;
+      this.resourceId = resourceId;
+      this.stubResponse = stubResponse;
+   }
+
+   public boolean isMatched() {
+      return ObjectUtils.isNotNull(matchedLifecycle);
+   }
+
+   /**
+    * @return stub the request was matched to, or null when it matched none
+    */
+   public StubHttpLifecycle getMatchedLifecycle() {
+      return matchedLifecycle;
+   }
+
+   /**
+    * @return resource ID of the stub the request was matched to, or {@link RequestJournal#NO_STUB_ID} when it matched none
+    */
+   public int getResourceId() {
+      return resourceId;
+   }
+
+   public StubResponse getStubResponse() {
+      return stubResponse;
+   }
+}
@@ -0,0 +1,54 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+/**
+ * Describes the outcome of refreshing loaded stubs: how many were newly constructed,
+ * how many were dropped and how many were carried over untouched
+ */
+public final class StubReloadReport {
+
+   private final int added;
+   private final int removed;
+   private final int kept;
+
+   public StubReloadReport(final int added, final int removed, final int kept) {
+      this.added = added;
+      this.removed = removed;
+      this.kept = kept;
+   }
+
+   public int getAdded() {
+      return added;
+   }
+
+   public int getRemoved() {
+      return removed;
+   }
+
+   public int getKept() {
+      return kept;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("added %s, removed %s, kept %s", added, removed, kept);
+   }
+}
@@ -0,0 +1,288 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.database;
+
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
+import by.stub.yaml.stubs.StubBatchOperation;
+import by.stub.yaml.stubs.StubHttpLifecycle;
+import by.stub.yaml.stubs.StubResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable set of loaded stubs. A snapshot is fully built, including resource IDs, before it is
+ * published, so readers that grabbed it never observe a reload half way through. Stubs are shared between
+ * snapshots, so the resource ID of a published stub never changes: a stub that moves to another ID is copied.
+ * <p/>
+ * Resource IDs are stable: they are assigned in ascending order as stubs are added and do not change when other
+ * stubs are updated or deleted. Only replacing the whole set of stubs assigns them afresh, starting from zero
+ */
+final class StubSnapshot {
+
+   private final List<StubHttpLifecycle> stubHttpLifecycles;
+   // Resource ID of each stub in the list above, so matching never has to read it back from the stub
+   private final int[] resourceIds;
+   // Iterates in ascending resource ID order, which is also the order stubs are matched in
+   private final Map<Integer, StubHttpLifecycle> stubHttpLifecyclesByResourceId;
+   private final int nextResourceId;
+   private final long generation;
+   // Sequenced responses of stubs start over from their first response when they are matched in a snapshot with a new epoch
+   private final long sequenceEpoch;
+   private final long publishedMillis = System.currentTimeMillis();
+   // Reverse index from canonical external file to the stubs referencing it, built on first use
+   private volatile Map<File, List<StubHttpLifecycle>> stubHttpLifecyclesByExternalFile;
+
+   StubSnapshot(final List<StubHttpLifecycle> stubHttpLifecycles, final long generation) {
+      this(stubHttpLifecycles, generation, 0);
+   }
+
+   private StubSnapshot(final List<StubHttpLifecycle> stubHttpLifecycles, final long generation, final long sequenceEpoch) {
+      final Map<Integer, StubHttpLifecycle> lifecyclesByResourceId = new LinkedHashMap<Integer, StubHttpLifecycle>();
+      for (final StubHttpLifecycle cycle : stubHttpLifecycles) {
+         final int resourceId = lifecyclesByResourceId.size();
+         lifecyclesByResourceId.put(resourceId, cycle.withResourceId(resourceId));
+      }
+
+      this.stubHttpLifecyclesByResourceId = lifecyclesByResourceId;
+      this.stubHttpLifecycles = Collections.unmodifiableList(new ArrayList<StubHttpLifecycle>(lifecyclesByResourceId.values()));
+      this.resourceIds = toResourceIds(lifecyclesByResourceId);
+      this.nextResourceId = lifecyclesByResourceId.size();
+      this.generation = generation;
+      this.sequenceEpoch = sequenceEpoch;
+   }
+
+   // Takes ownership of the given map, whose stubs already have their resource IDs assigned
+   StubSnapshot(final Map<Integer, StubHttpLifecycle> lifecyclesByResourceId, final int nextResourceId, final long generation) {
+      this(lifecyclesByResourceId, nextResourceId, generation, 0);
+   }
+
+   private StubSnapshot(final Map<Integer, StubHttpLifecycle> lifecyclesByResourceId, final int nextResourceId, final long generation, final long sequenceEpoch) {
+      this.stubHttpLifecyclesByResourceId = lifecyclesByResourceId;
+      this.stubHttpLifecycles = Collections.unmodifiableList(new ArrayList<StubHttpLifecycle>(lifecyclesByResourceId.values()));
+      this.resourceIds = toResourceIds(lifecyclesByResourceId);
+      this.nextResourceId = nextResourceId;
+      this.generation = generation;
+      this.sequenceEpoch = sequenceEpoch;
+   }
+
+   // Shares the stubs of the given snapshot, with its own next resource ID, generation and sequence epoch
+   private StubSnapshot(final StubSnapshot restoredSnapshot, final int nextResourceId, final long generation) {
+      this.stubHttpLifecyclesByResourceId = restoredSnapshot.stubHttpLifecyclesByResourceId;
+      this.stubHttpLifecycles = restoredSnapshot.stubHttpLifecycles;
+      this.resourceIds = restoredSnapshot.resourceIds;
+      this.nextResourceId = nextResourceId;
+      this.stubHttpLifecyclesByExternalFile = restoredSnapshot.stubHttpLifecyclesByExternalFile;
+      this.generation = generation;
+      this.sequenceEpoch = generation;
+   }
+
+   List<StubHttpLifecycle> getStubHttpLifecycles() {
+      return stubHttpLifecycles;
+   }
+
+   /**
+    * @return resource ID of the stub at the given index of {@link #getStubHttpLifecycles()}
+    */
+   int getResourceId(final int listIndex) {
+      return resourceIds[listIndex];
+   }
+
+   /**
+    * @return stubs keyed by their resource ID, in matching order
+    */
+   Map<Integer, StubHttpLifecycle> getStubHttpLifecyclesByResourceId() {
+      return Collections.unmodifiableMap(stubHttpLifecyclesByResourceId);
+   }
+
+   /**
+    * @return stub with the given resource ID, or null when there is none
+    */
+   StubHttpLifecycle getStubHttpLifecycle(final int resourceId) {
+      return stubHttpLifecyclesByResourceId.get(resourceId);
+   }
+
+   private static int[] toResourceIds(final Map<Integer, StubHttpLifecycle> lifecyclesByResourceId) {
+      final int[] resourceIds = new int[lifecyclesByResourceId.size()];
+      int listIndex = 0;
+      for (final Integer resourceId : lifecyclesByResourceId.keySet()) {
+         resourceIds[listIndex++] = resourceId;
+      }
+
+      return resourceIds;
+   }
+
+   /**
+    * @return resource ID the next added stub gets
+    */
+   int getNextResourceId() {
+      return nextResourceId;
+   }
+
+   /**
+    * @return number of snapshots published before this one
+    */
+   long getGeneration() {
+      return generation;
+   }
+
+   /**
+    * @return time this snapshot was built, in milliseconds since the epoch
+    */
+   long getPublishedMillis() {
+      return publishedMillis;
+   }
+
+   /**
+    * @return epoch that sequenced responses of matched stubs are counted in
+    */
+   long getSequenceEpoch() {
+      return sequenceEpoch;
+   }
+
+   /**
+    * @param canonicalFile canonical form of an external file
+    * @return stubs whose request or responses reference the given file
+    */
+   List<StubHttpLifecycle> getStubHttpLifecyclesReferencing(final File canonicalFile) throws IOException {
+      Map<File, List<StubHttpLifecycle>> index = stubHttpLifecyclesByExternalFile;
+      if (ObjectUtils.isNull(index)) {
+         index = indexByExternalFile();
+         stubHttpLifecyclesByExternalFile = index;
+      }
+
+      final List<StubHttpLifecycle> referencing = index.get(canonicalFile);
+      return ObjectUtils.isNull(referencing) ? Collections.<StubHttpLifecycle>emptyList() : referencing;
+   }
+
+   private Map<File, List<StubHttpLifecycle>> indexByExternalFile() throws IOException {
+      final Map<File, List<StubHttpLifecycle>> index = new HashMap<File, List<StubHttpLifecycle>>();
+      for (final StubHttpLifecycle cycle : stubHttpLifecycles) {
+         addToIndex(index, cycle.getRequest().getRawFile(), cycle);
+         for (final StubResponse response : cycle.getAllResponses()) {
+            addToIndex(index, response.getRawFile(), cycle);
+         }
+      }
+
+      return index;
+   }
+
+   private static void addToIndex(final Map<File, List<StubHttpLifecycle>> index, final File rawFile, final StubHttpLifecycle cycle) throws IOException {
+      if (ObjectUtils.isNull(rawFile)) {
+         return;
+      }
+
+      final File canonicalFile = rawFile.getCanonicalFile();
+      if (!index.containsKey(canonicalFile)) {
+         index.put(canonicalFile, new ArrayList<StubHttpLifecycle>());
+      }
+
+      // Stubs are indexed one after another, so a stub referencing the file more than once is last in its list
+      final List<StubHttpLifecycle> referencing = index.get(canonicalFile);
+      if (referencing.isEmpty() || referencing.get(referencing.size() - 1) != cycle) {
+         referencing.add(cycle);
+      }
+   }
+
+   /**
+    * Replaces all stubs. Stubs kept from this snapshot carry on with their sequenced responses, since the sequence
+    * epoch only changes when a snapshot is restored
+    *
+    * @return next snapshot
+    */
+   StubSnapshot next(final List<StubHttpLifecycle> stubHttpLifecycles) {
+      return new StubSnapshot(stubHttpLifecycles, generation + 1, sequenceEpoch);
+   }
+
+   /**
+    * Publishes this snapshot again, as the one following the given current snapshot, in constant time. Sequenced
+    * responses start over, since the restored snapshot gets a new sequence epoch. Resource IDs handed out since
+    * this snapshot was published are not handed out again: stubs added later get IDs after those of the current snapshot
+    *
+    * @return restored snapshot
+    */
+   StubSnapshot restoreAfter(final StubSnapshot currentSnapshot) {
+      return new StubSnapshot(this, Math.max(nextResourceId, currentSnapshot.nextResourceId), currentSnapshot.generation + 1);
+   }
+
+   /**
+    * Deletes the stubs with the given resource IDs from a copy of this snapshot, and puts the given stubs at theirs.
+    * Stubs stay in ascending resource ID order, the order they are always in. This replays a restored snapshot from
+    * the stubs it deleted and put back
+    *
+    * @return next snapshot, whose sequenced responses start over as those of a restored snapshot do
+    */
+   StubSnapshot patch(final Set<Integer> deletedResourceIds, final Map<Integer, StubHttpLifecycle> putLifecycles, final int nextResourceId) {
+      final Map<Integer, StubHttpLifecycle> sortedLifecycles = new TreeMap<Integer, StubHttpLifecycle>(stubHttpLifecyclesByResourceId);
+      sortedLifecycles.keySet().removeAll(deletedResourceIds);
+      for (final Map.Entry<Integer, StubHttpLifecycle> entry : putLifecycles.entrySet()) {
+         sortedLifecycles.put(entry.getKey(), entry.getValue().withResourceId(entry.getKey()));
+      }
+
+      return new StubSnapshot(new LinkedHashMap<Integer, StubHttpLifecycle>(sortedLifecycles), nextResourceId, generation + 1, generation + 1);
+   }
+
+   /**
+    * Applies the given operations, in order, to a copy of this snapshot. Added stubs get the next resource IDs and are
+    * placed last, updated stubs keep the resource ID and position of the stub they replace
+    * <p/>
+    * The copy takes time linear in the number of stubs, even for a single operation. That is the cost of matching
+    * a single request too, and admin changes are far rarer than requests, so snapshots stay plain arrays that
+    * requests are matched against without any indirection
+    *
+    * @return next snapshot
+    * @throws IllegalArgumentException when an operation addresses a stub that does not exist, or was deleted earlier
+    */
+   StubSnapshot apply(final List<StubBatchOperation> operations) {
+      final Map<Integer, StubHttpLifecycle> lifecyclesByResourceId = new LinkedHashMap<Integer, StubHttpLifecycle>(stubHttpLifecyclesByResourceId);
+      int resourceId = nextResourceId;
+
+      for (final StubBatchOperation operation : operations) {
+         if (operation.getType() == StubBatchOperation.Type.ADD) {
+            lifecyclesByResourceId.put(resourceId, operation.getStubHttpLifecycle().withResourceId(resourceId));
+            resourceId++;
+            continue;
+         }
+
+         final int targetResourceId = operation.getResourceId();
+         if (!lifecyclesByResourceId.containsKey(targetResourceId)) {
+            throw new IllegalArgumentException(String.format("Stub request index#%s does not exist, cannot %s", targetResourceId, StringUtils.toLower(operation.getType().name())));
+         }
+
+         if (operation.getType() == StubBatchOperation.Type.UPDATE) {
+            // Replacing the value of an existing key keeps its position in the map
+            lifecyclesByResourceId.put(targetResourceId, operation.getStubHttpLifecycle().withResourceId(targetResourceId));
+         } else {
+            lifecyclesByResourceId.remove(targetResourceId);
+         }
+      }
+
+      return new StubSnapshot(lifecyclesByResourceId, resourceId, generation + 1, sequenceEpoch);
+   }
+}
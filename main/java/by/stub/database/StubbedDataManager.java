@@ -19,39 +19,84 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package by.stub.database;
 
+import by.stub.exception.Stubby4JException;
+import by.stub.json.JsonWriter;
+import by.stub.utils.BlobStore;
+import by.stub.utils.LatencyHistogram;
 import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
 import by.stub.yaml.stubs.NotFoundStubResponse;
 import by.stub.yaml.stubs.PartialContentStubResponse;
 import by.stub.yaml.stubs.RedirectStubResponse;
+import by.stub.yaml.stubs.StubBatchOperation;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
 import by.stub.yaml.stubs.UnauthorizedStubResponse;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
 
 public class StubbedDataManager {
 
+   public static final int DEFAULT_KEPT_GENERATIONS = 10;
+
    private final File dataYaml;
    private final String dataYamlAbsolutePath;
    private final String dataYamlParentDirectory;
-   private final List<StubHttpLifecycle> stubHttpLifecycles;
+   // Readers grab the current snapshot without locking, writers are synchronized and publish a new one
+   private volatile StubSnapshot stubSnapshot;
+   // Stubs as last loaded from the data YAML, restored by a reset. Guarded by this
+   private StubSnapshot baselineStubSnapshot;
+   // Stubs, and baseline, as they are once every change queued to the journal is published. Writers build on these
+   // rather than on the published ones, which they run ahead of while the journal is being written. Guarded by this
+   private StubSnapshot latestStubSnapshot;
+   private StubSnapshot latestBaselineStubSnapshot;
+   // Records changes made through the admin portal when journaling is enabled, null otherwise
+   private volatile StubJournal stubJournal;
+   // Snapshots published before the current one, most recent first. They share unchanged stubs, and the fixture
+   // bytes of those, with each other and with the current snapshot. Guarded by this
+   private final LinkedList<StubSnapshot> previousStubSnapshots = new LinkedList<StubSnapshot>();
+   private int keptGenerations = DEFAULT_KEPT_GENERATIONS;
+   private final StubLoadTimings stubLoadTimings = new StubLoadTimings();
+   // Number of times external files were re-read in place, which changes stubs without publishing a new snapshot
+   private volatile long externalFileReloadCount;
+   private volatile boolean recordingLatencies;
+   // Records requests made to the stubs portal when enabled, null otherwise
+   private volatile RequestJournal requestJournal;
+   // What the includes of the data YAML matched when it was last loaded, see YamlParser#getIncludedYamlPatterns()
+   private volatile List<File> includedYamlPatterns = Collections.emptyList();
 
    public StubbedDataManager(final File dataYaml, final List<StubHttpLifecycle> stubHttpLifecycles) {
       this.dataYaml = dataYaml;
       this.dataYamlAbsolutePath = this.dataYaml.getAbsolutePath();
       this.dataYamlParentDirectory = this.dataYaml.getParent();
-      this.stubHttpLifecycles = Collections.synchronizedList(stubHttpLifecycles);
+      this.stubSnapshot = new StubSnapshot(stubHttpLifecycles, 0);
+      this.baselineStubSnapshot = this.stubSnapshot;
+      this.latestStubSnapshot = this.stubSnapshot;
+      this.latestBaselineStubSnapshot = this.stubSnapshot;
    }
 
    public StubResponse findStubResponseFor(final StubRequest assertingRequest) {
+      return findStubMatchFor(assertingRequest).getStubResponse();
+   }
+
+   /**
+    * @return response to serve for the given request, together with the stub it was matched to
+    */
+   public StubMatch findStubMatchFor(final StubRequest assertingRequest) {
       final StubHttpLifecycle assertingLifecycle = new StubHttpLifecycle();
       assertingLifecycle.setRequest(assertingRequest);
       assertingLifecycle.setResponse(StubResponse.newStubResponse());
@@ -59,70 +104,327 @@ public class StubbedDataManager {
       return identifyStubResponseType(assertingLifecycle);
    }
 
-   private StubResponse identifyStubResponseType(final StubHttpLifecycle assertingLifecycle) {
+   private StubMatch identifyStubResponseType(final StubHttpLifecycle assertingLifecycle) {
 
-      final StubHttpLifecycle matchedLifecycle = getMatchedStubHttpLifecycle(assertingLifecycle);
-      if (ObjectUtils.isNull(matchedLifecycle)) {
-         return new NotFoundStubResponse();
+      final StubSnapshot matchedSnapshot = stubSnapshot;
+      final int listIndex = matchedSnapshot.getStubHttpLifecycles().indexOf(assertingLifecycle);
+      if (listIndex < 0) {
+         return new StubMatch(StubHttpLifecycle.NULL, new NotFoundStubResponse());
       }
+      final StubHttpLifecycle matchedLifecycle = matchedSnapshot.getStubHttpLifecycles().get(listIndex);
+      final int resourceId = matchedSnapshot.getResourceId(listIndex);
+      matchedLifecycle.recordHit();
 
-      final StubResponse stubResponse = matchedLifecycle.getResponse();
+      final StubResponse stubResponse = matchedLifecycle.getResponse(matchedSnapshot.getSequenceEpoch());
       if (matchedLifecycle.isRestricted() && matchedLifecycle.hasNotAuthorized(assertingLifecycle)) {
-         return new UnauthorizedStubResponse();
+         return new StubMatch(matchedLifecycle, resourceId, new UnauthorizedStubResponse());
       }
 
       if (stubResponse.hasHeaderLocation()) {
-         return RedirectStubResponse.newRedirectStubResponse(stubResponse);
+         return new StubMatch(matchedLifecycle, resourceId, RedirectStubResponse.newRedirectStubResponse(stubResponse));
       }
 
       if (assertingLifecycle.isRangeRequest() && stubResponse.isPartial()) {
-         return new PartialContentStubResponse(stubResponse);
+         return new StubMatch(matchedLifecycle, resourceId, new PartialContentStubResponse(stubResponse));
       }
 
-      return stubResponse;
+      return new StubMatch(matchedLifecycle, resourceId, stubResponse);
    }
 
-   private synchronized StubHttpLifecycle getMatchedStubHttpLifecycle(final StubHttpLifecycle assertingLifecycle) {
-      final int listIndex = stubHttpLifecycles.indexOf(assertingLifecycle);
-      if (listIndex < 0) {
-         return StubHttpLifecycle.NULL;
+   /**
+    * @param resourceId stable resource ID of a stub, as returned in the x-stubby-resource-id header
+    * @return stub with the given resource ID, or null when there is none
+    */
+   public StubHttpLifecycle getMatchedStubHttpLifecycle(final int resourceId) {
+      return stubSnapshot.getStubHttpLifecycle(resourceId);
+   }
+
+   public boolean resetStubHttpLifecycles(final List<StubHttpLifecycle> stubHttpLifecycles) {
+      final StubJournal.PendingChange journaledChange;
+      synchronized (this) {
+         journaledChange = commit(latestStubSnapshot.next(stubHttpLifecycles), StubJournal.Change.replacement());
       }
-      final StubHttpLifecycle foundStubHttpLifecycle = stubHttpLifecycles.get(listIndex);
-      foundStubHttpLifecycle.setResourceId(listIndex);
+      awaitJournaled(journaledChange);
 
-      return foundStubHttpLifecycle;
+      return !stubHttpLifecycles.isEmpty();
    }
 
-   public synchronized StubHttpLifecycle getMatchedStubHttpLifecycle(final int index) {
+   /**
+    * Restores the stubs as last loaded from the data YAML, undoing all changes made through the admin portal since.
+    * The baseline set of stubs is published again as it is, in constant time, and their sequenced responses start
+    * over from the first response
+    */
+   public void resetToBaseline() {
+      final StubJournal.PendingChange journaledChange;
+      synchronized (this) {
+         journaledChange = commit(latestBaselineStubSnapshot.restoreAfter(latestStubSnapshot), StubJournal.Change.restore(latestStubSnapshot));
+      }
+      awaitJournaled(journaledChange);
+   }
 
-      if (!isStubHttpLifecycleExistsByIndex(index)) {
-         return StubHttpLifecycle.NULL;
+   /**
+    * Adds the given stubs after the loaded ones, leaving the loaded stubs and their resource IDs untouched
+    *
+    * @param stubHttpLifecycles stubs to add
+    * @return resource IDs assigned to the added stubs, in the given order
+    */
+   public List<Integer> appendStubHttpLifecycles(final List<StubHttpLifecycle> stubHttpLifecycles) {
+      final List<StubBatchOperation> operations = new ArrayList<StubBatchOperation>(stubHttpLifecycles.size());
+      for (final StubHttpLifecycle cycle : stubHttpLifecycles) {
+         operations.add(StubBatchOperation.newAddOperation(cycle));
       }
-      return stubHttpLifecycles.get(index);
+
+      return applyStubBatch(operations);
    }
 
-   public synchronized boolean resetStubHttpLifecycles(final List<StubHttpLifecycle> stubHttpLifecycles) {
-      this.stubHttpLifecycles.clear();
-      final boolean added = this.stubHttpLifecycles.addAll(stubHttpLifecycles);
-      if (added) {
-         updateResourceIDHeaders();
+   /**
+    * Applies the given add, update and delete operations all at once: either every operation is applied and
+    * the result is published as a single new set of stubs, or none is when any of them is invalid.
+    * Updates and deletes address stubs by their stable resource ID, added stubs are placed last
+    *
+    * @param operations operations to apply, in order
+    * @return resource IDs assigned to the added stubs, in the given order
+    * @throws IllegalArgumentException when an operation addresses a stub that does not exist or was deleted earlier in the batch
+    */
+   public List<Integer> applyStubBatch(final List<StubBatchOperation> operations) {
+      final int firstResourceId;
+      final StubJournal.PendingChange journaledChange;
+      synchronized (this) {
+         firstResourceId = latestStubSnapshot.getNextResourceId();
+         journaledChange = commit(latestStubSnapshot.apply(operations), StubJournal.Change.batch(operations));
       }
-      return added;
+      awaitJournaled(journaledChange);
+
+      final List<Integer> resourceIds = new ArrayList<Integer>();
+      for (final StubBatchOperation operation : operations) {
+         if (operation.getType() == StubBatchOperation.Type.ADD) {
+            resourceIds.add(firstResourceId + resourceIds.size());
+         }
+      }
+
+      return resourceIds;
+   }
+
+   /**
+    * Replaces loaded stubs with the given ones, where the given list may contain lifecycles that are
+    * already loaded (i.e.: reused by the parser because their YAML has not changed). The refreshed stubs
+    * become the baseline restored by {@link #resetToBaseline()}
+    *
+    * @param newStubHttpLifecycles refreshed list of stubs
+    * @return report of how many stubs were added, removed and kept
+    */
+   public StubReloadReport refreshStubHttpLifecycles(final List<StubHttpLifecycle> newStubHttpLifecycles) {
+      final Set<Object> currentStubHttpLifecycles = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+      final StubJournal.PendingChange journaledChange;
+      int kept = 0;
+      synchronized (this) {
+         for (final StubHttpLifecycle currentStubHttpLifecycle : latestStubSnapshot.getStubHttpLifecycles()) {
+            currentStubHttpLifecycles.add(toKeptStubKey(currentStubHttpLifecycle));
+         }
+         for (final StubHttpLifecycle newStubHttpLifecycle : newStubHttpLifecycles) {
+            if (currentStubHttpLifecycles.remove(toKeptStubKey(newStubHttpLifecycle))) {
+               kept++;
+            }
+         }
+         final StubSnapshot refreshedSnapshot = latestStubSnapshot.next(newStubHttpLifecycles);
+         journaledChange = commit(refreshedSnapshot, StubJournal.Change.reload(fingerprintDataYaml(refreshedSnapshot)));
+      }
+      awaitJournaled(journaledChange);
+      final int removed = currentStubHttpLifecycles.size();
+
+      return new StubReloadReport(newStubHttpLifecycles.size() - kept, removed, kept);
+   }
+
+   // A kept stub that moved to another resource ID is a copy, which shares the YAML node digest of the stub it was copied from
+   private static Object toKeptStubKey(final StubHttpLifecycle stubHttpLifecycle) {
+      final String yamlNodeDigest = stubHttpLifecycle.getYamlNodeDigest();
+      return ObjectUtils.isNull(yamlNodeDigest) ? stubHttpLifecycle : yamlNodeDigest;
+   }
+
+   /**
+    * Re-reads, in place, the content of a changed external file for the stubs that reference it.
+    * Other stubs are left untouched, so the cost does not depend on how many stubs are loaded
+    *
+    * @param externalFile changed external file
+    * @return number of stubs that reference the file
+    */
+   public synchronized int reloadExternalFile(final File externalFile) throws IOException {
+      final File canonicalFile = externalFile.getCanonicalFile();
+      final List<StubHttpLifecycle> referencingLifecycles = stubSnapshot.getStubHttpLifecyclesReferencing(canonicalFile);
+      for (final StubHttpLifecycle cycle : referencingLifecycles) {
+         cycle.reloadExternalFile(canonicalFile);
+      }
+      externalFileReloadCount++;
+
+      return referencingLifecycles.size();
    }
 
    // Just a shallow copy that protects collection from modification, the points themselves are not copied
    public List<StubHttpLifecycle> getStubHttpLifecycles() {
-      return new LinkedList<StubHttpLifecycle>(stubHttpLifecycles);
+      return new LinkedList<StubHttpLifecycle>(stubSnapshot.getStubHttpLifecycles());
+   }
+
+   /**
+    * @param offset number of stubs to skip
+    * @param limit  maximum number of stubs to return
+    * @return stubs in matching order, read from the current snapshot without copying the others
+    */
+   public List<StubHttpLifecycle> getStubHttpLifecycles(final int offset, final int limit) {
+      return listStubHttpLifecycles(offset, limit, null);
+   }
+
+   public int getStubHttpLifecyclesCount() {
+      return stubSnapshot.getStubHttpLifecycles().size();
+   }
+
+   /**
+    * @return number of times loaded stubs have changed, through reloads or through the admin portal
+    */
+   public long getGeneration() {
+      return stubSnapshot.getGeneration();
+   }
+
+   /**
+    * @return number of times external files have been re-read in place, see {@link #reloadExternalFile(File)}.
+    * Such reloads change stubs without publishing a new generation
+    */
+   public long getExternalFileReloadCount() {
+      return externalFileReloadCount;
+   }
+
+   public StubLoadTimings getStubLoadTimings() {
+      return stubLoadTimings;
+   }
+
+   /**
+    * @param recordingLatencies true to have the stubs portal record, per stub, how long requests take to match and
+    *                           to serve, which costs two clock reads and a few atomic increments per request
+    */
+   public void setRecordingLatencies(final boolean recordingLatencies) {
+      this.recordingLatencies = recordingLatencies;
+   }
+
+   public boolean isRecordingLatencies() {
+      return recordingLatencies;
+   }
+
+   /**
+    * @param requestJournal journal the stubs portal records each request it serves into, null to record none
+    */
+   public void setRequestJournal(final RequestJournal requestJournal) {
+      this.requestJournal = requestJournal;
+   }
+
+   /**
+    * @return journal of requests made to the stubs portal, or null when requests are not recorded
+    */
+   public RequestJournal getRequestJournal() {
+      return requestJournal;
+   }
+
+   /**
+    * Clears the hit counts, last hit times and latency histograms of the current stubs
+    */
+   public void resetStubHitStats() {
+      for (final StubHttpLifecycle cycle : stubSnapshot.getStubHttpLifecycles()) {
+         cycle.resetHitStats();
+      }
+   }
+
+   /**
+    * Writes the generation, the number of stubs, load and reload timings and, for each stub, its resource ID, request
+    * method and URL, hit count, last hit time and latency histograms as members of the object open in the given writer. Stubs are read from
+    * the snapshot published when writing starts, without locking, and each stub is written as it is read
+    */
+   public void writeStubStatsJson(final JsonWriter jsonWriter) throws IOException {
+      final StubSnapshot snapshot = stubSnapshot;
+      final List<StubHttpLifecycle> stubHttpLifecycles = snapshot.getStubHttpLifecycles();
+
+      jsonWriter.writeName("generation");
+      jsonWriter.writeNumber(snapshot.getGeneration());
+      jsonWriter.writeName("stubCount");
+      jsonWriter.writeNumber(stubHttpLifecycles.size());
+      jsonWriter.writeName("loadMillis");
+      jsonWriter.writeNumber(stubLoadTimings.getLoadMillis());
+      jsonWriter.writeName("reloadCount");
+      jsonWriter.writeNumber(stubLoadTimings.getReloadCount());
+      jsonWriter.writeName("lastReloadMillis");
+      jsonWriter.writeNumber(stubLoadTimings.getLastReloadMillis());
+      jsonWriter.writeName("lastReloadedAtMillis");
+      writeOptionalMillis(jsonWriter, stubLoadTimings.getLastReloadedAtMillis());
+      jsonWriter.writeName("stubs");
+      jsonWriter.beginArray();
+      for (final Map.Entry<Integer, StubHttpLifecycle> entry : snapshot.getStubHttpLifecyclesByResourceId().entrySet()) {
+         final StubHttpLifecycle cycle = entry.getValue();
+         jsonWriter.beginObject();
+         jsonWriter.writeName("id");
+         jsonWriter.writeNumber(entry.getKey());
+         jsonWriter.writeName("method");
+         jsonWriter.writeValue(cycle.getRequest().getMethod());
+         jsonWriter.writeName("url");
+         jsonWriter.writeValue(cycle.getRequest().getUrl());
+         jsonWriter.writeName("hits");
+         jsonWriter.writeNumber(cycle.getHitCount());
+         jsonWriter.writeName("lastHitMillis");
+         writeOptionalMillis(jsonWriter, cycle.getLastHitMillis());
+         jsonWriter.writeName("matchLatency");
+         writeLatencyHistogram(jsonWriter, cycle.getMatchLatency());
+         jsonWriter.writeName("serveLatency");
+         writeLatencyHistogram(jsonWriter, cycle.getServeLatency());
+         jsonWriter.endObject();
+      }
+      jsonWriter.endArray();
+   }
+
+   // Histograms of stubs that recorded no latency are written as null. Buckets are written as the counts of those
+   // up to the last one that is not empty, the bounds of each are implied by its position
+   private static void writeLatencyHistogram(final JsonWriter jsonWriter, final LatencyHistogram histogram) throws IOException {
+      if (ObjectUtils.isNull(histogram)) {
+         jsonWriter.writeValue(null);
+         return;
+      }
+
+      jsonWriter.beginObject();
+      jsonWriter.writeName("count");
+      jsonWriter.writeNumber(histogram.getCount());
+      jsonWriter.writeName("totalMicros");
+      jsonWriter.writeNumber(histogram.getTotalNanos() / 1000);
+      jsonWriter.writeName("maxMicros");
+      jsonWriter.writeNumber(histogram.getMaxNanos() / 1000);
+      jsonWriter.writeName("p50Micros");
+      jsonWriter.writeNumber(histogram.getPercentileMicros(50));
+      jsonWriter.writeName("p99Micros");
+      jsonWriter.writeNumber(histogram.getPercentileMicros(99));
+      jsonWriter.writeName("buckets");
+      jsonWriter.beginArray();
+      int lastNonEmptyBucket = LatencyHistogram.BUCKET_COUNT - 1;
+      while (lastNonEmptyBucket >= 0 && histogram.getBucketCount(lastNonEmptyBucket) == 0) {
+         lastNonEmptyBucket--;
+      }
+      for (int bucket = 0; bucket <= lastNonEmptyBucket; bucket++) {
+         jsonWriter.writeNumber(histogram.getBucketCount(bucket));
+      }
+      jsonWriter.endArray();
+      jsonWriter.endObject();
+   }
+
+   // Times that never happened are zero, and are written as null
+   private static void writeOptionalMillis(final JsonWriter jsonWriter, final long millis) throws IOException {
+      if (millis == 0) {
+         jsonWriter.writeValue(null);
+      } else {
+         jsonWriter.writeNumber(millis);
+      }
    }
 
    public File getDataYaml() {
       return dataYaml;
    }
 
-   public synchronized Map<File, Long> getExternalFiles() {
+   public Map<File, Long> getExternalFiles() {
       final Set<String> escrow = new HashSet<String>();
       final Map<File, Long> externalFiles = new HashMap<File, Long>();
-      for (StubHttpLifecycle cycle : stubHttpLifecycles) {
+      for (StubHttpLifecycle cycle : stubSnapshot.getStubHttpLifecycles()) {
 
          final File requestFile = cycle.getRequest().getRawFile();
          if (ObjectUtils.isNotNull(requestFile) && !escrow.contains(requestFile.getName())) {
@@ -140,6 +442,60 @@ public class StubbedDataManager {
       return externalFiles;
    }
 
+   /**
+    * @return distinct YAMLs included from the main YAML, mapped to their last modified stamp at load time
+    */
+   public Map<File, Long> getIncludedYamls() {
+      final Map<File, Long> includedYamls = new HashMap<File, Long>();
+      for (final StubHttpLifecycle cycle : stubSnapshot.getStubHttpLifecycles()) {
+         final File sourceYaml = cycle.getSourceYaml();
+         if (ObjectUtils.isNotNull(sourceYaml)) {
+            includedYamls.put(sourceYaml, cycle.getSourceYamlLastModified());
+         }
+      }
+
+      return includedYamls;
+   }
+
+   /**
+    * @return included YAML files, and wildcards of the names included from directories, as matched by the includes
+    * of the data YAML when it was last loaded
+    */
+   public List<File> getIncludedYamlPatterns() {
+      return includedYamlPatterns;
+   }
+
+   /**
+    * @param includedYamlPatterns what the includes of the loaded data YAML matched, so that YAMLs created later that
+    *                             match them are picked up
+    */
+   public void setIncludedYamlPatterns(final List<File> includedYamlPatterns) {
+      this.includedYamlPatterns = includedYamlPatterns;
+   }
+
+   public FixtureBytesReport getFixtureBytes() {
+      final Set<BlobStore.Blob> uniqueFixtures = Collections.newSetFromMap(new IdentityHashMap<BlobStore.Blob, Boolean>());
+      long uniqueBytes = 0;
+      long logicalBytes = 0;
+
+      for (final StubHttpLifecycle cycle : stubSnapshot.getStubHttpLifecycles()) {
+         final List<BlobStore.Blob> fixtures = new LinkedList<BlobStore.Blob>();
+         fixtures.add(cycle.getRequest().getFileContent());
+         for (final StubResponse response : cycle.getAllResponses()) {
+            fixtures.add(response.getFileContent());
+         }
+
+         for (final BlobStore.Blob fixture : fixtures) {
+            logicalBytes += fixture.length();
+            if (uniqueFixtures.add(fixture)) {
+               uniqueBytes += fixture.length();
+            }
+         }
+      }
+
+      return new FixtureBytesReport(uniqueBytes, logicalBytes);
+   }
+
    public String getYamlAbsolutePath() {
       return dataYamlAbsolutePath;
    }
@@ -148,39 +504,288 @@ public class StubbedDataManager {
       return dataYamlParentDirectory;
    }
 
-   public synchronized String getMarshalledYaml() {
-      final StringBuilder builder = new StringBuilder();
-      for (final StubHttpLifecycle cycle : stubHttpLifecycles) {
-         builder.append(cycle.getMarshalledYaml()).append("\n\n");
+   /**
+    * Writes the YAML of loaded stubs to the given writer one stub at a time, so that the complete listing is never
+    * held in memory. Stubs are read from the snapshot published when the listing starts, without locking
+    *
+    * @param offset    number of listed stubs to skip
+    * @param limit     maximum number of stubs to write
+    * @param urlFilter when set, only stubs whose request URL contains it are listed
+    * @return number of stubs written
+    */
+   public int writeMarshalledYaml(final Writer writer, final int offset, final int limit, final String urlFilter) throws IOException {
+      final List<StubHttpLifecycle> listedStubHttpLifecycles = listStubHttpLifecycles(offset, limit, urlFilter);
+      for (final StubHttpLifecycle cycle : listedStubHttpLifecycles) {
+         writer.write(cycle.getMarshalledYaml());
+         writer.write("\n\n");
+      }
+
+      return listedStubHttpLifecycles.size();
+   }
+
+   /**
+    * Writes loaded stubs to the given writer as a JSON array, one stub at a time, the same way as
+    * {@link #writeMarshalledYaml(Writer, int, int, String)} writes their YAML
+    *
+    * @return number of stubs written
+    */
+   public int writeMarshalledJson(final Writer writer, final int offset, final int limit, final String urlFilter) throws IOException {
+      final List<StubHttpLifecycle> listedStubHttpLifecycles = listStubHttpLifecycles(offset, limit, urlFilter);
+      final JsonWriter jsonWriter = new JsonWriter(writer);
+      jsonWriter.beginArray();
+      for (final StubHttpLifecycle cycle : listedStubHttpLifecycles) {
+         jsonWriter.writeElement(cycle.toYamlNode());
+      }
+      jsonWriter.endArray();
+
+      return listedStubHttpLifecycles.size();
+   }
+
+   private List<StubHttpLifecycle> listStubHttpLifecycles(final int offset, final int limit, final String urlFilter) {
+      final List<StubHttpLifecycle> listed = new ArrayList<StubHttpLifecycle>();
+      int skipped = 0;
+      for (final StubHttpLifecycle cycle : stubSnapshot.getStubHttpLifecycles()) {
+         if (listed.size() == limit) {
+            break;
+         }
+
+         if (StringUtils.isSet(urlFilter) && !cycle.getRequest().getUrl().contains(urlFilter)) {
+            continue;
+         }
+
+         if (skipped < offset) {
+            skipped++;
+            continue;
+         }
+
+         listed.add(cycle);
+      }
+
+      return listed;
+   }
+
+   public String getMarshalledYamlByResourceId(final int resourceId) {
+      return requireStubHttpLifecycle(stubSnapshot, resourceId).getMarshalledYaml();
+   }
+
+   public void writeMarshalledJsonByResourceId(final Writer writer, final int resourceId) throws IOException {
+      new JsonWriter(writer).writeValue(requireStubHttpLifecycle(stubSnapshot, resourceId).toYamlNode());
+   }
+
+   /**
+    * Replaces the stub with the given resource ID, the new stub takes over its resource ID and its place in matching order
+    */
+   public void updateStubHttpLifecycleByResourceId(final int resourceId, final StubHttpLifecycle newStubHttpLifecycle) {
+      final StubJournal.PendingChange journaledChange;
+      synchronized (this) {
+         requireStubHttpLifecycle(latestStubSnapshot, resourceId);
+         final List<StubBatchOperation> operations = Collections.singletonList(StubBatchOperation.newUpdateOperation(resourceId, newStubHttpLifecycle));
+         journaledChange = commit(latestStubSnapshot.apply(operations), StubJournal.Change.batch(operations));
+      }
+      awaitJournaled(journaledChange);
+   }
+
+   public boolean isStubHttpLifecycleExistsByResourceId(final int resourceId) {
+      return ObjectUtils.isNotNull(stubSnapshot.getStubHttpLifecycle(resourceId));
+   }
+
+   /**
+    * Deletes the stub with the given resource ID, resource IDs of the other stubs do not change
+    */
+   public StubHttpLifecycle deleteStubHttpLifecycleByResourceId(final int resourceId) {
+      final StubHttpLifecycle deletedLifecycle;
+      final StubJournal.PendingChange journaledChange;
+      synchronized (this) {
+         deletedLifecycle = requireStubHttpLifecycle(latestStubSnapshot, resourceId);
+         final List<StubBatchOperation> operations = Collections.singletonList(StubBatchOperation.newDeleteOperation(resourceId));
+         journaledChange = commit(latestStubSnapshot.apply(operations), StubJournal.Change.batch(operations));
+      }
+      awaitJournaled(journaledChange);
+
+      return deletedLifecycle;
+   }
+
+   private static StubHttpLifecycle requireStubHttpLifecycle(final StubSnapshot snapshot, final int resourceId) {
+      final StubHttpLifecycle cycle = snapshot.getStubHttpLifecycle(resourceId);
+      if (ObjectUtils.isNull(cycle)) {
+         throw new IndexOutOfBoundsException(String.format("Stub request index#%s does not exist", resourceId));
+      }
+
+      return cycle;
+   }
+
+   /**
+    * @param keptGenerations number of previously published sets of stubs to keep in memory for rollback, zero keeps none
+    */
+   public synchronized void setKeptGenerations(final int keptGenerations) {
+      if (keptGenerations < 0) {
+         throw new IllegalArgumentException(String.format("Number of kept generations cannot be negative, got %s", keptGenerations));
+      }
+      this.keptGenerations = keptGenerations;
+      trimPreviousStubSnapshots();
+   }
+
+   /**
+    * @return current set of stubs followed by the previously published ones that are kept, most recent first
+    */
+   public synchronized List<StubGeneration> getStubGenerations() {
+      final List<StubGeneration> generations = new ArrayList<StubGeneration>(previousStubSnapshots.size() + 1);
+      generations.add(toStubGeneration(stubSnapshot, true));
+      for (final StubSnapshot previousSnapshot : previousStubSnapshots) {
+         generations.add(toStubGeneration(previousSnapshot, false));
       }
 
-      return builder.toString();
+      return generations;
    }
 
-   public synchronized String getMarshalledYamlByIndex(final int httpLifecycleIndex) {
-      return stubHttpLifecycles.get(httpLifecycleIndex).getMarshalledYaml();
+   private static StubGeneration toStubGeneration(final StubSnapshot snapshot, final boolean current) {
+      return new StubGeneration(snapshot.getGeneration(), snapshot.getStubHttpLifecycles().size(), snapshot.getPublishedMillis(), current);
    }
 
-   public synchronized void updateStubHttpLifecycleByIndex(final int httpLifecycleIndex, final StubHttpLifecycle newStubHttpLifecycle) {
-      deleteStubHttpLifecycleByIndex(httpLifecycleIndex);
-      stubHttpLifecycles.add(httpLifecycleIndex, newStubHttpLifecycle);
-      updateResourceIDHeaders();
+   /**
+    * Publishes a kept set of stubs again, as it was, ids included. Stubs are neither copied nor re-parsed: the kept set
+    * is swapped in as it is, and its sequenced responses start over from the first response. The replaced set of
+    * stubs is kept in turn, so a rollback can itself be rolled back. Ids given out since are not given out again
+    *
+    * @param generation generation of the set of stubs to roll back to, as listed by {@link #getStubGenerations()}
+    * @return generation the rolled back set of stubs is published as
+    * @throws IllegalArgumentException when the given generation is not kept
+    */
+   public long rollbackToGeneration(final long generation) {
+      final StubJournal.PendingChange journaledChange;
+      final long rolledBackGeneration;
+      synchronized (this) {
+         final StubSnapshot rolledBackSnapshot = findKeptSnapshot(generation).restoreAfter(latestStubSnapshot);
+         rolledBackGeneration = rolledBackSnapshot.getGeneration();
+         journaledChange = commit(rolledBackSnapshot, StubJournal.Change.restore(latestStubSnapshot));
+      }
+      awaitJournaled(journaledChange);
+
+      return rolledBackGeneration;
    }
 
-   public synchronized boolean isStubHttpLifecycleExistsByIndex(final int httpLifecycleIndex) {
-      return stubHttpLifecycles.size() - 1 >= httpLifecycleIndex;
+   // Callers must hold the lock
+   private StubSnapshot findKeptSnapshot(final long generation) {
+      if (stubSnapshot.getGeneration() == generation) {
+         return stubSnapshot;
+      }
+
+      for (final StubSnapshot previousSnapshot : previousStubSnapshots) {
+         if (previousSnapshot.getGeneration() == generation) {
+            return previousSnapshot;
+         }
+      }
+
+      throw new IllegalArgumentException(String.format("Generation %s is not kept, cannot roll back to it", generation));
    }
 
-   public synchronized StubHttpLifecycle deleteStubHttpLifecycleByIndex(final int httpLifecycleIndex) {
-      final StubHttpLifecycle removedLifecycle = stubHttpLifecycles.remove(httpLifecycleIndex);
-      updateResourceIDHeaders();
+   /**
+    * Recovers the changes recorded in the given journal on top of the loaded stubs, and records every further change in
+    * it. Recorded changes are discarded when the data YAML changed since they were made on top of it.
+    * Changes are published, and acknowledged, only once they have been written to the journal. A change that could not
+    * be written is discarded, together with the changes queued after it, which were made on top of it
+    *
+    * @param journalFile journal to recover from and record to, its snapshot is kept next to it
+    * @param forceToDisk when true, journal writes are forced to disk before changes are acknowledged
+    */
+   public synchronized void journalTo(final File journalFile, final boolean forceToDisk) throws Exception {
+      final StubJournal journal = new StubJournal(journalFile, forceToDisk, new StubJournal.ChangePublisher() {
+         @Override
+         public void publishWritten(final StubSnapshot writtenStubSnapshot, final boolean baseline) {
+            synchronized (StubbedDataManager.this) {
+               publish(writtenStubSnapshot, baseline);
+            }
+         }
+
+         @Override
+         public void discardUnwritten(final Runnable failUnwrittenChanges) {
+            synchronized (StubbedDataManager.this) {
+               failUnwrittenChanges.run();
+               latestStubSnapshot = stubSnapshot;
+               latestBaselineStubSnapshot = baselineStubSnapshot;
+            }
+         }
+      });
+      stubSnapshot = journal.recover(stubSnapshot, fingerprintDataYaml(stubSnapshot), dataYamlParentDirectory);
+      latestStubSnapshot = stubSnapshot;
+      stubJournal = journal;
+   }
+
+   // Last modified stamps of the data YAML and of the YAMLs it included stubs from, which tell the journal whether
+   // the data YAML changed since changes were journaled on top of it
+   private String fingerprintDataYaml(final StubSnapshot loadedStubSnapshot) {
+      final Map<String, Long> lastModifiedStamps = new TreeMap<String, Long>();
+      lastModifiedStamps.put(dataYamlAbsolutePath, dataYaml.lastModified());
+      for (final StubHttpLifecycle cycle : loadedStubSnapshot.getStubHttpLifecycles()) {
+         final File sourceYaml = cycle.getSourceYaml();
+         if (ObjectUtils.isNotNull(sourceYaml)) {
+            lastModifiedStamps.put(sourceYaml.getAbsolutePath(), cycle.getSourceYamlLastModified());
+         }
+      }
 
-      return removedLifecycle;
+      final CRC32 checksum = new CRC32();
+      checksum.update(StringUtils.getBytesUtf8(lastModifiedStamps.toString()));
+
+      return Long.toHexString(checksum.getValue());
+   }
+
+   // Callers must hold the lock, so that changes are journaled in the order they are made. Without a journal the change
+   // is published at once, otherwise it is published by the journal writer once written. A baseline change, a reload of
+   // the data YAML, also replaces the stubs restored by a reset
+   private StubJournal.PendingChange commit(final StubSnapshot nextSnapshot, final StubJournal.Change change) {
+      final boolean baseline = change.isBaseline();
+      final StubJournal journal = stubJournal;
+      StubJournal.PendingChange journaledChange = null;
+      if (ObjectUtils.isNotNull(journal)) {
+         try {
+            journaledChange = journal.append(change, nextSnapshot);
+         } catch (final IOException ex) {
+            throw new Stubby4JException(ex.getMessage(), ex);
+         }
+      }
+
+      latestStubSnapshot = nextSnapshot;
+      if (baseline) {
+         latestBaselineStubSnapshot = nextSnapshot;
+      }
+      if (ObjectUtils.isNull(journaledChange)) {
+         publish(nextSnapshot, baseline);
+      }
+
+      return journaledChange;
+   }
+
+   // Called without holding the lock, so that changes made concurrently are written to the journal together
+   private void awaitJournaled(final StubJournal.PendingChange journaledChange) {
+      if (ObjectUtils.isNull(journaledChange)) {
+         return;
+      }
+
+      try {
+         stubJournal.awaitWritten(journaledChange);
+      } catch (final IOException ex) {
+         throw new Stubby4JException(ex.getMessage(), ex);
+      } catch (final InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new Stubby4JException("Interrupted while waiting for the journal to be written", ex);
+      }
+   }
+
+   // Callers must hold the lock, so that concurrent writers do not publish over each other's changes
+   private void publish(final StubSnapshot nextSnapshot, final boolean baseline) {
+      if (keptGenerations > 0) {
+         previousStubSnapshots.addFirst(stubSnapshot);
+         trimPreviousStubSnapshots();
+      }
+      stubSnapshot = nextSnapshot;
+      if (baseline) {
+         baselineStubSnapshot = nextSnapshot;
+      }
    }
 
-   private void updateResourceIDHeaders() {
-      for (int index = 0; index < stubHttpLifecycles.size(); index++) {
-         stubHttpLifecycles.get(index).setResourceId(index);
+   private void trimPreviousStubSnapshots() {
+      while (previousStubSnapshots.size() > keptGenerations) {
+         previousStubSnapshots.removeLast();
       }
    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package by.stub.database.thread;
+
+import by.stub.cli.ANSITerminal;
+import by.stub.database.StubReloadReport;
+import by.stub.database.StubbedDataManager;
+import by.stub.utils.FileUtils;
+import by.stub.utils.ObjectUtils;
+import by.stub.yaml.YamlParser;
+import by.stub.yaml.stubs.StubHttpLifecycle;
+import by.stub.yaml.stubs.StubResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Watches the main YAML, the YAMLs it includes and the external files referenced from stubs,
+ * and refreshes loaded stubs when any of them change
+ */
+public final class DataStoreWatcher implements Runnable {
+
+   // How often the watched files are re-collected, when stubs were changed by a reload or through the admin portal
+   private static final long WATCHED_FILES_REFRESH_MILLIS = 500;
+
+   private final StubbedDataManager stubbedDataManager;
+   private final ReloadExecutor reloadExecutor;
+
+   public DataStoreWatcher(final StubbedDataManager stubbedDataManager) {
+      this(stubbedDataManager, ReloadExecutor.DEFAULT_QUIET_WINDOW_MILLIS);
+   }
+
+   /**
+    * @param quietWindowMillis how long to wait for further changes before reloading, so that a burst of changes
+    *                          (i.e.: a deploy script writing the YAML and its external files) results in a single reload
+    */
+   public DataStoreWatcher(final StubbedDataManager stubbedDataManager, final long quietWindowMillis) {
+      this.stubbedDataManager = stubbedDataManager;
+      this.reloadExecutor = new ReloadExecutor(quietWindowMillis) {
+         @Override
+         boolean reload(final Set<File> changedFiles) throws Exception {
+            return refresh(changedFiles);
+         }
+      };
+      ANSITerminal.status(String.format("Data store watch enabled, watching %s, its included YAMLs and referenced external files", stubbedDataManager.getYamlAbsolutePath()));
+   }
+
+   @Override
+   public void run() {
+
+      final FileChangeWatcher fileChangeWatcher = newFileChangeWatcher();
+      try {
+         long watchedGeneration = stubbedDataManager.getGeneration();
+         fileChangeWatcher.watch(collectWatchedFiles(), stubbedDataManager.getIncludedYamlPatterns());
+
+         while (!Thread.currentThread().isInterrupted()) {
+            final Set<File> changedFiles = fileChangeWatcher.awaitChanges(WATCHED_FILES_REFRESH_MILLIS);
+            if (!changedFiles.isEmpty()) {
+               reloadExecutor.submit(changedFiles);
+            }
+
+            // Changed stubs may include other YAMLs or reference other external files
+            final long generation = stubbedDataManager.getGeneration();
+            if (generation != watchedGeneration) {
+               watchedGeneration = generation;
+               fileChangeWatcher.watch(collectWatchedFiles(), stubbedDataManager.getIncludedYamlPatterns());
+            }
+         }
+
+      } catch (final InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      } catch (final Exception ex) {
+         ANSITerminal.error("Could not perform live YAML scan: " + ex.toString());
+         ANSITerminal.warn(String.format("Data store watch stopped, further changes to %s are not picked up", stubbedDataManager.getYamlAbsolutePath()));
+      } finally {
+         reloadExecutor.shutdown();
+         fileChangeWatcher.close();
+      }
+   }
+
+   // Package-private so that tests can run a refresh without waiting for file changes to be detected
+   boolean refresh(final Set<File> changedFiles) throws IOException {
+      ANSITerminal.info(String.format("\nData store watch detected change in %s\n", changedFiles));
+
+      // Changed external files are re-read in place by the stubs that reference them, without re-parsing any YAML
+      final Set<File> changedYamls = collectWatchedYamls();
+      for (final File changedFile : changedFiles) {
+         if (!changedYamls.contains(changedFile)) {
+            reloadExternalFile(changedFile);
+         }
+      }
+      changedYamls.retainAll(changedFiles);
+
+      return changedYamls.isEmpty() || refreshDataYaml();
+   }
+
+   private void reloadExternalFile(final File externalFile) {
+      final long startedMillis = System.currentTimeMillis();
+      try {
+         final int reloadedStubs = stubbedDataManager.reloadExternalFile(externalFile);
+         final long elapsedMillis = System.currentTimeMillis() - startedMillis;
+         stubbedDataManager.getStubLoadTimings().recordReload(elapsedMillis);
+         ANSITerminal.ok(String.format("%sSuccessfully performed live refresh of external file: %s on [" + new Date().toString().trim() + "] in %s ms, stubs reloaded %s%s",
+            "\n",
+            externalFile.getAbsolutePath(),
+            elapsedMillis,
+            reloadedStubs,
+            "\n"));
+      } catch (final Exception ex) {
+         ANSITerminal.error("Could not refresh external file: " + ex.toString());
+         ANSITerminal.warn(String.format("External file refresh aborted, previously loaded content remains untouched"));
+      }
+   }
+
+   private boolean refreshDataYaml() {
+      final long startedMillis = System.currentTimeMillis();
+      final File dataYaml = stubbedDataManager.getDataYaml();
+      try {
+         final List<StubHttpLifecycle> stubHttpLifecycles;
+         final YamlParser yamlParser = new YamlParser();
+         final Reader dataYamlReader = FileUtils.constructReader(dataYaml);
+         try {
+            stubHttpLifecycles = yamlParser.parse(dataYaml.getParent(), dataYamlReader, stubbedDataManager.getStubHttpLifecycles());
+         } finally {
+            dataYamlReader.close();
+         }
+
+         if (reloadExecutor.isSuperseded()) {
+            ANSITerminal.info(String.format("\nDiscarded refresh of main YAML from: %s, further changes were detected while refreshing\n", dataYaml.getAbsolutePath()));
+            return false;
+         }
+
+         // Set before the refreshed stubs are published, so that the watch picks up both together
+         stubbedDataManager.setIncludedYamlPatterns(yamlParser.getIncludedYamlPatterns());
+         final StubReloadReport reloadReport = stubbedDataManager.refreshStubHttpLifecycles(stubHttpLifecycles);
+         final long elapsedMillis = System.currentTimeMillis() - startedMillis;
+         stubbedDataManager.getStubLoadTimings().recordReload(elapsedMillis);
+         ANSITerminal.ok(String.format("%sSuccessfully performed live refresh of main YAML from: %s on [" + new Date().toString().trim() + "] in %s ms, stubs %s%s",
+            "\n",
+            dataYaml.getAbsolutePath(),
+            elapsedMillis,
+            reloadReport,
+            "\n"));
+      } catch (final Exception ex) {
+         ANSITerminal.error("Could not refresh YAML configuration: " + ex.toString());
+         ANSITerminal.warn(String.format("YAML refresh aborted, previously loaded stubs remain untouched"));
+      }
+
+      return true;
+   }
+
+   private Set<File> collectWatchedFiles() throws IOException {
+      final Set<File> watchedFiles = collectWatchedYamls();
+      watchedFiles.addAll(collectExternalFiles());
+
+      return watchedFiles;
+   }
+
+   private Set<File> collectWatchedYamls() throws IOException {
+      final Set<File> watchedYamls = new HashSet<File>();
+      watchedYamls.add(stubbedDataManager.getDataYaml().getCanonicalFile());
+      for (final File includedYaml : stubbedDataManager.getIncludedYamls().keySet()) {
+         watchedYamls.add(includedYaml.getCanonicalFile());
+      }
+      // Matching YAMLs created since the data YAML was loaded, which a refresh includes
+      for (final File includedYamlPattern : stubbedDataManager.getIncludedYamlPatterns()) {
+         final File directory = includedYamlPattern.getParentFile();
+         if (ObjectUtils.isNotNull(directory)) {
+            for (final File includedYaml : FileUtils.listFilesMatchingWildcard(directory, includedYamlPattern.getName())) {
+               watchedYamls.add(includedYaml.getCanonicalFile());
+            }
+         }
+      }
+
+      return watchedYamls;
+   }
+
+   private Set<File> collectExternalFiles() throws IOException {
+      final Set<File> externalFiles = new HashSet<File>();
+      for (final StubHttpLifecycle cycle : stubbedDataManager.getStubHttpLifecycles()) {
+         addCanonicalFile(externalFiles, cycle.getRequest().getRawFile());
+         for (final StubResponse response : cycle.getAllResponses()) {
+            addCanonicalFile(externalFiles, response.getRawFile());
+         }
+      }
+
+      return externalFiles;
+   }
+
+   private static void addCanonicalFile(final Set<File> files, final File file) throws IOException {
+      if (ObjectUtils.isNotNull(file)) {
+         files.add(file.getCanonicalFile());
+      }
+   }
+
+   static FileChangeWatcher newFileChangeWatcher() {
+      try {
+         return new WatchServiceFileChangeWatcher();
+      } catch (final Exception ex) {
+         ANSITerminal.warn(String.format("File system watch is not available (%s), falling back to polling every %s ms", ex.toString(), PollingFileChangeWatcher.POLL_INTERVAL_MILLIS));
+         return new PollingFileChangeWatcher();
+      }
+   }
+}
@@ -0,0 +1,156 @@
+package by.stub.database.thread;
+
+import by.stub.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Watches a set of files and blocks until some of them change. A file counts as changed when its last
+ * modified stamp differs from the one recorded when it started being watched, or when the change was last reported.
+ * A file created in a directory YAMLs are included from, whose name matches an include pattern, counts as changed too.
+ * <p/>
+ * Instances are confined to the thread that watches the data store
+ */
+abstract class FileChangeWatcher {
+
+   private final Map<File, Long> lastModifiedStamps = new HashMap<File, Long>();
+   // Canonical directories YAMLs are included from, mapped to the patterns of the names included from them
+   private final Map<File, List<Pattern>> includedNamePatterns = new HashMap<File, List<Pattern>>();
+
+   void watch(final Collection<File> files) throws IOException, InterruptedException {
+      watch(files, Collections.<File>emptyList());
+   }
+
+   /**
+    * Replaces the set of watched files and include patterns. Files that were already watched keep their recorded stamp,
+    * so a change that happened in between is still reported. Files matching an include pattern are watched as well
+    *
+    * @param includedYamlPatterns included YAML files, or wildcards of the names included from a directory, i.e.: 'stubs/*.yaml'
+    */
+   void watch(final Collection<File> files, final Collection<File> includedYamlPatterns) throws IOException, InterruptedException {
+      includedNamePatterns.clear();
+      for (final File includedYamlPattern : includedYamlPatterns) {
+         final File directory = includedYamlPattern.getCanonicalFile().getParentFile();
+         if (directory == null) {
+            continue;
+         }
+         if (!includedNamePatterns.containsKey(directory)) {
+            includedNamePatterns.put(directory, new LinkedList<Pattern>());
+         }
+         includedNamePatterns.get(directory).add(FileUtils.wildcardToPattern(includedYamlPattern.getName()));
+      }
+
+      final Set<File> watchedFiles = listIncludedYamls();
+      for (final File file : files) {
+         watchedFiles.add(file.getCanonicalFile());
+      }
+
+      final Map<File, Long> watchedStamps = new HashMap<File, Long>();
+      for (final File watchedFile : watchedFiles) {
+         final Long recordedStamp = lastModifiedStamps.get(watchedFile);
+         watchedStamps.put(watchedFile, recordedStamp != null ? recordedStamp : watchedFile.lastModified());
+      }
+
+      lastModifiedStamps.clear();
+      lastModifiedStamps.putAll(watchedStamps);
+      onWatchedDirectoriesChange(getWatchedDirectories());
+   }
+
+   /**
+    * Blocks until at least one watched file has changed, or roughly until the given timeout elapses
+    *
+    * @return canonical watched files that have changed, empty if none changed before the timeout
+    */
+   abstract Set<File> awaitChanges(final long timeoutMillis) throws IOException, InterruptedException;
+
+   /**
+    * @param watchedDirectories directories of the watched files, and those YAMLs are included from
+    */
+   abstract void onWatchedDirectoriesChange(final Set<File> watchedDirectories) throws IOException, InterruptedException;
+
+   void close() {
+
+   }
+
+   Set<File> getWatchedFiles() {
+      return Collections.unmodifiableSet(lastModifiedStamps.keySet());
+   }
+
+   private Set<File> getWatchedDirectories() {
+      final Set<File> directories = new HashSet<File>(includedNamePatterns.keySet());
+      for (final File watchedFile : lastModifiedStamps.keySet()) {
+         final File directory = watchedFile.getParentFile();
+         if (directory != null && directory.isDirectory()) {
+            directories.add(directory);
+         }
+      }
+
+      return directories;
+   }
+
+   /**
+    * @return canonical files that currently match an include pattern, whether they are watched yet or not
+    */
+   Set<File> listIncludedYamls() throws IOException {
+      final Set<File> includedYamls = new HashSet<File>();
+      for (final Map.Entry<File, List<Pattern>> includedDirectory : includedNamePatterns.entrySet()) {
+         final File[] files = includedDirectory.getKey().listFiles();
+         if (files == null) {
+            continue;
+         }
+         for (final File file : files) {
+            if (isIncludedYaml(file, includedDirectory.getValue())) {
+               includedYamls.add(file.getCanonicalFile());
+            }
+         }
+      }
+
+      return includedYamls;
+   }
+
+   private boolean isIncludedYaml(final File file, final List<Pattern> namePatterns) {
+      if (namePatterns == null || !file.isFile()) {
+         return false;
+      }
+      for (final Pattern namePattern : namePatterns) {
+         if (namePattern.matcher(file.getName()).matches()) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   Set<File> collectChanges(final Collection<File> candidates) {
+      final Set<File> changedFiles = new HashSet<File>();
+      for (final File candidate : candidates) {
+         final Long recordedStamp = lastModifiedStamps.get(candidate);
+         if (recordedStamp == null) {
+            // A YAML created where YAMLs are included from is watched from now on
+            if (isIncludedYaml(candidate, includedNamePatterns.get(candidate.getParentFile()))) {
+               lastModifiedStamps.put(candidate, candidate.lastModified());
+               changedFiles.add(candidate);
+            }
+            continue;
+         }
+
+         final long currentStamp = candidate.lastModified();
+         if (currentStamp != recordedStamp) {
+            lastModifiedStamps.put(candidate, currentStamp);
+            changedFiles.add(candidate);
+         }
+      }
+
+      return changedFiles;
+   }
+}
@@ -0,0 +1,45 @@
+package by.stub.database.thread;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fallback for JVMs without java.nio.file.WatchService: stats every watched file once per interval
+ */
+final class PollingFileChangeWatcher extends FileChangeWatcher {
+
+   static final long POLL_INTERVAL_MILLIS = 3000;
+
+   private final long pollIntervalMillis;
+   private long lastPolledMillis = System.currentTimeMillis();
+
+   PollingFileChangeWatcher() {
+      this(POLL_INTERVAL_MILLIS);
+   }
+
+   PollingFileChangeWatcher(final long pollIntervalMillis) {
+      this.pollIntervalMillis = pollIntervalMillis;
+   }
+
+   @Override
+   Set<File> awaitChanges(final long timeoutMillis) throws IOException, InterruptedException {
+      final long untilNextPollMillis = lastPolledMillis + pollIntervalMillis - System.currentTimeMillis();
+      Thread.sleep(Math.max(0, Math.min(timeoutMillis, untilNextPollMillis)));
+
+      if (System.currentTimeMillis() - lastPolledMillis < pollIntervalMillis) {
+         return new HashSet<File>();
+      }
+      lastPolledMillis = System.currentTimeMillis();
+
+      final Set<File> candidates = listIncludedYamls();
+      candidates.addAll(getWatchedFiles());
+      return collectChanges(candidates);
+   }
+
+   @Override
+   void onWatchedDirectoriesChange(final Set<File> watchedDirectories) {
+      // Nothing to register, watched files are stat-ed, and directories YAMLs are included from listed, on every poll
+   }
+}
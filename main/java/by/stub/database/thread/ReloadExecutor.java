@@ -0,0 +1,100 @@
+package by.stub.database.thread;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces file changes into reloads: every submitted change (re)starts a quiet window, and only once
+ * no further changes arrive within it, a single reload runs for all changes collected so far.
+ * A reload that is still running when new changes arrive is superseded: it should not publish its result,
+ * its changes are handed over to the next reload instead
+ */
+abstract class ReloadExecutor {
+
+   static final long DEFAULT_QUIET_WINDOW_MILLIS = 250;
+
+   private final long quietWindowMillis;
+   private final ScheduledExecutorService executorService;
+   private final Set<File> pendingChanges = new HashSet<File>();
+   private ScheduledFuture<?> scheduledReload;
+   private long submissions = 0;
+   private long reloadingSubmission = -1;
+
+   ReloadExecutor(final long quietWindowMillis) {
+      this.quietWindowMillis = quietWindowMillis;
+      this.executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+         @Override
+         public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, ReloadExecutor.class.getCanonicalName());
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+   }
+
+   /**
+    * Reloads stubs for the given changes
+    *
+    * @return false if the reload found itself superseded and did not publish its result
+    */
+   abstract boolean reload(final Set<File> changedFiles) throws Exception;
+
+   synchronized void submit(final Set<File> changedFiles) {
+      pendingChanges.addAll(changedFiles);
+      submissions++;
+
+      if (scheduledReload != null) {
+         scheduledReload.cancel(false);
+      }
+      scheduledReload = executorService.schedule(new Runnable() {
+         @Override
+         public void run() {
+            runReload();
+         }
+      }, quietWindowMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * @return true if changes were submitted after the running reload had started
+    */
+   synchronized boolean isSuperseded() {
+      return reloadingSubmission != submissions;
+   }
+
+   void shutdown() {
+      executorService.shutdownNow();
+   }
+
+   private void runReload() {
+      final Set<File> changedFiles;
+      synchronized (this) {
+         changedFiles = new HashSet<File>(pendingChanges);
+         pendingChanges.clear();
+         reloadingSubmission = submissions;
+      }
+
+      if (changedFiles.isEmpty()) {
+         return;
+      }
+
+      boolean isReloaded = false;
+      try {
+         isReloaded = reload(changedFiles);
+      } catch (final Exception ex) {
+         // A failed reload is reported by the reload itself, its changes are not retried
+         isReloaded = true;
+      } finally {
+         if (!isReloaded) {
+            synchronized (this) {
+               pendingChanges.addAll(changedFiles);
+            }
+         }
+      }
+   }
+}
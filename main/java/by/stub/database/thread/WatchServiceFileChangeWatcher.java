@@ -0,0 +1,154 @@
+package by.stub.database.thread;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event driven watcher, registers every distinct parent directory of the watched files once
+ * with a java.nio.file.WatchService. The build targets Java 6, which has no java.nio.file, so the watch
+ * service is only reached through reflection: constructing this watcher fails on JVMs that do not provide it
+ */
+final class WatchServiceFileChangeWatcher extends FileChangeWatcher {
+
+   // Events that arrive this close to each other are collected together
+   private static final long EVENT_BATCH_MILLIS = 50;
+
+   private final Method toPath;
+   private final Method register;
+   private final Method resolve;
+   private final Method toFile;
+   private final Method poll;
+   private final Method closeWatchService;
+   private final Method watchable;
+   private final Method pollEvents;
+   private final Method reset;
+   private final Method cancel;
+   private final Method isValid;
+   private final Method kind;
+   private final Method context;
+   // WatchEvent.Kind[] of the created, modified and deleted entry kinds
+   private final Object watchedEventKinds;
+   private final Object overflowEventKind;
+   private final Object watchService;
+   private final Map<File, Object> watchedDirectories = new HashMap<File, Object>();
+
+   WatchServiceFileChangeWatcher() throws Exception {
+      final Class<?> pathClass = Class.forName("java.nio.file.Path");
+      final Class<?> watchServiceClass = Class.forName("java.nio.file.WatchService");
+      final Class<?> watchKeyClass = Class.forName("java.nio.file.WatchKey");
+      final Class<?> watchEventClass = Class.forName("java.nio.file.WatchEvent");
+      final Class<?> eventKindClass = Class.forName("java.nio.file.WatchEvent$Kind");
+      final Class<?> standardEventKindsClass = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+      this.toPath = File.class.getMethod("toPath");
+      this.register = pathClass.getMethod("register", watchServiceClass, Array.newInstance(eventKindClass, 0).getClass());
+      this.resolve = pathClass.getMethod("resolve", pathClass);
+      this.toFile = pathClass.getMethod("toFile");
+      this.poll = watchServiceClass.getMethod("poll", long.class, TimeUnit.class);
+      this.closeWatchService = watchServiceClass.getMethod("close");
+      this.watchable = watchKeyClass.getMethod("watchable");
+      this.pollEvents = watchKeyClass.getMethod("pollEvents");
+      this.reset = watchKeyClass.getMethod("reset");
+      this.cancel = watchKeyClass.getMethod("cancel");
+      this.isValid = watchKeyClass.getMethod("isValid");
+      this.kind = watchEventClass.getMethod("kind");
+      this.context = watchEventClass.getMethod("context");
+
+      this.watchedEventKinds = Array.newInstance(eventKindClass, 3);
+      Array.set(watchedEventKinds, 0, standardEventKindsClass.getField("ENTRY_CREATE").get(null));
+      Array.set(watchedEventKinds, 1, standardEventKindsClass.getField("ENTRY_MODIFY").get(null));
+      Array.set(watchedEventKinds, 2, standardEventKindsClass.getField("ENTRY_DELETE").get(null));
+      this.overflowEventKind = standardEventKindsClass.getField("OVERFLOW").get(null);
+
+      final Object fileSystem = Class.forName("java.nio.file.FileSystems").getMethod("getDefault").invoke(null);
+      this.watchService = invoke(Class.forName("java.nio.file.FileSystem").getMethod("newWatchService"), fileSystem);
+   }
+
+   @Override
+   void onWatchedDirectoriesChange(final Set<File> directories) throws IOException, InterruptedException {
+      final Iterator<Map.Entry<File, Object>> iterator = watchedDirectories.entrySet().iterator();
+      while (iterator.hasNext()) {
+         final Map.Entry<File, Object> watchedDirectory = iterator.next();
+         if (!directories.contains(watchedDirectory.getKey()) || !(Boolean) invoke(isValid, watchedDirectory.getValue())) {
+            invoke(cancel, watchedDirectory.getValue());
+            iterator.remove();
+         }
+      }
+
+      for (final File directory : directories) {
+         if (!watchedDirectories.containsKey(directory)) {
+            final Object watchKey = invoke(register, invoke(toPath, directory), watchService, watchedEventKinds);
+            watchedDirectories.put(directory, watchKey);
+         }
+      }
+   }
+
+   @Override
+   Set<File> awaitChanges(final long timeoutMillis) throws IOException, InterruptedException {
+      final Set<File> candidates = new HashSet<File>();
+
+      Object watchKey = invoke(poll, watchService, timeoutMillis, TimeUnit.MILLISECONDS);
+      while (watchKey != null) {
+         collectCandidates(watchKey, candidates);
+         watchKey = invoke(poll, watchService, EVENT_BATCH_MILLIS, TimeUnit.MILLISECONDS);
+      }
+
+      return collectChanges(candidates);
+   }
+
+   private void collectCandidates(final Object watchKey, final Set<File> candidates) throws IOException, InterruptedException {
+      final Object directory = invoke(watchable, watchKey);
+      for (final Object event : (List<?>) invoke(pollEvents, watchKey)) {
+         if (invoke(kind, event) == overflowEventKind) {
+            candidates.addAll(getWatchedFiles());
+            candidates.addAll(listIncludedYamls());
+         } else {
+            candidates.add((File) invoke(toFile, invoke(resolve, directory, invoke(context, event))));
+         }
+      }
+      invoke(reset, watchKey);
+   }
+
+   @Override
+   void close() {
+      try {
+         invoke(closeWatchService, watchService);
+      } catch (final Exception ex) {
+         // Nothing left to release
+      }
+   }
+
+   // Rethrows what the invoked method threw, the methods were all resolved as public API members
+   private static Object invoke(final Method method, final Object target, final Object... args) throws IOException, InterruptedException {
+      try {
+         return method.invoke(target, args);
+      } catch (final IllegalAccessException ex) {
+         throw new IllegalStateException(ex);
+      } catch (final InvocationTargetException ex) {
+         final Throwable cause = ex.getCause();
+         if (cause instanceof IOException) {
+            throw (IOException) cause;
+         }
+         if (cause instanceof InterruptedException) {
+            throw (InterruptedException) cause;
+         }
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new IllegalStateException(cause);
+      }
+   }
+}
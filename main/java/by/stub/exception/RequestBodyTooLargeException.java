@@ -0,0 +1,32 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package by.stub.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a request body that turns out to be larger than allowed
+ */
+public final class RequestBodyTooLargeException extends IOException {
+   private static final long serialVersionUID = 1L;
+
+   public RequestBodyTooLargeException(final long maxBytes) {
+      super(String.format("Request body is larger than the allowed %s bytes", maxBytes));
+   }
+}
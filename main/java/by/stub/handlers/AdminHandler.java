@@ -43,6 +43,8 @@ public class AdminHandler extends AbstractHandler {
 
    //Do not remove this constant without changing the example in documentation
    public static final String ADMIN_ROOT = "/";
+   // Stubs POSTed or PUT to the admin portal are parsed as they are read, bodies larger than this are rejected
+   public static final long MAX_REQUEST_BODY_BYTES = 256L * 1024 * 1024;
    private final StubbedDataManager stubbedDataManager;
 
    public AdminHandler(final StubbedDataManager stubbedDataManager) {
@@ -68,7 +70,11 @@ public class AdminHandler extends AbstractHandler {
       try {
          strategyStubResponse.handle(request, wrapper, stubbedDataManager);
       } catch (final Exception ex) {
-         HandlerUtils.configureErrorResponse(response, HttpStatus.INTERNAL_SERVER_ERROR_500, "Problem handling request in Admin handler: " + ex.toString());
+         if (HandlerUtils.isCausedByTooLargeRequestBody(ex)) {
+            HandlerUtils.configureErrorResponse(response, HttpStatus.REQUEST_ENTITY_TOO_LARGE_413, String.format("Request body is larger than the allowed %s bytes", MAX_REQUEST_BODY_BYTES));
+         } else {
+            HandlerUtils.configureErrorResponse(response, HttpStatus.INTERNAL_SERVER_ERROR_500, "Problem handling request in Admin handler: " + ex.toString());
+         }
       }
 
       ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
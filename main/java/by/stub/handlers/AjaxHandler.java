@@ -21,25 +21,51 @@ package by.stub.handlers;
 
 import by.stub.database.StubbedDataManager;
 import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
+import by.stub.utils.BlobStore;
 import by.stub.utils.ConsoleUtils;
 import by.stub.utils.HandlerUtils;
 import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
 import by.stub.yaml.stubs.StubHttpLifecycle;
+import by.stub.yaml.stubs.StubRequest;
+import by.stub.yaml.stubs.StubResponse;
+import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.io.Buffer;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Serves the content of a stub property displayed on the status page. The content of a file is streamed as the bytes
+ * it was loaded into, with a content type guessed from the file name, and a single range of it can be requested
+ */
 public class AjaxHandler extends AbstractHandler {
 
    private static final Pattern REGEX_REQUEST_OR_RESPONSE = Pattern.compile("^(request|response)$");
    private static final Pattern REGEX_NUMERIC = Pattern.compile("^[0-9]+$");
+   // http://tools.ietf.org/html/rfc2616#section-14.35.1, a single range: first-last, first- or -suffix length
+   private static final Pattern REGEX_BYTE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+   private static final String FILE_PROPERTY = "file";
+   private static final int SNIFFED_BYTES = 8192;
+   private static final MimeTypes MIME_TYPES = new MimeTypes();
+
+   static {
+      // Jetty's table predates these, but stubbed fixtures are most often one of them
+      MIME_TYPES.addMimeMapping("json", "application/json");
+      MIME_TYPES.addMimeMapping("yaml", "text/plain");
+      MIME_TYPES.addMimeMapping("yml", "text/plain");
+   }
 
    private final StubbedDataManager stubbedDataManager;
 
@@ -67,32 +93,49 @@ public class AjaxHandler extends AbstractHandler {
 
          final int stubHttpCycleIndex = Integer.parseInt(uriFragments[urlFragmentsLength - 3]);
          final StubHttpLifecycle foundStubHttpLifecycle = throwErrorOnNonexistentResourceIndex(wrapper, stubHttpCycleIndex);
-         renderAjaxResponseContent(wrapper, stubType, targetFieldName, foundStubHttpLifecycle);
+         renderAjaxResponseContent(request, wrapper, stubType, targetFieldName, foundStubHttpLifecycle);
 
       } else if (REGEX_NUMERIC.matcher(stubType).matches()) {
 
          final int sequencedResponseId = Integer.parseInt(stubType);
          final int stubHttpCycleIndex = Integer.parseInt(uriFragments[urlFragmentsLength - 4]);
          final StubHttpLifecycle foundStubHttpLifecycle = throwErrorOnNonexistentResourceIndex(wrapper, stubHttpCycleIndex);
-         renderAjaxResponseContent(wrapper, sequencedResponseId, targetFieldName, foundStubHttpLifecycle);
+         renderAjaxResponseContent(request, wrapper, sequencedResponseId, targetFieldName, foundStubHttpLifecycle);
       }
 
       ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
    }
 
-   void renderAjaxResponseContent(final HttpServletResponseWithGetStatus wrapper, final String stubType, final String targetFieldName, final StubHttpLifecycle foundStubHttpLifecycle) throws IOException {
+   void renderAjaxResponseContent(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final String stubType, final String targetFieldName, final StubHttpLifecycle foundStubHttpLifecycle) throws IOException {
       try {
-         final String ajaxResponse = foundStubHttpLifecycle.getAjaxResponseContent(stubType, targetFieldName);
-         wrapper.getWriter().println(ajaxResponse);
+         if (targetFieldName.equals(FILE_PROPERTY)) {
+            if (stubType.equals("request")) {
+               final StubRequest stubRequest = foundStubHttpLifecycle.getRequest();
+               writeFileContent(request, wrapper, stubRequest.getFileContent(), stubRequest.getRawFile());
+            } else {
+               final List<StubResponse> allResponses = foundStubHttpLifecycle.getAllResponses();
+               if (allResponses.isEmpty()) {
+                  writeTextValue(request, wrapper, null);
+               } else {
+                  writeFileContent(request, wrapper, allResponses.get(0).getFileContent(), allResponses.get(0).getRawFile());
+               }
+            }
+         } else {
+            writeTextValue(request, wrapper, foundStubHttpLifecycle.getAjaxResponseValue(stubType, targetFieldName));
+         }
       } catch (final Exception ex) {
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.INTERNAL_SERVER_ERROR_500, ex.toString());
       }
    }
 
-   void renderAjaxResponseContent(final HttpServletResponseWithGetStatus wrapper, final int sequencedResponseId, final String targetFieldName, final StubHttpLifecycle foundStubHttpLifecycle) throws IOException {
+   void renderAjaxResponseContent(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final int sequencedResponseId, final String targetFieldName, final StubHttpLifecycle foundStubHttpLifecycle) throws IOException {
       try {
-         final String ajaxResponse = foundStubHttpLifecycle.getAjaxResponseContent(targetFieldName, sequencedResponseId);
-         wrapper.getWriter().println(ajaxResponse);
+         if (targetFieldName.equals(FILE_PROPERTY)) {
+            final StubResponse sequencedResponse = foundStubHttpLifecycle.getAllResponses().get(sequencedResponseId);
+            writeFileContent(request, wrapper, sequencedResponse.getFileContent(), sequencedResponse.getRawFile());
+         } else {
+            writeTextValue(request, wrapper, foundStubHttpLifecycle.getAjaxResponseValue(targetFieldName, sequencedResponseId));
+         }
       } catch (final Exception ex) {
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.INTERNAL_SERVER_ERROR_500, ex.toString());
       }
@@ -109,4 +152,89 @@ public class AjaxHandler extends AbstractHandler {
       }
       return foundStubHttpLifecycle;
    }
+
+   // The file content is shared with the stubs serving it, the requested range of it is streamed rather than copied
+   private static void writeFileContent(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final BlobStore.Blob fileContent, final File rawFile) throws IOException {
+      writeContent(request, wrapper, guessContentType(rawFile, fileContent), fileContent);
+   }
+
+   private static void writeTextValue(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final Object ajaxResponseValue) throws IOException {
+      final String value = ObjectUtils.isNull(ajaxResponseValue) ? StringUtils.NOT_PROVIDED : ajaxResponseValue.toString();
+      writeContent(request, wrapper, MimeTypes.TEXT_PLAIN_UTF_8, BlobStore.Blob.copyOf(StringUtils.getBytesUtf8(value)));
+   }
+
+   // Guesses from the file name first, then from whether the first bytes look like text
+   private static String guessContentType(final File rawFile, final BlobStore.Blob fileContent) {
+      if (ObjectUtils.isNotNull(rawFile)) {
+         final Buffer mimeType = MIME_TYPES.getMimeByExtension(rawFile.getName());
+         if (ObjectUtils.isNotNull(mimeType)) {
+            return mimeType.toString();
+         }
+      }
+
+      final byte[] sniffed = fileContent.toByteArray(0, Math.min(fileContent.length(), SNIFFED_BYTES));
+      for (final byte sniffedByte : sniffed) {
+         if (sniffedByte == 0) {
+            return "application/octet-stream";
+         }
+      }
+
+      return MimeTypes.TEXT_PLAIN_UTF_8;
+   }
+
+   // A range with neither position, or whose last position is before its first, is malformed and is ignored
+   private static boolean isWellFormed(final Matcher matcher) {
+      final String first = matcher.group(1);
+      final String last = matcher.group(2);
+      if (!StringUtils.isSet(first) || !StringUtils.isSet(last)) {
+         return StringUtils.isSet(first) || StringUtils.isSet(last);
+      }
+
+      return parsePosition(first) <= parsePosition(last);
+   }
+
+   // Positions are digits only, those too large for a long are past the end of any content anyway
+   private static long parsePosition(final String digits) {
+      try {
+         return Long.parseLong(digits);
+      } catch (final NumberFormatException ex) {
+         return Long.MAX_VALUE;
+      }
+   }
+
+   // Writes the requested range of the content, or all of it when no single, well formed range of bytes is requested
+   private static void writeContent(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final String contentType, final BlobStore.Blob content) throws IOException {
+      wrapper.setContentType(contentType);
+      wrapper.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+      long first = 0;
+      long last = content.length() - 1;
+      final String range = request.getHeader(HttpHeaders.RANGE);
+      final Matcher matcher = REGEX_BYTE_RANGE.matcher(StringUtils.isSet(range) ? range.trim() : "");
+      if (matcher.matches() && isWellFormed(matcher)) {
+         if (StringUtils.isSet(matcher.group(1))) {
+            first = parsePosition(matcher.group(1));
+            last = StringUtils.isSet(matcher.group(2)) ? Math.min(parsePosition(matcher.group(2)), last) : last;
+         } else {
+            first = Math.max(0, content.length() - parsePosition(matcher.group(2)));
+         }
+
+         if (first > last) {
+            wrapper.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE_416);
+            wrapper.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes */%s", content.length()));
+            wrapper.setContentLength(0);
+            return;
+         }
+
+         wrapper.setStatus(HttpStatus.PARTIAL_CONTENT_206);
+         wrapper.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %s-%s/%s", first, last, content.length()));
+      }
+
+      final int length = (int) (last - first + 1);
+      wrapper.setContentLength(length);
+      final OutputStream streamOut = wrapper.getOutputStream();
+      content.writeTo(streamOut, (int) first, length);
+      streamOut.flush();
+      streamOut.close();
+   }
 }
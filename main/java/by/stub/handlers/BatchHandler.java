@@ -0,0 +1,103 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.handlers;
+
+import by.stub.database.StubbedDataManager;
+import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
+import by.stub.utils.ConsoleUtils;
+import by.stub.utils.HandlerUtils;
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
+import by.stub.yaml.YamlParser;
+import by.stub.yaml.stubs.StubBatchOperation;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Applies a POSTed YAML list of add, update and delete operations to the loaded stubs in a single transaction
+ *
+ * @see YamlParser#parseBatch
+ */
+public final class BatchHandler extends AbstractHandler {
+
+   public static final String NAME = "batch";
+
+   private final StubbedDataManager stubbedDataManager;
+
+   public BatchHandler(final StubbedDataManager stubbedDataManager) {
+      this.stubbedDataManager = stubbedDataManager;
+   }
+
+   @Override
+   public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+      ConsoleUtils.logIncomingRequest(request);
+
+      baseRequest.setHandled(true);
+
+      final HttpServletResponseWithGetStatus wrapper = new HttpServletResponseWithGetStatus(response);
+      HandlerUtils.setResponseMainHeaders(wrapper);
+      wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+
+      try {
+         handleBatch(request, wrapper);
+      } catch (final IllegalArgumentException ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.BAD_REQUEST_400, "Batch was not applied: " + ex.getMessage());
+      } catch (final Exception ex) {
+         if (HandlerUtils.isCausedByTooLargeRequestBody(ex)) {
+            HandlerUtils.configureErrorResponse(wrapper, HttpStatus.REQUEST_ENTITY_TOO_LARGE_413, String.format("Request body is larger than the allowed %s bytes", AdminHandler.MAX_REQUEST_BODY_BYTES));
+         } else {
+            HandlerUtils.configureErrorResponse(wrapper, HttpStatus.INTERNAL_SERVER_ERROR_500, "Problem handling request in Batch handler: " + ex.toString());
+         }
+      }
+
+      ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+   }
+
+   private void handleBatch(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper) throws Exception {
+      if (HandlerUtils.rejectUnlessMethodAllowed(request, wrapper, HttpMethods.POST)) {
+         return;
+      }
+
+      final Reader postReader = HandlerUtils.constructRequestBodyReader(request, AdminHandler.MAX_REQUEST_BODY_BYTES);
+      if (ObjectUtils.isNull(postReader)) {
+         final String errorMessage = String.format("%s request on URI %s was empty", request.getMethod(), request.getRequestURI());
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NO_CONTENT_204, errorMessage);
+         return;
+      }
+
+      final List<StubBatchOperation> operations = new YamlParser().parseBatch(stubbedDataManager.getYamlParentDirectory(), postReader);
+      final List<Integer> resourceIds = stubbedDataManager.applyStubBatch(operations);
+      final String joinedResourceIds = StringUtils.trimSpacesBetweenCSVElements(StringUtils.removeSquareBrackets(resourceIds.toString()));
+
+      // Resource IDs are not returned in a header, a batch may add more stubs than response headers can hold
+      wrapper.setStatus(HttpStatus.OK_200);
+      wrapper.getWriter().println(String.format("Batch of %s operations applied successfully, added resource IDs: %s", operations.size(), joinedResourceIds));
+   }
+}
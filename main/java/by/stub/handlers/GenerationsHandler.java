@@ -0,0 +1,106 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.handlers;
+
+import by.stub.database.StubGeneration;
+import by.stub.database.StubbedDataManager;
+import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
+import by.stub.utils.ConsoleUtils;
+import by.stub.utils.HandlerUtils;
+import by.stub.utils.StringUtils;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Lists, on GET, the current and the kept previous sets of stubs, and rolls back, on POST to
+ * <code>/generations/&lt;generation&gt;</code>, to one of them
+ *
+ * @see StubbedDataManager#rollbackToGeneration(long)
+ */
+public final class GenerationsHandler extends AbstractHandler {
+
+   public static final String NAME = "generations";
+   public static final String GENERATIONS_ROOT = "/generations";
+
+   private final StubbedDataManager stubbedDataManager;
+
+   public GenerationsHandler(final StubbedDataManager stubbedDataManager) {
+      this.stubbedDataManager = stubbedDataManager;
+   }
+
+   @Override
+   public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+      ConsoleUtils.logIncomingRequest(request);
+
+      baseRequest.setHandled(true);
+
+      final HttpServletResponseWithGetStatus wrapper = new HttpServletResponseWithGetStatus(response);
+      HandlerUtils.setResponseMainHeaders(wrapper);
+      wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+
+      final String generation = request.getRequestURI().substring(GENERATIONS_ROOT.length()).replaceFirst("^/", "");
+      // Generations are listed on the root, and a generation is rolled back to on its own URI
+      if (!HandlerUtils.rejectUnlessMethodAllowed(request, wrapper, StringUtils.isSet(generation) ? HttpMethods.POST : HttpMethods.GET)) {
+         if (StringUtils.isSet(generation)) {
+            rollbackToGeneration(wrapper, generation);
+         } else {
+            listGenerations(wrapper);
+         }
+      }
+
+      ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+   }
+
+   private void listGenerations(final HttpServletResponseWithGetStatus wrapper) throws IOException {
+      wrapper.setStatus(HttpStatus.OK_200);
+      final PrintWriter writer = wrapper.getWriter();
+      for (final StubGeneration stubGeneration : stubbedDataManager.getStubGenerations()) {
+         writer.println(stubGeneration);
+      }
+   }
+
+   private void rollbackToGeneration(final HttpServletResponseWithGetStatus wrapper, final String generation) throws IOException {
+      final long rolledBackGeneration;
+      try {
+         rolledBackGeneration = stubbedDataManager.rollbackToGeneration(Long.parseLong(generation));
+      } catch (final NumberFormatException ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.BAD_REQUEST_400, String.format("Generation must be a number, was: %s", generation));
+         return;
+      } catch (final IllegalArgumentException ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NOT_FOUND_404, ex.getMessage());
+         return;
+      } catch (final Exception ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.INTERNAL_SERVER_ERROR_500, "Problem handling request in Generations handler: " + ex.toString());
+         return;
+      }
+
+      wrapper.setStatus(HttpStatus.OK_200);
+      wrapper.getWriter().println(String.format("Rolled back to generation %s, published as generation %s", generation, rolledBackGeneration));
+   }
+}
@@ -0,0 +1,200 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.handlers;
+
+import by.stub.database.JournaledRequest;
+import by.stub.database.RequestJournal;
+import by.stub.database.StubbedDataManager;
+import by.stub.handlers.strategy.admin.GetHandlingStrategy;
+import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
+import by.stub.json.JsonWriter;
+import by.stub.utils.ConsoleUtils;
+import by.stub.utils.HandlerUtils;
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Queries, on GET, the requests recorded by the stubs portal: <code>/requests</code> returns those matching the given
+ * criteria as JSON, most recent first, and <code>/requests/count</code> how many match them. Requests are filtered by
+ * the <code>method</code>, <code>url</code> (a regular expression) and <code>stub</code> (resource ID, or
+ * <code>none</code>) parameters
+ *
+ * @see RequestJournal
+ */
+public final class RequestsHandler extends AbstractHandler {
+
+   public static final String NAME = "requests";
+   public static final String REQUESTS_ROOT = "/requests";
+   public static final String COUNT_PATH = "count";
+   public static final int DEFAULT_PAGE_SIZE = 100;
+   private static final String METHOD_PARAM = "method";
+   private static final String URL_PARAM = "url";
+   private static final String STUB_PARAM = "stub";
+   private static final String NO_STUB_VALUE = "none";
+
+   private final StubbedDataManager stubbedDataManager;
+
+   public RequestsHandler(final StubbedDataManager stubbedDataManager) {
+      this.stubbedDataManager = stubbedDataManager;
+   }
+
+   @Override
+   public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+      ConsoleUtils.logIncomingRequest(request);
+
+      baseRequest.setHandled(true);
+
+      final HttpServletResponseWithGetStatus wrapper = new HttpServletResponseWithGetStatus(response);
+      HandlerUtils.setResponseMainHeaders(wrapper);
+      wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+
+      final String path = request.getRequestURI().substring(REQUESTS_ROOT.length()).replaceFirst("^/", "");
+      if (StringUtils.isSet(path) && !path.equals(COUNT_PATH)) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NOT_FOUND_404, String.format("URI %s does not exist", request.getRequestURI()));
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      if (HandlerUtils.rejectUnlessMethodAllowed(request, wrapper, HttpMethods.GET)) {
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      final RequestJournal requestJournal = stubbedDataManager.getRequestJournal();
+      if (ObjectUtils.isNull(requestJournal)) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NOT_FOUND_404, "Requests are not recorded, start stubby with --requests to record them");
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      final String method;
+      final Pattern url;
+      final Integer stubId;
+      final int offset;
+      final int limit;
+      try {
+         method = request.getParameter(METHOD_PARAM);
+         url = parseUrlParameter(request);
+         stubId = parseStubParameter(request);
+         offset = HandlerUtils.parseNonNegativeParameter(request, GetHandlingStrategy.OFFSET_PARAM, 0);
+         limit = HandlerUtils.parseNonNegativeParameter(request, GetHandlingStrategy.LIMIT_PARAM, DEFAULT_PAGE_SIZE);
+      } catch (final IllegalArgumentException ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.BAD_REQUEST_400, ex.getMessage());
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      wrapper.setContentType(HandlerUtils.APPLICATION_JSON_UTF_8);
+      wrapper.setStatus(HttpStatus.OK_200);
+
+      final Writer writerOut = new OutputStreamWriter(wrapper.getOutputStream(), StringUtils.charsetUTF8());
+      final JsonWriter jsonWriter = new JsonWriter(writerOut);
+      jsonWriter.beginObject();
+      if (path.equals(COUNT_PATH)) {
+         jsonWriter.writeName("count");
+         jsonWriter.writeNumber(requestJournal.count(method, url, stubId));
+      } else {
+         writeRequests(jsonWriter, requestJournal, requestJournal.find(method, url, stubId, offset, limit));
+      }
+      jsonWriter.endObject();
+      writerOut.flush();
+      writerOut.close();
+
+      ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+   }
+
+   private static void writeRequests(final JsonWriter jsonWriter, final RequestJournal requestJournal, final List<JournaledRequest> journaledRequests) throws IOException {
+      jsonWriter.writeName("capacity");
+      jsonWriter.writeNumber(requestJournal.getCapacity());
+      jsonWriter.writeName("recorded");
+      jsonWriter.writeNumber(requestJournal.getRecordedCount());
+      jsonWriter.writeName("requests");
+      jsonWriter.beginArray();
+      for (final JournaledRequest journaledRequest : journaledRequests) {
+         jsonWriter.beginObject();
+         jsonWriter.writeName("sequence");
+         jsonWriter.writeNumber(journaledRequest.getSequence());
+         jsonWriter.writeName("timeMillis");
+         jsonWriter.writeNumber(journaledRequest.getTimeMillis());
+         jsonWriter.writeName("method");
+         jsonWriter.writeValue(journaledRequest.getMethod());
+         jsonWriter.writeName("url");
+         jsonWriter.writeValue(journaledRequest.getUrl());
+         jsonWriter.writeName("query");
+         jsonWriter.writeValue(journaledRequest.getQuery());
+         jsonWriter.writeName("headers");
+         jsonWriter.writeValue(journaledRequest.getHeaders());
+         jsonWriter.writeName("bodyCrc32");
+         jsonWriter.writeValue(ObjectUtils.isNull(journaledRequest.getBodyCrc32()) ? null : String.format("%08x", journaledRequest.getBodyCrc32()));
+         jsonWriter.writeName("stubId");
+         if (journaledRequest.getStubId() == RequestJournal.NO_STUB_ID) {
+            jsonWriter.writeValue(null);
+         } else {
+            jsonWriter.writeNumber(journaledRequest.getStubId());
+         }
+         jsonWriter.writeName("status");
+         jsonWriter.writeNumber(journaledRequest.getStatus());
+         jsonWriter.writeName("elapsedMicros");
+         jsonWriter.writeNumber(journaledRequest.getElapsedMicros());
+         jsonWriter.endObject();
+      }
+      jsonWriter.endArray();
+   }
+
+   private static Pattern parseUrlParameter(final HttpServletRequest request) {
+      final String url = request.getParameter(URL_PARAM);
+      if (!StringUtils.isSet(url)) {
+         return null;
+      }
+
+      try {
+         return Pattern.compile(url);
+      } catch (final PatternSyntaxException ex) {
+         throw new IllegalArgumentException(String.format("Parameter '%s' must be a regular expression, was: %s", URL_PARAM, url));
+      }
+   }
+
+   private static Integer parseStubParameter(final HttpServletRequest request) {
+      final String stub = request.getParameter(STUB_PARAM);
+      if (!StringUtils.isSet(stub)) {
+         return null;
+      }
+      if (stub.trim().equals(NO_STUB_VALUE)) {
+         return RequestJournal.NO_STUB_ID;
+      }
+
+      return HandlerUtils.parseNonNegativeParameter(request, STUB_PARAM, RequestJournal.NO_STUB_ID);
+   }
+}
@@ -0,0 +1,78 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.handlers;
+
+import by.stub.database.StubbedDataManager;
+import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
+import by.stub.utils.ConsoleUtils;
+import by.stub.utils.HandlerUtils;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Restores, on POST, the stubs as last loaded from the data YAML, undoing all changes made through the admin portal
+ *
+ * @see StubbedDataManager#resetToBaseline()
+ */
+public final class ResetHandler extends AbstractHandler {
+
+   public static final String NAME = "reset";
+
+   private final StubbedDataManager stubbedDataManager;
+
+   public ResetHandler(final StubbedDataManager stubbedDataManager) {
+      this.stubbedDataManager = stubbedDataManager;
+   }
+
+   @Override
+   public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+      ConsoleUtils.logIncomingRequest(request);
+
+      baseRequest.setHandled(true);
+
+      final HttpServletResponseWithGetStatus wrapper = new HttpServletResponseWithGetStatus(response);
+      HandlerUtils.setResponseMainHeaders(wrapper);
+      wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+
+      if (HandlerUtils.rejectUnlessMethodAllowed(request, wrapper, HttpMethods.POST)) {
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      try {
+         stubbedDataManager.resetToBaseline();
+
+         wrapper.setStatus(HttpStatus.OK_200);
+         wrapper.getWriter().println("Stubs reset to the data file successfully");
+      } catch (final Exception ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.INTERNAL_SERVER_ERROR_500, "Problem handling request in Reset handler: " + ex.toString());
+      }
+
+      ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+   }
+}
@@ -0,0 +1,258 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.handlers;
+
+import by.stub.exception.Stubby4JException;
+import by.stub.utils.ObjectUtils;
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.resource.Resource;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the static resources found under a class path directory, such as the scripts and images of the admin portal.
+ * <p/>
+ * All resources are read into memory when the handler is constructed, together with a gzip compressed copy of those
+ * that compress well and a strong ETag for each, so that serving one involves neither the class path nor compression.
+ * Requests for anything else are left to the next handler, like Jetty's ResourceHandler does
+ */
+public final class StaticResourceHandler extends AbstractHandler {
+
+   // Resource URLs are not versioned, so browsers are asked to keep them for a week rather than for good
+   static final String CACHE_CONTROL_LONG_LIVED = "public, max-age=604800";
+   static final String CACHE_CONTROL_REVALIDATE = "no-cache";
+   private static final String GZIP = "gzip";
+   private static final String HTML_EXTENSION = ".html";
+   private static final MimeTypes MIME_TYPES = new MimeTypes();
+
+   private final Map<String, CachedResource> resources;
+   private final String[] welcomeFiles;
+
+   public StaticResourceHandler(final String classPathResource, final String... welcomeFiles) {
+      this.welcomeFiles = welcomeFiles;
+
+      final Map<String, CachedResource> loaded = new HashMap<String, CachedResource>();
+      final Resource baseResource = Resource.newClassPathResource(classPathResource);
+      if (ObjectUtils.isNotNull(baseResource)) {
+         try {
+            loadDirectory(baseResource, "/", loaded);
+         } catch (final IOException ex) {
+            throw new Stubby4JException(String.format("Could not load static resources from %s", classPathResource), ex);
+         }
+      }
+      this.resources = Collections.unmodifiableMap(loaded);
+   }
+
+   @Override
+   public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+      final String method = request.getMethod();
+      final boolean isHead = method.equals(HttpMethods.HEAD);
+      if (!isHead && !method.equals(HttpMethods.GET)) {
+         return;
+      }
+
+      final CachedResource resource = findResource(request.getPathInfo());
+      if (ObjectUtils.isNull(resource)) {
+         return;
+      }
+
+      baseRequest.setHandled(true);
+
+      final boolean gzipped = ObjectUtils.isNotNull(resource.gzippedContent) && isGzipAccepted(request);
+      final String etag = gzipped ? resource.gzippedEtag : resource.etag;
+
+      response.setHeader(HttpHeaders.ETAG, etag);
+      response.setHeader(HttpHeaders.CACHE_CONTROL, resource.cacheControl);
+      response.setDateHeader(HttpHeaders.LAST_MODIFIED, resource.lastModified);
+      if (ObjectUtils.isNotNull(resource.gzippedContent)) {
+         response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      }
+
+      if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+         response.setStatus(HttpStatus.NOT_MODIFIED_304);
+         return;
+      }
+
+      final byte[] content = gzipped ? resource.gzippedContent : resource.content;
+      response.setStatus(HttpStatus.OK_200);
+      response.setContentType(resource.contentType);
+      response.setContentLength(content.length);
+      if (gzipped) {
+         response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+      }
+
+      if (!isHead) {
+         response.getOutputStream().write(content);
+      }
+   }
+
+   private CachedResource findResource(final String pathInfo) {
+      final String path = ObjectUtils.isNull(pathInfo) || pathInfo.isEmpty() ? "/" : pathInfo;
+      final CachedResource resource = resources.get(path);
+      if (ObjectUtils.isNotNull(resource)) {
+         return resource;
+      }
+
+      final String directory = path.endsWith("/") ? path : path + "/";
+      for (final String welcomeFile : welcomeFiles) {
+         final CachedResource welcomeResource = resources.get(directory + welcomeFile);
+         if (ObjectUtils.isNotNull(welcomeResource)) {
+            return welcomeResource;
+         }
+      }
+
+      return null;
+   }
+
+   private static void loadDirectory(final Resource directory, final String path, final Map<String, CachedResource> loaded) throws IOException {
+      final String[] entries = directory.list();
+      if (ObjectUtils.isNull(entries)) {
+         return;
+      }
+
+      for (final String entry : entries) {
+         final Resource resource = directory.addPath(entry);
+         if (resource.isDirectory()) {
+            loadDirectory(resource, path + (entry.endsWith("/") ? entry : entry + "/"), loaded);
+         } else {
+            final String resourcePath = path + entry;
+            loaded.put(resourcePath, new CachedResource(resourcePath, readBytes(resource), resource.lastModified()));
+         }
+      }
+   }
+
+   private static byte[] readBytes(final Resource resource) throws IOException {
+      final InputStream inputStream = resource.getInputStream();
+      try {
+         return IO.readBytes(inputStream);
+      } finally {
+         inputStream.close();
+      }
+   }
+
+   // Accepted unless the client gave gzip, or the * wildcard, a zero quality value
+   private static boolean isGzipAccepted(final HttpServletRequest request) {
+      final String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+      if (ObjectUtils.isNull(acceptEncoding)) {
+         return false;
+      }
+
+      for (final String coding : acceptEncoding.split(",")) {
+         final String[] parameters = coding.split(";");
+         final String name = parameters[0].trim();
+         if (!name.equalsIgnoreCase(GZIP) && !name.equals("*")) {
+            continue;
+         }
+
+         for (int index = 1; index < parameters.length; index++) {
+            final String parameter = parameters[index].trim();
+            if (parameter.startsWith("q=") && parameter.substring(2).trim().matches("^0(\\.0*)?$")) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      return false;
+   }
+
+   private static boolean matchesEtag(final String ifNoneMatch, final String etag) {
+      if (ObjectUtils.isNull(ifNoneMatch)) {
+         return false;
+      }
+
+      for (final String candidate : ifNoneMatch.split(",")) {
+         final String trimmed = candidate.trim();
+         if (trimmed.equals("*") || trimmed.equals(etag)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static final class CachedResource {
+
+      private final byte[] content;
+      private final byte[] gzippedContent;
+      private final String etag;
+      private final String gzippedEtag;
+      private final String contentType;
+      private final String cacheControl;
+      private final long lastModified;
+
+      private CachedResource(final String path, final byte[] content, final long lastModified) throws IOException {
+         this.content = content;
+         this.lastModified = lastModified;
+         final String digest = digest(content);
+         this.etag = String.format("\"%s\"", digest);
+         this.gzippedEtag = String.format("\"%s-%s\"", digest, GZIP);
+
+         final Buffer mimeType = MIME_TYPES.getMimeByExtension(path);
+         this.contentType = ObjectUtils.isNull(mimeType) ? MimeTypes.TEXT_PLAIN : mimeType.toString();
+         // Pages are revalidated each time, their ETag still spares sending them again
+         this.cacheControl = path.endsWith(HTML_EXTENSION) ? CACHE_CONTROL_REVALIDATE : CACHE_CONTROL_LONG_LIVED;
+
+         // Already compressed formats, such as images, would not get smaller
+         final byte[] gzipped = gzip(content);
+         this.gzippedContent = gzipped.length < content.length * 9 / 10 ? gzipped : null;
+      }
+
+      private static byte[] gzip(final byte[] content) throws IOException {
+         final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(content.length);
+         final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream);
+         gzipOutputStream.write(content);
+         gzipOutputStream.close();
+
+         return byteArrayOutputStream.toByteArray();
+      }
+
+      private static String digest(final byte[] content) {
+         try {
+            final byte[] hash = MessageDigest.getInstance("MD5").digest(content);
+            final StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (final byte current : hash) {
+               hex.append(String.format("%02x", current & 0xFF));
+            }
+            return hex.toString();
+         } catch (final NoSuchAlgorithmException ex) {
+            throw new Stubby4JException(ex.toString(), ex);
+         }
+      }
+   }
+}
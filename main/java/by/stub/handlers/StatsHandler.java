@@ -0,0 +1,107 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.handlers;
+
+import by.stub.database.StubbedDataManager;
+import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
+import by.stub.json.JsonWriter;
+import by.stub.server.JettyContext;
+import by.stub.utils.ConsoleUtils;
+import by.stub.utils.HandlerUtils;
+import by.stub.utils.StringUtils;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Serves, as JSON, what monitoring needs to know about the running server: its connector ports, the loaded stubs, how
+ * long loading and reloading them took, how many times each stub was hit and, when recorded, how long its requests
+ * took to match and to serve. A DELETE resets the hit counts and latencies
+ *
+ * @see StubbedDataManager#writeStubStatsJson(JsonWriter)
+ */
+public final class StatsHandler extends AbstractHandler {
+
+   public static final String NAME = "stats";
+
+   private final JettyContext jettyContext;
+   private final StubbedDataManager stubbedDataManager;
+
+   public StatsHandler(final JettyContext jettyContext, final StubbedDataManager stubbedDataManager) {
+      this.jettyContext = jettyContext;
+      this.stubbedDataManager = stubbedDataManager;
+   }
+
+   @Override
+   public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+      ConsoleUtils.logIncomingRequest(request);
+
+      baseRequest.setHandled(true);
+
+      final HttpServletResponseWithGetStatus wrapper = new HttpServletResponseWithGetStatus(response);
+      HandlerUtils.setResponseMainHeaders(wrapper);
+
+      if (request.getMethod().equals(HttpMethods.DELETE)) {
+         stubbedDataManager.resetStubHitStats();
+
+         wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+         wrapper.setStatus(HttpStatus.OK_200);
+         wrapper.getWriter().println("Stub hit counts and latencies reset successfully");
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      if (HandlerUtils.rejectUnlessMethodAllowed(request, wrapper, HttpMethods.GET, HttpMethods.DELETE)) {
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
+      wrapper.setContentType(HandlerUtils.APPLICATION_JSON_UTF_8);
+      wrapper.setStatus(HttpStatus.OK_200);
+
+      // Stubs are written one by one, Jetty sends the response in chunks as its buffer fills up
+      final Writer writerOut = new OutputStreamWriter(wrapper.getOutputStream(), StringUtils.charsetUTF8());
+      final JsonWriter jsonWriter = new JsonWriter(writerOut);
+      jsonWriter.beginObject();
+      jsonWriter.writeName("host");
+      jsonWriter.writeValue(jettyContext.getHost());
+      jsonWriter.writeName("stubsPort");
+      jsonWriter.writeNumber(jettyContext.getStubsPort());
+      jsonWriter.writeName("stubsSslPort");
+      jsonWriter.writeNumber(jettyContext.getStubsSslPort());
+      jsonWriter.writeName("adminPort");
+      jsonWriter.writeNumber(jettyContext.getAdminPort());
+      stubbedDataManager.writeStubStatsJson(jsonWriter);
+      jsonWriter.endObject();
+      writerOut.flush();
+      writerOut.close();
+
+      ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+   }
+}
@@ -19,12 +19,14 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package by.stub.handlers;
 
+import by.stub.database.FixtureBytesReport;
 import by.stub.database.StubbedDataManager;
+import by.stub.handlers.strategy.admin.GetHandlingStrategy;
 import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
 import by.stub.server.JettyContext;
 import by.stub.utils.ConsoleUtils;
 import by.stub.utils.HandlerUtils;
-import by.stub.utils.ReflectionUtils;
+import by.stub.utils.ObjectUtils;
 import by.stub.utils.StringUtils;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import by.stub.yaml.stubs.StubRequest;
@@ -42,22 +44,41 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings("serial")
 public final class StatusHandler extends AbstractHandler {
 
+   public static final int DEFAULT_PAGE_SIZE = 100;
+
    private static final String CSS_CLASS_HIGHLIGHTABLE = "highlightable";
    private static final String CSS_CLASS_NO_HIGHLIGHTABLE = "no-highlightable";
    private static final String HTML_TABLE_ROW_TEMPLATE = "<tr><td width='200px' valign='top' align='left'>%s</td><td class='%s' align='left'>%s</td></tr>";
+   private static final String HTML_PAGE_LINK_TEMPLATE = "<a href='/status?%s=%s&amp;%s=%s'>%s</a>";
    private static final List<String> highlightableProperties = Collections.unmodifiableList(Arrays.asList("file", "body", "post"));
+   private static final int MAX_CACHED_PAGES = 32;
    private final StubbedDataManager stubbedDataManager;
    private final JettyContext jettyContext;
+   // Templates are read from the classpath once, when the handler is constructed
+   private final String statusTemplate;
+   private final String systemStatusTableTemplate;
+   private final String requestResponseTablesTemplate;
+   // Rendered pages keyed by their offset and limit, least recently viewed evicted first. Guarded by itself
+   private final Map<String, RenderedPage> renderedPages = new LinkedHashMap<String, RenderedPage>(MAX_CACHED_PAGES, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, RenderedPage> eldest) {
+         return size() > MAX_CACHED_PAGES;
+      }
+   };
 
    public StatusHandler(final JettyContext newContext, final StubbedDataManager newStubbedDataManager) {
       this.jettyContext = newContext;
       this.stubbedDataManager = newStubbedDataManager;
+      this.statusTemplate = HandlerUtils.getHtmlResourceByName("status");
+      this.systemStatusTableTemplate = HandlerUtils.getHtmlResourceByName("snippet_system_status_table");
+      this.requestResponseTablesTemplate = HandlerUtils.getHtmlResourceByName("snippet_request_response_tables");
    }
 
    @Override
@@ -68,11 +89,24 @@ public final class StatusHandler extends AbstractHandler {
 
       baseRequest.setHandled(true);
       wrapper.setContentType(MimeTypes.TEXT_HTML_UTF_8);
-      wrapper.setStatus(HttpStatus.OK_200);
       wrapper.setHeader(HttpHeaders.SERVER, HandlerUtils.constructHeaderServerName());
 
+      final int offset;
+      final int limit;
+      try {
+         offset = HandlerUtils.parseNonNegativeParameter(request, GetHandlingStrategy.OFFSET_PARAM, 0);
+         limit = HandlerUtils.parseNonNegativeParameter(request, GetHandlingStrategy.LIMIT_PARAM, DEFAULT_PAGE_SIZE);
+      } catch (final NumberFormatException ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.BAD_REQUEST_400, ex.getMessage());
+         ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
+         return;
+      }
+
       try {
-         wrapper.getWriter().println(getConfigDataPresentation());
+         final byte[] page = getConfigDataPresentation(offset, limit);
+         wrapper.setStatus(HttpStatus.OK_200);
+         wrapper.setContentLength(page.length);
+         wrapper.getOutputStream().write(page);
       } catch (final Exception ex) {
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.INTERNAL_SERVER_ERROR_500, ex.toString());
       }
@@ -80,22 +114,41 @@ public final class StatusHandler extends AbstractHandler {
       ConsoleUtils.logOutgoingResponse(request.getRequestURI(), wrapper);
    }
 
-   private String getConfigDataPresentation() throws Exception {
+   private byte[] getConfigDataPresentation(final int offset, final int limit) throws Exception {
+      // Read before rendering, so that a page rendered while stubs change is at least as recent as the version it is cached under
+      final long generation = stubbedDataManager.getGeneration();
+      final long externalFileReloadCount = stubbedDataManager.getExternalFileReloadCount();
+      final String pageKey = String.format("%s:%s", offset, limit);
+
+      synchronized (renderedPages) {
+         final RenderedPage renderedPage = renderedPages.get(pageKey);
+         if (ObjectUtils.isNotNull(renderedPage) && renderedPage.isRenderedFrom(generation, externalFileReloadCount)) {
+            return renderedPage.getContent();
+         }
+      }
+
+      final byte[] content = StringUtils.getBytesUtf8(renderConfigDataPresentation(offset, limit));
+      synchronized (renderedPages) {
+         renderedPages.put(pageKey, new RenderedPage(generation, externalFileReloadCount, content));
+      }
+
+      return content;
+   }
+
+   private String renderConfigDataPresentation(final int offset, final int limit) throws Exception {
 
-      final List<StubHttpLifecycle> stubHttpLifecycles = stubbedDataManager.getStubHttpLifecycles();
+      final int stubHttpLifecyclesCount = stubbedDataManager.getStubHttpLifecyclesCount();
+      final List<StubHttpLifecycle> stubHttpLifecycles = stubbedDataManager.getStubHttpLifecycles(offset, limit);
 
       final StringBuilder builder = new StringBuilder();
       builder.append(buildSystemStatusHtmlTable());
       builder.append("<br /><br />");
 
-      final String htmlTemplateContent = HandlerUtils.getHtmlResourceByName("snippet_request_response_tables");
+      for (final StubHttpLifecycle stubHttpLifecycle : stubHttpLifecycles) {
 
-      for (int cycleIndex = 0; cycleIndex < stubHttpLifecycles.size(); cycleIndex ++) {
-
-         final StubHttpLifecycle stubHttpLifecycle = stubHttpLifecycles.get(cycleIndex);
          final String resourceId = stubHttpLifecycle.getResourceId();
          final StubRequest stubRequest = stubHttpLifecycle.getRequest();
-         builder.append(buildPageBodyHtml(resourceId, htmlTemplateContent, "request", ReflectionUtils.getProperties(stubRequest)));
+         builder.append(buildPageBodyHtml(resourceId, requestResponseTablesTemplate, "request", stubRequest.getProperties()));
 
          final List<StubResponse> allResponses = stubHttpLifecycle.getAllResponses();
          for (int sequenceId = 0; sequenceId < allResponses.size(); sequenceId++) {
@@ -103,14 +156,40 @@ public final class StatusHandler extends AbstractHandler {
             String responseTableTitle = (allResponses.size() == 1 ? "response" : String.format("response/%s", sequenceId));
 
             final StubResponse stubResponse = allResponses.get(sequenceId);
-            final Map<String, String> stubResponseProperties = ReflectionUtils.getProperties(stubResponse);
-            builder.append(buildPageBodyHtml(resourceId, htmlTemplateContent, responseTableTitle, stubResponseProperties));
+            final Map<String, String> stubResponseProperties = stubResponse.getProperties();
+            builder.append(buildPageBodyHtml(resourceId, requestResponseTablesTemplate, responseTableTitle, stubResponseProperties));
          }
 
          builder.append("<br /><br />");
       }
 
-      return HandlerUtils.populateHtmlTemplate("status", stubHttpLifecycles.size(), builder.toString());
+      final String pageNavigation = buildPageNavigationHtml(offset, limit, stubHttpLifecycles.size(), stubHttpLifecyclesCount);
+
+      return String.format(statusTemplate, stubHttpLifecyclesCount, pageNavigation, builder.toString(), pageNavigation);
+   }
+
+   private String buildPageNavigationHtml(final int offset, final int limit, final int shown, final int total) {
+      final StringBuilder builder = new StringBuilder("<p>");
+      if (shown == 0) {
+         builder.append("No requests to show on this page");
+      } else {
+         builder.append(String.format("Showing requests %s to %s", offset + 1, offset + shown));
+      }
+
+      if (offset > 0) {
+         final int previousOffset = Math.max(0, offset - limit);
+         builder.append("&nbsp;").append(populatePageLinkTemplate(previousOffset, limit, "&laquo; previous"));
+      }
+
+      if ((long) offset + shown < total && shown > 0) {
+         builder.append("&nbsp;").append(populatePageLinkTemplate(offset + shown, limit, "next &raquo;"));
+      }
+
+      return builder.append("</p>").toString();
+   }
+
+   private String populatePageLinkTemplate(final int offset, final int limit, final String text) {
+      return String.format(HTML_PAGE_LINK_TEMPLATE, GetHandlingStrategy.OFFSET_PARAM, offset, GetHandlingStrategy.LIMIT_PARAM, limit, text);
    }
 
    private String buildSystemStatusHtmlTable() throws Exception {
@@ -128,13 +207,15 @@ public final class StatusHandler extends AbstractHandler {
       builder.append(populateTableRowTemplate("HOST", CSS_CLASS_NO_HIGHLIGHTABLE, host));
       builder.append(populateTableRowTemplate("CONFIGURATION", CSS_CLASS_NO_HIGHLIGHTABLE, stubbedDataManager.getYamlAbsolutePath()));
 
+      final FixtureBytesReport fixtureBytes = stubbedDataManager.getFixtureBytes();
+      builder.append(populateTableRowTemplate("FIXTURE BYTES (UNIQUE)", CSS_CLASS_NO_HIGHLIGHTABLE, fixtureBytes.getUniqueBytes()));
+      builder.append(populateTableRowTemplate("FIXTURE BYTES (LOGICAL)", CSS_CLASS_NO_HIGHLIGHTABLE, fixtureBytes.getLogicalBytes()));
+
       final String endpointRegistration = HandlerUtils.linkifyRequestUrl(HttpSchemes.HTTP,
          AdminHandler.ADMIN_ROOT, host, adminPort);
       builder.append(populateTableRowTemplate("NEW STUB DATA POST URI", CSS_CLASS_NO_HIGHLIGHTABLE, endpointRegistration));
 
-      final String systemStatusTable = HandlerUtils.getHtmlResourceByName("snippet_system_status_table");
-
-      return String.format(systemStatusTable, builder.toString());
+      return String.format(systemStatusTableTemplate, builder.toString());
    }
 
    private String buildPageBodyHtml(final String resourceId, final String htmlTemplateContent, final String tableName, final Map<String, String> stubObjectProperties) throws Exception {
@@ -154,11 +235,10 @@ public final class StatusHandler extends AbstractHandler {
    }
 
    private String constructHtmlTableRow(final String resourceId, final String tableName, final String fieldName, final String value) {
-      final String escapedValue = StringUtils.escapeHtmlEntities(value);
-
+      // Highlightable content is described only by whether it is there, it is served through ajax
       if (highlightableProperties.contains(fieldName)) {
-         if (escapedValue.equals(StringUtils.NOT_PROVIDED)) {
-            return populateTableRowTemplate(StringUtils.toUpper(fieldName), CSS_CLASS_NO_HIGHLIGHTABLE, escapedValue);
+         if (value.equals(StringUtils.NOT_PROVIDED)) {
+            return populateTableRowTemplate(StringUtils.toUpper(fieldName), CSS_CLASS_NO_HIGHLIGHTABLE, value);
          }
          final String ajaxifiedLinkToResource =
             String.format("&nbsp;<strong><a class='ajaxable' href='/ajax/resource/%s/%s/%s'>[Click to View]</a></strong>&nbsp;",
@@ -166,6 +246,8 @@ public final class StatusHandler extends AbstractHandler {
          return populateTableRowTemplate(StringUtils.toUpper(fieldName), CSS_CLASS_HIGHLIGHTABLE, ajaxifiedLinkToResource);
       }
 
+      final String escapedValue = StringUtils.escapeHtmlEntities(value);
+
       if (fieldName.equals("url")) {
          final String linkifiedUrl = HandlerUtils.linkifyRequestUrl(HttpSchemes.HTTP, escapedValue, jettyContext.getHost(), jettyContext.getStubsPort());
          final String linkifiedSslUrl = HandlerUtils.linkifyRequestUrl(HttpSchemes.HTTPS, escapedValue, jettyContext.getHost(), jettyContext.getStubsSslPort());
@@ -182,4 +264,25 @@ public final class StatusHandler extends AbstractHandler {
    private String populateTableRowTemplate(final Object... tokens) {
       return String.format(HTML_TABLE_ROW_TEMPLATE, tokens);
    }
-}
\ No newline at end of file
+
+   private static final class RenderedPage {
+
+      private final long generation;
+      private final long externalFileReloadCount;
+      private final byte[] content;
+
+      private RenderedPage(final long generation, final long externalFileReloadCount, final byte[] content) {
+         this.generation = generation;
+         this.externalFileReloadCount = externalFileReloadCount;
+         this.content = content;
+      }
+
+      private boolean isRenderedFrom(final long generation, final long externalFileReloadCount) {
+         return this.generation == generation && this.externalFileReloadCount == externalFileReloadCount;
+      }
+
+      private byte[] getContent() {
+         return content;
+      }
+   }
+}
@@ -19,12 +19,15 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package by.stub.handlers;
 
+import by.stub.database.RequestJournal;
+import by.stub.database.StubMatch;
 import by.stub.database.StubbedDataManager;
 import by.stub.handlers.strategy.stubs.StubResponseHandlingStrategy;
 import by.stub.handlers.strategy.stubs.StubsResponseHandlingStrategyFactory;
 import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
 import by.stub.utils.ConsoleUtils;
 import by.stub.utils.HandlerUtils;
+import by.stub.utils.ObjectUtils;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
 import org.eclipse.jetty.http.HttpStatus;
@@ -53,8 +56,17 @@ public class StubsHandler extends AbstractHandler {
 
       baseRequest.setHandled(true);
 
+      // The clock is only read when latencies or requests are recorded
+      final boolean recordingLatencies = stubbedDataManager.isRecordingLatencies();
+      final RequestJournal requestJournal = stubbedDataManager.getRequestJournal();
+      final boolean timingRequest = recordingLatencies || ObjectUtils.isNotNull(requestJournal);
+      final long receivedNanos = timingRequest ? System.nanoTime() : 0;
+
       final StubRequest assertionStubRequest = StubRequest.createFromHttpServletRequest(request);
-      final StubResponse foundStubResponse = stubbedDataManager.findStubResponseFor(assertionStubRequest);
+      final StubMatch stubMatch = stubbedDataManager.findStubMatchFor(assertionStubRequest);
+      final StubResponse foundStubResponse = stubMatch.getStubResponse();
+      final long matchedNanos = timingRequest ? System.nanoTime() : 0;
+
       final StubResponseHandlingStrategy strategyStubResponse = StubsResponseHandlingStrategyFactory.getStrategy(foundStubResponse);
       final HttpServletResponseWithGetStatus wrapper = new HttpServletResponseWithGetStatus(response);
 
@@ -64,6 +76,15 @@ public class StubsHandler extends AbstractHandler {
          HandlerUtils.configureErrorResponse(response, HttpStatus.INTERNAL_SERVER_ERROR_500, ex.toString());
       }
 
+      // Serving includes the latency configured on the stub, if any
+      final long servedNanos = timingRequest ? System.nanoTime() : 0;
+      if (recordingLatencies && stubMatch.isMatched()) {
+         stubMatch.getMatchedLifecycle().recordLatencies(matchedNanos - receivedNanos, servedNanos - matchedNanos);
+      }
+      if (ObjectUtils.isNotNull(requestJournal)) {
+         requestJournal.record(assertionStubRequest, request.getPathInfo(), request.getQueryString(), stubMatch.getResourceId(), wrapper.getStatus(), servedNanos - receivedNanos);
+      }
+
       ConsoleUtils.logOutgoingResponse(assertionStubRequest.getUrl(), wrapper);
 
    }
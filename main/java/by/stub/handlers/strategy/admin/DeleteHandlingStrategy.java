@@ -25,16 +25,16 @@ public class DeleteHandlingStrategy implements AdminResponseHandlingStrategy {
 
       final int contextPathLength = AdminHandler.ADMIN_ROOT.length();
       final String pathInfoNoHeadingSlash = request.getRequestURI().substring(contextPathLength);
-      final int stubIndexToDelete = Integer.parseInt(pathInfoNoHeadingSlash);
+      final int resourceIdToDelete = Integer.parseInt(pathInfoNoHeadingSlash);
 
-      if (!stubbedDataManager.isStubHttpLifecycleExistsByIndex(stubIndexToDelete)) {
-         final String errorMessage = String.format("Stub request index#%s does not exist, cannot delete", stubIndexToDelete);
+      if (!stubbedDataManager.isStubHttpLifecycleExistsByResourceId(resourceIdToDelete)) {
+         final String errorMessage = String.format("Stub request index#%s does not exist, cannot delete", resourceIdToDelete);
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NO_CONTENT_204, errorMessage);
          return;
       }
 
-      stubbedDataManager.deleteStubHttpLifecycleByIndex(stubIndexToDelete);
+      stubbedDataManager.deleteStubHttpLifecycleByResourceId(resourceIdToDelete);
       wrapper.setStatus(HttpStatus.OK_200);
-      wrapper.getWriter().println(String.format("Stub request index#%s deleted successfully", stubIndexToDelete));
+      wrapper.getWriter().println(String.format("Stub request index#%s deleted successfully", resourceIdToDelete));
    }
 }
@@ -11,6 +11,8 @@ import org.eclipse.jetty.http.MimeTypes;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 /**
  * @author: Alexander Zagniotov
@@ -18,32 +20,66 @@ import java.io.OutputStream;
  */
 public class GetHandlingStrategy implements AdminResponseHandlingStrategy {
 
+   public static final String OFFSET_PARAM = "offset";
+   public static final String LIMIT_PARAM = "limit";
+   public static final String URL_FILTER_PARAM = "url";
+
    @Override
    public void handle(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final StubbedDataManager stubbedDataManager) throws IOException {
 
-      final StringBuilder yamlAppender = new StringBuilder();
       final int contextPathLength = AdminHandler.ADMIN_ROOT.length();
       final String pathInfoNoHeadingSlash = request.getRequestURI().substring(contextPathLength);
 
       if (StringUtils.isSet(pathInfoNoHeadingSlash)) {
-         final int targetHttpStubCycleIndex = Integer.parseInt(pathInfoNoHeadingSlash);
+         final int targetResourceId = Integer.parseInt(pathInfoNoHeadingSlash);
 
-         if (!stubbedDataManager.isStubHttpLifecycleExistsByIndex(targetHttpStubCycleIndex)) {
-            final String errorMessage = String.format("Stub request index#%s does not exist, cannot display", targetHttpStubCycleIndex);
+         if (!stubbedDataManager.isStubHttpLifecycleExistsByResourceId(targetResourceId)) {
+            final String errorMessage = String.format("Stub request index#%s does not exist, cannot display", targetResourceId);
             HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NO_CONTENT_204, errorMessage);
             return;
          }
 
-         yamlAppender.append(stubbedDataManager.getMarshalledYamlByIndex(targetHttpStubCycleIndex));
-      } else {
-         yamlAppender.append(stubbedDataManager.getMarshalledYaml());
+         if (HandlerUtils.isJsonAccepted(request)) {
+            wrapper.setContentType(HandlerUtils.APPLICATION_JSON_UTF_8);
+
+            final Writer writerOut = new OutputStreamWriter(wrapper.getOutputStream(), StringUtils.charsetUTF8());
+            stubbedDataManager.writeMarshalledJsonByResourceId(writerOut, targetResourceId);
+            writerOut.flush();
+            writerOut.close();
+            return;
+         }
+
+         wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+
+         final OutputStream streamOut = wrapper.getOutputStream();
+         streamOut.write(StringUtils.getBytesUtf8(stubbedDataManager.getMarshalledYamlByResourceId(targetResourceId)));
+         streamOut.flush();
+         streamOut.close();
+         return;
+      }
+
+      final int offset;
+      final int limit;
+      try {
+         offset = HandlerUtils.parseNonNegativeParameter(request, OFFSET_PARAM, 0);
+         limit = HandlerUtils.parseNonNegativeParameter(request, LIMIT_PARAM, Integer.MAX_VALUE);
+      } catch (final NumberFormatException ex) {
+         HandlerUtils.configureErrorResponse(wrapper, HttpStatus.BAD_REQUEST_400, ex.getMessage());
+         return;
       }
 
-      wrapper.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+      final boolean jsonAccepted = HandlerUtils.isJsonAccepted(request);
+      wrapper.setContentType(jsonAccepted ? HandlerUtils.APPLICATION_JSON_UTF_8 : MimeTypes.TEXT_PLAIN_UTF_8);
 
-      final OutputStream streamOut = wrapper.getOutputStream();
-      streamOut.write(StringUtils.getBytesUtf8(yamlAppender.toString()));
-      streamOut.flush();
-      streamOut.close();
+      // Stubs are written one by one as the listing is produced, Jetty sends the response in chunks as its buffer fills up
+      final Writer writerOut = new OutputStreamWriter(wrapper.getOutputStream(), StringUtils.charsetUTF8());
+      final String urlFilter = request.getParameter(URL_FILTER_PARAM);
+      if (jsonAccepted) {
+         stubbedDataManager.writeMarshalledJson(writerOut, offset, limit, urlFilter);
+      } else {
+         stubbedDataManager.writeMarshalledYaml(writerOut, offset, limit, urlFilter);
+      }
+      writerOut.flush();
+      writerOut.close();
    }
 }
@@ -3,8 +3,8 @@ package by.stub.handlers.strategy.admin;
 import by.stub.database.StubbedDataManager;
 import by.stub.handlers.AdminHandler;
 import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
-import by.stub.utils.FileUtils;
 import by.stub.utils.HandlerUtils;
+import by.stub.utils.ObjectUtils;
 import by.stub.utils.StringUtils;
 import by.stub.yaml.YamlParser;
 import by.stub.yaml.stubs.StubHttpLifecycle;
@@ -12,6 +12,7 @@ import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpStatus;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -19,6 +20,10 @@ import java.util.List;
  * Created: 4/25/13 11:30 PM
  */
 public class PostHandlingStrategy implements AdminResponseHandlingStrategy {
+
+   public static final String MODE_PARAM = "mode";
+   public static final String APPEND_MODE = "append";
+
    @Override
    public void handle(final HttpServletRequest request, final HttpServletResponseWithGetStatus wrapper, final StubbedDataManager stubbedDataManager) throws Exception {
 
@@ -28,14 +33,26 @@ public class PostHandlingStrategy implements AdminResponseHandlingStrategy {
          return;
       }
 
-      final String post = HandlerUtils.extractPostRequestBody(request, AdminHandler.NAME);
-      if (!StringUtils.isSet(post)) {
+      final Reader postReader = HandlerUtils.constructRequestBodyReader(request, AdminHandler.MAX_REQUEST_BODY_BYTES);
+      if (ObjectUtils.isNull(postReader)) {
          final String errorMessage = String.format("%s request on URI %s was empty", request.getMethod(), request.getRequestURI());
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NO_CONTENT_204, errorMessage);
          return;
       }
 
-      final List<StubHttpLifecycle> stubHttpLifecycles = new YamlParser().parse(stubbedDataManager.getYamlParentDirectory(), FileUtils.constructReader(post));
+      final List<StubHttpLifecycle> stubHttpLifecycles = HandlerUtils.isJsonRequestBody(request) ?
+         new YamlParser().parseJson(stubbedDataManager.getYamlParentDirectory(), postReader) :
+         new YamlParser().parse(stubbedDataManager.getYamlParentDirectory(), postReader);
+      if (APPEND_MODE.equals(request.getParameter(MODE_PARAM))) {
+         final List<Integer> resourceIds = stubbedDataManager.appendStubHttpLifecycles(stubHttpLifecycles);
+         final String joinedResourceIds = StringUtils.trimSpacesBetweenCSVElements(StringUtils.removeSquareBrackets(resourceIds.toString()));
+
+         // Resource IDs are not returned in a header, more stubs may be appended than response headers can hold
+         wrapper.setStatus(HttpStatus.CREATED_201);
+         wrapper.getWriter().println(String.format("Configuration appended successfully, resource IDs: %s", joinedResourceIds));
+         return;
+      }
+
       stubbedDataManager.resetStubHttpLifecycles(stubHttpLifecycles);
 
       if (stubHttpLifecycles.size() == 1) {
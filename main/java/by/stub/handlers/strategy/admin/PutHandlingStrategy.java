@@ -3,15 +3,15 @@ package by.stub.handlers.strategy.admin;
 import by.stub.database.StubbedDataManager;
 import by.stub.handlers.AdminHandler;
 import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
-import by.stub.utils.FileUtils;
 import by.stub.utils.HandlerUtils;
-import by.stub.utils.StringUtils;
+import by.stub.utils.ObjectUtils;
 import by.stub.yaml.YamlParser;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpStatus;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -30,28 +30,30 @@ public class PutHandlingStrategy implements AdminResponseHandlingStrategy {
 
       final int contextPathLength = AdminHandler.ADMIN_ROOT.length();
       final String pathInfoNoHeadingSlash = request.getRequestURI().substring(contextPathLength);
-      final int stubIndexToUpdate = Integer.parseInt(pathInfoNoHeadingSlash);
+      final int resourceIdToUpdate = Integer.parseInt(pathInfoNoHeadingSlash);
 
-      if (!stubbedDataManager.isStubHttpLifecycleExistsByIndex(stubIndexToUpdate)) {
-         final String errorMessage = String.format("Stub request index#%s does not exist, cannot update", stubIndexToUpdate);
+      if (!stubbedDataManager.isStubHttpLifecycleExistsByResourceId(resourceIdToUpdate)) {
+         final String errorMessage = String.format("Stub request index#%s does not exist, cannot update", resourceIdToUpdate);
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NO_CONTENT_204, errorMessage);
          return;
       }
 
-      final String put = HandlerUtils.extractPostRequestBody(request, AdminHandler.NAME);
-      if (!StringUtils.isSet(put)) {
+      final Reader putReader = HandlerUtils.constructRequestBodyReader(request, AdminHandler.MAX_REQUEST_BODY_BYTES);
+      if (ObjectUtils.isNull(putReader)) {
          final String errorMessage = String.format("%s request on URI %s was empty", request.getMethod(), request.getRequestURI());
          HandlerUtils.configureErrorResponse(wrapper, HttpStatus.NO_CONTENT_204, errorMessage);
          return;
       }
 
-      final List<StubHttpLifecycle> stubHttpLifecycles = new YamlParser().parse(stubbedDataManager.getYamlParentDirectory(), FileUtils.constructReader(put));
+      final List<StubHttpLifecycle> stubHttpLifecycles = HandlerUtils.isJsonRequestBody(request) ?
+         new YamlParser().parseJson(stubbedDataManager.getYamlParentDirectory(), putReader) :
+         new YamlParser().parse(stubbedDataManager.getYamlParentDirectory(), putReader);
       final StubHttpLifecycle newStubHttpLifecycle = stubHttpLifecycles.get(0);
-      stubbedDataManager.updateStubHttpLifecycleByIndex(stubIndexToUpdate, newStubHttpLifecycle);
+      stubbedDataManager.updateStubHttpLifecycleByResourceId(resourceIdToUpdate, newStubHttpLifecycle);
 
       wrapper.setStatus(HttpStatus.CREATED_201);
       wrapper.addHeader(HttpHeaders.LOCATION, newStubHttpLifecycle.getRequest().getUrl());
-      final String successfulMessage = String.format("Stub request index#%s updated successfully", stubIndexToUpdate);
+      final String successfulMessage = String.format("Stub request index#%s updated successfully", resourceIdToUpdate);
       wrapper.getWriter().println(successfulMessage);
    }
 }
@@ -55,9 +55,8 @@ public final class DefaultResponseHandlingStrategy implements StubResponseHandli
       }
       response.setStatus(Integer.parseInt(foundStubResponse.getStatus()));
 
-      final byte[] responseBody = foundStubResponse.getResponseBody();
       final OutputStream streamOut = response.getOutputStream();
-      streamOut.write(responseBody);
+      foundStubResponse.writeResponseBody(streamOut);
       streamOut.flush();
       streamOut.close();
    }
@@ -0,0 +1,322 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming reader of a JSON document whose root is an array. Elements of the root array are read one at a time,
+ * so that a caller can process each one before the next is parsed, instead of holding the whole document in memory.
+ * <p/>
+ * Elements are read into the same node model stubs are loaded from YAML into: objects become maps that keep the
+ * order of their members, arrays become lists, and numbers, booleans and strings all become strings
+ */
+public final class JsonReader {
+
+   private static final int BUFFER_SIZE = 8192;
+
+   private final Reader reader;
+   private final char[] buffer = new char[BUFFER_SIZE];
+   private final StringBuilder scratch = new StringBuilder();
+   private int position;
+   private int limit;
+   private long consumed;
+   private boolean rootElementRead;
+
+   public JsonReader(final Reader reader) {
+      this.reader = reader;
+   }
+
+   /**
+    * Consumes the opening bracket of the root array
+    */
+   public void beginArray() throws IOException {
+      expect('[');
+      rootElementRead = false;
+   }
+
+   /**
+    * @return true when the root array has another element, consuming the comma separating it from the previous one
+    */
+   public boolean hasNext() throws IOException {
+      final int next = peekSignificant();
+      if (next == ']') {
+         return false;
+      }
+
+      if (rootElementRead) {
+         expect(',');
+      }
+
+      return true;
+   }
+
+   /**
+    * Reads the next element of the root array
+    */
+   public Object nextValue() throws IOException {
+      final Object value = readValue();
+      rootElementRead = true;
+
+      return value;
+   }
+
+   /**
+    * Consumes the closing bracket of the root array and checks that nothing but whitespace follows it
+    */
+   public void endArray() throws IOException {
+      expect(']');
+      if (peekSignificant() != -1) {
+         throw syntaxError("Unexpected content after the root array");
+      }
+   }
+
+   private Object readValue() throws IOException {
+      final int next = peekSignificant();
+      switch (next) {
+         case '{':
+            position++;
+            return readObject();
+         case '[':
+            position++;
+            return readArray();
+         case '"':
+            position++;
+            return readString();
+         case 't':
+            return readLiteral("true", "true");
+         case 'f':
+            return readLiteral("false", "false");
+         case 'n':
+            return readLiteral("null", null);
+         case -1:
+            throw syntaxError("Unexpected end of input");
+         default:
+            if (next == '-' || (next >= '0' && next <= '9')) {
+               return readNumber();
+            }
+            throw syntaxError(String.format("Unexpected character '%s'", (char) next));
+      }
+   }
+
+   private Map<String, Object> readObject() throws IOException {
+      final Map<String, Object> object = new LinkedHashMap<String, Object>();
+      if (peekSignificant() == '}') {
+         position++;
+         return object;
+      }
+
+      while (true) {
+         expect('"');
+         final String name = readString();
+         expect(':');
+         object.put(name, readValue());
+
+         final int next = peekSignificant();
+         if (next == '}') {
+            position++;
+            return object;
+         }
+         if (next != ',') {
+            throw syntaxError("Expected ',' or '}' in object");
+         }
+         position++;
+      }
+   }
+
+   private List<Object> readArray() throws IOException {
+      final List<Object> array = new ArrayList<Object>();
+      if (peekSignificant() == ']') {
+         position++;
+         return array;
+      }
+
+      while (true) {
+         array.add(readValue());
+
+         final int next = peekSignificant();
+         if (next == ']') {
+            position++;
+            return array;
+         }
+         if (next != ',') {
+            throw syntaxError("Expected ',' or ']' in array");
+         }
+         position++;
+      }
+   }
+
+   private String readString() throws IOException {
+      scratch.setLength(0);
+      while (true) {
+         // Copies runs of plain characters straight out of the buffer
+         final int start = position;
+         while (position < limit) {
+            final char current = buffer[position];
+            if (current == '"' || current == '\\') {
+               break;
+            }
+            if (current < 0x20) {
+               throw syntaxError("Unescaped control character in string");
+            }
+            position++;
+         }
+         scratch.append(buffer, start, position - start);
+
+         if (position == limit) {
+            if (!fill()) {
+               throw syntaxError("Unterminated string");
+            }
+            continue;
+         }
+
+         final char current = buffer[position++];
+         if (current == '"') {
+            return scratch.toString();
+         }
+
+         scratch.append(readEscape());
+      }
+   }
+
+   private char readEscape() throws IOException {
+      final int escaped = read();
+      switch (escaped) {
+         case '"':
+         case '\\':
+         case '/':
+            return (char) escaped;
+         case 'b':
+            return '\b';
+         case 'f':
+            return '\f';
+         case 'n':
+            return '\n';
+         case 'r':
+            return '\r';
+         case 't':
+            return '\t';
+         case 'u':
+            int codeUnit = 0;
+            for (int digit = 0; digit < 4; digit++) {
+               final int hexValue = Character.digit(read(), 16);
+               if (hexValue == -1) {
+                  throw syntaxError("Malformed unicode escape");
+               }
+               codeUnit = (codeUnit << 4) | hexValue;
+            }
+            return (char) codeUnit;
+         default:
+            throw syntaxError("Unknown escape sequence");
+      }
+   }
+
+   private String readNumber() throws IOException {
+      scratch.setLength(0);
+      while (true) {
+         if (position == limit && !fill()) {
+            break;
+         }
+
+         final char current = buffer[position];
+         if ((current >= '0' && current <= '9') || current == '-' || current == '+' || current == '.' || current == 'e' || current == 'E') {
+            scratch.append(current);
+            position++;
+         } else {
+            break;
+         }
+      }
+
+      final String number = scratch.toString();
+      try {
+         Double.parseDouble(number);
+      } catch (final NumberFormatException ex) {
+         throw syntaxError(String.format("Malformed number '%s'", number));
+      }
+
+      return number;
+   }
+
+   private String readLiteral(final String literal, final String value) throws IOException {
+      for (int index = 0; index < literal.length(); index++) {
+         if (read() != literal.charAt(index)) {
+            throw syntaxError(String.format("Expected '%s'", literal));
+         }
+      }
+
+      return value;
+   }
+
+   private void expect(final char expected) throws IOException {
+      if (peekSignificant() != expected) {
+         throw syntaxError(String.format("Expected '%s'", expected));
+      }
+      position++;
+   }
+
+   private int read() throws IOException {
+      if (position == limit && !fill()) {
+         throw syntaxError("Unexpected end of input");
+      }
+
+      return buffer[position++];
+   }
+
+   /**
+    * Skips whitespace and returns the next character without consuming it, or -1 at the end of input
+    */
+   private int peekSignificant() throws IOException {
+      while (true) {
+         if (position == limit && !fill()) {
+            return -1;
+         }
+
+         final char current = buffer[position];
+         if (current == ' ' || current == '\n' || current == '\r' || current == '\t') {
+            position++;
+         } else {
+            return current;
+         }
+      }
+   }
+
+   private boolean fill() throws IOException {
+      consumed += limit;
+      position = 0;
+      limit = 0;
+
+      final int read = reader.read(buffer, 0, buffer.length);
+      if (read <= 0) {
+         return false;
+      }
+      limit = read;
+
+      return true;
+   }
+
+   private IOException syntaxError(final String message) {
+      return new IOException(String.format("Malformed JSON at character %s: %s", consumed + position, message));
+   }
+}
@@ -0,0 +1,202 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming writer of a JSON document, the counterpart of {@link JsonReader}. Arrays and objects are opened, filled in
+ * and closed on the underlying writer as they are given, so the complete document is never held in memory.
+ * <p/>
+ * Maps are written as objects, lists as arrays, and any other value as a string
+ */
+public final class JsonWriter {
+
+   private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+   private final Writer writer;
+   // One entry per open array or object, true once a member has been written to it
+   private final LinkedList<Boolean> memberWritten = new LinkedList<Boolean>();
+   private boolean nameWritten;
+
+   public JsonWriter(final Writer writer) {
+      this.writer = writer;
+   }
+
+   public void beginArray() throws IOException {
+      beginScope('[');
+   }
+
+   /**
+    * Writes the next element of the open array
+    */
+   public void writeElement(final Object value) throws IOException {
+      writeValue(value);
+   }
+
+   public void endArray() throws IOException {
+      endScope(']');
+   }
+
+   public void beginObject() throws IOException {
+      beginScope('{');
+   }
+
+   /**
+    * Writes the name of the next member of the open object, its value is written next
+    */
+   public void writeName(final String name) throws IOException {
+      separate();
+      writeString(name);
+      writer.write(':');
+      nameWritten = true;
+   }
+
+   public void endObject() throws IOException {
+      endScope('}');
+   }
+
+   /**
+    * Writes the given value, as the next element of the open array, as the value of the member named last, or as a
+    * standalone JSON document
+    */
+   public void writeValue(final Object value) throws IOException {
+      separate();
+      writeNode(value);
+   }
+
+   public void writeNumber(final long value) throws IOException {
+      separate();
+      writer.write(String.valueOf(value));
+   }
+
+   private void beginScope(final char opening) throws IOException {
+      separate();
+      writer.write(opening);
+      memberWritten.push(false);
+   }
+
+   private void endScope(final char closing) throws IOException {
+      memberWritten.pop();
+      writer.write(closing);
+   }
+
+   private void separate() throws IOException {
+      if (nameWritten) {
+         nameWritten = false;
+         return;
+      }
+
+      if (memberWritten.isEmpty()) {
+         return;
+      }
+
+      if (memberWritten.peek()) {
+         writer.write(',');
+      } else {
+         memberWritten.set(0, true);
+      }
+   }
+
+   private void writeNode(final Object value) throws IOException {
+      if (value instanceof Map) {
+         writeObject((Map<?, ?>) value);
+      } else if (value instanceof List) {
+         writeArray((List<?>) value);
+      } else if (value == null) {
+         writer.write("null");
+      } else {
+         writeString(String.valueOf(value));
+      }
+   }
+
+   private void writeObject(final Map<?, ?> object) throws IOException {
+      writer.write('{');
+      boolean first = true;
+      for (final Map.Entry<?, ?> member : object.entrySet()) {
+         if (!first) {
+            writer.write(',');
+         }
+         writeString(String.valueOf(member.getKey()));
+         writer.write(':');
+         writeNode(member.getValue());
+         first = false;
+      }
+      writer.write('}');
+   }
+
+   private void writeArray(final List<?> array) throws IOException {
+      writer.write('[');
+      boolean first = true;
+      for (final Object element : array) {
+         if (!first) {
+            writer.write(',');
+         }
+         writeNode(element);
+         first = false;
+      }
+      writer.write(']');
+   }
+
+   private void writeString(final String value) throws IOException {
+      writer.write('"');
+
+      // Writes runs of characters that need no escaping in one call
+      int start = 0;
+      final int length = value.length();
+      for (int index = 0; index < length; index++) {
+         final char current = value.charAt(index);
+         if (current >= 0x20 && current != '"' && current != '\\') {
+            continue;
+         }
+
+         writer.write(value, start, index - start);
+         start = index + 1;
+         switch (current) {
+            case '"':
+               writer.write("\\\"");
+               break;
+            case '\\':
+               writer.write("\\\\");
+               break;
+            case '\n':
+               writer.write("\\n");
+               break;
+            case '\r':
+               writer.write("\\r");
+               break;
+            case '\t':
+               writer.write("\\t");
+               break;
+            default:
+               writer.write("\\u00");
+               writer.write(HEX_DIGITS[current >> 4]);
+               writer.write(HEX_DIGITS[current & 0xF]);
+         }
+      }
+      writer.write(value, start, length - start);
+
+      writer.write('"');
+   }
+}
@@ -25,16 +25,23 @@ import by.stub.database.StubbedDataManager;
 import by.stub.exception.Stubby4JException;
 import by.stub.handlers.AdminHandler;
 import by.stub.handlers.AjaxHandler;
+import by.stub.handlers.BatchHandler;
+import by.stub.handlers.GenerationsHandler;
+import by.stub.handlers.RequestsHandler;
+import by.stub.handlers.ResetHandler;
+import by.stub.handlers.StartupReportHandler;
+import by.stub.handlers.StaticResourceHandler;
+import by.stub.handlers.StatsHandler;
 import by.stub.handlers.StatusHandler;
 import by.stub.handlers.StubsHandler;
 import by.stub.utils.ObjectUtils;
+import by.stub.utils.StartupProfiler;
 import by.stub.utils.StringUtils;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.HandlerList;
-import org.eclipse.jetty.server.handler.ResourceHandler;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.server.ssl.SslSocketConnector;
 import org.eclipse.jetty.util.resource.Resource;
@@ -76,9 +83,18 @@ public final class JettyFactory {
 
    public Server construct() throws IOException {
 
+      final StartupProfiler.Phase constructionPhase = StartupProfiler.begin("jetty construction");
       final Server server = new Server();
+
+      final StartupProfiler.Phase connectorsPhase = StartupProfiler.begin("connectors");
       server.setConnectors(buildConnectors());
+      connectorsPhase.end();
+
+      final StartupProfiler.Phase handlersPhase = StartupProfiler.begin("handlers");
       server.setHandler(constructHandlers());
+      handlersPhase.end();
+
+      constructionPhase.end();
 
       return server;
    }
@@ -98,10 +114,16 @@ public final class JettyFactory {
             constructHandler(SSL_CONNECTOR_NAME, ROOT_PATH_INFO, new StubsHandler(stubbedDataManager)),
 
             constructHandler(ADMIN_CONNECTOR_NAME, "/status", new StatusHandler(jettyContext, stubbedDataManager)),
+            constructHandler(ADMIN_CONNECTOR_NAME, "/stats", new StatsHandler(jettyContext, stubbedDataManager)),
             constructHandler(ADMIN_CONNECTOR_NAME, "/highlight", staticResourceHandler("ui/js/highlight/")),
             constructHandler(ADMIN_CONNECTOR_NAME, "/minified", staticResourceHandler("ui/js/minified/")),
             constructHandler(ADMIN_CONNECTOR_NAME, "/images", staticResourceHandler("ui/images/")),
             constructHandler(ADMIN_CONNECTOR_NAME, "/ajax/resource", new AjaxHandler(stubbedDataManager)),
+            constructHandler(ADMIN_CONNECTOR_NAME, "/startup", new StartupReportHandler()),
+            constructHandler(ADMIN_CONNECTOR_NAME, "/batch", new BatchHandler(stubbedDataManager)),
+            constructHandler(ADMIN_CONNECTOR_NAME, "/reset", new ResetHandler(stubbedDataManager)),
+            constructHandler(ADMIN_CONNECTOR_NAME, "/generations", new GenerationsHandler(stubbedDataManager)),
+            constructHandler(ADMIN_CONNECTOR_NAME, "/requests", new RequestsHandler(stubbedDataManager)),
             constructHandler(ADMIN_CONNECTOR_NAME, ROOT_PATH_INFO, new AdminHandler(stubbedDataManager))
          }
       );
@@ -109,14 +131,8 @@ public final class JettyFactory {
       return handlers;
    }
 
-   private ResourceHandler staticResourceHandler(final String classPathResource, final String... staticResources) {
-
-      final ResourceHandler resourceHandler = new ResourceHandler();
-      resourceHandler.setDirectoriesListed(true);
-      resourceHandler.setWelcomeFiles(staticResources);
-      resourceHandler.setBaseResource(Resource.newClassPathResource(classPathResource));
-
-      return resourceHandler;
+   private StaticResourceHandler staticResourceHandler(final String classPathResource, final String... staticResources) {
+      return new StaticResourceHandler(classPathResource, staticResources);
    }
 
    private ContextHandler constructHandler(final String connectorName, final String pathInfo, final Handler handler) {
@@ -21,6 +21,7 @@ package by.stub.server;
 
 
 import by.stub.cli.ANSITerminal;
+import by.stub.utils.StartupProfiler;
 import org.eclipse.jetty.server.Server;
 
 public final class StubbyManager {
@@ -36,7 +37,14 @@ public final class StubbyManager {
          return;
       }
 
-      server.start();
+      // Startup is profiled from the construction of the manager until Jetty has started, see StubbyManagerFactory
+      final StartupProfiler.Phase jettyStartPhase = StartupProfiler.begin("jetty start");
+      try {
+         server.start();
+      } finally {
+         jettyStartPhase.end();
+         StartupProfiler.finish();
+      }
 
       ANSITerminal.info("\nQuit: ctrl-c\n");
    }
@@ -21,10 +21,12 @@ package by.stub.server;
 
 import by.stub.cli.CommandLineInterpreter;
 import by.stub.cli.EmptyLogger;
+import by.stub.database.RequestJournal;
 import by.stub.database.StubbedDataManager;
-import by.stub.database.thread.ExternalFilesScanner;
-import by.stub.database.thread.MainYamlScanner;
+import by.stub.database.thread.DataStoreWatcher;
 import by.stub.utils.FileUtils;
+import by.stub.utils.StartupProfiler;
+import by.stub.utils.StringUtils;
 import by.stub.yaml.YamlParser;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import org.eclipse.jetty.server.Server;
@@ -42,29 +44,54 @@ public class StubbyManagerFactory {
 
    public synchronized StubbyManager construct(final String dataYamlFilename, final Map<String, String> commandLineArgs) throws Exception {
 
+      // Profiling stops once the constructed manager has started Jetty, see StubbyManager
+      StartupProfiler.start();
+      final StartupProfiler.Phase constructionPhase = StartupProfiler.begin("stubby manager construction");
+
       Log.setLog(new EmptyLogger());
 
+      final long loadStartedMillis = System.currentTimeMillis();
       final File dataYamlFile = new File(dataYamlFilename);
-      final List<StubHttpLifecycle> httpLifecycles = new YamlParser().parse(dataYamlFile.getParent(), FileUtils.constructReader(dataYamlFile));
+      final StartupProfiler.Phase dataYamlPhase = StartupProfiler.begin("main YAML load");
+      final YamlParser yamlParser = new YamlParser();
+      final List<StubHttpLifecycle> httpLifecycles = yamlParser.parse(dataYamlFile.getParent(), FileUtils.constructReader(dataYamlFile));
+      StartupProfiler.recordLoadedFile(dataYamlFile, dataYamlFile.length(), yamlParser.getParsedYamlNanos());
+      dataYamlPhase.end();
 
       System.out.println();
 
       final StubbedDataManager stubbedDataManager = new StubbedDataManager(dataYamlFile, httpLifecycles);
+      stubbedDataManager.setIncludedYamlPatterns(yamlParser.getIncludedYamlPatterns());
+      if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_GENERATIONS)) {
+         stubbedDataManager.setKeptGenerations(Integer.parseInt(commandLineArgs.get(CommandLineInterpreter.OPTION_GENERATIONS)));
+      }
+      stubbedDataManager.setRecordingLatencies(commandLineArgs.containsKey(CommandLineInterpreter.OPTION_LATENCIES));
+      if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_REQUESTS)) {
+         stubbedDataManager.setRequestJournal(new RequestJournal(Integer.parseInt(commandLineArgs.get(CommandLineInterpreter.OPTION_REQUESTS))));
+      }
+      if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_JOURNAL)) {
+         final StartupProfiler.Phase journalPhase = StartupProfiler.begin("journal recovery");
+         final File journalFile = new File(commandLineArgs.get(CommandLineInterpreter.OPTION_JOURNAL));
+         stubbedDataManager.journalTo(journalFile, commandLineArgs.containsKey(CommandLineInterpreter.OPTION_FSYNC));
+         journalPhase.end();
+      }
+      stubbedDataManager.getStubLoadTimings().recordLoad(System.currentTimeMillis() - loadStartedMillis);
+
       final JettyFactory jettyFactory = new JettyFactory(commandLineArgs, stubbedDataManager);
       final Server server = jettyFactory.construct();
 
       if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_WATCH)) {
-         watchDataStore(stubbedDataManager);
+         watchDataStore(stubbedDataManager, commandLineArgs.get(CommandLineInterpreter.OPTION_DEBOUNCE));
       }
 
+      constructionPhase.end();
+
       return new StubbyManager(server);
    }
 
-   private void watchDataStore(final StubbedDataManager stubbedDataManager) {
-      final MainYamlScanner mainYamlScanner = new MainYamlScanner(stubbedDataManager);
-      new Thread(mainYamlScanner, MainYamlScanner.class.getCanonicalName()).start();
-
-      final ExternalFilesScanner externalFilesScanner = new ExternalFilesScanner(stubbedDataManager);
-      new Thread(externalFilesScanner, ExternalFilesScanner.class.getCanonicalName()).start();
+   private void watchDataStore(final StubbedDataManager stubbedDataManager, final String quietWindowMillis) {
+      final DataStoreWatcher dataStoreWatcher = StringUtils.isSet(quietWindowMillis) ?
+         new DataStoreWatcher(stubbedDataManager, Long.parseLong(quietWindowMillis)) : new DataStoreWatcher(stubbedDataManager);
+      new Thread(dataStoreWatcher, DataStoreWatcher.class.getCanonicalName()).start();
    }
 }
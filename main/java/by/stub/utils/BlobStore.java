@@ -0,0 +1,192 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed store of the bytes loaded from stub 'file' properties. Files are looked up
+ * by path, size and last modified stamp first, and then by a digest of their content, so that
+ * every distinct content is held in memory once and shared by reference between stubs.
+ * <p/>
+ * The shared content is read only: it is wrapped in a {@link Blob}, which never hands out the underlying
+ * array, only copies of it, so no stub can change the content another stub serves.
+ * <p/>
+ * Entries are weakly referenced, the store never keeps content alive once no stub uses it.
+ */
+public final class BlobStore {
+
+   private static final ReferenceQueue<Blob> RELEASED_BLOBS = new ReferenceQueue<Blob>();
+   private static final Map<String, BlobReference> BLOBS_BY_FILE = new HashMap<String, BlobReference>();
+   private static final Map<String, BlobReference> BLOBS_BY_DIGEST = new HashMap<String, BlobReference>();
+
+   private BlobStore() {
+
+   }
+
+   public static Blob fileToBlob(final File file) throws IOException {
+      final String fileKey = String.format("%s:%s:%s", file.getCanonicalPath(), file.length(), file.lastModified());
+
+      final Blob storedByFile = lookup(BLOBS_BY_FILE, fileKey);
+      if (ObjectUtils.isNotNull(storedByFile)) {
+         return storedByFile;
+      }
+
+      // Loading happens outside of the lock, YAMLs may be parsed concurrently
+      final long startedNanos = System.nanoTime();
+      final byte[] loaded = FileUtils.fileToBytes(file);
+      StartupProfiler.recordLoadedFile(file, loaded.length, System.nanoTime() - startedNanos);
+      final String digestKey = digest(loaded);
+
+      synchronized (BlobStore.class) {
+         expungeReleasedBlobs();
+
+         Blob shared = dereference(BLOBS_BY_DIGEST.get(digestKey));
+         if (ObjectUtils.isNull(shared) || !Arrays.equals(shared.content, loaded)) {
+            shared = new Blob(loaded);
+            BLOBS_BY_DIGEST.put(digestKey, new BlobReference(digestKey, shared, BLOBS_BY_DIGEST));
+         }
+         BLOBS_BY_FILE.put(fileKey, new BlobReference(fileKey, shared, BLOBS_BY_FILE));
+
+         return shared;
+      }
+   }
+
+   // Number of contents still referenced by the store, after dropping those no stub uses any more
+   static synchronized int countStoredBlobs() {
+      expungeReleasedBlobs();
+
+      return BLOBS_BY_DIGEST.size();
+   }
+
+   private static synchronized Blob lookup(final Map<String, BlobReference> blobs, final String key) {
+      return dereference(blobs.get(key));
+   }
+
+   private static Blob dereference(final BlobReference reference) {
+      return ObjectUtils.isNull(reference) ? null : reference.get();
+   }
+
+   private static void expungeReleasedBlobs() {
+      BlobReference released;
+      while ((released = (BlobReference) RELEASED_BLOBS.poll()) != null) {
+         if (released.blobs.get(released.key) == released) {
+            released.blobs.remove(released.key);
+         }
+      }
+   }
+
+   private static String digest(final byte[] content) throws IOException {
+      try {
+         final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+         final StringBuilder hex = new StringBuilder(digest.length * 2);
+         for (final byte digestByte : digest) {
+            hex.append(String.format("%02x", digestByte));
+         }
+
+         return String.format("%s:%s", content.length, hex.toString());
+      } catch (final NoSuchAlgorithmException ex) {
+         throw new IOException(ex.toString());
+      }
+   }
+
+   /**
+    * Read only content shared between stubs. Stubs holding the same content hold the same blob
+    */
+   public static final class Blob {
+
+      public static final Blob EMPTY = new Blob(new byte[]{});
+
+      private final byte[] content;
+
+      private Blob(final byte[] content) {
+         this.content = content;
+      }
+
+      /**
+       * Wraps a copy of the given content, which is not stored and so is not shared with anything else
+       */
+      public static Blob copyOf(final byte[] content) {
+         return new Blob(Arrays.copyOf(content, content.length));
+      }
+
+      public int length() {
+         return content.length;
+      }
+
+      public byte[] toByteArray() {
+         return Arrays.copyOf(content, content.length);
+      }
+
+      public byte[] toByteArray(final int from, final int to) {
+         return Arrays.copyOfRange(content, from, to);
+      }
+
+      public String toStringUtf8() {
+         return StringUtils.newStringUtf8(content);
+      }
+
+      public void writeTo(final OutputStream streamOut) throws IOException {
+         streamOut.write(content);
+      }
+
+      public void writeTo(final OutputStream streamOut, final int offset, final int length) throws IOException {
+         streamOut.write(content, offset, length);
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof Blob)) {
+            return false;
+         }
+
+         return Arrays.equals(content, ((Blob) o).content);
+      }
+
+      @Override
+      public int hashCode() {
+         return Arrays.hashCode(content);
+      }
+   }
+
+   private static final class BlobReference extends WeakReference<Blob> {
+
+      private final String key;
+      private final Map<String, BlobReference> blobs;
+
+      private BlobReference(final String key, final Blob blob, final Map<String, BlobReference> blobs) {
+         super(blob, RELEASED_BLOBS);
+         this.key = key;
+         this.blobs = blobs;
+      }
+   }
+}
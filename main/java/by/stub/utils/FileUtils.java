@@ -22,10 +22,13 @@ package by.stub.utils;
 import by.stub.repackaged.org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * @author Alexander Zagniotov
@@ -82,6 +85,23 @@ public final class FileUtils {
       return contentFile;
    }
 
+   /**
+    * @return path of a file resolved with {@link #uriToFile(String, String)} relative to the directory it was resolved
+    * against, or its complete path when it is outside of that directory
+    */
+   public static String fileToUri(final String dataYamlConfigParentDir, final File contentFile) {
+      final String contentPath = contentFile.getPath();
+      if (ObjectUtils.isNull(dataYamlConfigParentDir)) {
+         return contentPath;
+      }
+
+      // Resolves the directory the same way as the file, i.e.: an empty directory stands for the root
+      final String parentPath = new File(dataYamlConfigParentDir, "").getPath();
+      final String parentPrefix = parentPath.endsWith(File.separator) ? parentPath : parentPath + File.separator;
+
+      return contentPath.startsWith(parentPrefix) ? contentPath.substring(parentPrefix.length()) : contentPath;
+   }
+
    public static File uriToFile(final String absolutePath) throws IOException {
       final File contentFile = new File(absolutePath);
 
@@ -170,6 +190,48 @@ public final class FileUtils {
       return new BufferedReader(reader);
    }
 
+   /**
+    * Lists files (not directories) in the given directory whose names match the given wildcard,
+    * where '*' matches any sequence of characters and '?' any single character
+    *
+    * @return matching files, sorted by name
+    */
+   public static List<File> listFilesMatchingWildcard(final File directory, final String wildcard) {
+      final Pattern pattern = wildcardToPattern(wildcard);
+      final File[] matchingFiles = directory.listFiles(new FileFilter() {
+         @Override
+         public boolean accept(final File file) {
+            return file.isFile() && pattern.matcher(file.getName()).matches();
+         }
+      });
+
+      if (ObjectUtils.isNull(matchingFiles)) {
+         return new ArrayList<File>();
+      }
+      Arrays.sort(matchingFiles);
+
+      return new ArrayList<File>(Arrays.asList(matchingFiles));
+   }
+
+   /**
+    * @return pattern matching the file names the given wildcard matches, where '*' matches any sequence of characters
+    * and '?' any single character
+    */
+   public static Pattern wildcardToPattern(final String wildcard) {
+      final StringBuilder regex = new StringBuilder();
+      for (final char character : wildcard.toCharArray()) {
+         if (character == '*') {
+            regex.append(".*");
+         } else if (character == '?') {
+            regex.append('.');
+         } else {
+            regex.append(Pattern.quote(String.valueOf(character)));
+         }
+      }
+
+      return Pattern.compile(regex.toString());
+   }
+
    private static final class StringBuilderWriter extends Writer implements Serializable {
 
       private final StringBuilder builder;
@@ -19,14 +19,20 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package by.stub.utils;
 
+import by.stub.exception.RequestBodyTooLargeException;
 import by.stub.exception.Stubby4JException;
 import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.MimeTypes;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
@@ -38,6 +44,12 @@ import java.util.Set;
 @SuppressWarnings("serial")
 public final class HandlerUtils {
 
+   public static final String APPLICATION_JSON = "application/json";
+   public static final String APPLICATION_JSON_UTF_8 = "application/json;charset=UTF-8";
+
+   // Bodies made of whitespace only are treated as empty, as long as they are not longer than this
+   private static final int BLANK_BODY_PEEK_BYTES = 8192;
+
    private HandlerUtils() {
 
    }
@@ -48,6 +60,22 @@ public final class HandlerUtils {
       response.flushBuffer();
    }
 
+   /**
+    * @return true when the request declares its body to be JSON
+    */
+   public static boolean isJsonRequestBody(final HttpServletRequest request) {
+      final String contentType = request.getContentType();
+      return StringUtils.isSet(contentType) && StringUtils.toLower(contentType).startsWith(APPLICATION_JSON);
+   }
+
+   /**
+    * @return true when the request accepts a JSON response
+    */
+   public static boolean isJsonAccepted(final HttpServletRequest request) {
+      final String accept = request.getHeader(HttpHeaders.ACCEPT);
+      return StringUtils.isSet(accept) && StringUtils.toLower(accept).contains(APPLICATION_JSON);
+   }
+
    public static String getHtmlResourceByName(final String templateSuffix) {
       final String htmlTemplatePath = String.format("/ui/html/%s.html", templateSuffix);
       final InputStream inputStream = HandlerUtils.class.getResourceAsStream(htmlTemplatePath);
@@ -74,6 +102,24 @@ public final class HandlerUtils {
       response.setDateHeader(HttpHeaders.EXPIRES, 0);
    }
 
+   /**
+    * Answers the request with 405 and the methods that are allowed, unless the request method is one of them
+    *
+    * @return true when the request was answered because its method is not allowed
+    */
+   public static boolean rejectUnlessMethodAllowed(final HttpServletRequest request, final HttpServletResponse response, final String... allowedMethods) throws IOException {
+      if (Arrays.asList(allowedMethods).contains(request.getMethod())) {
+         return false;
+      }
+
+      response.setStatus(HttpStatus.METHOD_NOT_ALLOWED_405);
+      response.setContentType(MimeTypes.TEXT_PLAIN_UTF_8);
+      response.setHeader(HttpHeaders.ALLOW, StringUtils.removeSquareBrackets(Arrays.asList(allowedMethods).toString()));
+      response.getWriter().println(String.format("Method %s is not allowed on URI %s", request.getMethod(), request.getRequestURI()));
+
+      return true;
+   }
+
    public static String linkifyRequestUrl(final String scheme, final Object uri, final String host, final int port) {
       final String fullUrl = String.format("%s://%s:%s%s", scheme, host, port, uri);
       final String href = StringUtils.encodeSingleQuotes(fullUrl);
@@ -86,6 +132,30 @@ public final class HandlerUtils {
       return builder.toString();
    }
 
+   /**
+    * @return value of the named request parameter, or the given default when it is not set
+    * @throws NumberFormatException when the parameter is not a number, or is negative
+    */
+   public static int parseNonNegativeParameter(final HttpServletRequest request, final String name, final int defaultValue) {
+      final String value = request.getParameter(name);
+      if (!StringUtils.isSet(value)) {
+         return defaultValue;
+      }
+
+      final int parsed;
+      try {
+         parsed = Integer.parseInt(value.trim());
+      } catch (final NumberFormatException ex) {
+         throw new NumberFormatException(String.format("Parameter '%s' must be a number, was: %s", name, value));
+      }
+
+      if (parsed < 0) {
+         throw new NumberFormatException(String.format("Parameter '%s' must not be negative, was: %s", name, value));
+      }
+
+      return parsed;
+   }
+
    public static String extractPostRequestBody(final HttpServletRequest request, final String source) throws IOException {
       final Set<String> httpMethodsContainingBody = new HashSet<String>() {{
          add("post");
@@ -104,4 +174,45 @@ public final class HandlerUtils {
          return null;
       }
    }
-}
\ No newline at end of file
+
+   /**
+    * Constructs a UTF-8 reader that consumes the request body as it is read, so that the body is never held in memory
+    * as a whole. Reading fails with {@link RequestBodyTooLargeException} once more than the given number of bytes was read
+    *
+    * @return reader of the request body, or null when the body is empty or blank
+    */
+   public static Reader constructRequestBodyReader(final HttpServletRequest request, final long maxBytes) throws IOException {
+      if (request.getContentLength() > maxBytes) {
+         throw new RequestBodyTooLargeException(maxBytes);
+      }
+
+      final BufferedInputStream bodyStream = new BufferedInputStream(new LimitedInputStream(request.getInputStream(), maxBytes), BLANK_BODY_PEEK_BYTES);
+      bodyStream.mark(BLANK_BODY_PEEK_BYTES);
+      for (int peeked = 0; peeked < BLANK_BODY_PEEK_BYTES; peeked++) {
+         final int read = bodyStream.read();
+         if (read == -1) {
+            return null;
+         }
+
+         if (!Character.isWhitespace(read)) {
+            break;
+         }
+      }
+      bodyStream.reset();
+
+      return new InputStreamReader(bodyStream, StringUtils.charsetUTF8());
+   }
+
+   /**
+    * @return true when the given exception, or any of its causes (i.e.: a parser wrapping I/O errors), is a {@link RequestBodyTooLargeException}
+    */
+   public static boolean isCausedByTooLargeRequestBody(final Throwable throwable) {
+      for (Throwable cause = throwable; ObjectUtils.isNotNull(cause); cause = cause.getCause()) {
+         if (cause instanceof RequestBodyTooLargeException) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+}
@@ -0,0 +1,115 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts recorded durations into a fixed number of buckets whose bounds double from one to the next, so that memory
+ * does not grow with the number of recordings. Bucket 0 counts durations under a microsecond, bucket N those from
+ * 2^(N-1) up to 2^N microseconds, and the last bucket everything longer.
+ * <p/>
+ * Recording takes no lock, only a few atomic increments. A reset racing with recordings may leave the count, the total
+ * and the buckets briefly out of step with each other
+ */
+public final class LatencyHistogram {
+
+   public static final int BUCKET_COUNT = 32;
+
+   private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+   private final AtomicLong count = new AtomicLong();
+   private final AtomicLong totalNanos = new AtomicLong();
+   private final AtomicLong maxNanos = new AtomicLong();
+
+   public void record(final long elapsedNanos) {
+      final long nanos = Math.max(0, elapsedNanos);
+      final long micros = nanos / 1000;
+      buckets.incrementAndGet(Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(micros)));
+      count.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+
+      long currentMax = maxNanos.get();
+      while (nanos > currentMax && !maxNanos.compareAndSet(currentMax, nanos)) {
+         currentMax = maxNanos.get();
+      }
+   }
+
+   public void reset() {
+      for (int index = 0; index < BUCKET_COUNT; index++) {
+         buckets.set(index, 0);
+      }
+      count.set(0);
+      totalNanos.set(0);
+      maxNanos.set(0);
+   }
+
+   public long getCount() {
+      return count.get();
+   }
+
+   public long getTotalNanos() {
+      return totalNanos.get();
+   }
+
+   public long getMaxNanos() {
+      return maxNanos.get();
+   }
+
+   public long getBucketCount(final int bucket) {
+      return buckets.get(bucket);
+   }
+
+   /**
+    * @return exclusive upper bound of the given bucket in microseconds, Long.MAX_VALUE for the last bucket
+    */
+   public static long getBucketUpperBoundMicros(final int bucket) {
+      return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+   }
+
+   /**
+    * @param percentile between 0 and 100
+    * @return upper bound, in microseconds, of the bucket holding the given percentile of the recorded durations, capped
+    * at the longest duration recorded, or zero when nothing was recorded
+    */
+   public long getPercentileMicros(final double percentile) {
+      long total = 0;
+      final long[] snapshot = new long[BUCKET_COUNT];
+      for (int index = 0; index < BUCKET_COUNT; index++) {
+         snapshot[index] = buckets.get(index);
+         total += snapshot[index];
+      }
+      if (total == 0) {
+         return 0;
+      }
+
+      final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      final long maxMicros = maxNanos.get() / 1000;
+      long seen = 0;
+      for (int index = 0; index < BUCKET_COUNT; index++) {
+         seen += snapshot[index];
+         if (seen >= rank) {
+            return Math.min(getBucketUpperBoundMicros(index), maxMicros);
+         }
+      }
+
+      return maxMicros;
+   }
+}
@@ -0,0 +1,76 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package by.stub.utils;
+
+import by.stub.exception.RequestBodyTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails reading once more than the given number of bytes were read from the underlying stream
+ */
+public final class LimitedInputStream extends FilterInputStream {
+
+   private final long maxBytes;
+   private long readBytes;
+
+   public LimitedInputStream(final InputStream inputStream, final long maxBytes) {
+      super(inputStream);
+      this.maxBytes = maxBytes;
+   }
+
+   @Override
+   public int read() throws IOException {
+      final int read = super.read();
+      if (read != -1) {
+         count(1);
+      }
+      return read;
+   }
+
+   @Override
+   public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+      final int read = super.read(buffer, offset, length);
+      if (read > 0) {
+         count(read);
+      }
+      return read;
+   }
+
+   @Override
+   public long skip(final long length) throws IOException {
+      final long skipped = super.skip(length);
+      count(skipped);
+      return skipped;
+   }
+
+   @Override
+   public boolean markSupported() {
+      return false;
+   }
+
+   private void count(final long bytes) throws RequestBodyTooLargeException {
+      readBytes += bytes;
+      if (readBytes > maxBytes) {
+         throw new RequestBodyTooLargeException(maxBytes);
+      }
+   }
+}
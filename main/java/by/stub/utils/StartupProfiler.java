@@ -0,0 +1,222 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.utils;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Records wall-clock time and allocated bytes of the startup phases, along with the stubs parsed
+ * and the files loaded during startup. Recording starts with {@link #start()} and stops with
+ * {@link #finish()}, outside of that window every call is a no-op, so reloads are not profiled.
+ * <p/>
+ * Allocated bytes are measured on the thread that runs a phase, where the JVM supports it
+ */
+public final class StartupProfiler {
+
+   private static final int SLOWEST_FILES_LIMIT = 5;
+   private static final ThreadLocal<Integer> PHASE_DEPTH = new ThreadLocal<Integer>() {
+      @Override
+      protected Integer initialValue() {
+         return 0;
+      }
+   };
+
+   private static final List<Phase> PHASES = new LinkedList<Phase>();
+   private static final List<LoadedFile> LOADED_FILES = new LinkedList<LoadedFile>();
+   private static volatile boolean recording = false;
+   private static boolean recorded = false;
+   private static int parsedStubs;
+   private static long parsedStubsNanos;
+
+   private StartupProfiler() {
+
+   }
+
+   /**
+    * Starts recording, discarding what an earlier startup recorded
+    */
+   public static synchronized void start() {
+      PHASES.clear();
+      LOADED_FILES.clear();
+      parsedStubs = 0;
+      parsedStubsNanos = 0;
+      recorded = true;
+      recording = true;
+   }
+
+   public static synchronized void finish() {
+      recording = false;
+   }
+
+   public static Phase begin(final String name) {
+      if (!recording) {
+         return Phase.NOOP;
+      }
+
+      final int depth = PHASE_DEPTH.get();
+      PHASE_DEPTH.set(depth + 1);
+
+      final Phase phase = new Phase(name, depth);
+      synchronized (StartupProfiler.class) {
+         PHASES.add(phase);
+      }
+
+      return phase;
+   }
+
+   public static void recordLoadedFile(final File file, final long bytes, final long nanos) {
+      if (!recording) {
+         return;
+      }
+
+      synchronized (StartupProfiler.class) {
+         LOADED_FILES.add(new LoadedFile(file.getAbsolutePath(), bytes, nanos));
+      }
+   }
+
+   public static void recordParsedStubs(final int stubs, final long nanos) {
+      if (!recording) {
+         return;
+      }
+
+      synchronized (StartupProfiler.class) {
+         parsedStubs += stubs;
+         parsedStubsNanos += nanos;
+      }
+   }
+
+   public static synchronized String report() {
+      if (!recorded) {
+         return "Startup was not profiled";
+      }
+
+      final StringBuilder builder = new StringBuilder();
+      builder.append(String.format("Startup report%s", recording ? " (startup in progress)" : "")).append(FileUtils.LINE_SEPARATOR_UNIX);
+      builder.append(String.format("%-44s %12s %16s", "phase", "wall ms", "allocated KB")).append(FileUtils.LINE_SEPARATOR_UNIX);
+      for (final Phase phase : PHASES) {
+         final String indentedName = String.format("%" + (phase.depth * 3 + 1) + "s%s", "", phase.name);
+         builder.append(String.format("%-44s %12s %16s", indentedName, toMillis(phase.elapsedNanos), toKilobytes(phase.allocatedBytes)));
+         builder.append(FileUtils.LINE_SEPARATOR_UNIX);
+      }
+
+      final long stubsPerSecond = parsedStubsNanos == 0 ? 0 : (parsedStubs * 1000000000L) / parsedStubsNanos;
+      builder.append(String.format("stubs parsed: %s in %s ms (%s stubs/sec)", parsedStubs, toMillis(parsedStubsNanos), stubsPerSecond));
+      builder.append(FileUtils.LINE_SEPARATOR_UNIX);
+
+      long loadedBytes = 0;
+      for (final LoadedFile loadedFile : LOADED_FILES) {
+         loadedBytes += loadedFile.bytes;
+      }
+      builder.append(String.format("bytes loaded: %s from %s files", loadedBytes, LOADED_FILES.size()));
+      builder.append(FileUtils.LINE_SEPARATOR_UNIX);
+
+      final List<LoadedFile> slowestFiles = new ArrayList<LoadedFile>(LOADED_FILES);
+      Collections.sort(slowestFiles, new Comparator<LoadedFile>() {
+         @Override
+         public int compare(final LoadedFile one, final LoadedFile other) {
+            return one.nanos == other.nanos ? 0 : (one.nanos > other.nanos ? -1 : 1);
+         }
+      });
+      builder.append("slowest files:").append(FileUtils.LINE_SEPARATOR_UNIX);
+      for (final LoadedFile loadedFile : slowestFiles.subList(0, Math.min(SLOWEST_FILES_LIMIT, slowestFiles.size()))) {
+         builder.append(String.format("%12s ms %12s bytes   %s", toMillis(loadedFile.nanos), loadedFile.bytes, loadedFile.path));
+         builder.append(FileUtils.LINE_SEPARATOR_UNIX);
+      }
+
+      return builder.toString();
+   }
+
+   private static String toMillis(final long nanos) {
+      return String.format("%.1f", nanos / 1000000.0);
+   }
+
+   private static String toKilobytes(final long bytes) {
+      return bytes < 0 ? "n/a" : String.valueOf(bytes / 1024);
+   }
+
+   private static long currentThreadAllocatedBytes() {
+      try {
+         final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+         if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+         }
+      } catch (final Throwable ex) {
+         // Allocation measurement is not available on this JVM
+      }
+
+      return -1;
+   }
+
+   public static final class Phase {
+
+      private static final Phase NOOP = new Phase(null, 0);
+
+      private final String name;
+      private final int depth;
+      private final long startedNanos;
+      private final long startedAllocatedBytes;
+      private long elapsedNanos;
+      private long allocatedBytes = -1;
+
+      private Phase(final String name, final int depth) {
+         this.name = name;
+         this.depth = depth;
+         this.startedNanos = System.nanoTime();
+         this.startedAllocatedBytes = ObjectUtils.isNull(name) ? -1 : currentThreadAllocatedBytes();
+      }
+
+      public long getElapsedNanos() {
+         return System.nanoTime() - startedNanos;
+      }
+
+      public void end() {
+         if (this == NOOP) {
+            return;
+         }
+
+         final long endedAllocatedBytes = currentThreadAllocatedBytes();
+         synchronized (StartupProfiler.class) {
+            elapsedNanos = System.nanoTime() - startedNanos;
+            allocatedBytes = (startedAllocatedBytes < 0 || endedAllocatedBytes < 0) ? -1 : endedAllocatedBytes - startedAllocatedBytes;
+         }
+         PHASE_DEPTH.set(Math.max(0, PHASE_DEPTH.get() - 1));
+      }
+   }
+
+   private static final class LoadedFile {
+
+      private final String path;
+      private final long bytes;
+      private final long nanos;
+
+      private LoadedFile(final String path, final long bytes, final long nanos) {
+         this.path = path;
+         this.bytes = bytes;
+         this.nanos = nanos;
+      }
+   }
+}
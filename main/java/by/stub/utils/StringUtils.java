@@ -36,6 +36,7 @@ import java.util.Scanner;
 public final class StringUtils {
 
    public static final String NOT_PROVIDED = "Not provided";
+   public static final String PROVIDED = "Provided";
 
    private StringUtils() {
 
@@ -137,6 +138,10 @@ public final class StringUtils {
       return Base64.encodeBase64String(StringUtils.getBytesUtf8(toEncode));
    }
 
+   public static String decodeBase64(final String toDecode) {
+      return newStringUtf8(Base64.decodeBase64(toDecode));
+   }
+
    public static String objectToString(final Object value) throws IOException {
       final String valueAsStr = (ObjectUtils.isNotNull(value) ? value.toString().trim() : "");
 
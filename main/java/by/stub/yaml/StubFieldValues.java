@@ -0,0 +1,22 @@
+package by.stub.yaml;
+
+import by.stub.utils.ObjectUtils;
+
+/**
+ * Type checks values stored into stub builders, failing the same way field injection used to
+ */
+final class StubFieldValues {
+
+   private StubFieldValues() {
+
+   }
+
+   static <T> T cast(final Class<?> builderClass, final String fieldName, final Class<T> fieldType, final Object fieldValue) {
+      if (ObjectUtils.isNull(fieldValue) || fieldType.isInstance(fieldValue)) {
+         return fieldType.cast(fieldValue);
+      }
+
+      throw new IllegalArgumentException(String.format("Can not set %s field %s.%s to %s",
+         fieldType.getName(), builderClass.getName(), fieldName, fieldValue.getClass().getName()));
+   }
+}
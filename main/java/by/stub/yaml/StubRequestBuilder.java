@@ -1,6 +1,5 @@
 package by.stub.yaml;
 
-import by.stub.utils.ReflectionUtils;
 import by.stub.yaml.stubs.StubRequest;
 
 import java.io.File;
@@ -14,9 +13,9 @@ import java.util.Map;
  * @author Alexander Zagniotov
  * @since 4/14/13, 4:54 PM
  */
+@SuppressWarnings("unchecked")
 final class StubRequestBuilder implements StubBuilder<StubRequest> {
 
-   private final Map<String, Object> fieldNameAndValues;
    private String url;
    private List<String> method;
    private String post;
@@ -31,17 +30,29 @@ final class StubRequestBuilder implements StubBuilder<StubRequest> {
       this.file = null;
       this.headers = new HashMap<String, String>();
       this.query = new LinkedHashMap<String, String>();
-      this.fieldNameAndValues = new HashMap<String, Object>();
    }
 
    @Override
    public void store(final String fieldName, final Object fieldValue) {
-      fieldNameAndValues.put(fieldName.toLowerCase(), fieldValue);
+      final String loweredFieldName = fieldName.toLowerCase();
+
+      if (loweredFieldName.equals("url")) {
+         this.url = StubFieldValues.cast(StubRequestBuilder.class, "url", String.class, fieldValue);
+      } else if (loweredFieldName.equals("method")) {
+         this.method = StubFieldValues.cast(StubRequestBuilder.class, "method", List.class, fieldValue);
+      } else if (loweredFieldName.equals("post")) {
+         this.post = StubFieldValues.cast(StubRequestBuilder.class, "post", String.class, fieldValue);
+      } else if (loweredFieldName.equals("headers")) {
+         this.headers = StubFieldValues.cast(StubRequestBuilder.class, "headers", Map.class, fieldValue);
+      } else if (loweredFieldName.equals("query")) {
+         this.query = StubFieldValues.cast(StubRequestBuilder.class, "query", Map.class, fieldValue);
+      } else if (loweredFieldName.equals("file")) {
+         this.file = StubFieldValues.cast(StubRequestBuilder.class, "file", File.class, fieldValue);
+      }
    }
 
    @Override
    public StubRequest build() throws Exception {
-      ReflectionUtils.injectObjectFields(this, fieldNameAndValues);
       return new StubRequest(url, post, file, method, headers, query);
    }
 }
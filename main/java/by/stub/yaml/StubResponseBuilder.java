@@ -1,6 +1,5 @@
 package by.stub.yaml;
 
-import by.stub.utils.ReflectionUtils;
 import by.stub.yaml.stubs.StubResponse;
 
 import java.io.File;
@@ -11,9 +10,9 @@ import java.util.Map;
  * @author Alexander Zagniotov
  * @since 4/14/13, 4:54 PM
  */
+@SuppressWarnings("unchecked")
 final class StubResponseBuilder implements StubBuilder<StubResponse> {
 
-   private final Map<String, Object> fieldNameAndValues;
    private String status;
    private String body;
    private File file;
@@ -26,17 +25,27 @@ final class StubResponseBuilder implements StubBuilder<StubResponse> {
       this.file = null;
       this.latency = null;
       this.headers = new HashMap<String, String>();
-      this.fieldNameAndValues = new HashMap<String, Object>();
    }
 
    @Override
    public void store(final String fieldName, final Object fieldValue) {
-      fieldNameAndValues.put(fieldName.toLowerCase(), fieldValue);
+      final String loweredFieldName = fieldName.toLowerCase();
+
+      if (loweredFieldName.equals("status")) {
+         this.status = StubFieldValues.cast(StubResponseBuilder.class, "status", String.class, fieldValue);
+      } else if (loweredFieldName.equals("body")) {
+         this.body = StubFieldValues.cast(StubResponseBuilder.class, "body", String.class, fieldValue);
+      } else if (loweredFieldName.equals("file")) {
+         this.file = StubFieldValues.cast(StubResponseBuilder.class, "file", File.class, fieldValue);
+      } else if (loweredFieldName.equals("latency")) {
+         this.latency = StubFieldValues.cast(StubResponseBuilder.class, "latency", String.class, fieldValue);
+      } else if (loweredFieldName.equals("headers")) {
+         this.headers = StubFieldValues.cast(StubResponseBuilder.class, "headers", Map.class, fieldValue);
+      }
    }
 
    @Override
-   public StubResponse build()  throws Exception {
-      ReflectionUtils.injectObjectFields(this, fieldNameAndValues);
+   public StubResponse build() throws Exception {
       return new StubResponse(status, body, file, latency, headers);
    }
 }
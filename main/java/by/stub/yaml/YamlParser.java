@@ -20,9 +20,13 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 package by.stub.yaml;
 
 import by.stub.cli.ANSITerminal;
+import by.stub.json.JsonReader;
 import by.stub.utils.ConsoleUtils;
 import by.stub.utils.FileUtils;
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StartupProfiler;
 import by.stub.utils.StringUtils;
+import by.stub.yaml.stubs.StubBatchOperation;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
@@ -32,12 +36,29 @@ import org.yaml.snakeyaml.constructor.Constructor;
 import org.yaml.snakeyaml.representer.Representer;
 import org.yaml.snakeyaml.resolver.Resolver;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @SuppressWarnings("unchecked")
 public final class YamlParser {
@@ -45,53 +66,421 @@ public final class YamlParser {
    public static final String FAILED_TO_LOAD_FILE_ERR = "Failed to load response content using relative path specified in 'file'. Check that response content exists in relative path specified in 'file'";
    public static final String OAUTH_HEADER_PREFIX = "OAuth";
    public static final String OAUTH_BEARER_TOKEN_HEADER_PREFIX = "Bearer";
-   private final static Yaml SNAKE_YAML;
+   private static final String BASIC_HEADER_PREFIX = "Basic ";
+   // SnakeYAML instances are not thread-safe, while included YAMLs are parsed concurrently
+   private static final ThreadLocal<Yaml> SNAKE_YAML = new ThreadLocal<Yaml>() {
+      @Override
+      protected Yaml initialValue() {
 
-   static {
+         final class YamlParserResolver extends Resolver {
 
-      final class YamlParserResolver extends Resolver {
+            YamlParserResolver() {
+               super();
+            }
 
-         YamlParserResolver() {
-            super();
+            @Override
+            protected void addImplicitResolvers() {
+               // no implicit resolvers - resolve everything to String
+            }
          }
 
-         @Override
-         protected void addImplicitResolvers() {
-            // no implicit resolvers - resolve everything to String
+         return new Yaml(new Constructor(), new Representer(), new DumperOptions(), new YamlParserResolver());
+      }
+   };
+
+   // Digests of loaded YAML nodes, computed concurrently as included YAMLs are parsed
+   private static final ThreadLocal<MessageDigest> YAML_NODE_DIGEST = new ThreadLocal<MessageDigest>() {
+      @Override
+      protected MessageDigest initialValue() {
+         try {
+            return MessageDigest.getInstance("SHA-1");
+         } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
          }
       }
-
-      SNAKE_YAML = new Yaml(new Constructor(), new Representer(), new DumperOptions(), new YamlParserResolver());
-   }
+   };
 
    private static final String YAML_NODE_REQUEST = "request";
+   private static final String YAML_NODE_RESPONSE = "response";
    private static final String YAML_NODE_METHOD = "method";
+   private static final String YAML_NODE_URL = "url";
+   private static final String YAML_NODE_QUERY = "query";
+   private static final String YAML_NODE_HEADERS = "headers";
+   private static final String YAML_NODE_POST = "post";
+   private static final String YAML_NODE_STATUS = "status";
+   private static final String YAML_NODE_BODY = "body";
+   private static final String YAML_NODE_LATENCY = "latency";
    private static final String YAML_NODE_FILE = "file";
+   private static final String YAML_NODE_INCLUDE = "include";
+   private static final String YAML_NODE_BATCH_ADD = "add";
+   private static final String YAML_NODE_BATCH_UPDATE = "update";
+   private static final String YAML_NODE_BATCH_DELETE = "delete";
    private String dataConfigHomeDirectory;
+   private long parsedYamlNanos;
+   private List<File> includedYamlPatterns = Collections.emptyList();
 
    public List<StubHttpLifecycle> parse(final String dataConfigHomeDirectory, final Reader yamlReader) throws Exception {
+      return parse(dataConfigHomeDirectory, yamlReader, new LinkedList<StubHttpLifecycle>());
+   }
+
+   /**
+    * Parses the given YAML, reusing every currently loaded lifecycle whose YAML node is unchanged.
+    * Nodes are compared by a digest of their content, so only new or modified stubs are
+    * constructed, while unchanged ones keep their loaded file content and response sequence state.
+    * <p/>
+    * The YAML may also contain '- include: path' entries, where path (relative to the YAML home directory)
+    * is a YAML file, a directory of YAML files or a wildcard pattern, e.g.: 'stubs/*.yaml'. Included YAMLs
+    * that have not changed since they were loaded are reused as a whole, the rest are parsed concurrently
+    *
+    * @param dataConfigHomeDirectory directory that relative 'file' and 'include' paths are resolved against
+    * @param yamlReader              YAML to parse
+    * @param currentHttpLifecycles   lifecycles that are currently loaded and can be reused
+    * @return list of lifecycles in the order they appear in the YAML
+    */
+   public List<StubHttpLifecycle> parse(final String dataConfigHomeDirectory, final Reader yamlReader, final List<StubHttpLifecycle> currentHttpLifecycles) throws Exception {
+
+      final StartupProfiler.Phase parsePhase = StartupProfiler.begin("YAML parse");
+      try {
+         final List<StubHttpLifecycle> httpLifecycles = parseYaml(dataConfigHomeDirectory, yamlReader, currentHttpLifecycles);
+         StartupProfiler.recordParsedStubs(httpLifecycles.size(), parsePhase.getElapsedNanos());
+
+         return httpLifecycles;
+      } finally {
+         parsePhase.end();
+      }
+   }
 
-      final Object loadedYaml = SNAKE_YAML.load(yamlReader);
+   private List<StubHttpLifecycle> parseYaml(final String dataConfigHomeDirectory, final Reader yamlReader, final List<StubHttpLifecycle> currentHttpLifecycles) throws Exception {
+
+      final long startedNanos = System.nanoTime();
+      final Object loadedYaml = SNAKE_YAML.get().load(yamlReader);
+      long parsedNanos = System.nanoTime() - startedNanos;
       if (!(loadedYaml instanceof List)) {
          throw new IOException("Loaded YAML root node must be an instance of ArrayList, otherwise something went wrong. Check provided YAML");
       }
 
       this.dataConfigHomeDirectory = dataConfigHomeDirectory;
       final List<?> loadedYamlData = (List) loadedYaml;
+      final Map<String, LinkedList<StubHttpLifecycle>> reusableHttpLifecycles = indexByYamlNodeDigest(currentHttpLifecycles);
+      final Map<String, List<StubHttpLifecycle>> reusableIncludedHttpLifecycles = indexByUnchangedIncludedYaml(currentHttpLifecycles);
+      final Map<Object, List<File>> includedYamls = new IdentityHashMap<Object, List<File>>();
+      final Map<String, Future<List<StubHttpLifecycle>>> includedYamlParses = new HashMap<String, Future<List<StubHttpLifecycle>>>();
+
+      // A YAML matched by several includes (i.e.: a directory wildcard and an explicit path) is included once, where first matched
+      final Set<String> includedYamlPaths = new HashSet<String>();
+      final List<File> includePatterns = new LinkedList<File>();
+      for (final Object rawParentNode : loadedYamlData) {
+         if (isIncludeNode(rawParentNode)) {
+            final File includedYamlPattern = toIncludedYamlPattern((Map<String, Object>) rawParentNode);
+            includePatterns.add(includedYamlPattern);
+            final List<File> includedYamlFiles = new LinkedList<File>();
+            for (final File includedYamlFile : listIncludedYamls(includedYamlPattern)) {
+               final String includedYamlPath = includedYamlFile.getAbsolutePath();
+               if (!includedYamlPaths.add(includedYamlPath)) {
+                  continue;
+               }
+               includedYamlFiles.add(includedYamlFile);
+               if (!reusableIncludedHttpLifecycles.containsKey(includedYamlPath)) {
+                  includedYamlParses.put(includedYamlPath, null);
+               }
+            }
+            includedYamls.put(rawParentNode, includedYamlFiles);
+         }
+      }
+      this.includedYamlPatterns = includePatterns;
 
+      final ExecutorService executorService = submitIncludedYamlParses(includedYamlParses);
+      try {
+         final List<StubHttpLifecycle> httpLifecycles = new LinkedList<StubHttpLifecycle>();
+         for (final Object rawParentNode : loadedYamlData) {
+
+            if (includedYamls.containsKey(rawParentNode)) {
+               for (final File includedYamlFile : includedYamls.get(rawParentNode)) {
+                  final String includedYamlPath = includedYamlFile.getAbsolutePath();
+                  if (reusableIncludedHttpLifecycles.containsKey(includedYamlPath)) {
+                     httpLifecycles.addAll(reusableIncludedHttpLifecycles.get(includedYamlPath));
+                  } else {
+                     httpLifecycles.addAll(awaitIncludedYamlParse(includedYamlParses.get(includedYamlPath)));
+                  }
+               }
+               continue;
+            }
+
+            final long nodeStartedNanos = System.nanoTime();
+            final Map<String, Object> parentNodePropertiesMap = (Map<String, Object>) rawParentNode;
+            final String yamlNodeDigest = digestYamlNode(parentNodePropertiesMap);
+            final LinkedList<StubHttpLifecycle> reusables = reusableHttpLifecycles.get(yamlNodeDigest);
+            final StubHttpLifecycle stubHttpLifecycle = (ObjectUtils.isNull(reusables) || reusables.isEmpty()) ?
+               unmarshallYamlNodeToHttpLifeCycle(parentNodePropertiesMap, yamlNodeDigest) : reusables.removeFirst();
+
+            httpLifecycles.add(stubHttpLifecycle);
+            parsedNanos += System.nanoTime() - nodeStartedNanos;
+         }
+         this.parsedYamlNanos = parsedNanos;
+
+         // Reused stubs are published, so those that moved are copied rather than given another resource ID
+         for (final ListIterator<StubHttpLifecycle> iterator = httpLifecycles.listIterator(); iterator.hasNext(); ) {
+            final int resourceId = iterator.nextIndex();
+            iterator.set(iterator.next().withResourceId(resourceId));
+         }
+
+         return httpLifecycles;
+      } finally {
+         if (ObjectUtils.isNotNull(executorService)) {
+            executorService.shutdownNow();
+         }
+      }
+   }
+
+   /**
+    * @return what the includes of the last parsed YAML match: the included YAML files, and wildcards of the names
+    * included from directories, i.e.: 'stubs/*.yaml'. YAMLs created later that match them are included on the next parse
+    */
+   public List<File> getIncludedYamlPatterns() {
+      return includedYamlPatterns;
+   }
+
+   /**
+    * @return time the last YAML parse spent loading the YAML and constructing its own stubs, not counting included YAMLs
+    */
+   public long getParsedYamlNanos() {
+      return parsedYamlNanos;
+   }
+
+   /**
+    * Parses a JSON array of stubs, whose elements have the same structure as stubs in YAML. Each stub is constructed
+    * as soon as it has been read, so the document is never loaded as a whole. Includes are not supported in JSON
+    *
+    * @param dataConfigHomeDirectory directory that relative 'file' paths are resolved against
+    * @param jsonReader              JSON to parse
+    * @return list of lifecycles in the order they appear in the JSON
+    */
+   public List<StubHttpLifecycle> parseJson(final String dataConfigHomeDirectory, final Reader jsonReader) throws Exception {
+
+      this.dataConfigHomeDirectory = dataConfigHomeDirectory;
       final List<StubHttpLifecycle> httpLifecycles = new LinkedList<StubHttpLifecycle>();
-      for (final Object rawParentNode : loadedYamlData) {
+      final JsonReader reader = new JsonReader(jsonReader);
+
+      reader.beginArray();
+      while (reader.hasNext()) {
+         final Object rawParentNode = reader.nextValue();
+         if (!(rawParentNode instanceof Map)) {
+            throw new IOException(String.format("Stub must be a JSON object, found: %s", rawParentNode));
+         }
+         if (isIncludeNode(rawParentNode)) {
+            throw new IOException(String.format("Includes are not supported in JSON, found: %s", rawParentNode));
+         }
 
-         final Map<String, Object> parentNodePropertiesMap = (Map<String, Object>) rawParentNode;
-         final StubHttpLifecycle stubHttpLifecycle = unmarshallYamlNodeToHttpLifeCycle(parentNodePropertiesMap);
+         final StubHttpLifecycle stubHttpLifecycle = unmarshallYamlNodeToHttpLifeCycle((Map<String, Object>) rawParentNode);
+         stubHttpLifecycle.setResourceId(httpLifecycles.size());
          httpLifecycles.add(stubHttpLifecycle);
-         stubHttpLifecycle.setResourceId(httpLifecycles.size() - 1);
       }
+      reader.endArray();
 
       return httpLifecycles;
    }
 
+   /**
+    * Constructs a stub from a single node that has the structure of a stub in YAML, ie.: as recorded by the stub journal
+    *
+    * @param dataConfigHomeDirectory directory that relative 'file' paths are resolved against
+    * @param stubNode                node to construct the stub from
+    */
+   public StubHttpLifecycle parseStubNode(final String dataConfigHomeDirectory, final Map<String, Object> stubNode) throws Exception {
+      this.dataConfigHomeDirectory = dataConfigHomeDirectory;
+
+      return unmarshallYamlNodeToHttpLifeCycle(stubNode);
+   }
+
+   /**
+    * Parses a YAML list of batch operations. Each entry is a stub node that is additionally keyed by its operation:
+    * '- add:' followed by the stub to add, '- update: id' followed by the stub replacing the one with the given
+    * resource ID, or '- delete: id' on its own
+    *
+    * @param dataConfigHomeDirectory directory that relative 'file' paths are resolved against
+    * @param yamlReader              YAML to parse
+    * @return list of operations in the order they appear in the YAML
+    */
+   public List<StubBatchOperation> parseBatch(final String dataConfigHomeDirectory, final Reader yamlReader) throws Exception {
+
+      final Object loadedYaml = SNAKE_YAML.get().load(yamlReader);
+      if (!(loadedYaml instanceof List)) {
+         throw new IOException("Loaded YAML root node must be an instance of ArrayList, otherwise something went wrong. Check provided YAML");
+      }
+
+      this.dataConfigHomeDirectory = dataConfigHomeDirectory;
+      final List<StubBatchOperation> operations = new LinkedList<StubBatchOperation>();
+      for (final Object rawParentNode : (List) loadedYaml) {
+         if (!(rawParentNode instanceof Map)) {
+            throw new IOException(String.format("Batch operation must be a YAML mapping, found: %s", rawParentNode));
+         }
+
+         final Map<String, Object> stubNode = new LinkedHashMap<String, Object>((Map<String, Object>) rawParentNode);
+         if (stubNode.containsKey(YAML_NODE_BATCH_ADD)) {
+            stubNode.remove(YAML_NODE_BATCH_ADD);
+            operations.add(StubBatchOperation.newAddOperation(unmarshallYamlNodeToHttpLifeCycle(stubNode)));
+
+         } else if (stubNode.containsKey(YAML_NODE_BATCH_UPDATE)) {
+            final int resourceId = parseResourceId(stubNode.remove(YAML_NODE_BATCH_UPDATE));
+            operations.add(StubBatchOperation.newUpdateOperation(resourceId, unmarshallYamlNodeToHttpLifeCycle(stubNode)));
+
+         } else if (stubNode.containsKey(YAML_NODE_BATCH_DELETE)) {
+            operations.add(StubBatchOperation.newDeleteOperation(parseResourceId(stubNode.get(YAML_NODE_BATCH_DELETE))));
+
+         } else {
+            throw new IOException(String.format("Batch operation must be one of '%s', '%s' or '%s', found: %s",
+               YAML_NODE_BATCH_ADD, YAML_NODE_BATCH_UPDATE, YAML_NODE_BATCH_DELETE, stubNode.keySet()));
+         }
+      }
+
+      return operations;
+   }
+
+   private int parseResourceId(final Object rawResourceId) throws IOException {
+      try {
+         return Integer.parseInt(String.valueOf(rawResourceId).trim());
+      } catch (final NumberFormatException ex) {
+         throw new IOException(String.format("Batch operation resource ID must be a number, found: %s", rawResourceId));
+      }
+   }
+
+   private ExecutorService submitIncludedYamlParses(final Map<String, Future<List<StubHttpLifecycle>>> includedYamlParses) {
+      if (includedYamlParses.isEmpty()) {
+         return null;
+      }
+
+      final int threads = Math.min(includedYamlParses.size(), Runtime.getRuntime().availableProcessors());
+      final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+      for (final String includedYamlPath : includedYamlParses.keySet()) {
+         includedYamlParses.put(includedYamlPath, executorService.submit(new Callable<List<StubHttpLifecycle>>() {
+            @Override
+            public List<StubHttpLifecycle> call() throws Exception {
+               return new YamlParser().parseIncludedYaml(new File(includedYamlPath));
+            }
+         }));
+      }
+
+      return executorService;
+   }
+
+   private List<StubHttpLifecycle> awaitIncludedYamlParse(final Future<List<StubHttpLifecycle>> includedYamlParse) throws Exception {
+      try {
+         return includedYamlParse.get();
+      } catch (final ExecutionException ex) {
+         if (ex.getCause() instanceof Exception) {
+            throw (Exception) ex.getCause();
+         }
+         throw ex;
+      }
+   }
+
+   private List<StubHttpLifecycle> parseIncludedYaml(final File includedYaml) throws Exception {
+      final long startedNanos = System.nanoTime();
+      final long lastModified = includedYaml.lastModified();
+      final Reader yamlReader = FileUtils.constructReader(includedYaml);
+      final Object loadedYaml;
+      try {
+         loadedYaml = SNAKE_YAML.get().load(yamlReader);
+      } finally {
+         yamlReader.close();
+      }
+
+      final List<StubHttpLifecycle> httpLifecycles = new LinkedList<StubHttpLifecycle>();
+      if (ObjectUtils.isNull(loadedYaml)) {
+         return httpLifecycles;
+      }
+      if (!(loadedYaml instanceof List)) {
+         throw new IOException(String.format("Loaded YAML root node must be an instance of ArrayList in included YAML %s", includedYaml.getPath()));
+      }
+
+      // Relative 'file' paths in an included YAML are resolved against its own directory
+      this.dataConfigHomeDirectory = includedYaml.getParent();
+      for (final Object rawParentNode : (List) loadedYaml) {
+         if (isIncludeNode(rawParentNode)) {
+            throw new IOException(String.format("Nested includes are not supported, found one in included YAML %s", includedYaml.getPath()));
+         }
+         final StubHttpLifecycle stubHttpLifecycle = unmarshallYamlNodeToHttpLifeCycle((Map<String, Object>) rawParentNode);
+         stubHttpLifecycle.setSourceYaml(includedYaml, lastModified);
+         httpLifecycles.add(stubHttpLifecycle);
+      }
+      StartupProfiler.recordLoadedFile(includedYaml, includedYaml.length(), System.nanoTime() - startedNanos);
+
+      return httpLifecycles;
+   }
+
+   private boolean isIncludeNode(final Object rawParentNode) {
+      return rawParentNode instanceof Map && ((Map) rawParentNode).size() == 1 && ((Map) rawParentNode).containsKey(YAML_NODE_INCLUDE);
+   }
+
+   private File toIncludedYamlPattern(final Map<String, Object> includeNode) throws IOException {
+      final String includePath = StringUtils.objectToString(includeNode.get(YAML_NODE_INCLUDE));
+      final File include = new File(dataConfigHomeDirectory, includePath);
+
+      if (include.isFile()) {
+         return include;
+      } else if (include.isDirectory()) {
+         return new File(include, "*.y*ml");
+      } else if (ObjectUtils.isNotNull(include.getParentFile()) && include.getParentFile().isDirectory() && include.getName().matches(".*[*?].*")) {
+         return include;
+      }
+
+      throw new IOException(String.format("Could not load included YAML from path: %s", includePath));
+   }
+
+   private List<File> listIncludedYamls(final File includedYamlPattern) {
+      if (includedYamlPattern.isFile()) {
+         return Arrays.asList(includedYamlPattern);
+      }
+
+      return FileUtils.listFilesMatchingWildcard(includedYamlPattern.getParentFile(), includedYamlPattern.getName());
+   }
+
+   private Map<String, LinkedList<StubHttpLifecycle>> indexByYamlNodeDigest(final List<StubHttpLifecycle> httpLifecycles) {
+      final Map<String, LinkedList<StubHttpLifecycle>> index = new HashMap<String, LinkedList<StubHttpLifecycle>>();
+
+      for (final StubHttpLifecycle httpLifecycle : httpLifecycles) {
+         final String yamlNodeDigest = httpLifecycle.getYamlNodeDigest();
+         if (ObjectUtils.isNull(yamlNodeDigest) || ObjectUtils.isNotNull(httpLifecycle.getSourceYaml())) {
+            continue;
+         }
+         if (!index.containsKey(yamlNodeDigest)) {
+            index.put(yamlNodeDigest, new LinkedList<StubHttpLifecycle>());
+         }
+         index.get(yamlNodeDigest).add(httpLifecycle);
+      }
+
+      return index;
+   }
+
+   private Map<String, List<StubHttpLifecycle>> indexByUnchangedIncludedYaml(final List<StubHttpLifecycle> httpLifecycles) {
+      final Map<String, List<StubHttpLifecycle>> index = new HashMap<String, List<StubHttpLifecycle>>();
+      final Set<String> changedYamlPaths = new HashSet<String>();
+
+      for (final StubHttpLifecycle httpLifecycle : httpLifecycles) {
+         final File sourceYaml = httpLifecycle.getSourceYaml();
+         if (ObjectUtils.isNull(sourceYaml)) {
+            continue;
+         }
+         final String sourceYamlPath = sourceYaml.getAbsolutePath();
+         if (sourceYaml.lastModified() != httpLifecycle.getSourceYamlLastModified()) {
+            changedYamlPaths.add(sourceYamlPath);
+            continue;
+         }
+         if (!index.containsKey(sourceYamlPath)) {
+            index.put(sourceYamlPath, new LinkedList<StubHttpLifecycle>());
+         }
+         index.get(sourceYamlPath).add(httpLifecycle);
+      }
+      index.keySet().removeAll(changedYamlPaths);
+
+      return index;
+   }
+
    private StubHttpLifecycle unmarshallYamlNodeToHttpLifeCycle(final Map<String, Object> parentNodesMap) throws Exception {
+      return unmarshallYamlNodeToHttpLifeCycle(parentNodesMap, digestYamlNode(parentNodesMap));
+   }
+
+   private StubHttpLifecycle unmarshallYamlNodeToHttpLifeCycle(final Map<String, Object> parentNodesMap, final String yamlNodeDigest) throws Exception {
 
       final StubHttpLifecycle httpLifecycle = new StubHttpLifecycle();
 
@@ -107,7 +496,9 @@ public final class YamlParser {
          }
       }
 
-      httpLifecycle.setMarshalledYaml(marshallNodeMapToYamlSnippet(parentNodesMap));
+      // The node itself is not kept, the YAML snippet is rendered from the stub when requested through the admin portal
+      httpLifecycle.setYamlNodeDigest(yamlNodeDigest);
+      httpLifecycle.setDataConfigHomeDirectory(dataConfigHomeDirectory);
 
       return httpLifecycle;
    }
@@ -180,6 +571,8 @@ public final class YamlParser {
             Object rawFieldValue = mapEntry.getValue();
             if (isPairKeyEqualsToYamlNodeFile(rawFieldName)) {
                rawFieldValue = loadFileContentFromFileUrl(rawFieldValue);
+            } else if (rawFieldValue instanceof Map) {
+               rawFieldValue = new LinkedHashMap<String, String>((Map<String, String>) rawFieldValue);
             }
             stubBuilder.store(rawFieldName, rawFieldValue);
          }
@@ -205,17 +598,150 @@ public final class YamlParser {
       return null;
    }
 
-   private String marshallNodeMapToYamlSnippet(final Map<String, Object> parentNodesMap) {
+   public static String marshallNodeMapToYamlSnippet(final Map<String, Object> parentNodesMap) {
       final ArrayList<Map<String, Object>> placeholder = new ArrayList<Map<String, Object>>() {{
          add(parentNodesMap);
       }};
 
-      return SNAKE_YAML.dumpAs(placeholder, null, DumperOptions.FlowStyle.BLOCK);
+      return SNAKE_YAML.get().dumpAs(placeholder, null, DumperOptions.FlowStyle.BLOCK);
+   }
+
+   /**
+    * Renders the YAML node of a stub from the stub itself, which parses back to an equivalent stub. Relative 'file'
+    * paths and authorization headers are rendered as authored, rather than as resolved and encoded when parsed
+    */
+   public static Map<String, Object> marshallHttpLifecycleToYamlNode(final StubHttpLifecycle httpLifecycle) {
+      final String dataConfigHomeDirectory = httpLifecycle.getDataConfigHomeDirectory();
+      final Map<String, Object> yamlNode = new LinkedHashMap<String, Object>();
+      if (ObjectUtils.isNotNull(httpLifecycle.getRequest())) {
+         yamlNode.put(YAML_NODE_REQUEST, marshallRequestToYamlNode(httpLifecycle.getRequest(), dataConfigHomeDirectory));
+      }
+
+      final List<StubResponse> allResponses = httpLifecycle.getAllResponses();
+      if (!httpLifecycle.hasSequencedResponses()) {
+         yamlNode.put(YAML_NODE_RESPONSE, marshallResponseToYamlNode(allResponses.get(0), dataConfigHomeDirectory, true));
+         return yamlNode;
+      }
+
+      final List<Map<String, Object>> responseNodes = new LinkedList<Map<String, Object>>();
+      for (final StubResponse stubResponse : allResponses) {
+         // Headers of sequenced responses are parsed without encoding their authorization header
+         responseNodes.add(marshallResponseToYamlNode(stubResponse, dataConfigHomeDirectory, false));
+      }
+      yamlNode.put(YAML_NODE_RESPONSE, responseNodes);
+
+      return yamlNode;
+   }
+
+   private static Map<String, Object> marshallRequestToYamlNode(final StubRequest stubRequest, final String dataConfigHomeDirectory) {
+      final Map<String, Object> requestNode = new LinkedHashMap<String, Object>();
+      final List<String> methods = stubRequest.getMethod();
+      if (!methods.isEmpty()) {
+         requestNode.put(YAML_NODE_METHOD, methods.size() == 1 ? methods.get(0) : methods);
+      }
+      putIfSet(requestNode, YAML_NODE_URL, stubRequest.getRawUrl());
+      if (stubRequest.hasQuery()) {
+         requestNode.put(YAML_NODE_QUERY, decodeAuthorizationHeader(stubRequest.getQuery()));
+      }
+      if (stubRequest.hasHeaders()) {
+         requestNode.put(YAML_NODE_HEADERS, decodeAuthorizationHeader(stubRequest.getHeaders()));
+      }
+      putIfSet(requestNode, YAML_NODE_POST, stubRequest.getPost());
+      if (ObjectUtils.isNotNull(stubRequest.getRawFile())) {
+         requestNode.put(YAML_NODE_FILE, FileUtils.fileToUri(dataConfigHomeDirectory, stubRequest.getRawFile()));
+      }
+
+      return requestNode;
+   }
+
+   private static Map<String, Object> marshallResponseToYamlNode(final StubResponse stubResponse, final String dataConfigHomeDirectory, final boolean encodedHeaders) {
+      final Map<String, Object> responseNode = new LinkedHashMap<String, Object>();
+      putIfSet(responseNode, YAML_NODE_STATUS, stubResponse.getStatus());
+      final Map<String, String> headers = new LinkedHashMap<String, String>(stubResponse.getHeaders());
+      headers.remove(StubResponse.STUBBY_RESOURCE_ID_HEADER);
+      if (!headers.isEmpty()) {
+         responseNode.put(YAML_NODE_HEADERS, encodedHeaders ? decodeAuthorizationHeader(headers) : headers);
+      }
+      putIfSet(responseNode, YAML_NODE_LATENCY, stubResponse.getLatency());
+      putIfSet(responseNode, YAML_NODE_BODY, stubResponse.getBody());
+      if (ObjectUtils.isNotNull(stubResponse.getRawFile())) {
+         responseNode.put(YAML_NODE_FILE, FileUtils.fileToUri(dataConfigHomeDirectory, stubResponse.getRawFile()));
+      }
+
+      return responseNode;
+   }
+
+   private static void putIfSet(final Map<String, Object> yamlNode, final String key, final String value) {
+      if (StringUtils.isSet(value)) {
+         yamlNode.put(key, value);
+      }
+   }
+
+   /**
+    * @return digest of the given node, equal for nodes that are equal and keep their entries in the same order
+    */
+   public static String digestYamlNode(final Map<String, Object> yamlNode) {
+      final MessageDigest messageDigest = YAML_NODE_DIGEST.get();
+      messageDigest.reset();
+      updateYamlNodeDigest(messageDigest, yamlNode);
+
+      return new BigInteger(1, messageDigest.digest()).toString(16);
+   }
+
+   // Nested nodes are delimited and scalars are prefixed by their type and length, so that distinct nodes do not digest the same input
+   private static void updateYamlNodeDigest(final MessageDigest messageDigest, final Object node) {
+      if (node instanceof Map) {
+         messageDigest.update((byte) '{');
+         for (final Map.Entry<Object, Object> entry : ((Map<Object, Object>) node).entrySet()) {
+            updateYamlNodeDigest(messageDigest, entry.getKey());
+            updateYamlNodeDigest(messageDigest, entry.getValue());
+         }
+         messageDigest.update((byte) '}');
+      } else if (node instanceof List) {
+         messageDigest.update((byte) '[');
+         for (final Object element : (List) node) {
+            updateYamlNodeDigest(messageDigest, element);
+         }
+         messageDigest.update((byte) ']');
+      } else if (ObjectUtils.isNull(node)) {
+         messageDigest.update((byte) '~');
+      } else if (node instanceof String) {
+         updateYamlNodeDigest(messageDigest, '"', (String) node);
+      } else {
+         updateYamlNodeDigest(messageDigest, '!', node.getClass().getName() + ':' + node);
+      }
+   }
+
+   private static void updateYamlNodeDigest(final MessageDigest messageDigest, final char type, final String scalar) {
+      final byte[] scalarBytes = StringUtils.getBytesUtf8(scalar);
+      messageDigest.update((byte) type);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+         messageDigest.update((byte) (scalarBytes.length >>> shift));
+      }
+      messageDigest.update(scalarBytes);
+   }
+
+   // Reverses encodeAuthorizationHeader(), leaving headers that it did not encode as they are
+   private static Map<String, String> decodeAuthorizationHeader(final Map<String, String> value) {
+      final Map<String, String> pairValue = new LinkedHashMap<String, String>(value);
+      final String encodedHeader = pairValue.get(StubRequest.AUTH_HEADER);
+      if (ObjectUtils.isNull(encodedHeader) || !encodedHeader.startsWith(BASIC_HEADER_PREFIX)) {
+         return pairValue;
+      }
+
+      final String encodedCredentials = encodedHeader.substring(BASIC_HEADER_PREFIX.length());
+      final String authorizationHeader = StringUtils.decodeBase64(encodedCredentials);
+      if (StringUtils.encodeBase64(authorizationHeader).equals(encodedCredentials)) {
+         pairValue.put(StubRequest.AUTH_HEADER, authorizationHeader);
+      }
+
+      return pairValue;
    }
 
    private Map<String, String> encodeAuthorizationHeader(final Object value) {
 
-      final Map<String, String> pairValue = (Map<String, String>) value;
+      // Stubs get their own copy, so that the loaded YAML node stays as it was authored
+      final Map<String, String> pairValue = new LinkedHashMap<String, String>((Map<String, String>) value);
       if (!pairValue.containsKey(StubRequest.AUTH_HEADER)) {
          return pairValue;
       }
@@ -225,7 +751,7 @@ public final class YamlParser {
       if (isOAuthHeader(authorizationHeader)) {
          pairValue.put(StubRequest.AUTH_HEADER, authorizationHeader);
       } else {
-         final String encodedAuthorizationHeader = String.format("%s %s", "Basic", StringUtils.encodeBase64(authorizationHeader));
+         final String encodedAuthorizationHeader = String.format("%s%s", BASIC_HEADER_PREFIX, StringUtils.encodeBase64(authorizationHeader));
          pairValue.put(StubRequest.AUTH_HEADER, encodedAuthorizationHeader);
       }
 
@@ -0,0 +1,77 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.yaml.stubs;
+
+import by.stub.utils.ObjectUtils;
+import by.stub.utils.StringUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads a single stub property by name. Stubs keep a static table of accessors for the properties
+ * that are displayed on the status page and served through ajax, in the order they are displayed
+ */
+abstract class PropertyAccessor<T> {
+
+   abstract Object get(final T stub);
+
+   String describe(final T stub) throws UnsupportedEncodingException {
+      return StringUtils.determineObjectStringValue(get(stub));
+   }
+
+   static <T> Map<String, String> readAll(final Map<String, PropertyAccessor<T>> accessors, final T stub) throws UnsupportedEncodingException {
+      final Map<String, String> properties = new LinkedHashMap<String, String>();
+      for (final Map.Entry<String, PropertyAccessor<T>> accessor : accessors.entrySet()) {
+         properties.put(accessor.getKey(), accessor.getValue().describe(stub));
+      }
+
+      return properties;
+   }
+
+   static <T> Object read(final Map<String, PropertyAccessor<T>> accessors, final T stub, final String propertyName) {
+      final PropertyAccessor<T> accessor = accessors.get(StringUtils.toLower(propertyName));
+
+      return ObjectUtils.isNull(accessor) ? null : accessor.get(stub);
+   }
+
+   /**
+    * Accessor of content that the status page links to instead of displaying it, so the content
+    * is described only by whether it is there and is never read for the page
+    */
+   abstract static class ContentAccessor<T> extends PropertyAccessor<T> {
+
+      /**
+       * @return length of the content, or -1 if the content was not provided
+       */
+      abstract int length(final T stub);
+
+      @Override
+      String describe(final T stub) {
+         final int length = length(stub);
+         if (length < 0) {
+            return StringUtils.NOT_PROVIDED;
+         }
+
+         return length == 0 ? "" : StringUtils.PROVIDED;
+      }
+   }
+}
@@ -0,0 +1,72 @@
+/*
+A Java-based HTTP stub server
+
+Copyright (C) 2012 Alexander Zagniotov, Isa Goksu and Eric Mrak
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package by.stub.yaml.stubs;
+
+/**
+ * Single add, update or delete of a stub, applied as part of a batch of operations
+ */
+public final class StubBatchOperation {
+
+   public enum Type {
+      ADD,
+      UPDATE,
+      DELETE
+   }
+
+   private final Type type;
+   private final int resourceId;
+   private final StubHttpLifecycle stubHttpLifecycle;
+
+   private StubBatchOperation(final Type type, final int resourceId, final StubHttpLifecycle stubHttpLifecycle) {
+      this.type = type;
+      this.resourceId = resourceId;
+      this.stubHttpLifecycle = stubHttpLifecycle;
+   }
+
+   public static StubBatchOperation newAddOperation(final StubHttpLifecycle stubHttpLifecycle) {
+      return new StubBatchOperation(Type.ADD, -1, stubHttpLifecycle);
+   }
+
+   public static StubBatchOperation newUpdateOperation(final int resourceId, final StubHttpLifecycle stubHttpLifecycle) {
+      return new StubBatchOperation(Type.UPDATE, resourceId, stubHttpLifecycle);
+   }
+
+   public static StubBatchOperation newDeleteOperation(final int resourceId) {
+      return new StubBatchOperation(Type.DELETE, resourceId, StubHttpLifecycle.NULL);
+   }
+
+   public Type getType() {
+      return type;
+   }
+
+   /**
+    * @return stable resource ID of the updated or deleted stub
+    */
+   public int getResourceId() {
+      return resourceId;
+   }
+
+   /**
+    * @return added stub or the stub replacing the updated one, null for deletes
+    */
+   public StubHttpLifecycle getStubHttpLifecycle() {
+      return stubHttpLifecycle;
+   }
+}
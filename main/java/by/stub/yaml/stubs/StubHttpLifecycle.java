@@ -20,11 +20,17 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 package by.stub.yaml.stubs;
 
 
-import by.stub.utils.ReflectionUtils;
+import by.stub.utils.LatencyHistogram;
+import by.stub.utils.ObjectUtils;
 import by.stub.utils.StringUtils;
+import by.stub.yaml.YamlParser;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Alexander Zagniotov
@@ -34,10 +40,20 @@ import java.util.List;
 public class StubHttpLifecycle {
 
    public static final StubHttpLifecycle NULL = null;
-   private String marshalledYaml;
+   // Identifies the YAML node this stub was parsed from, which is not kept: snippets are rendered from the stub itself
+   private String yamlNodeDigest;
+   private String dataConfigHomeDirectory;
+   private File sourceYaml;
+   private long sourceYamlLastModified;
    private StubRequest request;
    private Object response;
    private int responseSequenceCounter = 0;
+   private long responseSequenceEpoch = 0;
+   private final AtomicLong hitCount = new AtomicLong();
+   private volatile long lastHitMillis = 0;
+   // Created on the first recorded request, so that stubs take no histogram memory unless latencies are recorded
+   private volatile LatencyHistogram matchLatency;
+   private volatile LatencyHistogram serveLatency;
 
    public StubHttpLifecycle() {
       response = StubResponse.newStubResponse();
@@ -59,6 +75,82 @@ public class StubHttpLifecycle {
       return getActualStubbedResponse();
    }
 
+   /**
+    * @param sequenceEpoch epoch of the set of stubs this stub was matched in, sequenced responses start over from
+    *                      the first response when it differs from the epoch of the previous call
+    */
+   public synchronized StubResponse getResponse(final long sequenceEpoch) {
+      if (sequenceEpoch != responseSequenceEpoch) {
+         responseSequenceEpoch = sequenceEpoch;
+         responseSequenceCounter = 0;
+      }
+
+      return getActualStubbedResponse();
+   }
+
+   /**
+    * Counts a request this stub was matched to
+    */
+   public void recordHit() {
+      hitCount.incrementAndGet();
+      lastHitMillis = System.currentTimeMillis();
+   }
+
+   public long getHitCount() {
+      return hitCount.get();
+   }
+
+   /**
+    * @return time this stub was last matched to a request, in milliseconds since the epoch, or zero when it never was
+    */
+   public long getLastHitMillis() {
+      return lastHitMillis;
+   }
+
+   /**
+    * Records how long a request this stub was matched to took to match, and then to serve
+    */
+   public void recordLatencies(final long matchNanos, final long serveNanos) {
+      if (ObjectUtils.isNull(serveLatency)) {
+         createLatencyHistograms();
+      }
+      matchLatency.record(matchNanos);
+      serveLatency.record(serveNanos);
+   }
+
+   // The match histogram is published first, so a non null serve histogram means both exist
+   private synchronized void createLatencyHistograms() {
+      if (ObjectUtils.isNull(serveLatency)) {
+         matchLatency = new LatencyHistogram();
+         serveLatency = new LatencyHistogram();
+      }
+   }
+
+   /**
+    * @return histogram of the time taken to match requests to this stub, or null when none was recorded
+    */
+   public LatencyHistogram getMatchLatency() {
+      return matchLatency;
+   }
+
+   /**
+    * @return histogram of the time taken to serve requests matched to this stub, or null when none was recorded
+    */
+   public LatencyHistogram getServeLatency() {
+      return serveLatency;
+   }
+
+   /**
+    * Clears the hit count, last hit time and latency histograms of this stub
+    */
+   public void resetHitStats() {
+      hitCount.set(0);
+      lastHitMillis = 0;
+      if (ObjectUtils.isNotNull(serveLatency)) {
+         matchLatency.reset();
+         serveLatency.reset();
+      }
+   }
 
    public List<StubResponse> getAllResponses() {
 
@@ -71,6 +163,27 @@ public class StubHttpLifecycle {
       return (LinkedList<StubResponse>) response;
    }
 
+   /**
+    * Re-reads, in place, the content of a changed external file for the request and responses that reference it
+    *
+    * @param canonicalFile canonical form of the changed external file
+    */
+   public void reloadExternalFile(final File canonicalFile) throws IOException {
+      if (isReferencing(request.getRawFile(), canonicalFile)) {
+         request.reloadFile();
+      }
+
+      for (final StubResponse stubResponse : getAllResponses()) {
+         if (isReferencing(stubResponse.getRawFile(), canonicalFile)) {
+            stubResponse.reloadFile();
+         }
+      }
+   }
+
+   private static boolean isReferencing(final File rawFile, final File canonicalFile) throws IOException {
+      return ObjectUtils.isNotNull(rawFile) && rawFile.getCanonicalFile().equals(canonicalFile);
+   }
+
    public boolean isRestricted() {
       return StringUtils.isSet(getAuthorizationHeader());
    }
@@ -90,8 +203,12 @@ public class StubHttpLifecycle {
       return request.getHeaders().get(StubRequest.AUTH_HEADER);
    }
 
+   /**
+    * @return resource ID this stub was given, or null when it was given none or has no responses to carry it
+    */
    public String getResourceId() {
-      return getAllResponses().get(0).getHeaders().get(StubResponse.STUBBY_RESOURCE_ID_HEADER);
+      final List<StubResponse> allResponses = getAllResponses();
+      return allResponses.isEmpty() ? null : allResponses.get(0).getHeaders().get(StubResponse.STUBBY_RESOURCE_ID_HEADER);
    }
 
    public StubResponse getActualStubbedResponse() {
@@ -111,12 +228,64 @@ public class StubHttpLifecycle {
       return sequenceStubResponse;
    }
 
+   /**
+    * @return YAML snippet of this stub, rendered on every call, see {@link #toYamlNode()}
+    */
    public String getMarshalledYaml() {
-      return marshalledYaml;
+      return YamlParser.marshallNodeMapToYamlSnippet(toYamlNode());
+   }
+
+   /**
+    * @return YAML node of this stub as it would be authored, rendered from the stub on every call
+    */
+   public Map<String, Object> toYamlNode() {
+      return YamlParser.marshallHttpLifecycleToYamlNode(this);
    }
 
-   public void setMarshalledYaml(final String marshalledYaml) {
-      this.marshalledYaml = marshalledYaml;
+   /**
+    * @return digest of the YAML node this stub was parsed from, equal for stubs parsed from equal nodes. Null when the
+    * stub was not parsed
+    */
+   public String getYamlNodeDigest() {
+      return yamlNodeDigest;
+   }
+
+   public void setYamlNodeDigest(final String yamlNodeDigest) {
+      this.yamlNodeDigest = yamlNodeDigest;
+   }
+
+   /**
+    * @return directory that relative 'file' paths of this stub were resolved against
+    */
+   public String getDataConfigHomeDirectory() {
+      return dataConfigHomeDirectory;
+   }
+
+   public void setDataConfigHomeDirectory(final String dataConfigHomeDirectory) {
+      this.dataConfigHomeDirectory = dataConfigHomeDirectory;
+   }
+
+   /**
+    * @return true when the responses of this stub are sequenced, even if there is only one of them
+    */
+   public boolean hasSequencedResponses() {
+      return !(response instanceof StubResponse);
+   }
+
+   /**
+    * @return included YAML file this stub was loaded from, or null when it was loaded from the main YAML
+    */
+   public File getSourceYaml() {
+      return sourceYaml;
+   }
+
+   public long getSourceYamlLastModified() {
+      return sourceYamlLastModified;
+   }
+
+   public void setSourceYaml(final File sourceYaml, final long sourceYamlLastModified) {
+      this.sourceYaml = sourceYaml;
+      this.sourceYamlLastModified = sourceYamlLastModified;
    }
 
    public void setResourceId(final int listIndex) {
@@ -125,19 +294,77 @@ public class StubHttpLifecycle {
       }
    }
 
+   /**
+    * Gives this stub the given resource ID, unless it already has another one. A stub that has a resource ID may have
+    * been published and be served concurrently, so it is never changed: a copy of it gets the given ID instead
+    *
+    * @return this stub, or a copy of it when it has another resource ID
+    */
+   public StubHttpLifecycle withResourceId(final int resourceId) {
+      final String currentResourceId = getResourceId();
+      if (ObjectUtils.isNull(currentResourceId)) {
+         setResourceId(resourceId);
+         return this;
+      }
+      if (currentResourceId.equals(String.valueOf(resourceId))) {
+         return this;
+      }
+
+      final StubHttpLifecycle copy = new StubHttpLifecycle();
+      copy.yamlNodeDigest = yamlNodeDigest;
+      copy.dataConfigHomeDirectory = dataConfigHomeDirectory;
+      copy.sourceYaml = sourceYaml;
+      copy.sourceYamlLastModified = sourceYamlLastModified;
+      copy.request = request;
+      if (response instanceof StubResponse) {
+         copy.response = new StubResponse((StubResponse) response);
+      } else {
+         final List<StubResponse> copiedResponses = new LinkedList<StubResponse>();
+         for (final StubResponse stubResponse : getAllResponses()) {
+            copiedResponses.add(new StubResponse(stubResponse));
+         }
+         copy.response = copiedResponses;
+      }
+      synchronized (this) {
+         copy.responseSequenceCounter = responseSequenceCounter;
+         copy.responseSequenceEpoch = responseSequenceEpoch;
+      }
+      copy.hitCount.set(hitCount.get());
+      copy.lastHitMillis = lastHitMillis;
+      copy.setResourceId(resourceId);
+
+      return copy;
+   }
+
    public String getAjaxResponseContent(final String stubType, final String propertyName) throws Exception {
-      if (stubType.equals("request")) {
-         return StringUtils.determineObjectStringValue(ReflectionUtils.getPropertyValue(request, propertyName));
-      } else if (stubType.equals("response")) {
-         return StringUtils.determineObjectStringValue(ReflectionUtils.getPropertyValue(getResponse(), propertyName));
+      if (stubType.equals("request") || stubType.equals("response")) {
+         return StringUtils.determineObjectStringValue(getAjaxResponseValue(stubType, propertyName));
       } else {
          return "Unknown stub type: " + stubType;
       }
    }
 
    public String getAjaxResponseContent(final String propertyName, final int sequencedResponseId) throws Exception {
+      return StringUtils.determineObjectStringValue(getAjaxResponseValue(propertyName, sequencedResponseId));
+   }
+
+   /**
+    * @param stubType either request or response
+    * @return value of the named property, as it is held: the content of a file is returned as its bytes, without
+    * conversion. Null when there is no such property
+    */
+   public Object getAjaxResponseValue(final String stubType, final String propertyName) {
+      if (stubType.equals("request")) {
+         return request.getPropertyValue(propertyName);
+      }
+
+      // Reads the first response and deliberately leaves the sequence alone, unlike getResponse() which advances it
       final List<StubResponse> allResponses = getAllResponses();
-      return StringUtils.determineObjectStringValue(ReflectionUtils.getPropertyValue(allResponses.get(sequencedResponseId), propertyName));
+      return allResponses.isEmpty() ? null : allResponses.get(0).getPropertyValue(propertyName);
+   }
+
+   public Object getAjaxResponseValue(final String propertyName, final int sequencedResponseId) {
+      return getAllResponses().get(sequencedResponseId).getPropertyValue(propertyName);
    }
 
    @Override
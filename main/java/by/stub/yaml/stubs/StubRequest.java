@@ -20,6 +20,7 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 package by.stub.yaml.stubs;
 
 import by.stub.cli.ANSITerminal;
+import by.stub.utils.BlobStore;
 import by.stub.utils.CollectionUtils;
 import by.stub.utils.FileUtils;
 import by.stub.utils.HandlerUtils;
@@ -29,6 +30,7 @@ import by.stub.utils.StringUtils;
 import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -42,10 +44,52 @@ public class StubRequest {
    public static final String AUTH_HEADER = "authorization";
    public static final String RANGE_HEADER = "range";
 
+   private static final Map<String, PropertyAccessor<StubRequest>> PROPERTY_ACCESSORS = new LinkedHashMap<String, PropertyAccessor<StubRequest>>() {{
+      put("url", new PropertyAccessor<StubRequest>() {
+         Object get(final StubRequest stub) {
+            return stub.getUrl();
+         }
+      });
+      put("method", new PropertyAccessor<StubRequest>() {
+         Object get(final StubRequest stub) {
+            return stub.getMethod();
+         }
+      });
+      put("headers", new PropertyAccessor<StubRequest>() {
+         Object get(final StubRequest stub) {
+            return stub.getHeaders();
+         }
+      });
+      put("query", new PropertyAccessor<StubRequest>() {
+         Object get(final StubRequest stub) {
+            return stub.getQuery();
+         }
+      });
+      put("post", new PropertyAccessor.ContentAccessor<StubRequest>() {
+         Object get(final StubRequest stub) {
+            return stub.getPost();
+         }
+
+         int length(final StubRequest stub) {
+            return ObjectUtils.isNull(stub.getPost()) ? -1 : stub.getPost().length();
+         }
+      });
+      put("file", new PropertyAccessor.ContentAccessor<StubRequest>() {
+         Object get(final StubRequest stub) {
+            return stub.getFile();
+         }
+
+         int length(final StubRequest stub) {
+            return stub.getFileContent().length();
+         }
+      });
+   }};
+
    private final String url;
    private final String post;
    private final File file;
-   private final byte[] fileBytes;
+   // Replaced in place when the external file changes, see reloadFile()
+   private volatile BlobStore.Blob fileContent;
    private final List<String> method;
    private final Map<String, String> headers;
    private final Map<String, String> query;
@@ -59,7 +103,7 @@ public class StubRequest {
       this.url = url;
       this.post = post;
       this.file = file;
-      this.fileBytes = ObjectUtils.isNull(file) ? new byte[]{} : getFileBytes();
+      this.fileContent = ObjectUtils.isNull(file) ? BlobStore.Blob.EMPTY : loadFileContent();
       this.method = ObjectUtils.isNull(method) ? new ArrayList<String>() : method;
       this.headers = ObjectUtils.isNull(headers) ? new HashMap<String, String>() : headers;
       this.query = ObjectUtils.isNull(query) ? new LinkedHashMap<String, String>() : query;
@@ -91,23 +135,38 @@ public class StubRequest {
       return String.format("%s?%s", url, queryString);
    }
 
-   private byte[] getFileBytes() {
+   /**
+    * @return URL as it was stubbed, without the stubbed query
+    */
+   public String getRawUrl() {
+      return url;
+   }
+
+   private BlobStore.Blob loadFileContent() {
       try {
-         return FileUtils.fileToBytes(file);
+         return BlobStore.fileToBlob(file);
       } catch (Exception e) {
-         return new byte[]{};
+         return BlobStore.Blob.EMPTY;
+      }
+   }
+
+   /**
+    * Re-reads the content of the external file, keeping the previously loaded content when the file can not be read
+    */
+   public void reloadFile() throws IOException {
+      if (ObjectUtils.isNotNull(file)) {
+         fileContent = BlobStore.fileToBlob(file);
       }
    }
 
    public String getPostBody() {
-      if (fileBytes.length == 0) {
+      if (fileContent.length() == 0) {
          return FileUtils.enforceSystemLineSeparator(post);
       }
-      final String utf8FileContent = StringUtils.newStringUtf8(fileBytes);
+      final String utf8FileContent = fileContent.toStringUtf8();
       return FileUtils.enforceSystemLineSeparator(utf8FileContent);
    }
 
-   //Used by reflection when populating stubby admin page with stubbed information
    public String getPost() {
       return post;
    }
@@ -127,14 +186,39 @@ public class StubRequest {
       return query;
    }
 
+   /**
+    * @return copy of the loaded file content, which is shared with other stubs and must not be changed in place
+    */
    public byte[] getFile() {
-      return fileBytes;
+      return fileContent.toByteArray();
+   }
+
+   /**
+    * @return loaded file content, shared by every stub that loaded the same content
+    */
+   public BlobStore.Blob getFileContent() {
+      return fileContent;
    }
 
    public File getRawFile() {
       return file;
    }
 
+   /**
+    * @return string values of the properties displayed on the status page, in display order. Content that
+    * the page links to is described only by whether it was provided
+    */
+   public Map<String, String> getProperties() throws UnsupportedEncodingException {
+      return PropertyAccessor.readAll(PROPERTY_ACCESSORS, this);
+   }
+
+   /**
+    * @return value of the named property displayed on the status page, or null if there is no such property
+    */
+   public Object getPropertyValue(final String propertyName) {
+      return PropertyAccessor.read(PROPERTY_ACCESSORS, this, propertyName);
+   }
+
    public boolean hasHeaders() {
       return !getHeaders().isEmpty();
    }
@@ -292,7 +376,7 @@ public class StubRequest {
       int result = (ObjectUtils.isNotNull(url) ? url.hashCode() : 0);
       result = 31 * result + method.hashCode();
       result = 31 * result + (ObjectUtils.isNotNull(post) ? post.hashCode() : 0);
-      result = 31 * result + (ObjectUtils.isNotNull(fileBytes) && fileBytes.length != 0 ? Arrays.hashCode(fileBytes) : 0);
+      result = 31 * result + (ObjectUtils.isNotNull(fileContent) && fileContent.length() != 0 ? fileContent.hashCode() : 0);
       result = 31 * result + headers.hashCode();
       result = 31 * result + query.hashCode();
 
@@ -19,12 +19,16 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package by.stub.yaml.stubs;
 
-import by.stub.utils.FileUtils;
+import by.stub.utils.BlobStore;
 import by.stub.utils.ObjectUtils;
 import by.stub.utils.StringUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -35,10 +39,47 @@ public class StubResponse {
 
    public static final String STUBBY_RESOURCE_ID_HEADER = "x-stubby-resource-id";
 
+   private static final Map<String, PropertyAccessor<StubResponse>> PROPERTY_ACCESSORS = new LinkedHashMap<String, PropertyAccessor<StubResponse>>() {{
+      put("status", new PropertyAccessor<StubResponse>() {
+         Object get(final StubResponse stub) {
+            return stub.getStatus();
+         }
+      });
+      put("headers", new PropertyAccessor<StubResponse>() {
+         Object get(final StubResponse stub) {
+            return stub.getHeaders();
+         }
+      });
+      put("body", new PropertyAccessor.ContentAccessor<StubResponse>() {
+         Object get(final StubResponse stub) {
+            return stub.getBody();
+         }
+
+         int length(final StubResponse stub) {
+            return stub.getBody().length();
+         }
+      });
+      put("file", new PropertyAccessor.ContentAccessor<StubResponse>() {
+         Object get(final StubResponse stub) {
+            return stub.getFile();
+         }
+
+         int length(final StubResponse stub) {
+            return stub.getFileContent().length();
+         }
+      });
+      put("latency", new PropertyAccessor<StubResponse>() {
+         Object get(final StubResponse stub) {
+            return stub.getLatency();
+         }
+      });
+   }};
+
    private final String status;
    private final String body;
    private final File file;
-   private final byte[] fileBytes;
+   // Shared with copies of this response, so that reloadFile() updates every generation that holds one
+   private final FileContentHolder fileContentHolder;
    private final String latency;
    private final Map<String, String> headers;
 
@@ -50,11 +91,21 @@ public class StubResponse {
       this.status = ObjectUtils.isNull(status) ? "200" : status;
       this.body = body;
       this.file = file;
-      this.fileBytes = ObjectUtils.isNull(file) ? new byte[]{} : getFileBytes();
+      this.fileContentHolder = new FileContentHolder(ObjectUtils.isNull(file) ? BlobStore.Blob.EMPTY : loadFileContent());
       this.latency = latency;
       this.headers = ObjectUtils.isNull(headers) ? new HashMap<String, String>() : headers;
    }
 
+   // Copies the given response with headers of its own, sharing the loaded file content and its reloads
+   StubResponse(final StubResponse copiedResponse) {
+      this.status = copiedResponse.status;
+      this.body = copiedResponse.body;
+      this.file = copiedResponse.file;
+      this.fileContentHolder = copiedResponse.fileContentHolder;
+      this.latency = copiedResponse.latency;
+      this.headers = new HashMap<String, String>(copiedResponse.headers);
+   }
+
    public String getStatus() {
       return status;
    }
@@ -71,9 +122,18 @@ public class StubResponse {
       return latency;
    }
 
-   //Used by reflection when populating stubby admin page with stubbed information
+   /**
+    * @return copy of the loaded file content, which is shared with other stubs and must not be changed in place
+    */
    public byte[] getFile() {
-      return fileBytes;
+      return fileContentHolder.fileContent.toByteArray();
+   }
+
+   /**
+    * @return loaded file content, shared by every stub that loaded the same content
+    */
+   public BlobStore.Blob getFileContent() {
+      return fileContentHolder.fileContent;
    }
 
    public File getRawFile() {
@@ -81,21 +141,58 @@ public class StubResponse {
    }
 
    public byte[] getResponseBody() {
-
-      if (fileBytes.length == 0) {
+      final BlobStore.Blob fileContent = getFileContent();
+      if (fileContent.length() == 0) {
          return getBody().getBytes(StringUtils.charsetUTF8());
       }
-      return fileBytes;
+      return fileContent.toByteArray();
    }
 
-   private byte[] getFileBytes() {
+   /**
+    * Writes the response body, streaming the shared file content rather than a copy of it
+    */
+   public void writeResponseBody(final OutputStream streamOut) throws IOException {
+      final BlobStore.Blob fileContent = getFileContent();
+      if (fileContent.length() == 0) {
+         streamOut.write(getBody().getBytes(StringUtils.charsetUTF8()));
+      } else {
+         fileContent.writeTo(streamOut);
+      }
+   }
+
+   private BlobStore.Blob loadFileContent() {
       try {
-         return FileUtils.fileToBytes(file);
+         return BlobStore.fileToBlob(file);
       } catch (Exception e) {
-         return new byte[]{};
+         return BlobStore.Blob.EMPTY;
+      }
+   }
+
+   /**
+    * Re-reads the content of the external file, keeping the previously loaded content when the file can not be read.
+    * Copies of this response, kept by earlier generations or by the baseline, see the re-read content too
+    */
+   public void reloadFile() throws IOException {
+      if (ObjectUtils.isNotNull(file)) {
+         fileContentHolder.fileContent = BlobStore.fileToBlob(file);
       }
    }
 
+   /**
+    * @return string values of the properties displayed on the status page, in display order. Content that
+    * the page links to is described only by whether it was provided
+    */
+   public Map<String, String> getProperties() throws UnsupportedEncodingException {
+      return PropertyAccessor.readAll(PROPERTY_ACCESSORS, this);
+   }
+
+   /**
+    * @return value of the named property displayed on the status page, or null if there is no such property
+    */
+   public Object getPropertyValue(final String propertyName) {
+      return PropertyAccessor.read(PROPERTY_ACCESSORS, this, propertyName);
+   }
+
    public boolean hasHeaderLocation() {
       return getHeaders().containsKey("location");
    }
@@ -119,4 +216,13 @@ public class StubResponse {
    public static StubResponse newStubResponse(final String status, final String body) {
       return new StubResponse(status, body, null, null, null);
    }
+
+   // Replaced in place when the external file changes, see reloadFile()
+   private static final class FileContentHolder {
+      private volatile BlobStore.Blob fileContent;
+
+      private FileContentHolder(final BlobStore.Blob fileContent) {
+         this.fileContent = fileContent;
+      }
+   }
 }
\ No newline at end of file
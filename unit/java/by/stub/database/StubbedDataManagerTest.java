@@ -1,6 +1,7 @@
 package by.stub.database;
 
 import by.stub.builder.stubs.StubRequestBuilder;
+import by.stub.yaml.stubs.NotFoundStubResponse;
 import by.stub.yaml.stubs.StubHttpLifecycle;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
@@ -11,6 +12,8 @@ import org.junit.Test;
 import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -83,7 +86,7 @@ public class StubbedDataManagerTest {
       assertThat(resetResult).isTrue();
       assertThat(stubbedDataManager.getStubHttpLifecycles().size()).isNotZero();
 
-      final StubHttpLifecycle deletedHttpLifecycle = stubbedDataManager.deleteStubHttpLifecycleByIndex(0);
+      final StubHttpLifecycle deletedHttpLifecycle = stubbedDataManager.deleteStubHttpLifecycleByResourceId(0);
       assertThat(deletedHttpLifecycle).isNotNull();
       assertThat(stubbedDataManager.getStubHttpLifecycles().size()).isZero();
    }
@@ -98,7 +101,7 @@ public class StubbedDataManagerTest {
       assertThat(resetResult).isTrue();
       assertThat(stubbedDataManager.getStubHttpLifecycles().size()).isNotZero();
 
-      stubbedDataManager.deleteStubHttpLifecycleByIndex(9999);
+      stubbedDataManager.deleteStubHttpLifecycleByResourceId(9999);
    }
 
 
@@ -108,9 +111,10 @@ public class StubbedDataManagerTest {
       final List<StubHttpLifecycle> originalHttpLifecycles = buildHttpLifeCycles("/resource/item/1");
       stubbedDataManager.resetStubHttpLifecycles(originalHttpLifecycles);
 
-      final String actualMarshalledYaml = stubbedDataManager.getMarshalledYamlByIndex(0);
+      final String actualMarshalledYaml = stubbedDataManager.getMarshalledYamlByResourceId(0);
 
-      assertThat(actualMarshalledYaml).isEqualTo("This is marshalled yaml snippet");
+      assertThat(actualMarshalledYaml).contains("url: /resource/item/1");
+      assertThat(actualMarshalledYaml).contains("content-type: application/json");
    }
 
    @Test(expected = IndexOutOfBoundsException.class)
@@ -119,7 +123,7 @@ public class StubbedDataManagerTest {
       final List<StubHttpLifecycle> originalHttpLifecycles = buildHttpLifeCycles("/resource/item/1");
       stubbedDataManager.resetStubHttpLifecycles(originalHttpLifecycles);
 
-      stubbedDataManager.getMarshalledYamlByIndex(10);
+      stubbedDataManager.getMarshalledYamlByResourceId(10);
    }
 
    @Test
@@ -135,7 +139,7 @@ public class StubbedDataManagerTest {
       final String expectedNewUrl = "/resource/completely/new";
       final List<StubHttpLifecycle> newHttpLifecycles = buildHttpLifeCycles(expectedNewUrl);
       final StubHttpLifecycle newStubHttpLifecycle = newHttpLifecycles.get(0);
-      stubbedDataManager.updateStubHttpLifecycleByIndex(0, newStubHttpLifecycle);
+      stubbedDataManager.updateStubHttpLifecycleByResourceId(0, newStubHttpLifecycle);
       final StubRequest stubbedNewRequest = stubbedDataManager.getStubHttpLifecycles().get(0).getRequest();
 
       assertThat(stubbedNewRequest.getUrl()).isEqualTo(expectedNewUrl);
@@ -154,7 +158,47 @@ public class StubbedDataManagerTest {
       final String expectedNewUrl = "/resource/completely/new";
       final List<StubHttpLifecycle> newHttpLifecycles = buildHttpLifeCycles(expectedNewUrl);
       final StubHttpLifecycle newStubHttpLifecycle = newHttpLifecycles.get(0);
-      stubbedDataManager.updateStubHttpLifecycleByIndex(10, newStubHttpLifecycle);
+      stubbedDataManager.updateStubHttpLifecycleByResourceId(10, newStubHttpLifecycle);
+   }
+
+   @Test
+   public void shouldNeverServeNotFound_WhileStubsAreBeingReset() throws Exception {
+
+      final String url = "/resource/item/1";
+      final List<List<StubHttpLifecycle>> reloads = new LinkedList<List<StubHttpLifecycle>>();
+      for (int reload = 0; reload < 500; reload++) {
+         reloads.add(buildHttpLifeCycles(url));
+      }
+      stubbedDataManager.resetStubHttpLifecycles(buildHttpLifeCycles(url));
+
+      final StubRequest assertingRequest =
+         REQUEST_BUILDER
+            .withUrl(url)
+            .withMethodGet()
+            .withHeaders("content-type", "application/json")
+            .build();
+
+      final AtomicBoolean isReloading = new AtomicBoolean(true);
+      final AtomicInteger notFoundResponses = new AtomicInteger();
+      final Thread readerThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            while (isReloading.get()) {
+               if (stubbedDataManager.findStubResponseFor(assertingRequest) instanceof NotFoundStubResponse) {
+                  notFoundResponses.incrementAndGet();
+               }
+            }
+         }
+      });
+      readerThread.start();
+
+      for (final List<StubHttpLifecycle> reload : reloads) {
+         stubbedDataManager.resetStubHttpLifecycles(reload);
+      }
+      isReloading.set(false);
+      readerThread.join();
+
+      assertThat(notFoundResponses.get()).isZero();
    }
 
    private List<StubHttpLifecycle> buildHttpLifeCycles(final String url) {
@@ -167,8 +211,6 @@ public class StubbedDataManagerTest {
       final StubHttpLifecycle originalHttpLifecycle = new StubHttpLifecycle();
       originalHttpLifecycle.setRequest(originalRequest);
       originalHttpLifecycle.setResponse(StubResponse.newStubResponse());
-      final String expectedMarshalledYaml = "This is marshalled yaml snippet";
-      originalHttpLifecycle.setMarshalledYaml(expectedMarshalledYaml);
 
       return new LinkedList<StubHttpLifecycle>() {{
          add(originalHttpLifecycle);
@@ -65,8 +65,8 @@ public class AjaxHandlerTest {
       spyAjaxHandler.handle(requestURI, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
 
       verify(spyAjaxHandler).throwErrorOnNonexistentResourceIndex(any(HttpServletResponseWithGetStatus.class), httpCycleIndexCaptor.capture());
-      verify(spyAjaxHandler, times(1)).renderAjaxResponseContent(any(HttpServletResponseWithGetStatus.class), stubTypeCaptor.capture(), fieldCaptor.capture(), any(StubHttpLifecycle.class));
-      verify(spyAjaxHandler, never()).renderAjaxResponseContent(any(HttpServletResponseWithGetStatus.class), anyInt(), anyString(), any(StubHttpLifecycle.class));
+      verify(spyAjaxHandler, times(1)).renderAjaxResponseContent(any(HttpServletRequest.class), any(HttpServletResponseWithGetStatus.class), stubTypeCaptor.capture(), fieldCaptor.capture(), any(StubHttpLifecycle.class));
+      verify(spyAjaxHandler, never()).renderAjaxResponseContent(any(HttpServletRequest.class), any(HttpServletResponseWithGetStatus.class), anyInt(), anyString(), any(StubHttpLifecycle.class));
 
       assertThat(httpCycleIndexCaptor.getValue()).isEqualTo(5);
       assertThat(stubTypeCaptor.getValue()).isEqualTo("request");
@@ -90,8 +90,8 @@ public class AjaxHandlerTest {
       spyAjaxHandler.handle(requestURI, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
 
       verify(spyAjaxHandler).throwErrorOnNonexistentResourceIndex(any(HttpServletResponseWithGetStatus.class), httpCycleIndexCaptor.capture());
-      verify(spyAjaxHandler, times(1)).renderAjaxResponseContent(any(HttpServletResponseWithGetStatus.class), stubTypeCaptor.capture(), fieldCaptor.capture(), any(StubHttpLifecycle.class));
-      verify(spyAjaxHandler, never()).renderAjaxResponseContent(any(HttpServletResponseWithGetStatus.class), anyInt(), anyString(), any(StubHttpLifecycle.class));
+      verify(spyAjaxHandler, times(1)).renderAjaxResponseContent(any(HttpServletRequest.class), any(HttpServletResponseWithGetStatus.class), stubTypeCaptor.capture(), fieldCaptor.capture(), any(StubHttpLifecycle.class));
+      verify(spyAjaxHandler, never()).renderAjaxResponseContent(any(HttpServletRequest.class), any(HttpServletResponseWithGetStatus.class), anyInt(), anyString(), any(StubHttpLifecycle.class));
 
       assertThat(httpCycleIndexCaptor.getValue()).isEqualTo(15);
       assertThat(stubTypeCaptor.getValue()).isEqualTo("response");
@@ -115,8 +115,8 @@ public class AjaxHandlerTest {
       spyAjaxHandler.handle(requestURI, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
 
       verify(spyAjaxHandler).throwErrorOnNonexistentResourceIndex(any(HttpServletResponseWithGetStatus.class), httpCycleIndexCaptor.capture());
-      verify(spyAjaxHandler, times(1)).renderAjaxResponseContent(any(HttpServletResponseWithGetStatus.class), responseSequenceCaptor.capture(), fieldCaptor.capture(), any(StubHttpLifecycle.class));
-      verify(spyAjaxHandler, never()).renderAjaxResponseContent(any(HttpServletResponseWithGetStatus.class), anyString(), anyString(), any(StubHttpLifecycle.class));
+      verify(spyAjaxHandler, times(1)).renderAjaxResponseContent(any(HttpServletRequest.class), any(HttpServletResponseWithGetStatus.class), responseSequenceCaptor.capture(), fieldCaptor.capture(), any(StubHttpLifecycle.class));
+      verify(spyAjaxHandler, never()).renderAjaxResponseContent(any(HttpServletRequest.class), any(HttpServletResponseWithGetStatus.class), anyString(), anyString(), any(StubHttpLifecycle.class));
 
       assertThat(httpCycleIndexCaptor.getValue()).isEqualTo(15);
       assertThat(responseSequenceCaptor.getValue()).isEqualTo(8);
@@ -1,8 +1,10 @@
 package by.stub.handlers;
 
 import by.stub.cli.ANSITerminal;
+import by.stub.database.StubMatch;
 import by.stub.database.StubbedDataManager;
 import by.stub.yaml.stubs.NotFoundStubResponse;
+import by.stub.yaml.stubs.StubHttpLifecycle;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
 import by.stub.yaml.stubs.StubResponseTypes;
@@ -68,7 +70,7 @@ public class StubsHandlerTest {
 
       when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.GET);
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.NOTFOUND);
 
       final StubsHandler stubsHandler = new StubsHandler(mockStubbedDataManager);
@@ -88,7 +90,7 @@ public class StubsHandlerTest {
 
       when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.POST);
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.NOTFOUND);
       final InputStream inputStream = new ByteArrayInputStream(postData.getBytes());
       Mockito.when(mockHttpServletRequest.getInputStream()).thenReturn(new ServletInputStream() {
@@ -114,7 +116,7 @@ public class StubsHandlerTest {
 
       when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.POST);
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
 
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.OK_200);
       when(mockStubResponse.getStatus()).thenReturn("200");
@@ -135,7 +137,7 @@ public class StubsHandlerTest {
 
       when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.POST);
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.OK_200);
       when(mockStubResponse.getStatus()).thenReturn("200");
 
@@ -165,10 +167,9 @@ public class StubsHandlerTest {
       when(mockHttpServletResponse.getWriter()).thenReturn(mockPrintWriter);
       when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.GET);
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.OK_200);
       when(mockStubResponse.getStatus()).thenReturn("200");
-      when(mockStubResponse.getResponseBody()).thenReturn(null);
 
       final StubsHandler stubsHandler = new StubsHandler(mockStubbedDataManager);
       stubsHandler.handle(requestPathInfo, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
@@ -187,7 +188,7 @@ public class StubsHandlerTest {
       when(mockHttpServletResponse.getWriter()).thenReturn(mockPrintWriter);
       when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.GET);
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.UNAUTHORIZED);
       when(mockStubResponse.getStatus()).thenReturn("200");
       when(mockStubResponse.getBody()).thenReturn(someResultsMessage);
@@ -214,7 +215,7 @@ public class StubsHandlerTest {
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
 
       final StubRequest assertionStubRequest = StubRequest.createFromHttpServletRequest(mockHttpServletRequest);
-      when(mockStubbedDataManager.findStubResponseFor(assertionStubRequest)).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(assertionStubRequest)).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
 
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.UNAUTHORIZED);
       when(mockStubResponse.getStatus()).thenReturn("200");
@@ -239,8 +240,7 @@ public class StubsHandlerTest {
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
       when(mockStubResponse.getStatus()).thenReturn("200");
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.OK_200);
-      when(mockStubResponse.getResponseBody()).thenReturn(null);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
 
       final InputStream inputStream = new ByteArrayInputStream(postData.getBytes());
       Mockito.when(mockHttpServletRequest.getInputStream()).thenReturn(new ServletInputStream() {
@@ -270,8 +270,7 @@ public class StubsHandlerTest {
       when(mockStubResponse.getLatency()).thenReturn("50");
       when(mockStubResponse.getStatus()).thenReturn("200");
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.OK_200);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
-      when(mockStubResponse.getResponseBody()).thenReturn(new byte[]{});
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
       Mockito.when(mockHttpServletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
 
          @Override
@@ -299,7 +298,7 @@ public class StubsHandlerTest {
       when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
       when(mockStubResponse.getLatency()).thenReturn("43rl4knt3l");
       when(mockStubResponse.getStubResponseType()).thenReturn(StubResponseTypes.OK_200);
-      when(mockStubbedDataManager.findStubResponseFor(Mockito.any(StubRequest.class))).thenReturn(mockStubResponse);
+      when(mockStubbedDataManager.findStubMatchFor(Mockito.any(StubRequest.class))).thenReturn(new StubMatch(StubHttpLifecycle.NULL, mockStubResponse));
 
       final StubsHandler stubsHandler = new StubsHandler(mockStubbedDataManager);
       stubsHandler.handle(requestPathInfo, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
@@ -4,7 +4,6 @@ import by.stub.handlers.strategy.stubs.DefaultResponseHandlingStrategy;
 import by.stub.handlers.strategy.stubs.StubResponseHandlingStrategy;
 import by.stub.javax.servlet.http.HttpServletResponseWithGetStatus;
 import by.stub.utils.HandlerUtils;
-import by.stub.utils.StringUtils;
 import by.stub.yaml.stubs.StubRequest;
 import by.stub.yaml.stubs.StubResponse;
 import org.eclipse.jetty.http.HttpHeaders;
@@ -35,8 +34,6 @@ public class DefaultResponseHandlingStrategyTest {
    private static final StubResponse mockStubResponse = Mockito.mock(StubResponse.class);
    private static final StubRequest mockAssertionRequest = Mockito.mock(StubRequest.class);
 
-   private final String someResultsMessage = "we have results";
-
    private static StubResponseHandlingStrategy defaultResponseStubResponseHandlingStrategy;
 
    @BeforeClass
@@ -58,7 +55,6 @@ public class DefaultResponseHandlingStrategyTest {
       final HttpServletResponseWithGetStatus mockHttpServletResponse = Mockito.mock(HttpServletResponseWithGetStatus.class);
 
       when(mockStubResponse.getStatus()).thenReturn("200");
-      when(mockStubResponse.getResponseBody()).thenReturn(new byte[]{});
       Mockito.when(mockHttpServletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
 
          @Override
@@ -79,7 +75,6 @@ public class DefaultResponseHandlingStrategyTest {
       final HttpServletResponseWithGetStatus mockHttpServletResponse = Mockito.mock(HttpServletResponseWithGetStatus.class);
 
       when(mockStubResponse.getStatus()).thenReturn("200");
-      when(mockStubResponse.getResponseBody()).thenReturn(new byte[]{});
       when(mockStubResponse.getLatency()).thenReturn("100");
 
       Mockito.when(mockHttpServletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
@@ -105,7 +100,6 @@ public class DefaultResponseHandlingStrategyTest {
 
       when(mockStubResponse.getStatus()).thenReturn("200");
       when(mockHttpServletResponse.getWriter()).thenReturn(mockPrintWriter);
-      when(mockStubResponse.getResponseBody()).thenReturn(someResultsMessage.getBytes(StringUtils.UTF_8));
       when(mockStubResponse.getLatency()).thenReturn("100");
       Mockito.when(mockHttpServletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
 
@@ -0,0 +1,162 @@
+package by.stub.json;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JsonReaderTest {
+
+   @Rule
+   public ExpectedException expectedException = ExpectedException.none();
+
+   @Test
+   public void shouldReadRootArrayElementsOneByOne() throws Exception {
+
+      final JsonReader reader = new JsonReader(new StringReader(" [ {\"a\": 1}, [true, null], \"b\\\"c\" ] "));
+
+      reader.beginArray();
+      assertThat(reader.hasNext()).isTrue();
+      assertThat(reader.nextValue()).isEqualTo(mapOf("a", "1"));
+      assertThat(reader.hasNext()).isTrue();
+      final List<Object> expectedList = new ArrayList<Object>();
+      expectedList.add("true");
+      expectedList.add(null);
+      assertThat(reader.nextValue()).isEqualTo(expectedList);
+      assertThat(reader.hasNext()).isTrue();
+      assertThat(reader.nextValue()).isEqualTo("b\"c");
+      assertThat(reader.hasNext()).isFalse();
+      reader.endArray();
+   }
+
+   @Test
+   public void shouldReadEmptyRootArray() throws Exception {
+
+      final JsonReader reader = new JsonReader(new StringReader("[]"));
+
+      reader.beginArray();
+      assertThat(reader.hasNext()).isFalse();
+      reader.endArray();
+   }
+
+   @Test
+   public void shouldReadStringsLongerThanReadBuffer() throws Exception {
+
+      final StringBuilder longString = new StringBuilder();
+      for (int index = 0; index < 20000; index++) {
+         longString.append(index % 10);
+      }
+
+      final JsonReader reader = new JsonReader(new StringReader(String.format("[\"%s\\t\"]", longString)));
+      reader.beginArray();
+      reader.hasNext();
+
+      assertThat(reader.nextValue()).isEqualTo(longString + "\t");
+   }
+
+   @Test
+   public void shouldFail_WhenContentFollowsRootArray() throws Exception {
+
+      expectedException.expect(IOException.class);
+      expectedException.expectMessage("Malformed JSON at character 4: Unexpected content after the root array");
+
+      final JsonReader reader = new JsonReader(new StringReader("[1] 2"));
+      reader.beginArray();
+      reader.hasNext();
+      reader.nextValue();
+      reader.endArray();
+   }
+
+   @Test
+   public void shouldFail_WhenStringIsUnterminated() throws Exception {
+
+      expectedException.expect(IOException.class);
+      expectedException.expectMessage("Unterminated string");
+
+      final JsonReader reader = new JsonReader(new StringReader("[\"abc"));
+      reader.beginArray();
+      reader.hasNext();
+      reader.nextValue();
+   }
+
+   @Test
+   public void shouldReadBackWhatJsonWriterWrote() throws Exception {
+
+      final Map<String, Object> response = mapOf("body", "line\n\"quoted\" \\ \u0001 \u00e9");
+      final List<Object> responses = new ArrayList<Object>();
+      responses.add(response);
+      final Map<String, Object> stub = mapOf("request", mapOf("url", "/a"));
+      stub.put("response", responses);
+
+      final StringWriter written = new StringWriter();
+      final JsonWriter writer = new JsonWriter(written);
+      writer.beginArray();
+      writer.writeElement(stub);
+      writer.writeElement(stub);
+      writer.endArray();
+
+      final JsonReader reader = new JsonReader(new StringReader(written.toString()));
+      reader.beginArray();
+      for (int index = 0; index < 2; index++) {
+         assertThat(reader.hasNext()).isTrue();
+         assertThat(reader.nextValue()).isEqualTo(stub);
+      }
+      assertThat(reader.hasNext()).isFalse();
+      reader.endArray();
+   }
+
+   @Test
+   public void shouldReadBackObjectsAndNumbersJsonWriterStreamed() throws Exception {
+
+      final StringWriter written = new StringWriter();
+      final JsonWriter writer = new JsonWriter(written);
+      writer.beginArray();
+      writer.beginObject();
+      writer.writeName("id");
+      writer.writeNumber(7);
+      writer.writeName("hits");
+      writer.beginArray();
+      writer.writeNumber(1);
+      writer.writeValue(null);
+      writer.endArray();
+      writer.writeName("empty");
+      writer.beginObject();
+      writer.endObject();
+      writer.endObject();
+      writer.writeElement("last");
+      writer.endArray();
+
+      assertThat(written.toString()).isEqualTo("[{\"id\":7,\"hits\":[1,null],\"empty\":{}},\"last\"]");
+
+      final JsonReader reader = new JsonReader(new StringReader(written.toString()));
+      reader.beginArray();
+      assertThat(reader.hasNext()).isTrue();
+      final Map<String, Object> object = mapOf("id", "7");
+      final List<Object> hits = new ArrayList<Object>();
+      hits.add("1");
+      hits.add(null);
+      object.put("hits", hits);
+      object.put("empty", new LinkedHashMap<String, Object>());
+      assertThat(reader.nextValue()).isEqualTo(object);
+      assertThat(reader.hasNext()).isTrue();
+      assertThat(reader.nextValue()).isEqualTo("last");
+      assertThat(reader.hasNext()).isFalse();
+      reader.endArray();
+   }
+
+   private static Map<String, Object> mapOf(final String key, final Object value) {
+      final Map<String, Object> map = new LinkedHashMap<String, Object>();
+      map.put(key, value);
+
+      return map;
+   }
+}
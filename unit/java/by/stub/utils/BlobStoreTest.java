@@ -0,0 +1,107 @@
+package by.stub.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.ref.WeakReference;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class BlobStoreTest {
+
+   @Test
+   public void shouldReuseBlob_WhenSameFileIsLoadedAgain() throws Exception {
+      final File file = writeTempFile(uniqueContent("reused"));
+
+      final BlobStore.Blob loadedBlob = BlobStore.fileToBlob(file);
+
+      assertThat(BlobStore.fileToBlob(file)).isSameAs(loadedBlob);
+   }
+
+   @Test
+   public void shouldShareBlob_WhenDifferentFilesHaveSameContent() throws Exception {
+      final String content = uniqueContent("shared");
+      final File file = writeTempFile(content);
+      final File otherFile = writeTempFile(content);
+
+      final BlobStore.Blob loadedBlob = BlobStore.fileToBlob(file);
+
+      assertThat(BlobStore.fileToBlob(otherFile)).isSameAs(loadedBlob);
+      assertThat(loadedBlob.toStringUtf8()).isEqualTo(content);
+   }
+
+   @Test
+   public void shouldLoadNewBlob_WhenFileContentChanges() throws Exception {
+      final File file = writeTempFile(uniqueContent("before"));
+      final BlobStore.Blob loadedBlob = BlobStore.fileToBlob(file);
+
+      final String changedContent = uniqueContent("changed after");
+      write(file, changedContent);
+
+      final BlobStore.Blob reloadedBlob = BlobStore.fileToBlob(file);
+
+      assertThat(reloadedBlob).isNotSameAs(loadedBlob);
+      assertThat(reloadedBlob.toStringUtf8()).isEqualTo(changedContent);
+   }
+
+   @Test
+   public void shouldNotChangeSharedContent_WhenCopyOfItIsChanged() throws Exception {
+      final String content = uniqueContent("read only");
+      final BlobStore.Blob loadedBlob = BlobStore.fileToBlob(writeTempFile(content));
+
+      final byte[] copy = loadedBlob.toByteArray();
+      copy[0] = '#';
+
+      assertThat(loadedBlob.toStringUtf8()).isEqualTo(content);
+      assertThat(BlobStore.fileToBlob(writeTempFile(content)).toStringUtf8()).isEqualTo(content);
+   }
+
+   @Test
+   public void shouldWriteRangeOfContent_WhenRangeIsWritten() throws Exception {
+      final BlobStore.Blob loadedBlob = BlobStore.fileToBlob(writeTempFile(uniqueContent("0123456789")));
+
+      final ByteArrayOutputStream written = new ByteArrayOutputStream();
+      loadedBlob.writeTo(written, 2, 5);
+
+      assertThat(StringUtils.newStringUtf8(written.toByteArray())).isEqualTo("23456");
+   }
+
+   @Test
+   public void shouldReleaseBlob_WhenNoLongerReferenced() throws Exception {
+      BlobStore.Blob loadedBlob = BlobStore.fileToBlob(writeTempFile(uniqueContent("released")));
+      final WeakReference<BlobStore.Blob> releasedBlob = new WeakReference<BlobStore.Blob>(loadedBlob);
+      final int storedBlobs = BlobStore.countStoredBlobs();
+
+      loadedBlob = null;
+      for (int attempt = 0; attempt < 50 && releasedBlob.get() != null; attempt++) {
+         System.gc();
+         Thread.sleep(20);
+      }
+
+      assertThat(releasedBlob.get()).isNull();
+      assertThat(BlobStore.countStoredBlobs()).isLessThan(storedBlobs);
+   }
+
+   private static String uniqueContent(final String content) {
+      return String.format("%s %s", content, System.nanoTime());
+   }
+
+   private static File writeTempFile(final String content) throws Exception {
+      final File file = File.createTempFile("blob", ".txt");
+      file.deleteOnExit();
+      write(file, content);
+
+      return file;
+   }
+
+   private static void write(final File file, final String content) throws Exception {
+      final FileOutputStream streamOut = new FileOutputStream(file);
+      try {
+         streamOut.write(StringUtils.getBytesUtf8(content));
+      } finally {
+         streamOut.close();
+      }
+   }
+}
@@ -1,9 +1,27 @@
 package by.stub.utils;
 
+import by.stub.exception.RequestBodyTooLargeException;
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.http.HttpMethods;
 import org.eclipse.jetty.http.HttpSchemes;
+import org.eclipse.jetty.http.HttpStatus;
 import org.junit.Test;
 
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Alexander Zagniotov
@@ -21,6 +39,34 @@ public class HandlerUtilsTest {
       assertThat(actualEscaped).isEqualTo(expectedEscaped);
    }
 
+   @Test
+   public void shouldNotAnswerRequest_WhenItsMethodIsAllowed() throws Exception {
+
+      final HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+      final HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+      when(mockRequest.getMethod()).thenReturn(HttpMethods.DELETE);
+
+      assertThat(HandlerUtils.rejectUnlessMethodAllowed(mockRequest, mockResponse, HttpMethods.GET, HttpMethods.DELETE)).isFalse();
+      verifyZeroInteractions(mockResponse);
+   }
+
+   @Test
+   public void shouldAnswerMethodNotAllowed_WhenRequestMethodIsNotAllowed() throws Exception {
+
+      final HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+      final HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+      final StringWriter written = new StringWriter();
+      when(mockRequest.getMethod()).thenReturn(HttpMethods.PUT);
+      when(mockRequest.getRequestURI()).thenReturn("/stats");
+      when(mockResponse.getWriter()).thenReturn(new PrintWriter(written));
+
+      assertThat(HandlerUtils.rejectUnlessMethodAllowed(mockRequest, mockResponse, HttpMethods.GET, HttpMethods.DELETE)).isTrue();
+
+      verify(mockResponse).setStatus(HttpStatus.METHOD_NOT_ALLOWED_405);
+      verify(mockResponse).setHeader(HttpHeaders.ALLOW, "GET, DELETE");
+      assertThat(written.toString().trim()).isEqualTo("Method PUT is not allowed on URI /stats");
+   }
+
    @Test
    public void shouldLinkifyUriString() throws Exception {
 
@@ -47,4 +93,46 @@ public class HandlerUtilsTest {
 
       assertThat(actualLinkified).isEqualTo(expectedLinkified);
    }
+
+   @Test
+   public void shouldReadRequestBody_WhenBodyIsWithinLimit() throws Exception {
+
+      final Reader bodyReader = HandlerUtils.constructRequestBodyReader(mockRequestWithBody("  - request:", -1), 1024);
+
+      assertThat(new BufferedReader(bodyReader).readLine()).isEqualTo("  - request:");
+   }
+
+   @Test
+   public void shouldNotConstructRequestBodyReader_WhenBodyIsBlank() throws Exception {
+
+      assertThat(HandlerUtils.constructRequestBodyReader(mockRequestWithBody(" \n\t ", -1), 1024)).isNull();
+   }
+
+   @Test(expected = RequestBodyTooLargeException.class)
+   public void shouldFailReadingRequestBody_WhenBodyWithoutContentLengthExceedsLimit() throws Exception {
+
+      final Reader bodyReader = HandlerUtils.constructRequestBodyReader(mockRequestWithBody("0123456789", -1), 5);
+
+      new BufferedReader(bodyReader).readLine();
+   }
+
+   @Test(expected = RequestBodyTooLargeException.class)
+   public void shouldNotConstructRequestBodyReader_WhenContentLengthExceedsLimit() throws Exception {
+
+      HandlerUtils.constructRequestBodyReader(mockRequestWithBody("0123456789", 10), 5);
+   }
+
+   private static HttpServletRequest mockRequestWithBody(final String body, final int contentLength) throws IOException {
+      final ByteArrayInputStream bodyStream = new ByteArrayInputStream(StringUtils.getBytesUtf8(body));
+      final HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.getContentLength()).thenReturn(contentLength);
+      when(request.getInputStream()).thenReturn(new ServletInputStream() {
+         @Override
+         public int read() throws IOException {
+            return bodyStream.read();
+         }
+      });
+
+      return request;
+   }
 }
@@ -0,0 +1,68 @@
+package by.stub.utils;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+   @Test
+   public void shouldCountDurationsIntoDoublingBuckets() throws Exception {
+
+      final LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(500);
+      histogram.record(1000);
+      histogram.record(3999);
+      histogram.record(4000);
+
+      assertThat(histogram.getBucketCount(0)).isEqualTo(1);
+      assertThat(histogram.getBucketCount(1)).isEqualTo(1);
+      assertThat(histogram.getBucketCount(2)).isEqualTo(1);
+      assertThat(histogram.getBucketCount(3)).isEqualTo(1);
+      assertThat(histogram.getCount()).isEqualTo(4);
+      assertThat(histogram.getTotalNanos()).isEqualTo(9499);
+      assertThat(histogram.getMaxNanos()).isEqualTo(4000);
+   }
+
+   @Test
+   public void shouldCountVeryLongDurationsIntoLastBucket() throws Exception {
+
+      final LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(Long.MAX_VALUE);
+
+      assertThat(histogram.getBucketCount(LatencyHistogram.BUCKET_COUNT - 1)).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldReturnBucketUpperBoundCappedAtMax_WhenPercentileAsked() throws Exception {
+
+      final LatencyHistogram histogram = new LatencyHistogram();
+      for (int index = 0; index < 99; index++) {
+         histogram.record(3000);
+      }
+      histogram.record(100000);
+
+      assertThat(histogram.getPercentileMicros(50)).isEqualTo(4);
+      assertThat(histogram.getPercentileMicros(99)).isEqualTo(4);
+      assertThat(histogram.getPercentileMicros(100)).isEqualTo(100);
+   }
+
+   @Test
+   public void shouldReturnZeroPercentile_WhenNothingRecorded() throws Exception {
+
+      assertThat(new LatencyHistogram().getPercentileMicros(99)).isZero();
+   }
+
+   @Test
+   public void shouldClearEverything_WhenReset() throws Exception {
+
+      final LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(2000);
+      histogram.reset();
+
+      assertThat(histogram.getCount()).isZero();
+      assertThat(histogram.getTotalNanos()).isZero();
+      assertThat(histogram.getMaxNanos()).isZero();
+      assertThat(histogram.getBucketCount(2)).isZero();
+   }
+}
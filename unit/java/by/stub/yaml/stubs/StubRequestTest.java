@@ -2,6 +2,7 @@ package by.stub.yaml.stubs;
 
 import by.stub.builder.stubs.StubRequestBuilder;
 import by.stub.utils.FileUtils;
+import by.stub.utils.StringUtils;
 import com.google.api.client.http.HttpMethods;
 import org.junit.Test;
 
@@ -9,6 +10,7 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -1867,4 +1869,42 @@ public class StubRequestTest {
 
       assertThat(actualRequest.toString()).isEqualTo(expectedToStringOutput);
    }
-}
\ No newline at end of file
+
+   @Test
+   public void shouldGetDisplayedPropertiesAndValues() throws Exception {
+      final StubRequest stubRequest = StubRequest.newStubRequest();
+      stubRequest.addMethod(HttpMethods.POST);
+      final Map<String, String> properties = stubRequest.getProperties();
+
+      assertThat(properties.keySet()).containsExactly("url", "method", "headers", "query", "post", "file");
+      assertThat(properties.get("method")).isEqualTo("[POST]");
+      assertThat(properties.get("url")).isEqualTo(StringUtils.NOT_PROVIDED);
+      assertThat(properties.get("post")).isEqualTo(StringUtils.NOT_PROVIDED);
+      assertThat(properties.get("headers")).isEqualTo("{}");
+   }
+
+   @Test
+   public void shouldDescribePostOnlyByPresence_WhenPropertiesAreDisplayed() throws Exception {
+      final StubRequest stubRequest = StubRequest.newStubRequest("/some/uri", "some post");
+      final Map<String, String> properties = stubRequest.getProperties();
+
+      assertThat(properties.get("post")).isEqualTo(StringUtils.PROVIDED);
+      assertThat(properties.get("file")).isEmpty();
+   }
+
+   @Test
+   public void shouldGetPropertyValue_IgnoringCase() throws Exception {
+      final StubRequest stubRequest = StubRequest.newStubRequest("/some/uri", "some post");
+
+      assertThat(stubRequest.getPropertyValue("POST")).isEqualTo("some post");
+      assertThat(stubRequest.getPropertyValue("url")).isEqualTo("/some/uri");
+   }
+
+   @Test
+   public void shouldReturnNullPropertyValue_WhenPropertyIsNotDisplayed() throws Exception {
+      final StubRequest stubRequest = StubRequest.newStubRequest("/some/uri", "some post");
+
+      assertThat(stubRequest.getPropertyValue("fileBytes")).isNull();
+      assertThat(stubRequest.getPropertyValue(null)).isNull();
+   }
+}
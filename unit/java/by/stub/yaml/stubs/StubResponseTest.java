@@ -5,6 +5,7 @@ import by.stub.utils.StringUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Map;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -74,4 +75,22 @@ public class StubResponseTest {
         final StubResponse stubResponse = new StubResponse("206", "", null, null, null);
         assertThat(stubResponse.isPartial()).isTrue();
     }
+
+   @Test
+   public void shouldDescribeBodyAndFileOnlyByPresence_WhenPropertiesAreDisplayed() throws Exception {
+      final StubResponse stubResponse = new StubResponse("200", "some body", FileUtils.fileFromString("content"), null, null);
+      final Map<String, String> properties = stubResponse.getProperties();
+
+      assertThat(properties.get("body")).isEqualTo(StringUtils.PROVIDED);
+      assertThat(properties.get("file")).isEqualTo(StringUtils.PROVIDED);
+      assertThat(properties.get("status")).isEqualTo("200");
+   }
+
+   @Test
+   public void shouldNotDescribeBodyAndFile_WhenTheyAreEmpty() throws Exception {
+      final Map<String, String> properties = StubResponse.newStubResponse("200", null).getProperties();
+
+      assertThat(properties.get("body")).isEmpty();
+      assertThat(properties.get("file")).isEmpty();
+   }
 }